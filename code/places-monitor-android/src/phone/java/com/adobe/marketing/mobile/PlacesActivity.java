@@ -36,6 +36,7 @@ public class PlacesActivity extends Activity {
 
 	private static final String FINE_LOCATION = Manifest.permission.ACCESS_FINE_LOCATION;
 	private static final String BACKGROUND_LOCATION = Manifest.permission.ACCESS_BACKGROUND_LOCATION;
+	private static final String ACTIVITY_RECOGNITION = Manifest.permission.ACTIVITY_RECOGNITION;
 	private static final String INTENT_PERMISSION_KEY = "intent permission key";
 
 	/**
@@ -97,6 +98,38 @@ public class PlacesActivity extends Activity {
 	}
 
 
+	/**
+	 * Checks if permission to recognize the physical activity of the user has been granted.
+	 * <ol>
+	 *   <li> Returns true for the devices running on versions below Android Q, Since the permission is granted at install time
+	 *   when declared in the App's Manifest file.</li>
+	 *   <li> Returns true if the permission for activity recognition is already granted. </li>
+	 *   <li> Returns false if the permission for activity recognition is not granted or if the app context is null.</li>
+	 * </ol>
+	 * The permission is never requested by the places monitor, it is up to the application to request it.
+	 *
+	 * @return Returns {@code boolean} representing the permission to recognize the physical activity of the user
+	 */
+	static boolean isActivityRecognitionPermissionGranted() {
+		// for version below API 29, the permission is granted at install time
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+			return true;
+		}
+
+		// get hold of the app context. bail out if null
+		Context context = App.getAppContext();
+
+		if (context == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to check activity recognition permission, App context is not available");
+			return false;
+		}
+
+		int permissionState = ActivityCompat.checkSelfPermission(context, ACTIVITY_RECOGNITION);
+		return permissionState == PackageManager.PERMISSION_GRANTED;
+	}
+
+
 	/**
 	 * Request permission to access fine location from the user.
 	 * <ol>
@@ -0,0 +1,216 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesActivityRecognitionMotionGate.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.content.LocalBroadcastManager;
+
+import com.google.android.gms.location.ActivityRecognition;
+import com.google.android.gms.location.ActivityRecognitionClient;
+import com.google.android.gms.location.ActivityTransition;
+import com.google.android.gms.location.ActivityTransitionEvent;
+import com.google.android.gms.location.ActivityTransitionRequest;
+import com.google.android.gms.location.ActivityTransitionResult;
+import com.google.android.gms.location.DetectedActivity;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PlacesMotionGate} observing the transitions of the device in and out of the {@link DetectedActivity#STILL} activity
+ * with the {@link ActivityRecognitionClient}.
+ * <p>
+ * The transitions are received by the {@link PlacesActivityTransitionBroadcastReceiver} and forwarded to this gate through
+ * the {@link LocalBroadcastManager}. If the activity transitions cannot be requested, for instance when the activity
+ * recognition permission is not granted, the gate reports no transition and the location updates are never paused. The gate
+ * is then left stopped, so that the next {@link #start(Listener)} tries again.
+ */
+class PlacesActivityRecognitionMotionGate implements PlacesMotionGate {
+	private Listener listener;
+	private PendingIntent transitionPendingIntent;
+	private boolean isStarted;
+
+	private final BroadcastReceiver internalTransitionReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			onTransitionReceived(intent);
+		}
+	};
+
+	@Override
+	public synchronized void start(final Listener listener) {
+		this.listener = listener;
+
+		if (isStarted) {
+			return;
+		}
+
+		final Context context = App.getAppContext();
+
+		if (context == null) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Unable to start the motion gate, App context is null");
+			return;
+		}
+
+		if (!PlacesActivity.isActivityRecognitionPermissionGranted()) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "Unable to start the motion gate, the activity recognition permission is not granted");
+			return;
+		}
+
+		final ActivityRecognitionClient client = ActivityRecognition.getClient(context);
+		final PendingIntent pendingIntent = getPendingIntent(context);
+
+		if (client == null || pendingIntent == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Unable to start the motion gate, activity recognition is unavailable");
+			return;
+		}
+
+		final List<ActivityTransition> transitions = new ArrayList<ActivityTransition>();
+		transitions.add(new ActivityTransition.Builder().setActivityType(DetectedActivity.STILL)
+						.setActivityTransition(ActivityTransition.ACTIVITY_TRANSITION_ENTER).build());
+		transitions.add(new ActivityTransition.Builder().setActivityType(DetectedActivity.STILL)
+						.setActivityTransition(ActivityTransition.ACTIVITY_TRANSITION_EXIT).build());
+
+		final Task<Void> task;
+
+		try {
+			task = client.requestActivityTransitionUpdates(new ActivityTransitionRequest(transitions), pendingIntent);
+		} catch (SecurityException e) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Unable to request the activity transitions, SecurityException: " +
+						e.getMessage());
+			return;
+		}
+
+		LocalBroadcastManager.getInstance(context).registerReceiver(internalTransitionReceiver,
+				new IntentFilter(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_ACTIVITY_TRANSITION));
+		isStarted = true;
+
+		if (task == null) {
+			return;
+		}
+
+		task.addOnSuccessListener(new OnSuccessListener<Void>() {
+			@Override
+			public void onSuccess(Void result) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Motion gate started, observing the still activity transitions");
+			}
+		});
+		task.addOnFailureListener(new OnFailureListener() {
+			@Override
+			public void onFailure(Exception e) {
+				Log.warning(PlacesMonitorConstants.LOG_TAG,
+							"Unable to request the activity transitions, the location updates will not be paused while the device is still: "
+							+ e.getLocalizedMessage());
+				onRequestFailed(context);
+			}
+		});
+	}
+
+	@Override
+	public synchronized void stop() {
+		listener = null;
+
+		if (!isStarted) {
+			return;
+		}
+
+		isStarted = false;
+		final Context context = App.getAppContext();
+
+		if (context == null) {
+			return;
+		}
+
+		LocalBroadcastManager.getInstance(context).unregisterReceiver(internalTransitionReceiver);
+		final ActivityRecognitionClient client = ActivityRecognition.getClient(context);
+
+		if (client != null && transitionPendingIntent != null) {
+			client.removeActivityTransitionUpdates(transitionPendingIntent);
+		}
+	}
+
+	/**
+	 * Reports the last still activity transition contained in the given intent to the {@link #listener}.
+	 * <p>
+	 * No action is taken if the intent contains no activity transition result, or no transition of the still activity.
+	 *
+	 * @param intent the {@link Intent} broadcasted by the {@link PlacesActivityTransitionBroadcastReceiver}
+	 */
+	void onTransitionReceived(final Intent intent) {
+		if (intent == null || !ActivityTransitionResult.hasResult(intent)) {
+			return;
+		}
+
+		final ActivityTransitionResult result = ActivityTransitionResult.extractResult(intent);
+
+		if (result == null || result.getTransitionEvents() == null) {
+			return;
+		}
+
+		Boolean isStill = null;
+
+		for (ActivityTransitionEvent event : result.getTransitionEvents()) {
+			if (event.getActivityType() == DetectedActivity.STILL) {
+				isStill = event.getTransitionType() == ActivityTransition.ACTIVITY_TRANSITION_ENTER;
+			}
+		}
+
+		final Listener currentListener;
+
+		synchronized (this) {
+			currentListener = listener;
+		}
+
+		if (isStill != null && currentListener != null) {
+			currentListener.onMotionStateChanged(isStill);
+		}
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Leaves the gate stopped after the activity transitions failed to be requested, keeping the listener for the next start.
+	 */
+	private synchronized void onRequestFailed(final Context context) {
+		if (!isStarted) {
+			return;
+		}
+
+		isStarted = false;
+		LocalBroadcastManager.getInstance(context).unregisterReceiver(internalTransitionReceiver);
+	}
+
+	private PendingIntent getPendingIntent(final Context context) {
+		if (transitionPendingIntent != null) {
+			return transitionPendingIntent;
+		}
+
+		final Intent intent = new Intent(context, PlacesActivityTransitionBroadcastReceiver.class);
+		intent.setAction(PlacesActivityTransitionBroadcastReceiver.ACTION_ACTIVITY_TRANSITION_UPDATE);
+		transitionPendingIntent = PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+		return transitionPendingIntent;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesActivityTransitionBroadcastReceiver.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.LocalBroadcastManager;
+
+/**
+ * Broadcast receiver for the activity transition updates.
+ * <p>
+ *  Receive broadcast messages from Android OS about the device starting or stopping to move.
+ */
+public class PlacesActivityTransitionBroadcastReceiver extends BroadcastReceiver {
+	static final String ACTION_ACTIVITY_TRANSITION_UPDATE =
+		"com.adobe.marketing.mobile.PlacesActivityTransitionBroadcastReceiver.activityTransitionUpdates";
+
+	/**
+	 * This method is called when the BroadcastReceiver is receiving an intent broadcast with activity transitions.
+	 * <p>
+	 *  Broadcasts the obtained intent to the internal receiver created and listened by {@link PlacesActivityRecognitionMotionGate}
+	 *  No action is taken if the passed intent or context is null.
+	 *  No action is taken if the actionName of the intent is not same as {@link #ACTION_ACTIVITY_TRANSITION_UPDATE}
+	 *
+	 * @param context the application's {@link Context}
+	 * @param intent the broadcasted activity transition message wrapped in an intent
+	 */
+	@Override
+	public void onReceive(Context context, Intent intent) {
+		if (intent == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"PlacesActivityTransitionBroadcastReceiver : Unable to process the activity transition, the received intent is null");
+			return;
+		}
+
+		final String action = intent.getAction();
+
+		if (!ACTION_ACTIVITY_TRANSITION_UPDATE.equals(action)) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"PlacesActivityTransitionBroadcastReceiver : Unable to process the activity transition, invalid action type received");
+			return;
+		}
+
+		if (context == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"PlacesActivityTransitionBroadcastReceiver : Unable to process the activity transition, context is null");
+			return;
+		}
+
+		// change the action name of the intent to broadcast it to the internal class
+		intent.setAction(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_ACTIVITY_TRANSITION);
+		LocalBroadcastManager manager = LocalBroadcastManager.getInstance(context);
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesActivityTransitionBroadcastReceiver : Broadcasting the obtained activity transition to the motion gate");
+		manager.sendBroadcast(intent);
+	}
+
+}
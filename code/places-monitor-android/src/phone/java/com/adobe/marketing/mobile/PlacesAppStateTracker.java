@@ -0,0 +1,144 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesAppStateTracker.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+/**
+ * Class to follow the app moving between foreground and background, from the lifecycle of its activities.
+ * <p>
+ * The app is in foreground while at least one of its activities is started. An activity stopped to be recreated after a
+ * configuration change, such as a rotation, does not move the app to background, since the recreated activity starts
+ * right after.
+ */
+class PlacesAppStateTracker implements Application.ActivityLifecycleCallbacks {
+
+	/**
+	 * Interface to be notified when the app moves between foreground and background.
+	 */
+	interface Listener {
+		/**
+		 * Called when the app moves between foreground and background.
+		 *
+		 * @param isForeground {@code boolean} indicating if the app is now in foreground
+		 */
+		void onAppStateChanged(boolean isForeground);
+	}
+
+	private final Listener listener;
+	private int startedActivityCount;
+	private boolean isForeground;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param listener the {@link Listener} to be notified of the app state changes
+	 */
+	PlacesAppStateTracker(final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts following the lifecycle of the activities of the given {@link Application}.
+	 * <p>
+	 * The app is assumed to be in foreground if it has a current activity.
+	 *
+	 * @param application the {@code Application} to be followed
+	 */
+	void register(final Application application) {
+		final boolean hasCurrentActivity = App.getCurrentActivity() != null;
+
+		synchronized (this) {
+			isForeground = hasCurrentActivity;
+			startedActivityCount = hasCurrentActivity ? 1 : 0;
+		}
+
+		application.registerActivityLifecycleCallbacks(this);
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Following the app state, the app is in " + (hasCurrentActivity ? "foreground" :
+				  "background"));
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the app is in foreground
+	 */
+	synchronized boolean isForeground() {
+		return isForeground;
+	}
+
+	@Override
+	public void onActivityStarted(final Activity activity) {
+		synchronized (this) {
+			startedActivityCount++;
+
+			if (isForeground) {
+				return;
+			}
+
+			isForeground = true;
+		}
+
+		notifyListener(true);
+	}
+
+	@Override
+	public void onActivityStopped(final Activity activity) {
+		synchronized (this) {
+			startedActivityCount = Math.max(0, startedActivityCount - 1);
+
+			if (!isForeground || startedActivityCount > 0 || (activity != null && activity.isChangingConfigurations())) {
+				return;
+			}
+
+			isForeground = false;
+		}
+
+		notifyListener(false);
+	}
+
+	@Override
+	public void onActivityCreated(final Activity activity, final Bundle savedInstanceState) {
+	}
+
+	@Override
+	public void onActivityResumed(final Activity activity) {
+	}
+
+	@Override
+	public void onActivityPaused(final Activity activity) {
+	}
+
+	@Override
+	public void onActivitySaveInstanceState(final Activity activity, final Bundle outState) {
+	}
+
+	@Override
+	public void onActivityDestroyed(final Activity activity) {
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private void notifyListener(final boolean isForeground) {
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "The app moved to " + (isForeground ? "foreground" : "background"));
+
+		if (listener != null) {
+			listener.onAppStateChanged(isForeground);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesConnectivityMonitor.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Build;
+
+/**
+ * Class to be notified when the network connectivity of the device may have been restored.
+ * <p>
+ * From API level 24 the default network is followed with a {@link ConnectivityManager.NetworkCallback}, whose
+ * {@code onAvailable} is also called right after registration if a network is already available. Below, the
+ * {@link ConnectivityManager#CONNECTIVITY_ACTION} broadcast is received instead. Either is registered only between
+ * {@link #start(Context)} and {@link #stop(Context)}.
+ */
+class PlacesConnectivityMonitor {
+
+	/**
+	 * Interface to be notified when the network connectivity may have been restored.
+	 */
+	interface Listener {
+		/**
+		 * Called when a network becomes available or the connectivity of the device changes.
+		 */
+		void onConnectivityChanged();
+	}
+
+	private final Listener listener;
+	private boolean isStarted;
+	private ConnectivityManager.NetworkCallback networkCallback;
+
+	private final BroadcastReceiver connectivityReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(final Context context, final Intent intent) {
+			notifyListener();
+		}
+	};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param listener the {@link Listener} to be notified of the connectivity changes
+	 */
+	PlacesConnectivityMonitor(final Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts following the network connectivity.
+	 * <p>
+	 * No action is taken if the monitor is already started.
+	 *
+	 * @param context the application {@link Context}
+	 */
+	synchronized void start(final Context context) {
+		if (isStarted || context == null) {
+			return;
+		}
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+			final ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(
+						Context.CONNECTIVITY_SERVICE);
+
+			if (connectivityManager != null) {
+				try {
+					final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+						@Override
+						public void onAvailable(final Network network) {
+							notifyListener();
+						}
+					};
+					connectivityManager.registerDefaultNetworkCallback(callback);
+					networkCallback = callback;
+					isStarted = true;
+					Log.debug(PlacesMonitorConstants.LOG_TAG, "Following the network connectivity with a network callback");
+					return;
+				} catch (SecurityException e) {
+					Log.debug(PlacesMonitorConstants.LOG_TAG,
+							  "Unable to register a network callback, ACCESS_NETWORK_STATE permission is not granted");
+				}
+			}
+		}
+
+		context.registerReceiver(connectivityReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+		isStarted = true;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Following the network connectivity with the connectivity broadcast");
+	}
+
+	/**
+	 * Stops following the network connectivity.
+	 * <p>
+	 * No action is taken if the monitor is not started.
+	 *
+	 * @param context the application {@link Context}
+	 */
+	synchronized void stop(final Context context) {
+		if (!isStarted || context == null) {
+			return;
+		}
+
+		try {
+			if (networkCallback != null) {
+				final ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(
+							Context.CONNECTIVITY_SERVICE);
+
+				if (connectivityManager != null) {
+					connectivityManager.unregisterNetworkCallback(networkCallback);
+				}
+			} else {
+				context.unregisterReceiver(connectivityReceiver);
+			}
+		} catch (IllegalArgumentException e) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "The network connectivity was not followed, " + e.getMessage());
+		}
+
+		networkCallback = null;
+		isStarted = false;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Stopped following the network connectivity");
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the network connectivity is followed
+	 */
+	synchronized boolean isStarted() {
+		return isStarted;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private void notifyListener() {
+		if (listener != null) {
+			listener.onConnectivityChanged();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesDistrictTier.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class to group the planned geofences of the nearby POIs into coarse district fences.
+ * <p>
+ * The district fences stay registered with the OS, while the fine fences of a district are registered only while the
+ * district is active. A district is activated when the user enters it and released when the user leaves it, so the slots
+ * and the wakeups of the OS follow the location of the user instead of covering all the nearby POIs. A district encloses
+ * the fine fences grouped in it, so leaving it is the exit of all its POIs.
+ * <p>
+ * The fences are grouped around the leading fence of each district, in the given order. The districts are used only if the
+ * nearby POIs span at least {@link PlacesMonitorConstants.DistrictTier#MIN_DISTRICT_COUNT} districts and registering them
+ * takes fewer slots than registering all the fine fences.
+ */
+class PlacesDistrictTier {
+	private List<PlacesFencePlanner.Fence> fineFences;
+	private Map<String, PlacesFencePlanner.Fence> districts;
+	private Map<String, List<PlacesFencePlanner.Fence>> districtFences;
+	private Set<String> activeDistricts;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesDistrictTier() {
+		clear();
+	}
+
+	/**
+	 * Groups the given fine fences into districts.
+	 * <p>
+	 * The districts which were active and are planned again stay active.
+	 *
+	 * @param plannedFences the ranked {@link List} of {@link PlacesFencePlanner.Fence}s of the nearby POIs
+	 */
+	synchronized void setFences(final List<PlacesFencePlanner.Fence> plannedFences) {
+		final List<List<PlacesFencePlanner.Fence>> groups = new ArrayList<List<PlacesFencePlanner.Fence>>();
+
+		for (PlacesFencePlanner.Fence fence : plannedFences) {
+			List<PlacesFencePlanner.Fence> district = null;
+
+			for (List<PlacesFencePlanner.Fence> group : groups) {
+				final PlacesFencePlanner.Fence seed = group.get(0);
+
+				if (PlacesGeoMath.haversine(seed.getLatitude(), seed.getLongitude(), fence.getLatitude(), fence.getLongitude())
+						+ fence.getRadius() <= PlacesMonitorConstants.DistrictTier.MAX_DISTRICT_RADIUS) {
+					district = group;
+					break;
+				}
+			}
+
+			if (district == null) {
+				district = new ArrayList<PlacesFencePlanner.Fence>();
+				groups.add(district);
+			}
+
+			district.add(fence);
+		}
+
+		fineFences = new ArrayList<PlacesFencePlanner.Fence>(plannedFences);
+		districts = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+		districtFences = new LinkedHashMap<String, List<PlacesFencePlanner.Fence>>();
+		final Set<String> active = new HashSet<String>();
+
+		if (groups.size() < PlacesMonitorConstants.DistrictTier.MIN_DISTRICT_COUNT) {
+			activeDistricts = active;
+			return;
+		}
+
+		for (List<PlacesFencePlanner.Fence> group : groups) {
+			final PlacesFencePlanner.Fence district = toDistrict(group);
+			districts.put(district.getIdentifier(), district);
+			districtFences.put(district.getIdentifier(), Collections.unmodifiableList(group));
+
+			if (activeDistricts.contains(district.getIdentifier())) {
+				active.add(district.getIdentifier());
+			}
+		}
+
+		activeDistricts = active;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Grouped " + plannedFences.size() + " geofences into " + districts.size() +
+				  " districts");
+	}
+
+	/**
+	 * @return the {@link List} of district {@link PlacesFencePlanner.Fence}s, empty if the districts are not used
+	 */
+	synchronized List<PlacesFencePlanner.Fence> getDistricts() {
+		return new ArrayList<PlacesFencePlanner.Fence>(districts.values());
+	}
+
+	/**
+	 * @param identifier the identifier of a geofence
+	 * @return the district {@link PlacesFencePlanner.Fence} with the given identifier, null if it is not a district
+	 */
+	synchronized PlacesFencePlanner.Fence getDistrict(final String identifier) {
+		return districts.get(identifier);
+	}
+
+	/**
+	 * @param identifier the identifier of the district
+	 * @return {@code boolean} indicating if the district was not active before
+	 */
+	synchronized boolean activate(final String identifier) {
+		return districtFences.containsKey(identifier) && activeDistricts.add(identifier);
+	}
+
+	/**
+	 * @param identifier the identifier of the district
+	 * @return {@code boolean} indicating if the district was active before
+	 */
+	synchronized boolean release(final String identifier) {
+		return activeDistricts.remove(identifier);
+	}
+
+	/**
+	 * @param identifier the identifier of the district
+	 * @return {@code boolean} indicating if the fine fences of the district are registered
+	 */
+	synchronized boolean isActive(final String identifier) {
+		return activeDistricts.contains(identifier);
+	}
+
+	/**
+	 * @return the {@link List} of the fine {@link PlacesFencePlanner.Fence}s to be registered, all of them if the districts
+	 * are not used
+	 */
+	synchronized List<PlacesFencePlanner.Fence> getActiveFences() {
+		if (districts.isEmpty()) {
+			return new ArrayList<PlacesFencePlanner.Fence>(fineFences);
+		}
+
+		final List<PlacesFencePlanner.Fence> activeFences = new ArrayList<PlacesFencePlanner.Fence>();
+
+		for (Map.Entry<String, List<PlacesFencePlanner.Fence>> entry : districtFences.entrySet()) {
+			if (activeDistricts.contains(entry.getKey())) {
+				activeFences.addAll(entry.getValue());
+			}
+		}
+
+		return activeFences;
+	}
+
+	/**
+	 * @return the {@link List} of {@link PlacesFencePlanner.Fence}s to be registered, the districts followed by the fine fences
+	 * of the active districts, or all the fine fences if the districts would not save any slot
+	 */
+	synchronized List<PlacesFencePlanner.Fence> getRegisteredFences() {
+		final List<PlacesFencePlanner.Fence> activeFences = getActiveFences();
+
+		if (districts.size() + activeFences.size() >= fineFences.size()) {
+			return new ArrayList<PlacesFencePlanner.Fence>(fineFences);
+		}
+
+		final List<PlacesFencePlanner.Fence> registeredFences = new ArrayList<PlacesFencePlanner.Fence>(districts.values());
+		registeredFences.addAll(activeFences);
+		return registeredFences;
+	}
+
+	/**
+	 * Drops the districts and the fine fences.
+	 */
+	synchronized void clear() {
+		fineFences = new ArrayList<PlacesFencePlanner.Fence>();
+		districts = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+		districtFences = new LinkedHashMap<String, List<PlacesFencePlanner.Fence>>();
+		activeDistricts = new HashSet<String>();
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Builds the district fence centered on the leading fence of the group and enclosing all the fences of the group.
+	 */
+	private static PlacesFencePlanner.Fence toDistrict(final List<PlacesFencePlanner.Fence> group) {
+		final PlacesFencePlanner.Fence seed = group.get(0);
+		final List<PlacesPOI> members = new ArrayList<PlacesPOI>();
+		double radius = PlacesMonitorConstants.DistrictTier.MIN_DISTRICT_RADIUS;
+
+		for (PlacesFencePlanner.Fence fence : group) {
+			radius = Math.max(radius, PlacesGeoMath.haversine(seed.getLatitude(), seed.getLongitude(), fence.getLatitude(),
+							  fence.getLongitude()) + fence.getRadius());
+			members.addAll(fence.getMembers());
+		}
+
+		return new PlacesFencePlanner.Fence(PlacesMonitorConstants.DistrictTier.DISTRICT_ID_PREFIX + seed.getIdentifier(),
+											seed.getLatitude(), seed.getLongitude(), (float) Math.ceil(radius), Collections.unmodifiableList(members));
+	}
+}
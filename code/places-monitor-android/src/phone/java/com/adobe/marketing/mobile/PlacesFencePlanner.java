@@ -0,0 +1,229 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesFencePlanner.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class to plan the geofences registered with the OS for a set of nearby POIs.
+ * <p>
+ * The OS does not reliably report the transitions of regions smaller than
+ * {@link PlacesMonitorConstants.FencePlanner#MIN_FENCE_RADIUS}, and dense areas such as malls spend many geofence slots on
+ * overlapping regions. The planner therefore merges the overlapping or adjacent POIs into cluster fences and inflates the
+ * small POIs to the minimum radius. Such a proxy fence encloses the regions of all its members: entering it arms the
+ * in-library containment check of its members, which confirms their entries against their actual radius, and leaving it
+ * is the exit of all its members.
+ * <p>
+ * The POIs are merged greedily in the given order, so the POIs of higher rank seed the clusters.
+ */
+class PlacesFencePlanner {
+	private int savedSlots;
+
+	/**
+	 * A geofence to be registered with the OS.
+	 */
+	static final class Fence {
+		private final String identifier;
+		private final double latitude;
+		private final double longitude;
+		private final float radius;
+		private final List<PlacesPOI> members;
+
+		Fence(final String identifier, final double latitude, final double longitude, final float radius,
+			  final List<PlacesPOI> members) {
+			this.identifier = identifier;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.radius = radius;
+			this.members = members;
+		}
+
+		String getIdentifier() {
+			return identifier;
+		}
+
+		double getLatitude() {
+			return latitude;
+		}
+
+		double getLongitude() {
+			return longitude;
+		}
+
+		float getRadius() {
+			return radius;
+		}
+
+		/**
+		 * @return an unmodifiable {@link List} of the {@link PlacesPOI}s whose regions are enclosed by this fence
+		 */
+		List<PlacesPOI> getMembers() {
+			return members;
+		}
+
+		/**
+		 * @return {@code boolean} indicating if this fence stands for its members instead of being the region of a POI
+		 */
+		boolean isProxy() {
+			return members.size() != 1 || !identifier.equals(members.get(0).getIdentifier());
+		}
+	}
+
+	/**
+	 * Plans the geofences of the given POIs.
+	 *
+	 * @param pois the ranked {@link List} of {@link PlacesPOI}s to be monitored by the OS
+	 * @return a {@link List} of {@link Fence}s, one per POI which is neither small nor merged and one per proxy fence
+	 */
+	synchronized List<Fence> plan(final List<PlacesPOI> pois) {
+		final List<Cluster> clusters = new ArrayList<Cluster>();
+
+		for (PlacesPOI poi : pois) {
+			boolean merged = false;
+
+			for (Cluster cluster : clusters) {
+				if (cluster.merge(poi)) {
+					merged = true;
+					break;
+				}
+			}
+
+			if (!merged) {
+				clusters.add(new Cluster(poi));
+			}
+		}
+
+		final List<Fence> fences = new ArrayList<Fence>(clusters.size());
+
+		for (Cluster cluster : clusters) {
+			fences.add(cluster.toFence());
+		}
+
+		savedSlots = pois.size() - fences.size();
+
+		if (savedSlots > 0) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Merged " + pois.size() + " POIs into " + fences.size() + " geofences");
+		}
+
+		return fences;
+	}
+
+	/**
+	 * @return the number of geofence slots saved by the merged POIs of the last plan
+	 */
+	synchronized int getSavedSlots() {
+		return savedSlots;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * A group of POIs enclosed by one circle, grown to enclose each merged POI.
+	 */
+	private static final class Cluster {
+		private final List<PlacesPOI> members = new ArrayList<PlacesPOI>();
+		private double latitude;
+		private double longitude;
+		private double radius;
+
+		Cluster(final PlacesPOI poi) {
+			members.add(poi);
+			latitude = poi.getLatitude();
+			longitude = poi.getLongitude();
+			radius = poi.getRadius();
+		}
+
+		/**
+		 * Merges the given POI if it overlaps or is adjacent to a member and the grown circle stays within the maximum radius.
+		 */
+		boolean merge(final PlacesPOI poi) {
+			if (!isAdjacent(poi)) {
+				return false;
+			}
+
+			// the smallest circle enclosing both the cluster circle and the POI circle
+			final double distance = PlacesGeoMath.distance(latitude, longitude, poi);
+
+			if (distance + poi.getRadius() <= radius) {
+				members.add(poi);
+				return true;
+			}
+
+			final double mergedRadius = distance == 0 ? Math.max(radius, poi.getRadius())
+										: (radius + distance + poi.getRadius()) / 2;
+
+			if (mergedRadius > PlacesMonitorConstants.FencePlanner.MAX_CLUSTER_RADIUS) {
+				return false;
+			}
+
+			if (distance > 0) {
+				final double shift = (mergedRadius - radius) / distance;
+				latitude += shift * (poi.getLatitude() - latitude);
+				longitude = PlacesGeoMath.wrapLongitude(longitude + shift * PlacesGeoMath.wrapLongitude(poi.getLongitude() - longitude));
+			}
+
+			radius = mergedRadius;
+			members.add(poi);
+			return true;
+		}
+
+		Fence toFence() {
+			final PlacesPOI first = members.get(0);
+
+			if (members.size() == 1) {
+				if (first.getRadius() >= PlacesMonitorConstants.FencePlanner.MIN_FENCE_RADIUS) {
+					return new Fence(first.getIdentifier(), first.getLatitude(), first.getLongitude(), first.getRadius(),
+									 Collections.singletonList(first));
+				}
+
+				return new Fence(PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + first.getIdentifier(),
+								 first.getLatitude(), first.getLongitude(), PlacesMonitorConstants.FencePlanner.MIN_FENCE_RADIUS,
+								 Collections.singletonList(first));
+			}
+
+			// the moved center is approximate, so the enclosing radius is recomputed from the members
+			double enclosingRadius = PlacesMonitorConstants.FencePlanner.MIN_FENCE_RADIUS;
+			String identifier = first.getIdentifier();
+
+			for (PlacesPOI member : members) {
+				enclosingRadius = Math.max(enclosingRadius,
+										   PlacesGeoMath.distance(latitude, longitude, member) + member.getRadius());
+
+				if (member.getIdentifier().compareTo(identifier) < 0) {
+					identifier = member.getIdentifier();
+				}
+			}
+
+			return new Fence(PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + identifier, latitude, longitude,
+							 (float) Math.ceil(enclosingRadius), Collections.unmodifiableList(members));
+		}
+
+		private boolean isAdjacent(final PlacesPOI poi) {
+			for (PlacesPOI member : members) {
+				if (PlacesGeoMath.distance(member.getLatitude(), member.getLongitude(), poi)
+						<= member.getRadius() + poi.getRadius() + PlacesMonitorConstants.FencePlanner.ADJACENCY_DISTANCE) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
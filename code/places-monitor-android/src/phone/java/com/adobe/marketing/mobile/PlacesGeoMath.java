@@ -0,0 +1,282 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeoMath.java
+//
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Distance and containment computations on the mean Earth sphere.
+ * <p>
+ * {@link #contains(double, double, double, double, double, double)} first approximates the distance to the POI center with
+ * an equirectangular projection scaled by the cosine of the POI latitude, which the caller computes once per POI with
+ * {@link #longitudeScale(double)}. The exact haversine distance is computed only when the approximation is within its error
+ * margin of the POI radius, so most checks cost a few multiplications and no trigonometric call.
+ */
+final class PlacesGeoMath {
+	static final double EARTH_RADIUS_METERS = 6371008.8;
+	static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180;
+
+	// absolute part of the error margin of the equirectangular approximation, covering the float rounding of the radii
+	private static final double MARGIN_METERS = 1;
+	// below this longitude scale the POI is too close to a pole for the approximation to be useful
+	private static final double MIN_LONGITUDE_SCALE = 1e-3;
+
+	private PlacesGeoMath() {}
+
+	/**
+	 * @param latitude the latitude of a POI center
+	 * @return the cosine of the latitude, scaling the longitude differences to distances around the POI
+	 */
+	static double longitudeScale(final double latitude) {
+		return Math.cos(Math.toRadians(latitude));
+	}
+
+	/**
+	 * Computes the great-circle distance between two coordinates with the haversine formula.
+	 *
+	 * @param latitude1 the latitude of the first coordinate
+	 * @param longitude1 the longitude of the first coordinate
+	 * @param latitude2 the latitude of the second coordinate
+	 * @param longitude2 the longitude of the second coordinate
+	 * @return the distance in meters
+	 */
+	static double haversine(final double latitude1, final double longitude1, final double latitude2,
+							final double longitude2) {
+		final double sinDeltaLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+		final double sinDeltaLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		final double a = sinDeltaLatitude * sinDeltaLatitude
+						 + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+						 * sinDeltaLongitude * sinDeltaLongitude;
+		return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+	/**
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param poi the {@link PlacesPOI}
+	 * @return the great-circle distance in meters between the location and the center of the poi
+	 */
+	static double distance(final double latitude, final double longitude, final PlacesPOI poi) {
+		return haversine(latitude, longitude, poi.getLatitude(), poi.getLongitude());
+	}
+
+	/**
+	 * Approximates the distance between a location and a POI center with an equirectangular projection around the POI.
+	 * <p>
+	 * The longitude difference takes the shorter way around the antimeridian.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param centerLatitude the latitude of the POI center
+	 * @param centerLongitude the longitude of the POI center
+	 * @param longitudeScale the {@link #longitudeScale(double)} of the POI center
+	 * @return the approximate distance in meters
+	 */
+	static double equirectangular(final double latitude, final double longitude, final double centerLatitude,
+								  final double centerLongitude, final double longitudeScale) {
+		final double northing = (latitude - centerLatitude) * METERS_PER_DEGREE;
+		final double easting = wrapLongitude(longitude - centerLongitude) * longitudeScale * METERS_PER_DEGREE;
+		return Math.sqrt(northing * northing + easting * easting);
+	}
+
+	/**
+	 * Checks whether a location lies within the circular region of a POI.
+	 * <p>
+	 * The verdict is the one of the exact haversine distance: the equirectangular approximation is trusted only when it is
+	 * farther from the radius than its error margin.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param centerLatitude the latitude of the POI center
+	 * @param centerLongitude the longitude of the POI center
+	 * @param longitudeScale the {@link #longitudeScale(double)} of the POI center
+	 * @param radius the radius of the POI in meters
+	 * @return {@code boolean} indicating if the location is within the radius of the POI center
+	 */
+	static boolean contains(final double latitude, final double longitude, final double centerLatitude,
+							final double centerLongitude, final double longitudeScale, final double radius) {
+		final double approximateDistance = equirectangular(latitude, longitude, centerLatitude, centerLongitude,
+										   longitudeScale);
+
+		if (!needsExactDistance(approximateDistance, radius, latitude - centerLatitude, longitudeScale)) {
+			return approximateDistance <= radius;
+		}
+
+		return haversine(latitude, longitude, centerLatitude, centerLongitude) <= radius;
+	}
+
+	/**
+	 * Checks whether the equirectangular approximation is too close to the radius to decide the containment.
+	 * <p>
+	 * The approximation scales the longitudes at the POI latitude instead of the latitude of the location, which misestimates
+	 * the east-west distance by a fraction growing with the latitude difference and the tangent of the POI latitude, and it
+	 * ignores the curvature of the sphere, which adds a fraction of the order of the distance over the Earth radius.
+	 *
+	 * @param approximateDistance the {@link #equirectangular(double, double, double, double, double)} distance in meters
+	 * @param radius the radius of the POI in meters
+	 * @param deltaLatitude the latitude difference between the location and the POI center, in degrees
+	 * @param longitudeScale the {@link #longitudeScale(double)} of the POI center
+	 * @return {@code boolean} indicating if the exact distance has to be computed
+	 */
+	static boolean needsExactDistance(final double approximateDistance, final double radius, final double deltaLatitude,
+									  final double longitudeScale) {
+		if (longitudeScale < MIN_LONGITUDE_SCALE) {
+			return true;
+		}
+
+		final double tangent = Math.sqrt(1 - longitudeScale * longitudeScale) / longitudeScale;
+		final double relativeError = Math.abs(Math.toRadians(deltaLatitude)) * (tangent + 1)
+									 + approximateDistance / EARTH_RADIUS_METERS;
+		final double margin = MARGIN_METERS + approximateDistance * relativeError;
+		return Math.abs(approximateDistance - radius) <= margin;
+	}
+
+	/**
+	 * Computes the distance between a location fix and a POI center for the evaluation of their overlap.
+	 * <p>
+	 * The overlap of the accuracy circle and the POI circle only depends on the distance when the circles partially overlap,
+	 * so the exact haversine distance is computed only when the equirectangular approximation is near that range.
+	 *
+	 * @param latitude the latitude of the location fix
+	 * @param longitude the longitude of the location fix
+	 * @param centerLatitude the latitude of the POI center
+	 * @param centerLongitude the longitude of the POI center
+	 * @param longitudeScale the {@link #longitudeScale(double)} of the POI center
+	 * @param radius the radius of the POI in meters
+	 * @param accuracy the accuracy radius of the location fix in meters
+	 * @return the distance in meters, exact whenever it affects the overlap of the circles
+	 */
+	static double overlapDistance(final double latitude, final double longitude, final double centerLatitude,
+								  final double centerLongitude, final double longitudeScale, final double radius,
+								  final double accuracy) {
+		final double approximateDistance = equirectangular(latitude, longitude, centerLatitude, centerLongitude,
+										   longitudeScale);
+		final double deltaLatitude = latitude - centerLatitude;
+		final double innerDistance = Math.abs(radius - accuracy);
+		final double outerDistance = radius + accuracy;
+
+		if (needsExactDistance(approximateDistance, innerDistance, deltaLatitude, longitudeScale)
+				|| needsExactDistance(approximateDistance, outerDistance, deltaLatitude, longitudeScale)
+				|| (approximateDistance > innerDistance && approximateDistance < outerDistance)) {
+			return haversine(latitude, longitude, centerLatitude, centerLongitude);
+		}
+
+		return approximateDistance;
+	}
+
+	/**
+	 * Computes the confidence that the user is within a POI, as the fraction of the accuracy circle of the location fix
+	 * which lies within the POI circle.
+	 *
+	 * @param distance the distance in meters between the location fix and the POI center
+	 * @param radius the radius of the POI in meters
+	 * @param accuracy the accuracy radius of the location fix in meters, 0 if unknown
+	 * @return the confidence between 0 and 1, either 0 or 1 if the accuracy is unknown
+	 */
+	static double enterConfidence(final double distance, final double radius, final double accuracy) {
+		if (accuracy <= 0) {
+			return distance <= radius ? 1 : 0;
+		}
+
+		return overlapArea(distance, radius, accuracy) / (Math.PI * accuracy * accuracy);
+	}
+
+	/**
+	 * Computes the confidence that the user is outside a POI, as the fraction of the smaller of the accuracy circle of the
+	 * location fix and the POI circle which does not overlap the other.
+	 * <p>
+	 * A fix whose accuracy circle covers the whole POI is not evidence that the user has left it.
+	 *
+	 * @param distance the distance in meters between the location fix and the POI center
+	 * @param radius the radius of the POI in meters
+	 * @param accuracy the accuracy radius of the location fix in meters, 0 if unknown
+	 * @return the confidence between 0 and 1, either 0 or 1 if the accuracy is unknown
+	 */
+	static double exitConfidence(final double distance, final double radius, final double accuracy) {
+		if (accuracy <= 0) {
+			return distance > radius ? 1 : 0;
+		}
+
+		final double smallerRadius = Math.min(radius, accuracy);
+		return 1 - overlapArea(distance, radius, accuracy) / (Math.PI * smallerRadius * smallerRadius);
+	}
+
+	/**
+	 * Computes the area of the intersection of two circles.
+	 *
+	 * @param distance the distance between the centers of the circles
+	 * @param radius1 the radius of the first circle
+	 * @param radius2 the radius of the second circle
+	 * @return the area of the intersection, in the squared unit of the given lengths
+	 */
+	static double overlapArea(final double distance, final double radius1, final double radius2) {
+		if (distance >= radius1 + radius2) {
+			return 0;
+		}
+
+		final double smallerRadius = Math.min(radius1, radius2);
+
+		if (distance <= Math.abs(radius1 - radius2)) {
+			return Math.PI * smallerRadius * smallerRadius;
+		}
+
+		final double squaredDistance = distance * distance;
+		final double squaredRadius1 = radius1 * radius1;
+		final double squaredRadius2 = radius2 * radius2;
+		final double angle1 = Math.acos(clamp((squaredDistance + squaredRadius1 - squaredRadius2) / (2 * distance * radius1)));
+		final double angle2 = Math.acos(clamp((squaredDistance + squaredRadius2 - squaredRadius1) / (2 * distance * radius2)));
+		final double kite = Math.sqrt(Math.max(0, (-distance + radius1 + radius2) * (distance + radius1 - radius2)
+									  * (distance - radius1 + radius2) * (distance + radius1 + radius2)));
+		return squaredRadius1 * angle1 + squaredRadius2 * angle2 - kite / 2;
+	}
+
+	/**
+	 * Computes the coordinate reached by moving along a great circle from a location.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param bearing the initial bearing in degrees clockwise from the north
+	 * @param distance the distance to move in meters
+	 * @return the latitude and longitude of the reached coordinate
+	 */
+	static double[] project(final double latitude, final double longitude, final double bearing, final double distance) {
+		final double angularDistance = distance / EARTH_RADIUS_METERS;
+		final double latitudeRadians = Math.toRadians(latitude);
+		final double bearingRadians = Math.toRadians(bearing);
+		final double sinLatitude = Math.sin(latitudeRadians) * Math.cos(angularDistance)
+								   + Math.cos(latitudeRadians) * Math.sin(angularDistance) * Math.cos(bearingRadians);
+		final double projectedLatitude = Math.asin(clamp(sinLatitude));
+		final double deltaLongitude = Math.atan2(Math.sin(bearingRadians) * Math.sin(angularDistance) * Math.cos(latitudeRadians),
+											 Math.cos(angularDistance) - Math.sin(latitudeRadians) * sinLatitude);
+		return new double[] {Math.toDegrees(projectedLatitude), wrapLongitude(longitude + Math.toDegrees(deltaLongitude))};
+	}
+
+	/**
+	 * @param deltaLongitude a longitude difference in degrees, between -360 and 360
+	 * @return the equivalent difference between -180 and 180
+	 */
+	static double wrapLongitude(final double deltaLongitude) {
+		if (deltaLongitude > 180) {
+			return deltaLongitude - 360;
+		} else if (deltaLongitude < -180) {
+			return deltaLongitude + 360;
+		}
+
+		return deltaLongitude;
+	}
+
+	private static double clamp(final double cosine) {
+		return Math.max(-1, Math.min(1, cosine));
+	}
+}
@@ -21,9 +21,12 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.location.Location;
 import android.support.v4.app.ActivityCompat;
 
+import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofenceStatusCodes;
 import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingEvent;
 import com.google.android.gms.location.GeofencingRequest;
@@ -33,9 +36,8 @@ import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,34 +45,101 @@ import java.util.Set;
 
 /**
  * Class to manage and monitor geofences around the given device's current location
+ * <p>
+ * The manager is driven by the extension thread, the location and geofence broadcasts and the Google Play services
+ * callbacks, so its state is only accessed while holding the lock of the manager.
  */
 class PlacesGeofenceManager {
 
 	private final String FINE_LOCATION = Manifest.permission.ACCESS_FINE_LOCATION;
 	private PendingIntent geofencePendingIntent;
-	private Set<String> userWithinGeofences;
+	private PlacesPOIStateTable poiStates;
 	private GeofencingClient geofencingClient;
+	private PlacesTransitionBatcher transitionBatcher;
+	private PlacesTransitionFilter transitionFilter;
+	private PlacesGeofenceSlotBudget slotBudget;
+	private PlacesSoftwareGeofenceEngine softwareEngine;
+	private PlacesMonitorConfiguration.MonitoringMode monitoringMode;
+	private Location lastAcceptedLocation;
+	private double enterConfidence;
+	private double exitConfidence;
+	private double exitHysteresis;
+	private PlacesGeofencePolicy geofencePolicy;
+	private PlacesFencePlanner fencePlanner;
+	private Map<String, PlacesFencePlanner.Fence> proxyFences;
+	private Set<String> armedFences;
+	private List<PlacesPOI> softwareTierPOIs;
+	private List<PlacesPOI> overflowPOIs;
+	private PlacesDistrictTier districtTier;
+	private List<PlacesPOI> registeredPOIs;
+	private boolean requestInitialEntry;
+	private boolean isDistrictRefresh;
+	private PlacesPOIRanker poiRanker;
+
+	// containment verdict metrics
+	private long containmentCheckCount;
+	private long serverOnlyContainmentCount;
+	private long localOnlyContainmentCount;
 
 	PlacesGeofenceManager() {
-		userWithinGeofences = new HashSet<String>();
+		poiStates = new PlacesPOIStateTable();
+		transitionBatcher = new PlacesTransitionBatcher();
+		transitionFilter = new PlacesTransitionFilter();
+		slotBudget = new PlacesGeofenceSlotBudget();
+		softwareEngine = new PlacesSoftwareGeofenceEngine();
+		monitoringMode = PlacesMonitorConfiguration.MonitoringMode.OS;
+		enterConfidence = PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE;
+		exitConfidence = PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE;
+		geofencePolicy = new PlacesGeofencePolicy();
+		fencePlanner = new PlacesFencePlanner();
+		proxyFences = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+		armedFences = new HashSet<String>();
+		softwareTierPOIs = new ArrayList<PlacesPOI>();
+		overflowPOIs = new ArrayList<PlacesPOI>();
+		districtTier = new PlacesDistrictTier();
+		registeredPOIs = new ArrayList<PlacesPOI>();
+		poiRanker = new PlacesPOIRanker();
 	}
 
 	/**
 	 * Starts monitoring the entry/exit events around the given nearByPOIs by registering with the Geofences with the Android OS.
 	 * <p>
 	 * This method is called by {@link PlacesMonitorInternal} when new set of POIs are available for monitoring.
+	 * In {@link PlacesMonitorConfiguration.MonitoringMode#SOFTWARE} mode the POIs are handed to the {@link #softwareEngine}
+	 * instead of being registered with the OS. Otherwise the POIs are ranked by the {@link #poiRanker}, so that the available
+	 * geofence slots go to the POIs of the highest score. In {@link PlacesMonitorConfiguration.MonitoringMode#HYBRID} mode only
+	 * the ranked POIs that fit in the available geofence slots are registered with the OS, and the
+	 * remaining POIs are handed to the {@code softwareEngine}. Both tiers share the {@link #poiStates}, so a POI moving from
+	 * one tier to the other does not report a duplicate entry.
+	 * The POIs registered with the OS are planned by the {@link #fencePlanner}, so the merged or small POIs take one slot
+	 * per proxy fence and are evaluated by the {@code softwareEngine} while their proxy fence is entered. If the POIs span
+	 * several districts of the {@link #districtTier}, only the fences of the districts the user is within are registered.
+	 * In {@code HYBRID} mode, the POIs of the fences cut at registration because the slot limit shrank are handed to the
+	 * {@code softwareEngine} too, so that every nearby POI is monitored by one tier.
 	 * No action will be performed if the {@link GeofencingClient} required for the monitoring the POIs is null.
 	 *
 	 * @param nearByPOIs A {@link List} of n nearBy {@link PlacesPOI} objects
 	 * @see #getGeofencingClient()
 	 */
-	void startMonitoringFences(List<PlacesPOI> nearByPOIs) {
+	synchronized void startMonitoringFences(List<PlacesPOI> nearByPOIs) {
 		if (nearByPOIs == null || nearByPOIs.isEmpty()) {
 			Log.debug(PlacesMonitorConstants.LOG_TAG,
 					  "Places Extension responded with no regions around the current location to be monitored. Removing all the currently monitored geofence.");
 			nearByPOIs = new ArrayList<PlacesPOI>();
 		}
 
+		if (monitoringMode == PlacesMonitorConfiguration.MonitoringMode.SOFTWARE) {
+			List<PlacesPOI> newlyEnteredPois = findNewlyEnteredPOIs(nearByPOIs);
+			proxyFences = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+			armedFences = new HashSet<String>();
+			softwareTierPOIs = nearByPOIs;
+			overflowPOIs = new ArrayList<PlacesPOI>();
+			updateSoftwareEngine();
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Evaluating " + nearByPOIs.size() + " nearby POIs in software");
+			dispatchEntries(newlyEnteredPois);
+			return;
+		}
+
 		GeofencingClient geofencingClient = getGeofencingClient();
 
 		if (geofencingClient == null) {
@@ -79,88 +148,105 @@ class PlacesGeofenceManager {
 			return;
 		}
 
+		List<PlacesPOI> osPOIs = rankPOIs(nearByPOIs);
+		List<PlacesPOI> softwarePOIs = new ArrayList<PlacesPOI>();
 
-		refreshNearByPOIS(nearByPOIs);
+		if (monitoringMode == PlacesMonitorConfiguration.MonitoringMode.HYBRID) {
+			// the slots saved by the proxy fences are given to the next ranked POIs
+			final List<PlacesFencePlanner.Fence> rankedFences = fencePlanner.plan(osPOIs);
+			final int osCount = Math.min(rankedFences.size(), slotBudget.getAvailableSlots());
+			osPOIs = new ArrayList<PlacesPOI>();
 
-		// identify the newly entered regions and dispatch an entry event
-		List <PlacesPOI> newlyEnteredPois = findNewlyEnteredPOIs(nearByPOIs);
+			for (int i = 0; i < rankedFences.size(); i++) {
+				(i < osCount ? osPOIs : softwarePOIs).addAll(rankedFences.get(i).getMembers());
+			}
 
-		for (PlacesPOI poi : newlyEnteredPois) {
-			Geofence geofence = new Geofence.Builder()
-			.setRequestId(poi.getIdentifier())
-			.setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT)
-			.setCircularRegion(poi.getLatitude(), poi.getLongitude(), poi.getRadius())
-			.setExpirationDuration(Geofence.NEVER_EXPIRE)
-			.build();
-			Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_ENTER);
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Monitoring " + osPOIs.size() + " top ranked POIs with the OS and " +
+					  softwarePOIs.size() + " POIs in software");
 		}
+
+		refreshNearByPOIS(osPOIs);
+
+		// identify the newly entered regions and dispatch their entry events as one batch
+		List <PlacesPOI> newlyEnteredPois = findNewlyEnteredPOIs(nearByPOIs);
+		softwareTierPOIs = softwarePOIs;
+		updateSoftwareEngine();
+		dispatchEntries(newlyEnteredPois);
 	}
 
 	/**
-	 * Compares the new set of nearByPOIs with the existing {@link #userWithinGeofences} and creates a list of
+	 * Compares the new set of nearByPOIs with the existing {@link #poiStates} and creates a list of
 	 * {@link PlacesPOI} whose entry has not been already recorded.
 	 *
 	 * <p>
 	 * This method,
 	 * <ul>
-	 *     <li> Remove's the pois from {@code #userWithinGeofences} which are not a part of nearbypois </li>
-	 *     <li> Check for the newEntryPOI comparing the inmemory {@code #userWithinGeofences} list </li>
+	 *     <li> Remove's the pois from {@code #poiStates} which are not a part of nearbypois </li>
+	 *     <li> Check for the newEntryPOI comparing the inmemory {@code #poiStates} </li>
 	 * </ul>
+	 * <p>
+	 * The {@link PlacesPOI#containsUser()} flag reported by the server applies to the location of the query, which may be stale
+	 * by the time the response is applied. When a location fix has been accepted, the containment is recomputed against the
+	 * {@link #lastAcceptedLocation} instead, and both verdicts are recorded in the containment metrics. A POI whose containment
+	 * is uncertain given the accuracy of the fix keeps its current state.
+	 * <p>
+	 * The entry of a POI with a loitering delay is not reported here. The POI is marked as entering, and its entry is reported
+	 * by the dwell trigger of the OS, or by the next in-library evaluation for a POI monitored in software.
 	 *
 	 * @param nearbyPOIs a brand new {@link List} of nearByPOIs
 	 * @return A {@code List} of newly entered POI
 	 */
-	List <PlacesPOI> findNewlyEnteredPOIs(List<PlacesPOI> nearbyPOIs) {
-		// First, remove the userWithinGeofence poi that are not currently nearbypois
-
-		// convert list into a hashMap for convenience
-		Map<String, PlacesPOI> poisMap = new HashMap<String, PlacesPOI>();
+	synchronized List <PlacesPOI> findNewlyEnteredPOIs(List<PlacesPOI> nearbyPOIs) {
+		// First, remove the poi states that are not currently nearbypois
+		Set<String> nearbyIdentifiers = new HashSet<String>();
 
 		for (PlacesPOI i : nearbyPOIs) {
-			poisMap.put(i.getIdentifier(), i);
-		}
-
-		// using iterator to remove the pois from userWithinGeofences which are not a part of nearbypois
-		for (Iterator<String> iterator = userWithinGeofences.iterator(); iterator.hasNext();) {
-			String eachID = iterator.next();
-
-			if (!poisMap.containsKey(eachID)) {
-				iterator.remove();
-			}
+			nearbyIdentifiers.add(i.getIdentifier());
 		}
 
+		poiStates.retain(nearbyIdentifiers);
 
-		// Second, check for the newEntryPOI comparing the inmemory userWithinGeofences list
+		// Second, check for the newEntryPOI comparing the inmemory poiStates
 		List <PlacesPOI> newlyEnteredPois = new ArrayList<PlacesPOI>();
+		final long now = System.currentTimeMillis();
 
 		for (PlacesPOI poi : nearbyPOIs) {
+			final boolean wasWithin = poiStates.isInside(poi.getIdentifier());
+			final boolean containsUser = isUserWithin(poi, wasWithin);
+
+			// if the user is withIn a poi with a loitering delay, hold the entry until the user dwells in the poi
+			if (containsUser && !wasWithin && geofencePolicy.getLoiteringDelay(poi) > 0) {
+				poiStates.markPending(poi.getIdentifier(), true);
+				continue;
+			}
 
 			// if the user is withIn the poi and we haven't recorded that yet, then add them to newlyEnteredPois list
-			if (poi.containsUser() && !userWithinGeofences.contains(poi.getIdentifier())) {
-				userWithinGeofences.add(poi.getIdentifier());
+			if (containsUser && poiStates.recordEntry(poi.getIdentifier(), now)) {
 				newlyEnteredPois.add(poi);
 				continue;
 			}
 
-			// if the user is not withIn the poi and userWithinGeofences list contains the poi, remove it
-			if (!poi.containsUser() && userWithinGeofences.contains(poi.getIdentifier())) {
-				userWithinGeofences.remove(poi.getIdentifier());
+			// if the user is not withIn the poi and the entry was recorded, record the exit
+			if (!containsUser && wasWithin) {
+				poiStates.recordExit(poi.getIdentifier(), now);
+			} else if (!containsUser) {
+				poiStates.cancelPending(poi.getIdentifier());
 			}
 		}
 
-		saveUserWithinGeofences();
+		savePOIStates();
 		return newlyEnteredPois;
 	}
 
 	/**
 	 * Stops monitoring for entry and exit event on nearby places of interest.
      *
-     * Calling this method with YES for clearData will purge the {@link #userWithinGeofences} data in addition to stop monitoring
+     * Calling this method with YES for clearData will purge the {@link #poiStates} data in addition to stop monitoring
      * for further geofence events.
      *
-     * @param clearData a boolean indicating whether to clear the {@link #userWithinGeofences} from in-memory and persistence
+     * @param clearData a boolean indicating whether to clear the {@link #poiStates} from in-memory and persistence
 	 */
-	void stopMonitoringFences(final boolean clearData) {
+	synchronized void stopMonitoringFences(final boolean clearData) {
 		AdobeCallback<Void> onSuccess = new AdobeCallback<Void>() {
 			@Override
 			public void call(Void aVoid) {
@@ -176,10 +262,18 @@ class PlacesGeofenceManager {
 		};
 
 		if(clearData){
-			userWithinGeofences.clear();
-			saveUserWithinGeofences();
+			poiStates.clear();
+			savePOIStates();
 		}
 
+		proxyFences = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+		armedFences = new HashSet<String>();
+		softwareTierPOIs = new ArrayList<PlacesPOI>();
+		overflowPOIs = new ArrayList<PlacesPOI>();
+		districtTier.clear();
+		registeredPOIs = new ArrayList<PlacesPOI>();
+		softwareEngine.clear();
+		transitionFilter.clear();
 		unregisterPOIS(onSuccess, onFailiure);
 	}
 
@@ -197,11 +291,15 @@ class PlacesGeofenceManager {
 	 * No action is performed if the intents actionName is not same as {@link PlacesMonitorConstants#INTERNAL_INTENT_ACTION_GEOFENCE}.
 	 * No action is performed if the received {@code GeofencingEvent} has error.
 	 * No action is performed if the list of obtained {@code Geofences} is empty.
+	 * <p>
+	 * The trigger of a proxy fence is not dispatched. Its entry arms the in-library monitoring of its members, which are
+	 * evaluated at the triggering location, and its exit is the exit of all its members. Likewise the entry of a district
+	 * registers the fences inside it, and its exit releases them.
 	 *
 	 * @param intent the broadcasted geofence event message wrapped in an intent
-	 * @see Places#processGeofence(Geofence, int)
+	 * @see PlacesTransitionBatcher#flush()
 	 */
-	void onGeofenceReceived(final Intent intent) {
+	synchronized void onGeofenceReceived(final Intent intent) {
 		if (intent == null) {
 			Log.error(PlacesMonitorConstants.LOG_TAG,
 					  "Cannot process the geofence trigger, The received intent from the geofence broadcast receiver is null.");
@@ -233,12 +331,98 @@ class PlacesGeofenceManager {
 			return;
 		}
 
+		final int transitionType = geofencingEvent.getGeofenceTransition();
+		final long now = System.currentTimeMillis();
+
+		// separate the triggers of the proxy fences from the ones of the POIs
+		final Map<String, PlacesFencePlanner.Fence> fences = proxyFences;
+		final List<Geofence> poiGeofences = new ArrayList<Geofence>();
+		boolean hasProxyTriggers = false;
+		boolean hasTransitions = false;
+		boolean districtsChanged = false;
+
+		for (Geofence geofence : obtainedGeofences) {
+			final PlacesFencePlanner.Fence district = districtTier.getDistrict(geofence.getRequestId());
+
+			if (district != null) {
+				if (transitionType == Geofence.GEOFENCE_TRANSITION_EXIT) {
+					districtsChanged |= districtTier.release(district.getIdentifier());
+					hasTransitions |= addMemberExits(district.getMembers(), now);
+				} else if (districtTier.activate(district.getIdentifier())) {
+					// the OS reports the fences of the district the user is already within once they are registered
+					requestInitialEntry = true;
+					districtsChanged = true;
+				}
+
+				continue;
+			}
+
+			final PlacesFencePlanner.Fence fence = fences.get(geofence.getRequestId());
+
+			if (fence == null) {
+				poiGeofences.add(geofence);
+				continue;
+			}
+
+			hasProxyTriggers = true;
+			hasTransitions |= onProxyFenceTriggered(fence, transitionType, now);
+		}
+
+		if (hasProxyTriggers) {
+			updateSoftwareEngine();
+			final Location triggeringLocation = geofencingEvent.getTriggeringLocation();
+			hasTransitions |= addSoftwareTransitions(triggeringLocation != null ? triggeringLocation : lastAcceptedLocation, now);
+		}
+
 		// curate the obtained geofence list
-		List<Geofence> curatedGeofences  = getCuratedGeofencesList(obtainedGeofences, geofencingEvent.getGeofenceTransition());
+		List<Geofence> curatedGeofences  = getCuratedGeofencesList(poiGeofences, transitionType);
 
-		// dispatch a region event for the places list
+		// a dwell trigger confirms the entry of a region registered with a loitering delay
+		final int dispatchedTransitionType = transitionType == Geofence.GEOFENCE_TRANSITION_DWELL
+											 ? Geofence.GEOFENCE_TRANSITION_ENTER : transitionType;
+
+		// dispatch the region events for the places list as one batch
 		for (Geofence geofence : curatedGeofences) {
-			Places.processGeofence(geofence, geofencingEvent.getGeofenceTransition());
+			transitionBatcher.add(geofence, dispatchedTransitionType);
+		}
+
+		// record the transitions before dispatching them, so that a redelivery after a process death is ignored
+		if (addDueTransitions(now) || hasTransitions || !curatedGeofences.isEmpty()) {
+			savePOIStates();
+		}
+
+		transitionBatcher.flush();
+
+		if (districtsChanged) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "The user moved across districts, registering the geofences of the entered districts");
+			isDistrictRefresh = true;
+			refreshNearByPOIS(registeredPOIs);
+		}
+	}
+
+	/**
+	 * Evaluates the containment of the nearby POIs monitored in software for the given location fix.
+	 * <p>
+	 * The transitions found by the {@link #softwareEngine} are curated against the {@link #poiStates}, the same way as the
+	 * OS geofence triggers, and dispatched as one batch along with the transitions released by the {@link #transitionFilter}.
+	 * The location is retained to rank the nearby POIs in {@link PlacesMonitorConfiguration.MonitoringMode#HYBRID} mode.
+	 * No action is performed if the location is null.
+	 *
+	 * @param location the accepted {@link Location} fix
+	 * @see #getCuratedGeofencesList(List, int)
+	 */
+	synchronized void evaluateLocation(final Location location) {
+		if (location == null) {
+			return;
+		}
+
+		lastAcceptedLocation = location;
+		final long now = System.currentTimeMillis();
+		final boolean hasTransitions = addSoftwareTransitions(location, now);
+
+		if (addDueTransitions(now) || hasTransitions) {
+			savePOIStates();
+			transitionBatcher.flush();
 		}
 	}
 
@@ -247,42 +431,191 @@ class PlacesGeofenceManager {
 	// ================================================================================================================================
 
 	/**
-	 * Compares with the existing in-memory {@code #userWithinGeofences} list and get the to be processed {@link Geofence} list.
+	 * Compares with the existing in-memory {@code #poiStates} and get the to be processed {@link Geofence} list.
+	 * <p>
+	 * The transitions are first offered to the {@link #transitionFilter}, which may hold them until their dwell or absence
+	 * time has elapsed or drop them as flaps. A dwell trigger is curated as an entry without being held, since the OS only
+	 * reports it once the user has loitered in the region. A transition already recorded in the {@code poiStates}, such as an
+	 * OS trigger delivered again, is ignored.
 	 *
 	 * @param obtainedGeofences A {@link List} of {@code Geofence} obtained from the {@link GeofencingEvent}
 	 * @param transitionType {@code int} representing the transition type of the provided list of geofences
 	 *
 	 * @return the curated list of {@code Geofence}'s that needs to be processed by {@link Places} extension
 	 */
-	List<Geofence> getCuratedGeofencesList(final List<Geofence> obtainedGeofences, final int transitionType) {
+	synchronized List<Geofence> getCuratedGeofencesList(final List<Geofence> obtainedGeofences, final int transitionType) {
 		List<Geofence> curatedGeofenceList = new ArrayList<Geofence>();
 
-		// if entry event, add geofence to the userWithinGeofence
-		if (transitionType == Geofence.GEOFENCE_TRANSITION_ENTER) {
-			for (Geofence geofence : obtainedGeofences) {
-				if (!userWithinGeofences.contains(geofence.getRequestId())) {
-					curatedGeofenceList.add(geofence);
-					userWithinGeofences.add(geofence.getRequestId());
-				} else {
-					Log.debug(PlacesMonitorConstants.LOG_TAG,
-							  "Ignoring to process the entry of geofence" + geofence.getRequestId() + ".Because an entry was already recorded");
-				}
+		final long now = System.currentTimeMillis();
+		final boolean isDwell = transitionType == Geofence.GEOFENCE_TRANSITION_DWELL;
+
+		for (Geofence geofence : obtainedGeofences) {
+			if ((isDwell || offerTransition(new PlacesTransitionBatcher.Transition(geofence, transitionType), now))
+					&& curateTransition(geofence.getRequestId(), transitionType, now)) {
+				curatedGeofenceList.add(geofence);
 			}
 		}
 
-		// if exit event, remove from the userWithinGeofence
-		else if (transitionType == Geofence.GEOFENCE_TRANSITION_EXIT) {
-			for (Geofence geofence : obtainedGeofences) {
-				if (userWithinGeofences.contains(geofence.getRequestId())) {
-					userWithinGeofences.remove(geofence.getRequestId());
-				}
+		return curatedGeofenceList;
 
-				curatedGeofenceList.add(geofence);
+	}
+
+	/**
+	 * Offers the given transition to the {@link #transitionFilter} and marks the POI as entering or exiting while the
+	 * transition is held.
+	 *
+	 * @param transition the {@link PlacesTransitionBatcher.Transition} which occurred
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the transition is to be curated now
+	 */
+	private boolean offerTransition(final PlacesTransitionBatcher.Transition transition, final long now) {
+		if (transitionFilter.offer(transition, now)) {
+			return true;
+		}
+
+		if (transitionFilter.isPending(transition.getIdentifier())) {
+			poiStates.markPending(transition.getIdentifier(),
+								  transition.getTransitionType() == Geofence.GEOFENCE_TRANSITION_ENTER);
+		} else {
+			poiStates.cancelPending(transition.getIdentifier());
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compares the given transition with the existing in-memory {@code #poiStates} and records it.
+	 *
+	 * @param identifier the identifier of the region for which the transition occurred
+	 * @param transitionType {@code int} representing the transition type
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the transition needs to be processed by {@link Places} extension
+	 */
+	private boolean curateTransition(final String identifier, final int transitionType, final long now) {
+		// if entry or dwell event, record the entry in the poiStates
+		if (transitionType == Geofence.GEOFENCE_TRANSITION_ENTER || transitionType == Geofence.GEOFENCE_TRANSITION_DWELL) {
+			if (poiStates.recordEntry(identifier, now)) {
+				return true;
 			}
+
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "Ignoring to process the entry of geofence" + identifier + ".Because an entry was already recorded");
+			return false;
 		}
 
-		return curatedGeofenceList;
+		// if exit event, record the exit in the poiStates
+		if (transitionType == Geofence.GEOFENCE_TRANSITION_EXIT) {
+			if (poiStates.recordExit(identifier, now)) {
+				return true;
+			}
 
+			// the user left before dwelling in the region
+			poiStates.cancelPending(identifier);
+
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "Ignoring to process the exit of geofence" + identifier + ".Because no entry was recorded");
+			return false;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Evaluates the POIs monitored in software for the given location, and adds their curated transitions to the current batch.
+	 *
+	 * @param location the {@link Location} to be evaluated, may be null
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if any transition was added to the batch
+	 */
+	private boolean addSoftwareTransitions(final Location location, final long now) {
+		if (location == null || softwareEngine.size() == 0) {
+			return false;
+		}
+
+		boolean hasTransitions = false;
+		final List<PlacesTransitionBatcher.Transition> transitions = softwareEngine.evaluate(location.getLatitude(),
+				location.getLongitude(), getAccuracy(location));
+
+		for (PlacesTransitionBatcher.Transition transition : transitions) {
+			if (offerTransition(transition, now)
+					&& curateTransition(transition.getIdentifier(), transition.getTransitionType(), now)) {
+				transitionBatcher.add(transition);
+				hasTransitions = true;
+			}
+		}
+
+		return hasTransitions;
+	}
+
+	/**
+	 * Arms or disarms the in-library monitoring of the members of a triggered proxy fence.
+	 * <p>
+	 * The proxy fence encloses the regions of its members, so its exit is curated as the exit of each member the user is
+	 * within or entering.
+	 *
+	 * @param fence the triggered proxy {@link PlacesFencePlanner.Fence}
+	 * @param transitionType {@code int} representing the transition type of the trigger
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if any transition was added to the batch
+	 */
+	private boolean onProxyFenceTriggered(final PlacesFencePlanner.Fence fence, final int transitionType, final long now) {
+		if (transitionType == Geofence.GEOFENCE_TRANSITION_ENTER || transitionType == Geofence.GEOFENCE_TRANSITION_DWELL) {
+			armedFences.add(fence.getIdentifier());
+			return false;
+		}
+
+		if (transitionType != Geofence.GEOFENCE_TRANSITION_EXIT) {
+			return false;
+		}
+
+		armedFences.remove(fence.getIdentifier());
+		return addMemberExits(fence.getMembers(), now);
+	}
+
+	/**
+	 * Curates the exits of the given POIs the user is within or entering, after leaving a fence enclosing them.
+	 *
+	 * @param members the {@link List} of {@link PlacesPOI}s enclosed by the fence
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if any transition was added to the batch
+	 */
+	private boolean addMemberExits(final List<PlacesPOI> members, final long now) {
+		boolean hasTransitions = false;
+
+		for (PlacesPOI member : members) {
+			if (poiStates.getState(member.getIdentifier()) == PlacesPOIStateTable.State.OUTSIDE) {
+				continue;
+			}
+
+			final PlacesTransitionBatcher.Transition transition = new PlacesTransitionBatcher.Transition(member,
+					Geofence.GEOFENCE_TRANSITION_EXIT);
+
+			if (offerTransition(transition, now) && curateTransition(member.getIdentifier(), Geofence.GEOFENCE_TRANSITION_EXIT, now)) {
+				transitionBatcher.add(transition);
+				hasTransitions = true;
+			}
+		}
+
+		return hasTransitions;
+	}
+
+	/**
+	 * Curates the transitions released by the {@link #transitionFilter} and adds them to the current batch.
+	 *
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if any transition was added to the batch
+	 */
+	private boolean addDueTransitions(final long now) {
+		boolean hasTransitions = false;
+
+		for (PlacesTransitionBatcher.Transition transition : transitionFilter.releaseDue(now)) {
+			if (curateTransition(transition.getIdentifier(), transition.getTransitionType(), now)) {
+				transitionBatcher.add(transition);
+				hasTransitions = true;
+			}
+		}
+
+		return hasTransitions;
 	}
 
 	// ========================================================================================
@@ -294,10 +627,12 @@ class PlacesGeofenceManager {
 	 * Loads the persisted data into the in-memory variables.
 	 * <p>
 	 * This method is called during the boot time of the SDK.
+	 * The set of regions the user is within persisted by the previous versions is migrated to the {@link #poiStates}.
 	 * Loading of persisted data fails if the {@link SharedPreferences} or App's {@link Context} is null.
 	 *
 	 */
-	void loadPersistedData() {
+	synchronized void loadPersistedData() {
+		slotBudget.loadPersistedData();
 		SharedPreferences sharedPreferences = getSharedPreference();
 
 		if (sharedPreferences == null) {
@@ -306,16 +641,23 @@ class PlacesGeofenceManager {
 			return;
 		}
 
-		userWithinGeofences = sharedPreferences.getStringSet(PlacesMonitorConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY,
-							  new HashSet<String>());
+		final String serializedStates = sharedPreferences.getString(PlacesMonitorConstants.SharedPreference.POI_STATES_KEY, null);
+
+		if (serializedStates != null) {
+			poiStates.deserialize(serializedStates);
+		} else {
+			poiStates.loadInsideIdentifiers(sharedPreferences.getStringSet(
+												PlacesMonitorConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY, null));
+		}
+
 		Log.trace(PlacesMonitorConstants.LOG_TAG,
-				  "PlacesGeoFenceManager.loadPersistedData() userWithinGeofences: " + userWithinGeofences.toString());
+				  "PlacesGeoFenceManager.loadPersistedData() userWithinGeofences: " + poiStates.getInsideIdentifiers());
 	}
 
 	/**
-	 * Saves the in-memory variable {@link #userWithinGeofences} in persistence.
+	 * Saves the in-memory variable {@link #poiStates} in persistence.
 	 */
-	void saveUserWithinGeofences() {
+	synchronized void savePOIStates() {
 		SharedPreferences sharedPreferences = getSharedPreference();
 
 		if (sharedPreferences == null) {
@@ -332,10 +674,12 @@ class PlacesGeofenceManager {
 			return;
 		}
 
-		if (userWithinGeofences == null || userWithinGeofences.isEmpty()) {
-			editor.remove(PlacesMonitorConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY);
+		editor.remove(PlacesMonitorConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY);
+
+		if (poiStates.size() == 0) {
+			editor.remove(PlacesMonitorConstants.SharedPreference.POI_STATES_KEY);
 		} else {
-			editor.putStringSet(PlacesMonitorConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY, userWithinGeofences);
+			editor.putString(PlacesMonitorConstants.SharedPreference.POI_STATES_KEY, poiStates.serialize());
 		}
 
 		editor.commit();
@@ -346,7 +690,7 @@ class PlacesGeofenceManager {
 	 *
 	 * @param nearByPOIs A {@link List} of {@link PlacesPOI} that needs to be registered for monitoring
 	 */
-	void refreshNearByPOIS(final List<PlacesPOI> nearByPOIs) {
+	synchronized void refreshNearByPOIS(final List<PlacesPOI> nearByPOIs) {
 		AdobeCallback<Void> onSuccess = new AdobeCallback<Void>() {
 			@Override
 			public void call(Void aVoid) {
@@ -370,6 +714,168 @@ class PlacesGeofenceManager {
 	// private methods
 	// ========================================================================================
 
+	/**
+	 * Dispatches the entry events of the given newly entered POIs as one batch.
+	 *
+	 * @param newlyEnteredPois A {@link List} of newly entered {@link PlacesPOI}
+	 */
+	private void dispatchEntries(final List<PlacesPOI> newlyEnteredPois) {
+		for (PlacesPOI poi : newlyEnteredPois) {
+			transitionBatcher.add(poi, Geofence.GEOFENCE_TRANSITION_ENTER);
+		}
+
+		transitionBatcher.flush();
+	}
+
+	/**
+	 * Hands the POIs of the software tier, the POIs which did not fit in the geofence slots and the members of the armed proxy
+	 * fences to the {@link #softwareEngine}.
+	 */
+	private void updateSoftwareEngine() {
+		final List<PlacesPOI> pois = new ArrayList<PlacesPOI>(softwareTierPOIs);
+		pois.addAll(overflowPOIs);
+
+		for (PlacesFencePlanner.Fence fence : proxyFences.values()) {
+			if (armedFences.contains(fence.getIdentifier())) {
+				pois.addAll(fence.getMembers());
+			}
+		}
+
+		softwareEngine.setPOIs(pois, poiStates.getInsideIdentifiers());
+	}
+
+	/**
+	 * Collects the POIs of the registered fences which were cut to fit in the geofence slots.
+	 * <p>
+	 * A POI is left out if one of the retained fences still covers it.
+	 *
+	 * @param registeredFences the {@link List} of {@link PlacesFencePlanner.Fence}s to be registered
+	 * @param plannedFences the leading {@code registeredFences} which fit in the geofence slots
+	 * @return a {@code List} of the {@link PlacesPOI}s not monitored by the OS
+	 */
+	private List<PlacesPOI> getOverflowPOIs(final List<PlacesFencePlanner.Fence> registeredFences,
+											final List<PlacesFencePlanner.Fence> plannedFences) {
+		final Set<String> coveredIdentifiers = new HashSet<String>();
+
+		for (PlacesFencePlanner.Fence fence : plannedFences) {
+			for (PlacesPOI poi : fence.getMembers()) {
+				coveredIdentifiers.add(poi.getIdentifier());
+			}
+		}
+
+		final List<PlacesPOI> overflow = new ArrayList<PlacesPOI>();
+
+		for (int i = plannedFences.size(); i < registeredFences.size(); i++) {
+			for (PlacesPOI poi : registeredFences.get(i).getMembers()) {
+				if (coveredIdentifiers.add(poi.getIdentifier())) {
+					overflow.add(poi);
+				}
+			}
+		}
+
+		if (!overflow.isEmpty()) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Evaluating " + overflow.size() +
+					  " POIs in software, their geofences do not fit in the available slots");
+		}
+
+		return overflow;
+	}
+
+	/**
+	 * Records the proxy fences among the given planned fences.
+	 * <p>
+	 * A proxy fence is armed if it was armed before, if the user is within or entering one of its members, or if the
+	 * {@link #lastAcceptedLocation} lies within it, since the OS is not asked for an initial entry trigger.
+	 *
+	 * @param plannedFences the {@link List} of {@link PlacesFencePlanner.Fence}s to be registered
+	 */
+	private void updateProxyFences(final List<PlacesFencePlanner.Fence> plannedFences) {
+		final Map<String, PlacesFencePlanner.Fence> fences = new LinkedHashMap<String, PlacesFencePlanner.Fence>();
+		final Set<String> armed = new HashSet<String>();
+		final Location location = lastAcceptedLocation;
+
+		for (PlacesFencePlanner.Fence fence : plannedFences) {
+			if (!fence.isProxy() || districtTier.getDistrict(fence.getIdentifier()) != null) {
+				continue;
+			}
+
+			fences.put(fence.getIdentifier(), fence);
+			boolean isArmed = armedFences.contains(fence.getIdentifier()) || (location != null
+							  && PlacesGeoMath.haversine(location.getLatitude(), location.getLongitude(), fence.getLatitude(),
+									  fence.getLongitude()) <= fence.getRadius());
+
+			for (PlacesPOI member : fence.getMembers()) {
+				isArmed |= member.containsUser()
+						   || poiStates.getState(member.getIdentifier()) != PlacesPOIStateTable.State.OUTSIDE;
+			}
+
+			if (isArmed) {
+				armed.add(fence.getIdentifier());
+			}
+		}
+
+		proxyFences = fences;
+		armedFences = armed;
+		updateSoftwareEngine();
+	}
+
+	/**
+	 * Activates the districts the user is within.
+	 * <p>
+	 * A district is activated if the {@link #lastAcceptedLocation} lies within it, or if the user is within or entering one of
+	 * its POIs. Without any location, the district of the highest ranked POI is activated.
+	 *
+	 * @param nearByPOIs the ranked {@link List} of nearby {@link PlacesPOI}s
+	 */
+	private void activateDistricts(final List<PlacesPOI> nearByPOIs) {
+		final List<PlacesFencePlanner.Fence> districts = districtTier.getDistricts();
+		final Location location = lastAcceptedLocation;
+
+		for (PlacesFencePlanner.Fence district : districts) {
+			boolean isWithin = location != null && PlacesGeoMath.haversine(location.getLatitude(), location.getLongitude(),
+							   district.getLatitude(), district.getLongitude()) <= district.getRadius();
+
+			for (PlacesPOI member : district.getMembers()) {
+				isWithin |= member.containsUser()
+							|| poiStates.getState(member.getIdentifier()) != PlacesPOIStateTable.State.OUTSIDE;
+			}
+
+			if (isWithin) {
+				districtTier.activate(district.getIdentifier());
+			}
+		}
+
+		if (location != null || districts.isEmpty() || !districtTier.getActiveFences().isEmpty()) {
+			return;
+		}
+
+		for (PlacesFencePlanner.Fence district : districts) {
+			if (district.getMembers().contains(nearByPOIs.get(0))) {
+				districtTier.activate(district.getIdentifier());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Orders the given POIs by decreasing score of the {@link #poiRanker}, scoring their distance from the
+	 * {@link #lastAcceptedLocation}.
+	 * <p>
+	 * The distance follows the order provided by the {@link Places} extension if no location fix has been accepted yet.
+	 *
+	 * @param nearByPOIs A {@link List} of nearBy {@link PlacesPOI}
+	 * @return a new {@code List} of the ordered {@code PlacesPOI}
+	 */
+	private List<PlacesPOI> rankPOIs(final List<PlacesPOI> nearByPOIs) {
+		final Location location = lastAcceptedLocation;
+
+		if (location == null) {
+			return poiRanker.rank(nearByPOIs, false, 0, 0, poiStates);
+		}
+
+		return poiRanker.rank(nearByPOIs, true, location.getLatitude(), location.getLongitude(), poiStates);
+	}
+
 	/**
 	 * Unregisters all the pois that are currently being monitored by google's {@link GeofencingClient}.
 	 * <p>
@@ -404,7 +910,7 @@ class PlacesGeofenceManager {
 		task.addOnSuccessListener(new OnSuccessListener<Void>() {
 			@Override
 			public void onSuccess(Void aVoid) {
-				;
+				slotBudget.recordRegistered(0, System.currentTimeMillis());
 
 				if (onSuccess != null) {
 					onSuccess.call(null);
@@ -424,7 +930,10 @@ class PlacesGeofenceManager {
 	/**
 	 * Registers the given list of {@link PlacesPOI} with the google's {@link GeofencingClient}
 	 * <p>
-	 * The pois are registered to be monitored for entry and exit events. The registration will fail if,
+	 * The pois are registered to be monitored for entry and exit events, merged into proxy fences by the {@link #fencePlanner}.
+	 * Only the leading fences that fit in the slots available in the {@link #slotBudget} are registered. If the OS rejects the registration with
+	 * {@link GeofenceStatusCodes#GEOFENCE_TOO_MANY_GEOFENCES}, the registration is retried with fewer pois.
+	 * The registration will fail if,
 	 * <ul>
 	 *     <li> The permission for accessing the fine location is denied.</li>
 	 *     <li> {@link PendingIntent} for receiving Geofencing events is null.</li>
@@ -433,7 +942,7 @@ class PlacesGeofenceManager {
 	 *
 	 * @param nearByPOIs A {@link List} of nearbyPOIs obtained for the devices current location
 	 */
-	private void registerPOIs(final List<PlacesPOI> nearByPOIs) {
+	private synchronized void registerPOIs(final List<PlacesPOI> nearByPOIs) {
 		// List of geofence to be added
 		final List<Geofence> geofences = new ArrayList<>();
 
@@ -452,7 +961,42 @@ class PlacesGeofenceManager {
 		}
 
 
-		for (PlacesPOI poi : nearByPOIs) {
+		boolean hasDwellFences = false;
+		final long now = System.currentTimeMillis();
+		registeredPOIs = nearByPOIs;
+		districtTier.setFences(fencePlanner.plan(nearByPOIs));
+
+		// the districts crossed by the user are already activated or released by their triggers
+		if (!isDistrictRefresh) {
+			activateDistricts(nearByPOIs);
+		}
+
+		isDistrictRefresh = false;
+
+		// the districts stay registered, the fine fences only within the active districts
+		final List<PlacesFencePlanner.Fence> registeredFences = districtTier.getRegisteredFences();
+		final List<PlacesFencePlanner.Fence> plannedFences = slotBudget.fit(registeredFences);
+		overflowPOIs = monitoringMode == PlacesMonitorConfiguration.MonitoringMode.HYBRID ? getOverflowPOIs(registeredFences,
+					   plannedFences) : new ArrayList<PlacesPOI>();
+		updateProxyFences(plannedFences);
+
+		for (PlacesFencePlanner.Fence plannedFence : plannedFences) {
+			if (districtTier.getDistrict(plannedFence.getIdentifier()) != null) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Attempting to Monitor district with id " + plannedFence.getIdentifier() +
+						  " of " + plannedFence.getMembers().size() + " POIs radius " + plannedFence.getRadius() +
+						  (districtTier.isActive(plannedFence.getIdentifier()) ? " (active)" : ""));
+				geofences.add(geofencePolicy.buildProxyGeofence(plannedFence, now));
+				continue;
+			}
+
+			if (plannedFence.isProxy()) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Attempting to Monitor proxy fence with id " + plannedFence.getIdentifier() +
+						  " of " + plannedFence.getMembers().size() + " POIs radius " + plannedFence.getRadius());
+				geofences.add(geofencePolicy.buildProxyGeofence(plannedFence, now));
+				continue;
+			}
+
+			final PlacesPOI poi = plannedFence.getMembers().get(0);
 
 			/**
 			 * If a geofence was previously registered, reading them will just replace the old one, which
@@ -461,13 +1005,13 @@ class PlacesGeofenceManager {
 			 * does not provide any API to query which geofences are currenty monitored, so it's safer
 			 * to re-register previously registered geofences.
 			 */
-			final Geofence fence = new Geofence.Builder()
-			.setRequestId(poi.getIdentifier())
-			.setCircularRegion(poi.getLatitude(), poi.getLongitude(), poi.getRadius())
-			.setExpirationDuration(Geofence.NEVER_EXPIRE)
-			.setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER |
-								Geofence.GEOFENCE_TRANSITION_EXIT)
-			.build();
+			final Geofence fence = geofencePolicy.buildGeofence(poi, now);
+
+			// a region with a loitering delay reports its entry with a dwell trigger, so that passing by reports nothing
+			if (geofencePolicy.getLoiteringDelay(poi) > 0) {
+				hasDwellFences = true;
+			}
+
 			Log.debug(PlacesMonitorConstants.LOG_TAG, "Attempting to Monitor location with id " + poi.getIdentifier() +
 					  " name " + poi.getName() +
 					  " latitude " + poi.getLatitude() +
@@ -484,9 +1028,18 @@ class PlacesGeofenceManager {
 
 		/*	by default initial trigger is set to INITIAL_TRIGGER_ENTER | INITIAL_TRIGGER_DWELL
 		*   This is not what we want since it will result in duplicate triggers if we are already
-		 *   inside POI(s).
+		 *   inside POI(s). The initial dwell trigger is only requested for the regions with a loitering delay, whose entry
+		 *   is held until the user dwells in them, and a region whose entry is already recorded ignores it.
 		* */
-		builder.setInitialTrigger(0);
+		int initialTrigger = hasDwellFences ? GeofencingRequest.INITIAL_TRIGGER_DWELL : 0;
+
+		// after entering a district, the OS reports the fences of the district the user is already within
+		if (requestInitialEntry) {
+			initialTrigger |= GeofencingRequest.INITIAL_TRIGGER_ENTER;
+			requestInitialEntry = false;
+		}
+
+		builder.setInitialTrigger(initialTrigger);
 		builder.addGeofences(geofences);
 
 		try {
@@ -495,6 +1048,7 @@ class PlacesGeofenceManager {
 				@Override
 				public void onSuccess(Void aVoid) {
 					Log.debug(PlacesMonitorConstants.LOG_TAG, "Successfully added " + geofences.size() + " fences for monitoring");
+					slotBudget.recordRegistered(geofences.size(), System.currentTimeMillis());
 				}
 			});
 			task.addOnFailureListener(new OnFailureListener() {
@@ -502,6 +1056,12 @@ class PlacesGeofenceManager {
 				public void onFailure(Exception e) {
 					Log.debug(PlacesMonitorConstants.LOG_TAG, "Error in adding fences for monitoring " + e.getMessage());
 
+					if (e instanceof ApiException
+							&& ((ApiException) e).getStatusCode() == GeofenceStatusCodes.GEOFENCE_TOO_MANY_GEOFENCES
+							&& slotBudget.recordTooManyGeofences(geofences.size(), System.currentTimeMillis()) > 0) {
+						registerPOIs(nearByPOIs);
+					}
+
 				}
 			});
 		} catch (SecurityException e) {
@@ -513,6 +1073,263 @@ class PlacesGeofenceManager {
 	// private methods - Getters
 	// ========================================================================================
 
+	/**
+	 * Sets the number of geofence slots reserved by the host application.
+	 *
+	 * @param reservedSlots the number of slots reserved by the host application
+	 * @return {@code boolean} indicating if the currently registered geofences exceed the new budget
+	 * @see PlacesGeofenceSlotBudget#setReservedSlots(int)
+	 */
+	synchronized boolean setReservedGeofenceSlots(final int reservedSlots) {
+		return slotBudget.setReservedSlots(reservedSlots) && slotBudget.getUsedSlots() > slotBudget.getAvailableSlots();
+	}
+
+	/**
+	 * Sets the {@link PlacesMonitorConfiguration.MonitoringMode} of the nearby POIs.
+	 * <p>
+	 * When switching to {@link PlacesMonitorConfiguration.MonitoringMode#SOFTWARE} the geofences registered with the OS are removed.
+	 * When switching back, the POIs monitored in software are released and the geofences are registered on the next refresh.
+	 *
+	 * @param monitoringMode the {@code MonitoringMode} to be applied
+	 */
+	synchronized void setMonitoringMode(final PlacesMonitorConfiguration.MonitoringMode monitoringMode) {
+		if (monitoringMode == null || monitoringMode == this.monitoringMode) {
+			return;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Switching the monitoring mode of the nearby POIs to " + monitoringMode);
+		this.monitoringMode = monitoringMode;
+		stopMonitoringFences(false);
+	}
+
+	/**
+	 * Sets the parameters of the filter against the transitions flapping around the region boundaries.
+	 *
+	 * @param minDwellTime the time in milliseconds the user has to stay within a region before its entry is reported
+	 * @param minAbsenceTime the time in milliseconds the user has to stay outside a region before its exit is reported
+	 * @param exitHysteresis the distance in meters beyond the radius of a region the user has to move for an in-library exit
+	 */
+	synchronized void setTransitionFilterParameters(final long minDwellTime, final long minAbsenceTime, final double exitHysteresis) {
+		transitionFilter.setDelays(minDwellTime, minAbsenceTime);
+		this.exitHysteresis = Math.max(0, exitHysteresis);
+		softwareEngine.setExitHysteresis(exitHysteresis);
+	}
+
+	/**
+	 * Sets the default loitering delay of the regions monitored by the OS.
+	 * <p>
+	 * A POI can override it with the {@link PlacesMonitorConstants.GeofencePolicy#LOITERING_DELAY_METADATA_KEY} metadata. The
+	 * new delay applies to the regions registered from the next refresh of the nearby POIs.
+	 *
+	 * @param loiteringDelay the time in milliseconds the user has to dwell in a region before its entry is reported by the OS,
+	 *                       0 to report the entries immediately
+	 */
+	synchronized void setLoiteringDelay(final int loiteringDelay) {
+		geofencePolicy.setLoiteringDelay(loiteringDelay);
+	}
+
+	/**
+	 * Sets the time at which the nearby POIs passed to the next {@link #startMonitoringFences(List)} expire, so that their
+	 * geofences are expired by the OS instead of being unregistered.
+	 *
+	 * @param expiresAt the expiration time in milliseconds, 0 if the nearby POIs never expire
+	 */
+	synchronized void setPOIExpiration(final long expiresAt) {
+		geofencePolicy.setExpiresAt(expiresAt);
+	}
+
+	/**
+	 * Getter for the {@link #transitionFilter}, exposing the event rate reduction metrics.
+	 *
+	 * @return the {@link PlacesTransitionFilter} instance used by this manager
+	 */
+	PlacesTransitionFilter getTransitionFilter() {
+		return transitionFilter;
+	}
+
+	/**
+	 * Sets the minimum confidences required to emit the transitions computed in-library from the accuracy of the location fixes.
+	 *
+	 * @param enterConfidence the minimum confidence that the user is within a POI for an entry to be emitted
+	 * @param exitConfidence the minimum confidence that the user is outside a POI for an exit to be emitted
+	 * @see PlacesGeoMath#enterConfidence(double, double, double)
+	 * @see PlacesGeoMath#exitConfidence(double, double, double)
+	 */
+	synchronized void setConfidenceThresholds(final double enterConfidence, final double exitConfidence) {
+		this.enterConfidence = enterConfidence;
+		this.exitConfidence = exitConfidence;
+		softwareEngine.setConfidenceThresholds(enterConfidence, exitConfidence);
+	}
+
+	/**
+	 * Getter for the {@link #softwareEngine}, exposing the evaluation metrics.
+	 *
+	 * @return the {@link PlacesSoftwareGeofenceEngine} instance used by this manager
+	 */
+	PlacesSoftwareGeofenceEngine getSoftwareEngine() {
+		return softwareEngine;
+	}
+
+	/**
+	 * Getter for the {@link #fencePlanner}, exposing the number of slots saved by the proxy fences.
+	 *
+	 * @return the {@link PlacesFencePlanner} instance used by this manager
+	 */
+	PlacesFencePlanner getFencePlanner() {
+		return fencePlanner;
+	}
+
+	/**
+	 * Getter for the {@link #poiRanker}, exposing the score of each ranked POI.
+	 *
+	 * @return the {@link PlacesPOIRanker} instance used by this manager
+	 */
+	PlacesPOIRanker getPOIRanker() {
+		return poiRanker;
+	}
+
+	/**
+	 * Getter for the {@link #districtTier}.
+	 *
+	 * @return the {@link PlacesDistrictTier} grouping the registered geofences into districts
+	 */
+	PlacesDistrictTier getDistrictTier() {
+		return districtTier;
+	}
+
+	/**
+	 * Getter for the armed proxy fences.
+	 *
+	 * @return a new {@link Set} of the identifiers of the proxy fences whose members are evaluated in software
+	 */
+	synchronized Set<String> getArmedFences() {
+		return new HashSet<String>(armedFences);
+	}
+
+	/**
+	 * @return the number of geofence slots available to the places monitor
+	 */
+	int getAvailableGeofenceSlots() {
+		return slotBudget.getAvailableSlots();
+	}
+
+	/**
+	 * Sets the {@link PlacesOfflineQueue} in which the curated transitions are held while the device has no network connectivity.
+	 *
+	 * @param offlineQueue the {@code PlacesOfflineQueue} instance
+	 */
+	void setOfflineQueue(final PlacesOfflineQueue offlineQueue) {
+		transitionBatcher.setOfflineQueue(offlineQueue);
+	}
+
+	/**
+	 * Dispatches the transitions restored from the {@link PlacesOfflineQueue} as one batch, in their original order.
+	 * <p>
+	 * The transitions were already curated against the {@link #poiStates} when they occurred.
+	 *
+	 * @param transitions an ordered {@link List} of queued {@link PlacesTransitionBatcher.Transition}s
+	 */
+	void dispatchQueuedTransitions(final List<PlacesTransitionBatcher.Transition> transitions) {
+		transitionBatcher.dispatch(transitions);
+	}
+
+	/**
+	 * Getter for the {@link #slotBudget}.
+	 *
+	 * @return the {@link PlacesGeofenceSlotBudget} exposing the used and free slots and the retry history
+	 */
+	PlacesGeofenceSlotBudget getSlotBudget() {
+		return slotBudget;
+	}
+
+	/**
+	 * @return the number of nearby POI containments recomputed against the {@link #lastAcceptedLocation}
+	 */
+	synchronized long getContainmentCheckCount() {
+		return containmentCheckCount;
+	}
+
+	/**
+	 * @return the number of recomputed containments for which only the server reported the user within the POI
+	 */
+	synchronized long getServerOnlyContainmentCount() {
+		return serverOnlyContainmentCount;
+	}
+
+	/**
+	 * @return the number of recomputed containments for which only the local check found the user within the POI
+	 */
+	synchronized long getLocalOnlyContainmentCount() {
+		return localOnlyContainmentCount;
+	}
+
+	/**
+	 * Getter for the {@link #poiStates}.
+	 *
+	 * @return the {@link PlacesPOIStateTable} recording the transition state of each nearby POI
+	 */
+	PlacesPOIStateTable getPOIStates() {
+		return poiStates;
+	}
+
+	/**
+	 * Getter for the {@link #transitionBatcher}, exposing the batch-size metrics of the dispatched transitions.
+	 *
+	 * @return the {@code PlacesTransitionBatcher} instance used by this manager
+	 */
+	PlacesTransitionBatcher getTransitionBatcher() {
+		return transitionBatcher;
+	}
+
+	/**
+	 * Decides whether the user is within the given POI, recomputing the containment against the {@link #lastAcceptedLocation}.
+	 * <p>
+	 * Falls back to the {@link PlacesPOI#containsUser()} flag reported by the server if no location fix has been accepted.
+	 * The state changes only if the accuracy of the fix gives enough confidence in the new state.
+	 *
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @param wasWithin {@code boolean} indicating if the user was recorded within the poi
+	 * @return {@code boolean} indicating if the user is within the poi
+	 */
+	private boolean isUserWithin(final PlacesPOI poi, final boolean wasWithin) {
+		final Location location = lastAcceptedLocation;
+
+		if (location == null) {
+			return poi.containsUser();
+		}
+
+		final double accuracy = getAccuracy(location);
+		final double radius = wasWithin ? poi.getRadius() + exitHysteresis : poi.getRadius();
+		final double distance = PlacesGeoMath.overlapDistance(location.getLatitude(), location.getLongitude(),
+								poi.getLatitude(), poi.getLongitude(), PlacesGeoMath.longitudeScale(poi.getLatitude()), radius, accuracy);
+		final boolean localVerdict = wasWithin
+									 ? PlacesGeoMath.exitConfidence(distance, radius, accuracy) < exitConfidence
+									 : PlacesGeoMath.enterConfidence(distance, radius, accuracy) >= enterConfidence;
+		containmentCheckCount++;
+
+		if (localVerdict != poi.containsUser()) {
+			if (localVerdict) {
+				localOnlyContainmentCount++;
+			} else {
+				serverOnlyContainmentCount++;
+			}
+
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "The containment of POI " + poi.getIdentifier() +
+					  " reported by the server is stale, the user is " + (localVerdict ? "within" : "outside") +
+					  " the POI at the latest location");
+		}
+
+		return localVerdict;
+	}
+
+	/**
+	 * @param location a {@link Location} fix
+	 * @return the accuracy radius of the fix in meters, 0 if unknown
+	 */
+	private static double getAccuracy(final Location location) {
+		return location.hasAccuracy() ? location.getAccuracy() : 0;
+	}
+
 	/**
 	 * Returns a {@code PendingIntent} instance for getting the Geofence triggers
 	 * <p>
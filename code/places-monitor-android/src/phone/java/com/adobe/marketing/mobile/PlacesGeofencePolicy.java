@@ -0,0 +1,198 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeofencePolicy.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import java.util.Map;
+
+/**
+ * Class to derive the parameters of the geofence registered with the OS for each POI.
+ * <p>
+ * Each parameter can be set for a POI with a metadata key of {@link PlacesMonitorConstants.GeofencePolicy}, and otherwise
+ * follows a default policy:
+ * <ul>
+ *     <li> the loitering delay is the configured one, a region with a loitering delay reports its entry with a dwell trigger </li>
+ *     <li> the notification responsiveness is relaxed for the large regions, whose transitions tolerate a delay of minutes </li>
+ *     <li> the exits are reported </li>
+ *     <li> the geofence expires along with the cached nearby POIs it was registered from </li>
+ * </ul>
+ * Letting the OS batch the notifications and expire the geofences lowers the number of wakeups.
+ */
+class PlacesGeofencePolicy {
+	private int loiteringDelay;
+	private long expiresAt;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesGeofencePolicy() {
+		loiteringDelay = PlacesMonitorConstants.Dwell.DEFAULT_LOITERING_DELAY;
+	}
+
+	/**
+	 * @param loiteringDelay the default time in milliseconds the user has to dwell in a region before its entry is reported,
+	 *                       0 to report the entries immediately
+	 */
+	synchronized void setLoiteringDelay(final int loiteringDelay) {
+		this.loiteringDelay = Math.max(0, loiteringDelay);
+	}
+
+	/**
+	 * @param expiresAt the time in milliseconds at which the nearby POIs to be registered expire, 0 if they never expire
+	 */
+	synchronized void setExpiresAt(final long expiresAt) {
+		this.expiresAt = Math.max(0, expiresAt);
+	}
+
+	/**
+	 * Builds the geofence to be registered with the OS for the given POI.
+	 *
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @param now the current time in milliseconds
+	 * @return the {@link Geofence} of the poi
+	 */
+	Geofence buildGeofence(final PlacesPOI poi, final long now) {
+		final Geofence.Builder builder = new Geofence.Builder()
+		.setRequestId(poi.getIdentifier())
+		.setCircularRegion(poi.getLatitude(), poi.getLongitude(), poi.getRadius())
+		.setExpirationDuration(getExpirationDuration(now))
+		.setTransitionTypes(getTransitionTypes(poi));
+		final int poiLoiteringDelay = getLoiteringDelay(poi);
+
+		if (poiLoiteringDelay > 0) {
+			builder.setLoiteringDelay(poiLoiteringDelay);
+		}
+
+		final int responsiveness = getResponsiveness(poi);
+
+		if (responsiveness > 0) {
+			builder.setNotificationResponsiveness(responsiveness);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Builds the geofence to be registered with the OS for the given proxy fence.
+	 * <p>
+	 * The entries and exits of a proxy fence are reported immediately, the entries of its members are confirmed in-library.
+	 *
+	 * @param fence the proxy {@link PlacesFencePlanner.Fence}
+	 * @param now the current time in milliseconds
+	 * @return the {@link Geofence} of the fence
+	 */
+	Geofence buildProxyGeofence(final PlacesFencePlanner.Fence fence, final long now) {
+		return new Geofence.Builder()
+		.setRequestId(fence.getIdentifier())
+		.setCircularRegion(fence.getLatitude(), fence.getLongitude(), fence.getRadius())
+		.setExpirationDuration(getExpirationDuration(now))
+		.setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT)
+		.build();
+	}
+
+	/**
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @return the loitering delay in milliseconds, 0 if the entry of the poi is reported immediately
+	 */
+	synchronized int getLoiteringDelay(final PlacesPOI poi) {
+		final Integer value = getMetadataInteger(poi, PlacesMonitorConstants.GeofencePolicy.LOITERING_DELAY_METADATA_KEY);
+		return value == null ? loiteringDelay : value;
+	}
+
+	/**
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @return the notification responsiveness in milliseconds, 0 for the default responsiveness of the OS
+	 */
+	int getResponsiveness(final PlacesPOI poi) {
+		final Integer value = getMetadataInteger(poi, PlacesMonitorConstants.GeofencePolicy.RESPONSIVENESS_METADATA_KEY);
+
+		if (value != null) {
+			return value;
+		}
+
+		return poi.getRadius() >= PlacesMonitorConstants.GeofencePolicy.LARGE_REGION_RADIUS
+			   ? PlacesMonitorConstants.GeofencePolicy.LARGE_REGION_RESPONSIVENESS : 0;
+	}
+
+	/**
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @return {@code boolean} indicating if the exits of the poi are reported
+	 */
+	boolean reportsExit(final PlacesPOI poi) {
+		final Map<String, String> metadata = poi.getMetadata();
+		final String value = metadata == null ? null : metadata.get(PlacesMonitorConstants.GeofencePolicy.EXIT_METADATA_KEY);
+		return !"false".equalsIgnoreCase(value == null ? null : value.trim());
+	}
+
+	/**
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @return the transition types of the geofence of the poi
+	 */
+	int getTransitionTypes(final PlacesPOI poi) {
+		int transitionTypes = getLoiteringDelay(poi) > 0 ? Geofence.GEOFENCE_TRANSITION_DWELL : Geofence.GEOFENCE_TRANSITION_ENTER;
+
+		if (reportsExit(poi)) {
+			transitionTypes |= Geofence.GEOFENCE_TRANSITION_EXIT;
+		}
+
+		return transitionTypes;
+	}
+
+	/**
+	 * @param now the current time in milliseconds
+	 * @return the expiration duration in milliseconds of the geofences registered now, {@link Geofence#NEVER_EXPIRE} if the
+	 * nearby POIs never expire
+	 */
+	synchronized long getExpirationDuration(final long now) {
+		if (expiresAt == 0) {
+			return Geofence.NEVER_EXPIRE;
+		}
+
+		return Math.max(expiresAt - now, PlacesMonitorConstants.GeofencePolicy.MIN_EXPIRATION_DURATION);
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * @param poi the nearby {@link PlacesPOI}
+	 * @param key the metadata key
+	 * @return the non-negative integer metadata value of the poi, null if it is not set or invalid
+	 */
+	static Integer getMetadataInteger(final PlacesPOI poi, final String key) {
+		final Map<String, String> metadata = poi.getMetadata();
+		final String value = metadata == null ? null : metadata.get(key);
+
+		if (value == null) {
+			return null;
+		}
+
+		try {
+			final int parsedValue = Integer.parseInt(value.trim());
+
+			if (parsedValue >= 0) {
+				return parsedValue;
+			}
+		} catch (NumberFormatException e) {
+			// fall through, the metadata value is invalid
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Ignoring invalid " + key + " " + value + " of POI " + poi.getIdentifier());
+		return null;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeofenceSlotBudget.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class to allocate the geofence slots used by the places monitor out of the
+ * {@link PlacesMonitorConstants.GeofenceBudget#MAX_GEOFENCE_SLOTS} geofences the OS allows per app.
+ * <p>
+ * The host application declares the number of slots it reserves for its own geofences, and the places monitor sizes its
+ * nearby set to fit in the remaining slots. When the OS rejects a registration with
+ * {@link com.google.android.gms.location.GeofenceStatusCodes#GEOFENCE_TOO_MANY_GEOFENCES}, the slot limit is halved, down to
+ * {@link PlacesMonitorConstants.GeofenceBudget#MIN_SLOT_LIMIT}, and the registration is retried. Since the geofences of other
+ * libraries in the app may have been removed since, a successful registration made
+ * {@link PlacesMonitorConstants.GeofenceBudget#SLOT_LIMIT_RECOVERY_INTERVAL} after the last change of the limit doubles it back
+ * toward the platform maximum. The learned limit is reset when the reservation changes.
+ */
+class PlacesGeofenceSlotBudget {
+
+	private int reservedSlots;
+	private int slotLimit;
+	private int usedSlots;
+	private long slotLimitChangedAt;
+	private final LinkedList<RetryRecord> retryHistory;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesGeofenceSlotBudget() {
+		retryHistory = new LinkedList<RetryRecord>();
+		slotLimit = PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS;
+	}
+
+	/**
+	 * Sets the number of geofence slots reserved by the host application and persists it.
+	 * <p>
+	 * No action is taken if the given value is negative or larger than {@link PlacesMonitorConstants.GeofenceBudget#MAX_GEOFENCE_SLOTS}.
+	 *
+	 * @param reservedSlots the number of slots reserved by the host application
+	 * @return {@code boolean} indicating if the reservation was applied
+	 */
+	synchronized boolean setReservedSlots(final int reservedSlots) {
+		if (reservedSlots < 0 || reservedSlots > PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Ignoring invalid reserved geofence slots value " + reservedSlots + ", value must be between 0 and " +
+						PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS);
+			return false;
+		}
+
+		this.reservedSlots = reservedSlots;
+		this.slotLimit = PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS;
+		this.slotLimitChangedAt = 0;
+		saveReservedSlots();
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "Host application reserved " + reservedSlots + " geofence slots, " + getAvailableSlots() +
+				  " slots are available to the places monitor");
+		return true;
+	}
+
+	/**
+	 * Returns the number of geofence slots the places monitor may register.
+	 *
+	 * @return the number of slots not reserved by the host application, bounded by the limit learned from registration failures
+	 */
+	synchronized int getAvailableSlots() {
+		return Math.max(0, Math.min(PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS - reservedSlots, slotLimit));
+	}
+
+	/**
+	 * Truncates the given list of POIs or planned fences to the number of available slots.
+	 * <p>
+	 * The items are expected to be ordered by priority, the leading ones are retained.
+	 *
+	 * @param items the {@link List} of {@link PlacesPOI}s or {@link PlacesFencePlanner.Fence}s to be registered
+	 * @param <T> the type of the items, each taking one slot
+	 * @return a {@code List} of the items which fits in the available slots
+	 */
+	synchronized <T> List<T> fit(final List<T> items) {
+		final int availableSlots = getAvailableSlots();
+
+		if (items.size() <= availableSlots) {
+			return items;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "Only " + availableSlots + " geofence slots are available, ignoring " + (items.size() - availableSlots) + " geofences");
+		return new ArrayList<T>(items.subList(0, availableSlots));
+	}
+
+	/**
+	 * Records the number of geofences currently registered by the places monitor.
+	 * <p>
+	 * If geofences were registered while the slot limit is below the platform maximum and the limit has not changed for
+	 * {@link PlacesMonitorConstants.GeofenceBudget#SLOT_LIMIT_RECOVERY_INTERVAL}, the limit is doubled for the next registration.
+	 *
+	 * @param count the number of registered geofences
+	 * @param now the current time in milliseconds
+	 */
+	synchronized void recordRegistered(final int count, final long now) {
+		usedSlots = count;
+
+		if (count <= 0 || slotLimit >= PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS
+				|| now - slotLimitChangedAt < PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL) {
+			return;
+		}
+
+		slotLimit = Math.min(PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS, slotLimit * 2);
+		slotLimitChangedAt = now;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Growing the geofence slot limit back to " + slotLimit);
+	}
+
+	/**
+	 * Records a registration rejected by the OS because the app exceeded its geofence limit, and shrinks the slot limit.
+	 * <p>
+	 * The limit does not shrink below {@link PlacesMonitorConstants.GeofenceBudget#MIN_SLOT_LIMIT}.
+	 *
+	 * @param attemptedSlots the number of geofences in the rejected registration
+	 * @param now the current time in milliseconds
+	 * @return the new number of available slots, 0 if the registration should not be retried
+	 */
+	synchronized int recordTooManyGeofences(final int attemptedSlots, final long now) {
+		slotLimit = Math.max(PlacesMonitorConstants.GeofenceBudget.MIN_SLOT_LIMIT, Math.min(slotLimit, attemptedSlots / 2));
+		slotLimitChangedAt = now;
+		usedSlots = 0;
+
+		final RetryRecord record = new RetryRecord(now, attemptedSlots, slotLimit);
+		retryHistory.add(record);
+
+		while (retryHistory.size() > PlacesMonitorConstants.GeofenceBudget.MAX_RETRY_HISTORY) {
+			retryHistory.removeFirst();
+		}
+
+		Log.warning(PlacesMonitorConstants.LOG_TAG,
+					"The OS rejected " + attemptedSlots + " geofences as too many, shrinking the geofence slot limit to " + slotLimit);
+
+		// a registration already within the smallest limit would be rejected again
+		return slotLimit < attemptedSlots ? getAvailableSlots() : 0;
+	}
+
+	/**
+	 * @return the number of slots reserved by the host application
+	 */
+	synchronized int getReservedSlots() {
+		return reservedSlots;
+	}
+
+	/**
+	 * @return the number of geofences currently registered by the places monitor
+	 */
+	synchronized int getUsedSlots() {
+		return usedSlots;
+	}
+
+	/**
+	 * @return the number of slots neither reserved by the host application nor used by the places monitor
+	 */
+	synchronized int getFreeSlots() {
+		return Math.max(0, PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS - reservedSlots - usedSlots);
+	}
+
+	/**
+	 * @return a {@link List} of the most recent {@link RetryRecord}s, oldest first
+	 */
+	synchronized List<RetryRecord> getRetryHistory() {
+		return new ArrayList<RetryRecord>(retryHistory);
+	}
+
+	// ========================================================================================
+	// Load/Save reserved slots to persistence
+	// ========================================================================================
+
+	/**
+	 * Loads the persisted number of reserved slots into memory.
+	 * <p>
+	 * This method is called during the boot time of the SDK.
+	 */
+	synchronized void loadPersistedData() {
+		SharedPreferences sharedPreferences = getSharedPreference();
+
+		if (sharedPreferences == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to load reserved geofence slots from persistence, sharedPreference is null");
+			return;
+		}
+
+		reservedSlots = sharedPreferences.getInt(PlacesMonitorConstants.SharedPreference.RESERVED_GEOFENCE_SLOTS_KEY, 0);
+		Log.trace(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesGeofenceSlotBudget has loaded " + reservedSlots + " reserved geofence slots from persistence");
+	}
+
+	private void saveReservedSlots() {
+		SharedPreferences sharedPreferences = getSharedPreference();
+
+		if (sharedPreferences == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to save reserved geofence slots to persistence, sharedPreference is null");
+			return;
+		}
+
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+
+		if (editor == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to save reserved geofence slots to persistence, shared preference editor is null");
+			return;
+		}
+
+		editor.putInt(PlacesMonitorConstants.SharedPreference.RESERVED_GEOFENCE_SLOTS_KEY, reservedSlots);
+		editor.commit();
+	}
+
+	private SharedPreferences getSharedPreference() {
+		Context appContext = App.getAppContext();
+
+		if (appContext == null) {
+			return null;
+		}
+
+		return appContext.getSharedPreferences(PlacesMonitorConstants.SharedPreference.MASTER_KEY, 0);
+	}
+
+	/**
+	 * A registration rejected by the OS and the slot limit applied for its retry.
+	 */
+	static final class RetryRecord {
+		private final long timestamp;
+		private final int attemptedSlots;
+		private final int slotLimit;
+
+		RetryRecord(final long timestamp, final int attemptedSlots, final int slotLimit) {
+			this.timestamp = timestamp;
+			this.attemptedSlots = attemptedSlots;
+			this.slotLimit = slotLimit;
+		}
+
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		int getAttemptedSlots() {
+			return attemptedSlots;
+		}
+
+		int getSlotLimit() {
+			return slotLimit;
+		}
+	}
+}
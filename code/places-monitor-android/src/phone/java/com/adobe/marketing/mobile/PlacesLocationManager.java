@@ -40,19 +40,51 @@ import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * Class to manage location updates from Android OS
+ * <p>
+ * The location updates are paused while the {@link PlacesMotionGate} reports the device as still, and requested again
+ * once the device moves. The geofences registered with the OS stay armed while the location updates are paused.
+ * <p>
+ * The location updates follow the foreground profile of the {@link PlacesMonitorConfiguration} while the app is visible, and
+ * its background profile otherwise. Switching profile replaces the request of the location updates in place, without
+ * removing them or checking the location settings again.
+ * <p>
+ * In passive mode, the location updates are requested with {@link LocationRequest#PRIORITY_NO_POWER} and only receive the
+ * fixes requested by other apps. If no fix is accepted within the passive fix deadline of the configuration, a single
+ * active fix is requested, after which the deadline starts over. Since the fixes of other apps are delivered as often as the
+ * fastest interval, the nearby POIs are only requested again once the device has moved by the smallest displacement of
+ * the profile since the last request.
  */
 class PlacesLocationManager {
 
 	// permission constants
 	private FusedLocationProviderClient fusedLocationClient;
 	private PendingIntent locationPendingIntent;
-	private boolean hasMonitoringStarted;
+	private volatile boolean hasMonitoringStarted;
 	private PlacesMonitorInternal placesMonitorInternal;
 	private PlacesMonitorLocationPermission requestedLocationPermission;
+	private volatile PlacesMonitorConfiguration configuration = new PlacesMonitorConfiguration();
+	private volatile Location lastAcceptedLocation;
+	private volatile Location lastQueriedLocation;
+	private PlacesMotionGate motionGate = new PlacesActivityRecognitionMotionGate();
+	private volatile boolean isPausedWhileStill;
+	private volatile long pausedAt;
+	private volatile long totalPausedTime;
+	private int pauseCount;
+	private volatile boolean isForeground = true;
+	private int profileSwitchCount;
+	private volatile PendingIntent activeFixPendingIntent;
+	private ScheduledExecutorService scheduledExecutorService;
+	private ScheduledFuture<?> pendingFixDeadline;
+	private volatile int activeFixCount;
+	private final Object deadlineMutex = new Object();
 
 
 	/**
@@ -134,10 +166,25 @@ class PlacesLocationManager {
 
 
 				setHasMonitoringStarted(true);
+				startMotionGate();
+
+				if (isPausedWhileStill) {
+					Log.debug(PlacesMonitorConstants.LOG_TAG,
+							  "The device is still, the location updates are requested once the device moves");
+					cancelFixDeadline();
+					return;
+				}
+
 				Log.debug(PlacesMonitorConstants.LOG_TAG, "All location settings are satisfied to monitor location");
 				fusedLocationProviderClient.requestLocationUpdates(locationRequest,
 						locationIntent);
 
+				if (configuration.isPassiveMode()) {
+					scheduleFixDeadline();
+				} else {
+					cancelFixDeadline();
+				}
+
 			}
 		});
 		task.addOnFailureListener(new OnFailureListener() {
@@ -191,9 +238,115 @@ class PlacesLocationManager {
 	 *  Call this method to stop getting any further location updates from Android OS.
 	 */
 	void stopMonitoring() {
+		motionGate.stop();
+		cancelFixDeadline();
+		removeActiveFixRequest();
+		lastQueriedLocation = null;
+
+		if (isPausedWhileStill) {
+			endPause(System.currentTimeMillis());
+		}
+
 		stopLocationUpdates();
 	}
 
+	/**
+	 * Replaces the {@link PlacesMotionGate} observing the motion of the device.
+	 *
+	 * @param motionGate the {@code PlacesMotionGate} to be used
+	 */
+	void setMotionGate(final PlacesMotionGate motionGate) {
+		if (motionGate == null) {
+			return;
+		}
+
+		this.motionGate.stop();
+		this.motionGate = motionGate;
+
+		if (hasMonitoringStarted) {
+			startMotionGate();
+		}
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the location updates are paused while the device is still
+	 */
+	boolean isPausedWhileStill() {
+		return isPausedWhileStill;
+	}
+
+	/**
+	 * @param now the current time in milliseconds
+	 * @return the total time in milliseconds the location updates were paused while the device was still, including the
+	 * ongoing pause
+	 */
+	long getPausedTime(final long now) {
+		return totalPausedTime + (isPausedWhileStill ? Math.max(0, now - pausedAt) : 0);
+	}
+
+	/**
+	 * @return the number of times the location updates were paused while the device was still
+	 */
+	int getPauseCount() {
+		return pauseCount;
+	}
+
+
+	/**
+	 * Switches the location updates to the profile of the given app state.
+	 * <p>
+	 * The location updates are requested again with the new profile only if they are ongoing and the background profile
+	 * differs from the foreground profile. Paused or stopped location updates pick up the profile when they are requested.
+	 *
+	 * @param isForeground {@code boolean} indicating if the app is in foreground
+	 */
+	void setForeground(final boolean isForeground) {
+		if (this.isForeground == isForeground) {
+			return;
+		}
+
+		this.isForeground = isForeground;
+
+		if (!hasMonitoringStarted || isPausedWhileStill || !configuration.hasDistinctBackgroundProfile()) {
+			return;
+		}
+
+		FusedLocationProviderClient fusedLocationProviderClient = getFusedLocationClient();
+		PendingIntent locationPendingIntent = getPendingIntent();
+
+		if (fusedLocationProviderClient == null || locationPendingIntent == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Unable to switch the location request profile");
+			return;
+		}
+
+		profileSwitchCount++;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Switching the location updates to the " + (isForeground ? "foreground" :
+				  "background") + " profile");
+		// requesting the updates again for the same PendingIntent replaces the previous request
+		fusedLocationProviderClient.requestLocationUpdates(getLocationRequest(), locationPendingIntent);
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the location updates follow the foreground profile
+	 */
+	boolean isForeground() {
+		return isForeground;
+	}
+
+	/**
+	 * @return the number of times the ongoing location updates were switched to another profile
+	 */
+	int getProfileSwitchCount() {
+		return profileSwitchCount;
+	}
+
+	/**
+	 * @return the number of active fixes requested because no fix was accepted within the passive fix deadline
+	 */
+	int getActiveFixCount() {
+		return activeFixCount;
+	}
+
 
 	/**
 	 *  Requests a immediate location update.
@@ -226,7 +379,7 @@ class PlacesLocationManager {
 		task.addOnSuccessListener(new OnSuccessListener<Location>() {
 			@Override
 			public void onSuccess(Location location) {
-				placesMonitorInternal.getPOIsForLocation(location);
+				processLocation(location, true);
 			}
 		});
 	}
@@ -248,6 +401,28 @@ class PlacesLocationManager {
 		}
 	}
 
+	/**
+	 * Applies the location request parameters of the given {@link PlacesMonitorConfiguration}.
+	 * <p>
+	 * If the location updates have already been started and the parameters have changed, the location updates are requested
+	 * again, replacing the previous request.
+	 *
+	 * @param configuration the {@code PlacesMonitorConfiguration} to be applied
+	 */
+	void setConfiguration(final PlacesMonitorConfiguration configuration) {
+		if (configuration == null) {
+			return;
+		}
+
+		final boolean hasLocationRequestChanged = configuration.hasLocationRequestChanged(this.configuration);
+		this.configuration = configuration;
+
+		if (hasLocationRequestChanged && hasMonitoringStarted) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Location request parameters have changed, requesting location updates again");
+			beginLocationTracking();
+		}
+	}
+
 	// ========================================================================================
 	// Internal Location Processor
 	// ========================================================================================
@@ -306,9 +481,261 @@ class PlacesLocationManager {
 							 " lon: " +
 							 location.getLongitude();
 		Log.debug(PlacesMonitorConstants.LOG_TAG, locationLog);
+		processLocation(location, false);
+	}
+
+	/**
+	 * Verifies if the given location fix is good enough to evaluate the containment of the nearby POIs, and records it as the
+	 * {@link #lastAcceptedLocation} if so.
+	 * <p>
+	 * A fix is rejected if it is older than the last accepted fix, or if its accuracy is worse than
+	 * {@link PlacesMonitorConstants.Location#MAX_ACCEPTED_ACCURACY}.
+	 *
+	 * @param location the received {@link Location} fix
+	 * @return {@code boolean} indicating if the fix was accepted
+	 */
+	boolean acceptLocation(final Location location) {
+		if (location == null) {
+			return false;
+		}
+
+		if (location.hasAccuracy() && location.getAccuracy() > PlacesMonitorConstants.Location.MAX_ACCEPTED_ACCURACY) {
+			Log.trace(PlacesMonitorConstants.LOG_TAG,
+					  "Rejecting location fix with accuracy " + location.getAccuracy() + " meters for the containment evaluation");
+			return false;
+		}
+
+		if (lastAcceptedLocation != null && location.getTime() < lastAcceptedLocation.getTime()) {
+			Log.trace(PlacesMonitorConstants.LOG_TAG, "Rejecting out of order location fix for the containment evaluation");
+			return false;
+		}
+
+		lastAcceptedLocation = location;
+		return true;
+	}
+
+	/**
+	 * @return the most recent {@link Location} fix accepted by {@link #acceptLocation(Location)}, or null if none was accepted
+	 */
+	Location getLastAcceptedLocation() {
+		return lastAcceptedLocation;
+	}
+
+	/**
+	 * Evaluates the nearby POIs monitored in software for the given location, if the fix is accepted, and gets the nearby POIs
+	 * around it if a refresh is due.
+	 *
+	 * @param location the obtained {@link Location}
+	 * @param isRequested {@code boolean} indicating if the location was requested with {@link #updateLocation()}
+	 * @see #isRefreshDue(Location, boolean)
+	 */
+	private void processLocation(final Location location, final boolean isRequested) {
+		if (acceptLocation(location)) {
+			if (configuration.isPassiveMode() && hasMonitoringStarted && !isPausedWhileStill) {
+				scheduleFixDeadline();
+			}
+
+			placesMonitorInternal.evaluateLocation(location);
+		}
+
+		if (!isRefreshDue(location, isRequested)) {
+			return;
+		}
+
+		if (location != null) {
+			lastQueriedLocation = location;
+		}
+
 		placesMonitorInternal.getPOIsForLocation(location);
 	}
 
+	/**
+	 * Verifies if the nearby POIs should be requested again for the given location.
+	 * <p>
+	 * In passive mode, the fixes requested by other apps are not throttled by the smallest displacement of the location request,
+	 * so a refresh is due only once the location is at least the smallest displacement of the current profile away from the
+	 * {@link #lastQueriedLocation}. A refresh is always due for the locations requested with {@link #updateLocation()} and for
+	 * the location updates of the active mode, which are already throttled by the OS.
+	 *
+	 * @param location the obtained {@link Location}
+	 * @param isRequested {@code boolean} indicating if the location was requested with {@link #updateLocation()}
+	 * @return {@code boolean} indicating if the nearby POIs should be requested for the location
+	 */
+	private boolean isRefreshDue(final Location location, final boolean isRequested) {
+		if (isRequested || location == null || lastQueriedLocation == null || !configuration.isPassiveMode()) {
+			return true;
+		}
+
+		final double smallestDisplacement = isForeground ? configuration.getLocationSmallestDisplacement() :
+											configuration.getBackgroundLocationSmallestDisplacement();
+		final double displacement = PlacesGeoMath.haversine(lastQueriedLocation.getLatitude(),
+									lastQueriedLocation.getLongitude(), location.getLatitude(), location.getLongitude());
+
+		if (displacement < smallestDisplacement) {
+			Log.trace(PlacesMonitorConstants.LOG_TAG, "Not requesting the nearby POIs, the device has only moved " +
+					  Math.round(displacement) + " meters since the last request in passive mode");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Starts the {@link #motionGate}, pausing the location updates while it reports the device as still.
+	 */
+	private void startMotionGate() {
+		motionGate.start(new PlacesMotionGate.Listener() {
+			@Override
+			public void onMotionStateChanged(final boolean isStill) {
+				if (isStill) {
+					pauseLocationUpdates();
+				} else {
+					resumeLocationUpdates();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the location updates while the device is still, keeping the monitoring started.
+	 * <p>
+	 * No action is taken if the monitoring is not started or the location updates are already paused.
+	 */
+	private void pauseLocationUpdates() {
+		if (!hasMonitoringStarted || isPausedWhileStill) {
+			return;
+		}
+
+		FusedLocationProviderClient fusedLocationProviderClient = getFusedLocationClient();
+		PendingIntent locationPendingIntent = getPendingIntent();
+
+		if (fusedLocationProviderClient == null || locationPendingIntent == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Unable to pause the location updates while the device is still");
+			return;
+		}
+
+		isPausedWhileStill = true;
+		pausedAt = System.currentTimeMillis();
+		pauseCount++;
+		cancelFixDeadline();
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "The device is still, pausing the location updates");
+		fusedLocationProviderClient.removeLocationUpdates(locationPendingIntent);
+	}
+
+	/**
+	 * Requests the location updates again once the device moves.
+	 * <p>
+	 * No action is taken if the location updates are not paused.
+	 */
+	private void resumeLocationUpdates() {
+		if (!isPausedWhileStill) {
+			return;
+		}
+
+		final long pausedTime = endPause(System.currentTimeMillis());
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "The device is moving, resuming the location updates after a pause of " +
+				  pausedTime + " ms (" + totalPausedTime + " ms paused in " + pauseCount + " pauses)");
+
+		if (hasMonitoringStarted) {
+			beginLocationTracking();
+		}
+	}
+
+	/**
+	 * Schedules an active fix request after the passive fix deadline, replacing any pending deadline.
+	 */
+	private void scheduleFixDeadline() {
+		final long deadline = configuration.getPassiveFixDeadline();
+
+		synchronized (deadlineMutex) {
+			if (pendingFixDeadline != null) {
+				pendingFixDeadline.cancel(false);
+			}
+
+			pendingFixDeadline = getScheduledExecutor().schedule(new Runnable() {
+				@Override
+				public void run() {
+					requestActiveFix();
+				}
+			}, deadline, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void cancelFixDeadline() {
+		synchronized (deadlineMutex) {
+			if (pendingFixDeadline != null) {
+				pendingFixDeadline.cancel(false);
+				pendingFixDeadline = null;
+			}
+		}
+	}
+
+	/**
+	 * Requests a single fix with the priority of the current profile, since no fix was accepted within the passive fix
+	 * deadline.
+	 * <p>
+	 * The fix is delivered to the {@link PlacesLocationBroadcastReceiver} along with the passive location updates. The request
+	 * expires after {@link PlacesMonitorConstants.Passive#ACTIVE_FIX_EXPIRATION} if no fix is obtained, and the deadline
+	 * starts over.
+	 * No action is taken if the monitoring is stopped, the location updates are paused or the passive mode is disabled.
+	 */
+	private void requestActiveFix() {
+		if (!hasMonitoringStarted || isPausedWhileStill || !configuration.isPassiveMode()) {
+			return;
+		}
+
+		FusedLocationProviderClient fusedLocationProviderClient = getFusedLocationClient();
+		PendingIntent fixPendingIntent = getActiveFixPendingIntent();
+
+		if (fusedLocationProviderClient == null || fixPendingIntent == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Unable to request an active fix after the passive fix deadline");
+			return;
+		}
+
+		final int priority = isForeground ? configuration.getLocationPriority() : configuration.getBackgroundLocationPriority();
+		LocationRequest fixRequest = LocationRequest.create();
+		fixRequest.setInterval(PlacesMonitorConstants.Passive.ACTIVE_FIX_INTERVAL);
+		fixRequest.setFastestInterval(PlacesMonitorConstants.Passive.ACTIVE_FIX_INTERVAL);
+		fixRequest.setPriority(priority == LocationRequest.PRIORITY_NO_POWER ? LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY :
+							   priority);
+		fixRequest.setNumUpdates(1);
+		fixRequest.setExpirationDuration(PlacesMonitorConstants.Passive.ACTIVE_FIX_EXPIRATION);
+
+		activeFixCount++;
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "No location fix was received within " +
+				  configuration.getPassiveFixDeadline() + " ms in passive mode, requesting an active fix (" + activeFixCount +
+				  " active fixes requested)");
+		fusedLocationProviderClient.requestLocationUpdates(fixRequest, fixPendingIntent);
+		scheduleFixDeadline();
+	}
+
+	/**
+	 * Removes the pending active fix request, if any was made.
+	 */
+	private void removeActiveFixRequest() {
+		if (activeFixPendingIntent == null) {
+			return;
+		}
+
+		FusedLocationProviderClient fusedLocationProviderClient = getFusedLocationClient();
+
+		if (fusedLocationProviderClient != null) {
+			fusedLocationProviderClient.removeLocationUpdates(activeFixPendingIntent);
+		}
+	}
+
+	/**
+	 * Ends the ongoing pause of the location updates and records its duration.
+	 *
+	 * @return the duration of the pause in milliseconds
+	 */
+	private long endPause(final long now) {
+		final long pausedTime = Math.max(0, now - pausedAt);
+		totalPausedTime += pausedTime;
+		isPausedWhileStill = false;
+		return pausedTime;
+	}
+
 	/**
 	 * Call to stop getting location updates from Android OS.
 	 * <p>
@@ -382,6 +809,49 @@ class PlacesLocationManager {
 		return locationPendingIntent;
 	}
 
+	/**
+	 * Returns a {@code PendingIntent} instance for getting the active fixes requested in passive mode.
+	 * <p>
+	 * The fixes are delivered to the same receiver as the location updates, with a distinct request code so that the active
+	 * fix request does not replace the passive location updates.
+	 *
+	 * @return a {@code PendingIntent} instance, or null if the app context is not available
+	 */
+	private PendingIntent getActiveFixPendingIntent() {
+		if (activeFixPendingIntent != null) {
+			return activeFixPendingIntent;
+		}
+
+		Context context = App.getAppContext();
+
+		if (context == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"PlacesLocationManager : Unable to create an intent to receive active fixes, App Context not available");
+			return null;
+		}
+
+		Intent intent = new Intent(context, PlacesLocationBroadcastReceiver.class);
+		intent.setAction(PlacesLocationBroadcastReceiver.ACTION_LOCATION_UPDATE);
+		activeFixPendingIntent = PendingIntent.getBroadcast(context, PlacesMonitorConstants.Passive.ACTIVE_FIX_REQUEST_CODE,
+								 intent, PendingIntent.FLAG_UPDATE_CURRENT);
+		return activeFixPendingIntent;
+	}
+
+	/**
+	 * Getter for the {@link #scheduledExecutorService} running the passive fix deadline. Access to which is mutex protected.
+	 *
+	 * @return A non-null {@link ScheduledExecutorService} instance
+	 */
+	ScheduledExecutorService getScheduledExecutor() {
+		synchronized (deadlineMutex) {
+			if (scheduledExecutorService == null) {
+				scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+			}
+
+			return scheduledExecutorService;
+		}
+	}
+
 	/**
 	 * Returns {@code FusedLocationProviderClient} instance
 	 * <p>
@@ -409,16 +879,37 @@ class PlacesLocationManager {
 
 	/**
 	 * Returns {@code LocationRequest} instance with distance and time frequency of the
-	 * location request.
+	 * location request, as defined by the profile of the current {@link #configuration} for the app state.
 	 *
 	 * @return A valid {@link LocationRequest} instance
 	 */
 	private LocationRequest getLocationRequest() {
 		LocationRequest locationRequest = LocationRequest.create();
-		locationRequest.setInterval(PlacesMonitorConstants.Location.REQUEST_INTERVAL);
-		locationRequest.setFastestInterval(PlacesMonitorConstants.Location.REQUEST_FASTEST_INTERVAL);
-		locationRequest.setSmallestDisplacement(PlacesMonitorConstants.Location.REQUEST_SMALLEST_DISPLACEMENT);
-		locationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
+
+		if (configuration.isPassiveMode()) {
+			// other apps pay for the fixes, the intervals and the smallest displacement only bound how often they are delivered
+			locationRequest.setPriority(LocationRequest.PRIORITY_NO_POWER);
+			locationRequest.setInterval(isForeground ? configuration.getLocationInterval() :
+										configuration.getBackgroundLocationInterval());
+			locationRequest.setFastestInterval(isForeground ? configuration.getLocationFastestInterval() :
+											   configuration.getBackgroundLocationFastestInterval());
+			locationRequest.setSmallestDisplacement(isForeground ? configuration.getLocationSmallestDisplacement() :
+													configuration.getBackgroundLocationSmallestDisplacement());
+			return locationRequest;
+		}
+
+		if (isForeground) {
+			locationRequest.setInterval(configuration.getLocationInterval());
+			locationRequest.setFastestInterval(configuration.getLocationFastestInterval());
+			locationRequest.setSmallestDisplacement(configuration.getLocationSmallestDisplacement());
+			locationRequest.setPriority(configuration.getLocationPriority());
+		} else {
+			locationRequest.setInterval(configuration.getBackgroundLocationInterval());
+			locationRequest.setFastestInterval(configuration.getBackgroundLocationFastestInterval());
+			locationRequest.setSmallestDisplacement(configuration.getBackgroundLocationSmallestDisplacement());
+			locationRequest.setPriority(configuration.getBackgroundLocationPriority());
+		}
+
 		return locationRequest;
 	}
 
@@ -15,6 +15,23 @@
 
 package com.adobe.marketing.mobile;
 
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Public APIs of the PlacesMonitor extension.
+ * <p>
+ * Location updates are paused while the device is still if the application opts in to the activity recognition. The places
+ * monitor does not declare the activity recognition permissions, to opt in declare them in the App's Manifest file:
+ * <ul>
+ *     <li>{@code com.google.android.gms.permission.ACTIVITY_RECOGNITION} for the devices running on versions below Android 10.</li>
+ *     <li>{@code android.permission.ACTIVITY_RECOGNITION} for the devices running on Android 10 and above, where it is also a
+ *     runtime permission that the application must request from the user.</li>
+ * </ul>
+ * Without these permissions the location updates are never paused.
+ */
 public class PlacesMonitor {
 
 	/**
@@ -75,6 +92,50 @@ public class PlacesMonitor {
 		dispatchMonitorEvent(PlacesMonitorConstants.EVENTNAME_SET_LOCATION_PERMISSION, data);
 	}
 
+	/**
+	 * Sets the number of geofences the application registers with the operating system on its own.
+	 * <p>
+	 * Android allows an application to register at most 100 geofences. The Places Monitor sizes the set of nearby POIs
+	 * it monitors so that it fits in the slots not reserved by the application. The value is persisted, so it
+	 * needs to be set again only when the number of geofences registered by the application changes.
+	 *
+	 * By default no geofence slots are reserved.
+	 *
+	 * @param reservedSlots the number of geofence slots reserved by the application, between 0 and 100
+	 */
+	public static void setReservedGeofenceSlots(final int reservedSlots) {
+		EventData data = new EventData();
+		data.putInteger(PlacesMonitorConstants.EventDataKeys.EVENT_DATA_RESERVED_GEOFENCE_SLOTS, reservedSlots);
+		dispatchMonitorEvent(PlacesMonitorConstants.EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS, data);
+	}
+
+	/**
+	 * Sets the route the device is expected to travel, such as the route of a navigation or a delivery.
+	 * <p>
+	 * The nearby POIs along the route are loaded with a few bulk queries when the route is set, and the monitored
+	 * geofences are swapped from these POIs as the device progresses along the route, without querying the nearby POIs
+	 * for each new location. Once the device leaves the route, the nearby POIs are queried as usual.
+	 *
+	 * Pass null or an empty list to clear the expected route.
+	 *
+	 * @param route the {@link List} of {@link Location}s of the waypoints of the route, in travel order
+	 */
+	public static void setExpectedRoute(final List<Location> route) {
+		final List<String> waypoints = new ArrayList<String>();
+
+		if (route != null) {
+			for (Location location : route) {
+				if (location != null) {
+					waypoints.add(location.getLatitude() + PlacesMonitorConstants.Route.WAYPOINT_SEPARATOR + location.getLongitude());
+				}
+			}
+		}
+
+		EventData data = new EventData();
+		data.putStringList(PlacesMonitorConstants.EventDataKeys.EVENT_DATA_EXPECTED_ROUTE, waypoints);
+		dispatchMonitorEvent(PlacesMonitorConstants.EVENTNAME_SET_EXPECTED_ROUTE, data);
+	}
+
 	/**
 	 * Start tracking the device's location and monitoring corresponding nearby POI's
 	 *
@@ -0,0 +1,628 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesMonitorConfiguration.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.LocationRequest;
+
+import java.util.Map;
+
+/**
+ * Class representing the remotely configurable parameters of the places monitor.
+ * <p>
+ * The parameters are read from the {@code placesmonitor.*} keys of the configuration shared state.
+ * Missing or invalid values fall back to the defaults defined in {@link PlacesMonitorConstants}.
+ * <p>
+ * The location request parameters come in two profiles: the foreground profile applies while the app is visible, and the
+ * background profile, requesting fewer and coarser fixes, applies while it is not.
+ * In passive mode, the location updates of either profile only receive the fixes requested by other apps, and a single
+ * active fix is requested when no fix was accepted within the passive fix deadline.
+ */
+class PlacesMonitorConfiguration {
+
+	/**
+	 * The ways the nearby POIs can be monitored.
+	 */
+	enum MonitoringMode {
+		/**
+		 * The nearby POIs are registered as geofences with the OS.
+		 */
+		OS,
+		/**
+		 * The nearby POIs are evaluated by the {@link PlacesSoftwareGeofenceEngine} on each accepted location fix.
+		 */
+		SOFTWARE,
+		/**
+		 * The nearest POIs are registered as geofences with the OS, the remaining POIs are evaluated in software.
+		 */
+		HYBRID
+	}
+
+	private MonitoringMode monitoringMode = MonitoringMode.OS;
+	private int nearbyPOICount = PlacesMonitorConstants.NEARBY_GEOFENCES_COUNT;
+	private long locationInterval = PlacesMonitorConstants.Location.REQUEST_INTERVAL;
+	private long locationFastestInterval = PlacesMonitorConstants.Location.REQUEST_FASTEST_INTERVAL;
+	private float locationSmallestDisplacement = PlacesMonitorConstants.Location.REQUEST_SMALLEST_DISPLACEMENT;
+	private int locationPriority = LocationRequest.PRIORITY_HIGH_ACCURACY;
+	private long backgroundLocationInterval = PlacesMonitorConstants.Location.BACKGROUND_REQUEST_INTERVAL;
+	private long backgroundLocationFastestInterval = PlacesMonitorConstants.Location.BACKGROUND_REQUEST_FASTEST_INTERVAL;
+	private float backgroundLocationSmallestDisplacement = PlacesMonitorConstants.Location.BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT;
+	private int backgroundLocationPriority = LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+	private boolean passiveMode;
+	private long passiveFixDeadline = PlacesMonitorConstants.Passive.DEFAULT_FIX_DEADLINE;
+	private double enterConfidence = PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE;
+	private double exitConfidence = PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE;
+	private long minDwellTime = PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_DWELL_TIME;
+	private long minAbsenceTime = PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_ABSENCE_TIME;
+	private double exitHysteresis = PlacesMonitorConstants.TransitionFilter.DEFAULT_EXIT_HYSTERESIS;
+	private int loiteringDelay = PlacesMonitorConstants.Dwell.DEFAULT_LOITERING_DELAY;
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * Creates a configuration with the default values.
+	 */
+	PlacesMonitorConfiguration() {
+	}
+
+	/**
+	 * Creates a {@link PlacesMonitorConfiguration} from the given configuration shared state.
+	 * <p>
+	 * Each invalid value is logged and replaced by its default value.
+	 *
+	 * @param configSharedState the configuration shared state
+	 * @return a non-null {@code PlacesMonitorConfiguration} instance
+	 */
+	static PlacesMonitorConfiguration fromSharedState(final Map<String, Object> configSharedState) {
+		final PlacesMonitorConfiguration configuration = new PlacesMonitorConfiguration();
+
+		if (configSharedState == null || configSharedState.isEmpty()) {
+			return configuration;
+		}
+
+		final Object monitoringMode = configSharedState.get(PlacesMonitorConstants.Configuration.MONITORING_MODE);
+
+		if (monitoringMode != null) {
+			final MonitoringMode mode = toMonitoringMode(monitoringMode.toString());
+
+			if (mode != null) {
+				configuration.monitoringMode = mode;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.MONITORING_MODE, monitoringMode);
+			}
+		}
+
+		// the software and hybrid modes are not bound by the OS geofence limit
+		final int maxNearbyPOICount = configuration.monitoringMode == MonitoringMode.OS
+									  ? PlacesMonitorConstants.Configuration.MAX_NEARBY_POI_COUNT
+									  : PlacesMonitorConstants.Configuration.MAX_SOFTWARE_NEARBY_POI_COUNT;
+		final Long nearbyPOICount = optLong(configSharedState, PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT);
+
+		if (nearbyPOICount != null) {
+			if (nearbyPOICount > 0 && nearbyPOICount <= maxNearbyPOICount) {
+				configuration.nearbyPOICount = nearbyPOICount.intValue();
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, nearbyPOICount);
+			}
+		}
+
+		final Long locationInterval = optLong(configSharedState, PlacesMonitorConstants.Configuration.LOCATION_INTERVAL);
+
+		if (locationInterval != null) {
+			if (locationInterval > 0) {
+				configuration.locationInterval = locationInterval;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, locationInterval);
+			}
+		}
+
+		final Long locationFastestInterval = optLong(configSharedState,
+											 PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL);
+
+		if (locationFastestInterval != null) {
+			if (locationFastestInterval > 0) {
+				configuration.locationFastestInterval = locationFastestInterval;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL, locationFastestInterval);
+			}
+		}
+
+		// the fastest interval can never be larger than the interval
+		if (configuration.locationFastestInterval > configuration.locationInterval) {
+			configuration.locationFastestInterval = configuration.locationInterval;
+		}
+
+		final Long locationSmallestDisplacement = optLong(configSharedState,
+				PlacesMonitorConstants.Configuration.LOCATION_SMALLEST_DISPLACEMENT);
+
+		if (locationSmallestDisplacement != null) {
+			if (locationSmallestDisplacement >= 0) {
+				configuration.locationSmallestDisplacement = locationSmallestDisplacement;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.LOCATION_SMALLEST_DISPLACEMENT, locationSmallestDisplacement);
+			}
+		}
+
+		final Object locationPriority = configSharedState.get(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY);
+
+		if (locationPriority != null) {
+			final Integer priority = toLocationPriority(locationPriority.toString());
+
+			if (priority != null) {
+				configuration.locationPriority = priority;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY, locationPriority);
+			}
+		}
+
+		final Long backgroundLocationInterval = optLong(configSharedState,
+												PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL);
+
+		if (backgroundLocationInterval != null) {
+			if (backgroundLocationInterval > 0) {
+				configuration.backgroundLocationInterval = backgroundLocationInterval;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL, backgroundLocationInterval);
+			}
+		}
+
+		final Long backgroundLocationFastestInterval = optLong(configSharedState,
+				PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL);
+
+		if (backgroundLocationFastestInterval != null) {
+			if (backgroundLocationFastestInterval > 0) {
+				configuration.backgroundLocationFastestInterval = backgroundLocationFastestInterval;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL,
+								backgroundLocationFastestInterval);
+			}
+		}
+
+		if (configuration.backgroundLocationFastestInterval > configuration.backgroundLocationInterval) {
+			configuration.backgroundLocationFastestInterval = configuration.backgroundLocationInterval;
+		}
+
+		final Long backgroundLocationSmallestDisplacement = optLong(configSharedState,
+				PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT);
+
+		if (backgroundLocationSmallestDisplacement != null) {
+			if (backgroundLocationSmallestDisplacement >= 0) {
+				configuration.backgroundLocationSmallestDisplacement = backgroundLocationSmallestDisplacement;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT,
+								backgroundLocationSmallestDisplacement);
+			}
+		}
+
+		final Object backgroundLocationPriority = configSharedState.get(
+					PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY);
+
+		if (backgroundLocationPriority != null) {
+			final Integer priority = toLocationPriority(backgroundLocationPriority.toString());
+
+			if (priority != null) {
+				configuration.backgroundLocationPriority = priority;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY, backgroundLocationPriority);
+			}
+		}
+
+		final Boolean passiveMode = optBoolean(configSharedState, PlacesMonitorConstants.Configuration.PASSIVE_MODE);
+
+		if (passiveMode != null) {
+			configuration.passiveMode = passiveMode;
+		}
+
+		final Long passiveFixDeadline = optLong(configSharedState, PlacesMonitorConstants.Configuration.PASSIVE_FIX_DEADLINE);
+
+		if (passiveFixDeadline != null) {
+			if (passiveFixDeadline > 0) {
+				configuration.passiveFixDeadline = passiveFixDeadline;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.PASSIVE_FIX_DEADLINE, passiveFixDeadline);
+			}
+		}
+
+		final Double enterConfidence = optDouble(configSharedState, PlacesMonitorConstants.Configuration.ENTER_CONFIDENCE);
+
+		if (enterConfidence != null) {
+			if (enterConfidence > 0 && enterConfidence <= 1) {
+				configuration.enterConfidence = enterConfidence;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.ENTER_CONFIDENCE, enterConfidence);
+			}
+		}
+
+		final Double exitConfidence = optDouble(configSharedState, PlacesMonitorConstants.Configuration.EXIT_CONFIDENCE);
+
+		if (exitConfidence != null) {
+			if (exitConfidence > 0 && exitConfidence <= 1) {
+				configuration.exitConfidence = exitConfidence;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.EXIT_CONFIDENCE, exitConfidence);
+			}
+		}
+
+		// with thresholds adding up to 1 or less, a single fix can be confident enough both for an exit and an entry
+		if (configuration.enterConfidence + configuration.exitConfidence <= 1) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Ignoring the enter confidence " + configuration.enterConfidence +
+						" and exit confidence " + configuration.exitConfidence + ", they have to add up to more than 1");
+			configuration.enterConfidence = PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE;
+			configuration.exitConfidence = PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE;
+		}
+
+		final Long minDwellTime = optLong(configSharedState, PlacesMonitorConstants.Configuration.MIN_DWELL_TIME);
+
+		if (minDwellTime != null) {
+			if (minDwellTime >= 0) {
+				configuration.minDwellTime = minDwellTime;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.MIN_DWELL_TIME, minDwellTime);
+			}
+		}
+
+		final Long minAbsenceTime = optLong(configSharedState, PlacesMonitorConstants.Configuration.MIN_ABSENCE_TIME);
+
+		if (minAbsenceTime != null) {
+			if (minAbsenceTime >= 0) {
+				configuration.minAbsenceTime = minAbsenceTime;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.MIN_ABSENCE_TIME, minAbsenceTime);
+			}
+		}
+
+		final Double exitHysteresis = optDouble(configSharedState, PlacesMonitorConstants.Configuration.EXIT_HYSTERESIS);
+
+		if (exitHysteresis != null) {
+			if (exitHysteresis >= 0 && !Double.isInfinite(exitHysteresis)) {
+				configuration.exitHysteresis = exitHysteresis;
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.EXIT_HYSTERESIS, exitHysteresis);
+			}
+		}
+
+		final Long loiteringDelay = optLong(configSharedState, PlacesMonitorConstants.Configuration.LOITERING_DELAY);
+
+		if (loiteringDelay != null) {
+			if (loiteringDelay >= 0 && loiteringDelay <= Integer.MAX_VALUE) {
+				configuration.loiteringDelay = loiteringDelay.intValue();
+			} else {
+				logInvalidValue(PlacesMonitorConstants.Configuration.LOITERING_DELAY, loiteringDelay);
+			}
+		}
+
+		return configuration;
+	}
+
+	/**
+	 * @return the {@link MonitoringMode} of the nearby POIs
+	 */
+	MonitoringMode getMonitoringMode() {
+		return monitoringMode;
+	}
+
+	/**
+	 * @return the number of nearby POIs to be requested and monitored
+	 */
+	int getNearbyPOICount() {
+		return nearbyPOICount;
+	}
+
+	/**
+	 * @return the interval of the location updates
+	 * @see LocationRequest#setInterval(long)
+	 */
+	long getLocationInterval() {
+		return locationInterval;
+	}
+
+	/**
+	 * @return the fastest interval of the location updates
+	 * @see LocationRequest#setFastestInterval(long)
+	 */
+	long getLocationFastestInterval() {
+		return locationFastestInterval;
+	}
+
+	/**
+	 * @return the smallest displacement in meters between the location updates
+	 * @see LocationRequest#setSmallestDisplacement(float)
+	 */
+	float getLocationSmallestDisplacement() {
+		return locationSmallestDisplacement;
+	}
+
+	/**
+	 * @return the priority of the location updates
+	 * @see LocationRequest#setPriority(int)
+	 */
+	int getLocationPriority() {
+		return locationPriority;
+	}
+
+	/**
+	 * @return the interval of the location updates while the app is in background
+	 * @see LocationRequest#setInterval(long)
+	 */
+	long getBackgroundLocationInterval() {
+		return backgroundLocationInterval;
+	}
+
+	/**
+	 * @return the fastest interval of the location updates while the app is in background
+	 * @see LocationRequest#setFastestInterval(long)
+	 */
+	long getBackgroundLocationFastestInterval() {
+		return backgroundLocationFastestInterval;
+	}
+
+	/**
+	 * @return the smallest displacement in meters between the location updates while the app is in background
+	 * @see LocationRequest#setSmallestDisplacement(float)
+	 */
+	float getBackgroundLocationSmallestDisplacement() {
+		return backgroundLocationSmallestDisplacement;
+	}
+
+	/**
+	 * @return the priority of the location updates while the app is in background
+	 * @see LocationRequest#setPriority(int)
+	 */
+	int getBackgroundLocationPriority() {
+		return backgroundLocationPriority;
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the location updates only receive the fixes requested by other apps
+	 * @see LocationRequest#PRIORITY_NO_POWER
+	 */
+	boolean isPassiveMode() {
+		return passiveMode;
+	}
+
+	/**
+	 * @return the time in milliseconds without an accepted fix after which an active fix is requested in passive mode
+	 */
+	long getPassiveFixDeadline() {
+		return passiveFixDeadline;
+	}
+
+	/**
+	 * @return the minimum confidence that the user is within a POI for an entry to be emitted
+	 * @see PlacesGeoMath#enterConfidence(double, double, double)
+	 */
+	double getEnterConfidence() {
+		return enterConfidence;
+	}
+
+	/**
+	 * @return the minimum confidence that the user is outside a POI for an exit to be emitted
+	 * @see PlacesGeoMath#exitConfidence(double, double, double)
+	 */
+	double getExitConfidence() {
+		return exitConfidence;
+	}
+
+	/**
+	 * @return the time in milliseconds the user has to stay within a region before its entry is reported
+	 */
+	long getMinDwellTime() {
+		return minDwellTime;
+	}
+
+	/**
+	 * @return the time in milliseconds the user has to stay outside a region before its exit is reported
+	 */
+	long getMinAbsenceTime() {
+		return minAbsenceTime;
+	}
+
+	/**
+	 * @return the distance in meters beyond the radius of a region the user has to move for an in-library exit
+	 */
+	double getExitHysteresis() {
+		return exitHysteresis;
+	}
+
+	/**
+	 * @return the time in milliseconds the user has to dwell in a region monitored by the OS before its entry is reported
+	 */
+	int getLoiteringDelay() {
+		return loiteringDelay;
+	}
+
+	/**
+	 * Verifies if the location request parameters of this configuration differ from the given configuration.
+	 *
+	 * @param other the {@link PlacesMonitorConfiguration} to compare with
+	 * @return {@code boolean} indicating if the location updates have to be requested again
+	 */
+	boolean hasLocationRequestChanged(final PlacesMonitorConfiguration other) {
+		return other == null
+			   || locationInterval != other.locationInterval
+			   || locationFastestInterval != other.locationFastestInterval
+			   || Float.compare(locationSmallestDisplacement, other.locationSmallestDisplacement) != 0
+			   || locationPriority != other.locationPriority
+			   || backgroundLocationInterval != other.backgroundLocationInterval
+			   || backgroundLocationFastestInterval != other.backgroundLocationFastestInterval
+			   || Float.compare(backgroundLocationSmallestDisplacement, other.backgroundLocationSmallestDisplacement) != 0
+			   || backgroundLocationPriority != other.backgroundLocationPriority
+			   || passiveMode != other.passiveMode
+			   || passiveFixDeadline != other.passiveFixDeadline;
+	}
+
+	/**
+	 * Verifies if the location request parameters of the background profile differ from the foreground profile.
+	 *
+	 * @return {@code boolean} indicating if the location updates have to be requested again when the app changes state
+	 */
+	boolean hasDistinctBackgroundProfile() {
+		return backgroundLocationInterval != locationInterval
+			   || backgroundLocationFastestInterval != locationFastestInterval
+			   || Float.compare(backgroundLocationSmallestDisplacement, locationSmallestDisplacement) != 0
+			   || backgroundLocationPriority != locationPriority;
+	}
+
+	@Override
+	public boolean equals(final Object object) {
+		if (this == object) {
+			return true;
+		}
+
+		if (!(object instanceof PlacesMonitorConfiguration)) {
+			return false;
+		}
+
+		final PlacesMonitorConfiguration other = (PlacesMonitorConfiguration) object;
+		return monitoringMode == other.monitoringMode && nearbyPOICount == other.nearbyPOICount && !hasLocationRequestChanged(other)
+			   && Double.compare(enterConfidence, other.enterConfidence) == 0
+			   && Double.compare(exitConfidence, other.exitConfidence) == 0
+			   && minDwellTime == other.minDwellTime && minAbsenceTime == other.minAbsenceTime
+			   && Double.compare(exitHysteresis, other.exitHysteresis) == 0 && loiteringDelay == other.loiteringDelay;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = monitoringMode.hashCode();
+		result = 31 * result + nearbyPOICount;
+		result = 31 * result + (int)(locationInterval ^ (locationInterval >>> 32));
+		result = 31 * result + (int)(locationFastestInterval ^ (locationFastestInterval >>> 32));
+		result = 31 * result + Float.floatToIntBits(locationSmallestDisplacement);
+		result = 31 * result + locationPriority;
+		result = 31 * result + (int)(backgroundLocationInterval ^ (backgroundLocationInterval >>> 32));
+		result = 31 * result + (int)(backgroundLocationFastestInterval ^ (backgroundLocationFastestInterval >>> 32));
+		result = 31 * result + Float.floatToIntBits(backgroundLocationSmallestDisplacement);
+		result = 31 * result + backgroundLocationPriority;
+		result = 31 * result + (passiveMode ? 1 : 0);
+		result = 31 * result + (int)(passiveFixDeadline ^ (passiveFixDeadline >>> 32));
+		long bits = Double.doubleToLongBits(enterConfidence);
+		result = 31 * result + (int)(bits ^ (bits >>> 32));
+		bits = Double.doubleToLongBits(exitConfidence);
+		result = 31 * result + (int)(bits ^ (bits >>> 32));
+		result = 31 * result + (int)(minDwellTime ^ (minDwellTime >>> 32));
+		result = 31 * result + (int)(minAbsenceTime ^ (minAbsenceTime >>> 32));
+		bits = Double.doubleToLongBits(exitHysteresis);
+		result = 31 * result + (int)(bits ^ (bits >>> 32));
+		result = 31 * result + loiteringDelay;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "monitoringMode: " + monitoringMode + ", nearbyPOICount: " + nearbyPOICount + ", locationInterval: " + locationInterval + ", locationFastestInterval: " +
+			   locationFastestInterval + ", locationSmallestDisplacement: " + locationSmallestDisplacement + ", locationPriority: " +
+			   locationPriority + ", backgroundLocationInterval: " + backgroundLocationInterval +
+			   ", backgroundLocationFastestInterval: " + backgroundLocationFastestInterval +
+			   ", backgroundLocationSmallestDisplacement: " + backgroundLocationSmallestDisplacement +
+			   ", backgroundLocationPriority: " + backgroundLocationPriority + ", passiveMode: " + passiveMode +
+			   ", passiveFixDeadline: " + passiveFixDeadline + ", enterConfidence: " + enterConfidence + ", exitConfidence: " + exitConfidence +
+			   ", minDwellTime: " + minDwellTime + ", minAbsenceTime: " + minAbsenceTime + ", exitHysteresis: " + exitHysteresis +
+			   ", loiteringDelay: " + loiteringDelay;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private static Long optLong(final Map<String, Object> configSharedState, final String key) {
+		final Object value = configSharedState.get(key);
+
+		if (value == null) {
+			return null;
+		}
+
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+
+		try {
+			return Long.parseLong(value.toString().trim());
+		} catch (NumberFormatException e) {
+			logInvalidValue(key, value);
+			return null;
+		}
+	}
+
+	private static Double optDouble(final Map<String, Object> configSharedState, final String key) {
+		final Object value = configSharedState.get(key);
+
+		if (value == null) {
+			return null;
+		}
+
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+
+		try {
+			return Double.parseDouble(value.toString().trim());
+		} catch (NumberFormatException e) {
+			logInvalidValue(key, value);
+			return null;
+		}
+	}
+
+	private static Boolean optBoolean(final Map<String, Object> configSharedState, final String key) {
+		final Object value = configSharedState.get(key);
+
+		if (value == null) {
+			return null;
+		}
+
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+
+		final String stringValue = value.toString().trim();
+
+		if ("true".equalsIgnoreCase(stringValue) || "false".equalsIgnoreCase(stringValue)) {
+			return Boolean.parseBoolean(stringValue);
+		}
+
+		logInvalidValue(key, value);
+		return null;
+	}
+
+	private static Integer toLocationPriority(final String priority) {
+		if (PlacesMonitorConstants.Configuration.PRIORITY_HIGH_ACCURACY.equalsIgnoreCase(priority)) {
+			return LocationRequest.PRIORITY_HIGH_ACCURACY;
+		} else if (PlacesMonitorConstants.Configuration.PRIORITY_BALANCED_POWER_ACCURACY.equalsIgnoreCase(priority)) {
+			return LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+		} else if (PlacesMonitorConstants.Configuration.PRIORITY_LOW_POWER.equalsIgnoreCase(priority)) {
+			return LocationRequest.PRIORITY_LOW_POWER;
+		} else if (PlacesMonitorConstants.Configuration.PRIORITY_NO_POWER.equalsIgnoreCase(priority)) {
+			return LocationRequest.PRIORITY_NO_POWER;
+		}
+
+		return null;
+	}
+
+	private static MonitoringMode toMonitoringMode(final String mode) {
+		if (PlacesMonitorConstants.Configuration.MONITORING_MODE_OS.equalsIgnoreCase(mode)) {
+			return MonitoringMode.OS;
+		} else if (PlacesMonitorConstants.Configuration.MONITORING_MODE_SOFTWARE.equalsIgnoreCase(mode)) {
+			return MonitoringMode.SOFTWARE;
+		} else if (PlacesMonitorConstants.Configuration.MONITORING_MODE_HYBRID.equalsIgnoreCase(mode)) {
+			return MonitoringMode.HYBRID;
+		}
+
+		return null;
+	}
+
+	private static void logInvalidValue(final String key, final Object value) {
+		Log.warning(PlacesMonitorConstants.LOG_TAG,
+					"Ignoring invalid configuration value " + value + " for " + key + ", using the default value");
+	}
+}
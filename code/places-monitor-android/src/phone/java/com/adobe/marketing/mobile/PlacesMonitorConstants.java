@@ -29,23 +29,228 @@ final class PlacesMonitorConstants {
 	static final String EVENTNAME_STOP = "stop monitoring";
 	static final String EVENTNAME_UPDATE = "update location now";
 	static final String EVENTNAME_SET_LOCATION_PERMISSION = "set location permission";
+	static final String EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS = "set reserved geofence slots";
+	static final String EVENTNAME_SET_EXPECTED_ROUTE = "set expected route";
 
 	static final int NEARBY_GEOFENCES_COUNT = 20;
 
 	static final String INTERNAL_INTENT_ACTION_LOCATION = "intentactionlocation";
 	static final String INTERNAL_INTENT_ACTION_GEOFENCE = "intentactiongeofence";
+	static final String INTERNAL_INTENT_ACTION_ACTIVITY_TRANSITION = "intentactionactivitytransition";
 	static final String INTENT_ACTION_PERMISSION_GRANTED = "permissionreceived";
 	static final String INTENT_ACTION_PERMISSION_DENIED = "permissiondenied";
 
 	static final class Location {
-		static final int REQUEST_INTERVAL = 3600;				// 1 hour
-		static final int REQUEST_FASTEST_INTERVAL = 1800;    	// 30 minutes
+		// the intervals are passed as milliseconds to the LocationRequest, so the foreground updates, active or passive, are
+		// only throttled by the smallest displacement which every location request must set
+		static final int REQUEST_INTERVAL = 3600;				// 3.6 seconds
+		static final int REQUEST_FASTEST_INTERVAL = 1800;    	// 1.8 seconds
 		static final int REQUEST_SMALLEST_DISPLACEMENT = 1000;   // 1 kilometer
+		static final float MAX_ACCEPTED_ACCURACY = 500;			// meters
+
+		// while the app is in background, fixes are requested less often and the fixes requested by other apps are accepted
+		static final long BACKGROUND_REQUEST_INTERVAL = 4 * 60 * 60 * 1000L;			// 4 hours
+		static final long BACKGROUND_REQUEST_FASTEST_INTERVAL = 30 * 60 * 1000L;		// 30 minutes
+		static final int BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT = 2 * REQUEST_SMALLEST_DISPLACEMENT;
 
 		private Location() {
 		}
 	}
 
+	static final class Passive {
+		static final long DEFAULT_FIX_DEADLINE = 60 * 60 * 1000L;	// 1 hour
+		// the active request falling back from the passive mode asks for a single fix and expires if none is obtained
+		static final long ACTIVE_FIX_INTERVAL = 5000;				// 5 seconds
+		static final long ACTIVE_FIX_EXPIRATION = 60 * 1000L;		// 1 minute
+		static final int ACTIVE_FIX_REQUEST_CODE = 1;
+
+		private Passive() {
+		}
+	}
+
+	static final class OfflineQueue {
+		static final int MAX_ENTRIES = 100;
+		static final long MAX_AGE_MILLISECONDS = 24 * 60 * 60 * 1000L;	// 24 hours
+
+		private OfflineQueue() {
+		}
+	}
+
+	static final class Configuration {
+		static final String NEARBY_POI_COUNT = "placesmonitor.nearbyPOICount";
+		static final String LOCATION_INTERVAL = "placesmonitor.locationInterval";
+		static final String LOCATION_FASTEST_INTERVAL = "placesmonitor.locationFastestInterval";
+		static final String LOCATION_SMALLEST_DISPLACEMENT = "placesmonitor.locationSmallestDisplacement";
+		static final String LOCATION_PRIORITY = "placesmonitor.locationPriority";
+		static final String BACKGROUND_LOCATION_INTERVAL = "placesmonitor.backgroundLocationInterval";
+		static final String BACKGROUND_LOCATION_FASTEST_INTERVAL = "placesmonitor.backgroundLocationFastestInterval";
+		static final String BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT = "placesmonitor.backgroundLocationSmallestDisplacement";
+		static final String BACKGROUND_LOCATION_PRIORITY = "placesmonitor.backgroundLocationPriority";
+		static final String PASSIVE_MODE = "placesmonitor.passiveMode";
+		static final String PASSIVE_FIX_DEADLINE = "placesmonitor.passiveFixDeadline";
+		static final String MONITORING_MODE = "placesmonitor.monitoringMode";
+		static final String ENTER_CONFIDENCE = "placesmonitor.enterConfidence";
+		static final String EXIT_CONFIDENCE = "placesmonitor.exitConfidence";
+		static final String MIN_DWELL_TIME = "placesmonitor.minDwellTime";
+		static final String MIN_ABSENCE_TIME = "placesmonitor.minAbsenceTime";
+		static final String EXIT_HYSTERESIS = "placesmonitor.exitHysteresis";
+		static final String LOITERING_DELAY = "placesmonitor.loiteringDelay";
+
+		static final String PRIORITY_HIGH_ACCURACY = "highaccuracy";
+		static final String PRIORITY_BALANCED_POWER_ACCURACY = "balancedpoweraccuracy";
+		static final String PRIORITY_LOW_POWER = "lowpower";
+		static final String PRIORITY_NO_POWER = "nopower";
+
+		static final String MONITORING_MODE_OS = "os";
+		static final String MONITORING_MODE_SOFTWARE = "software";
+		static final String MONITORING_MODE_HYBRID = "hybrid";
+
+		static final int MAX_NEARBY_POI_COUNT = GeofenceBudget.MAX_GEOFENCE_SLOTS;
+		static final int MAX_SOFTWARE_NEARBY_POI_COUNT = 1000;
+
+		private Configuration() {
+		}
+	}
+
+	static final class GeofenceBudget {
+		// the maximum number of geofences an app can register with the OS
+		static final int MAX_GEOFENCE_SLOTS = 100;
+		static final int MAX_RETRY_HISTORY = 10;
+		// the smallest slot limit learned from registration failures
+		static final int MIN_SLOT_LIMIT = 1;
+		// time after a slot limit change before a successful registration doubles the limit again
+		static final long SLOT_LIMIT_RECOVERY_INTERVAL = 30 * 60 * 1000;		// milliseconds
+
+		private GeofenceBudget() {
+		}
+	}
+
+	static final class Containment {
+		// minimum fraction of the accuracy circle of a fix within a POI for an entry to be emitted
+		static final double DEFAULT_ENTER_CONFIDENCE = 0.7;
+		// minimum fraction of the smaller of the accuracy and POI circles not overlapping the other for an exit to be emitted
+		static final double DEFAULT_EXIT_CONFIDENCE = 0.7;
+
+		private Containment() {
+		}
+	}
+
+	static final class TransitionFilter {
+		static final long DEFAULT_MIN_DWELL_TIME = 0;				// milliseconds
+		static final long DEFAULT_MIN_ABSENCE_TIME = 0;				// milliseconds
+		static final double DEFAULT_EXIT_HYSTERESIS = 0;			// meters
+
+		private TransitionFilter() {
+		}
+	}
+
+	static final class Dwell {
+		static final int DEFAULT_LOITERING_DELAY = 0;				// milliseconds, the entries are reported immediately
+
+		private Dwell() {
+		}
+	}
+
+	static final class GeofencePolicy {
+		// POI metadata overriding the parameters of the geofence of the region
+		static final String LOITERING_DELAY_METADATA_KEY = "placesmonitor.loiteringDelay";		// milliseconds
+		static final String RESPONSIVENESS_METADATA_KEY = "placesmonitor.responsiveness";		// milliseconds
+		static final String EXIT_METADATA_KEY = "placesmonitor.reportExit";					// "false" for entries only
+
+		static final int LARGE_REGION_RADIUS = 1000;						// meters
+		static final int LARGE_REGION_RESPONSIVENESS = 5 * 60 * 1000;		// 5 minutes
+		static final long MIN_EXPIRATION_DURATION = 60 * 1000L;				// 1 minute
+
+		private GeofencePolicy() {
+		}
+	}
+
+	static final class POIRanking {
+		// POI metadata scoring the POI between 0 and MAX_METADATA_SCORE
+		static final String PRIORITY_METADATA_KEY = "placesmonitor.priority";
+		static final String VALUE_METADATA_KEY = "placesmonitor.value";
+		static final int MAX_METADATA_SCORE = 100;
+
+		static final double DISTANCE_WEIGHT = 0.4;
+		static final double PRIORITY_WEIGHT = 0.25;
+		static final double VALUE_WEIGHT = 0.2;
+		static final double ENTRY_WEIGHT = 0.15;
+		static final double DISTANCE_SCALE = 500;			// meters from the boundary halving the distance score
+		static final double VISIT_SATURATION = 2;			// visits giving half the entry probability score
+
+		private POIRanking() {
+		}
+	}
+
+	static final class FencePlanner {
+		static final float MIN_FENCE_RADIUS = 100;					// meters, smaller regions are not reliably reported by the OS
+		static final double ADJACENCY_DISTANCE = 25;				// meters between the boundaries of the merged regions
+		static final double MAX_CLUSTER_RADIUS = 500;				// meters
+		static final String PROXY_FENCE_ID_PREFIX = "placesmonitor.fence:";
+
+		private FencePlanner() {
+		}
+	}
+
+	static final class DistrictTier {
+		static final double MAX_DISTRICT_RADIUS = 3000;			// meters
+		static final double MIN_DISTRICT_RADIUS = 500;			// meters
+		static final int MIN_DISTRICT_COUNT = 2;
+		static final String DISTRICT_ID_PREFIX = "placesmonitor.district:";
+
+		private DistrictTier() {
+		}
+	}
+
+	static final class SoftwareGeofence {
+		static final double GRID_CELL_SIZE_DEGREES = 0.01;		// about 1.1 kilometers of latitude
+
+		private SoftwareGeofence() {
+		}
+	}
+
+	static final class RequestRetry {
+		static final long BASE_BACKOFF_MILLISECONDS = 30 * 1000L;		// 30 seconds
+		static final long MAX_BACKOFF_MILLISECONDS = 60 * 60 * 1000L;	// 1 hour
+		static final int FAILURE_THRESHOLD = 3;
+
+		private RequestRetry() {
+		}
+	}
+
+	static final class POICache {
+		static final long TTL_MILLISECONDS = 24 * 60 * 60 * 1000L;		// 24 hours
+
+		private POICache() {
+		}
+	}
+
+	static final class Prefetch {
+		static final float MIN_SPEED = 2;								// meters per second, about a brisk walk
+		static final long PREDICTION_HORIZON_SECONDS = 5 * 60;		// 5 minutes
+		static final double MAX_PROJECTION_DISTANCE = 3000;			// meters
+		static final double MIN_PREFETCH_SEPARATION = 500;			// meters between two prefetched areas
+		static final long MIN_PREFETCH_INTERVAL = 2 * 60 * 1000L;		// 2 minutes
+
+		private Prefetch() {
+		}
+	}
+
+	static final class Route {
+		// the route is loaded with the largest POI count, the POIs are cached and not registered as geofences
+		static final int PRELOAD_POI_COUNT = Configuration.MAX_SOFTWARE_NEARBY_POI_COUNT;
+		static final double COVERAGE_STEP = 50;						// meters between two points checked for coverage
+		static final double SPARSE_QUERY_SPACING = 5000;				// meters skipped where the POIs cannot cover the route
+		static final int MAX_ROUTE_QUERIES = 10;
+		static final double CORRIDOR_WIDTH = 1000;					// meters on each side of the route
+		static final double FENCE_SWAP_DISTANCE = 1000;				// meters of progress along the route
+		static final String WAYPOINT_SEPARATOR = ",";
+		static final String LOCATION_PROVIDER = "placesmonitor";
+
+		private Route() {
+		}
+	}
+
 	static final class EventSource {
 		static final String REQUEST_CONTENT = "com.adobe.eventsource.requestcontent";
 		static final String SHARED_STATE = "com.adobe.eventsource.sharedstate";
@@ -58,6 +263,8 @@ final class PlacesMonitorConstants {
 	static final class EventDataKeys {
 		static final String EVENT_DATA_CLEAR	= "clearclientdata";
 		static final String EVENT_DATA_LOCATION_PERMISSION = "locationpermission";
+		static final String EVENT_DATA_RESERVED_GEOFENCE_SLOTS = "reservedgeofenceslots";
+		static final String EVENT_DATA_EXPECTED_ROUTE = "expectedroute";
 		private EventDataKeys() {
 		}
 	}
@@ -81,8 +288,11 @@ final class PlacesMonitorConstants {
 	static final class  SharedPreference {
 		static final String MASTER_KEY = "com.adobe.placesMonitor";
 		static final String USERWITHIN_GEOFENCES_KEY = "adb_userWithinGeofences";
+		static final String POI_STATES_KEY = "adb_poiStates";
 		static final String HAS_MONITORING_STARTED_KEY = "adb_hasMonitoringStarted";
 		static final String LOCATION_PERMISSION_KEY = "adb_locationPermission";
+		static final String OFFLINE_QUEUE_KEY = "adb_offlineQueue";
+		static final String RESERVED_GEOFENCE_SLOTS_KEY = "adb_reservedGeofenceSlots";
 		private SharedPreference() {
 		}
 	}
@@ -15,6 +15,7 @@
 
 package com.adobe.marketing.mobile;
 
+import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -23,18 +24,36 @@ import android.location.Location;
 import android.support.v4.content.LocalBroadcastManager;
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 class PlacesMonitorInternal extends Extension {
 
 	private ConcurrentLinkedQueue<Event> eventQueue;
 	private PlacesLocationManager locationManager;
 	private PlacesGeofenceManager geofenceManager;
+	private PlacesOfflineQueue offlineQueue;
+	private PlacesRequestCircuitBreaker circuitBreaker;
+	private PlacesPOICache poiCache;
+	private PlacesPOIPredictor poiPredictor;
+	private PlacesRouteTracker routeTracker;
+	private volatile int routeGeneration;
+	private PlacesAppStateTracker appStateTracker;
+	private PlacesConnectivityMonitor connectivityMonitor;
+	private Location lastRequestedLocation;
+	private volatile PlacesMonitorConfiguration configuration = new PlacesMonitorConfiguration();
+	private Map<String, Object> lastConfigSharedState;
 	private ExecutorService executorService;
+	private ScheduledExecutorService scheduledExecutorService;
+	private ScheduledFuture<?> pendingRetry;
 	private final Object executorMutex = new Object();
 	private BroadcastReceiver internalLocationReceiver = new BroadcastReceiver() {
 		@Override
@@ -63,6 +82,7 @@ class PlacesMonitorInternal extends Extension {
 		public void onReceive(Context context, Intent intent) {
 			locationManager.stopMonitoring();
 			geofenceManager.stopMonitoringFences(true);
+			connectivityMonitor.stop(App.getAppContext());
 		}
 	};
 
@@ -80,6 +100,8 @@ class PlacesMonitorInternal extends Extension {
 	 * </ul>
 	 *
 	 * The {@link #locationManager}, {@link #geofenceManager} along with internal {@link BroadcastReceiver} {@link #internalLocationReceiver} and {@link #internalGeofenceReceiver} are initialized
+	 * The {@link #offlineQueue} is loaded from persistence and the {@link #connectivityMonitor} is started to replay it once the network connectivity is restored.
+	 * The {@link #appStateTracker} follows the app moving between foreground and background to switch the location request profile.
 	 *
 	 * @param extensionApi {@link ExtensionApi} instance
 	 */
@@ -118,6 +140,34 @@ class PlacesMonitorInternal extends Extension {
 		locationManager = new PlacesLocationManager(this);
 		geofenceManager = new PlacesGeofenceManager();
 		geofenceManager.loadPersistedData();
+		offlineQueue = new PlacesOfflineQueue();
+		offlineQueue.loadPersistedData();
+		geofenceManager.setOfflineQueue(offlineQueue);
+		circuitBreaker = new PlacesRequestCircuitBreaker();
+		poiCache = new PlacesPOICache();
+		poiPredictor = new PlacesPOIPredictor();
+		routeTracker = new PlacesRouteTracker();
+		appStateTracker = new PlacesAppStateTracker(new PlacesAppStateTracker.Listener() {
+			@Override
+			public void onAppStateChanged(final boolean isForeground) {
+				locationManager.setForeground(isForeground);
+			}
+		});
+		connectivityMonitor = new PlacesConnectivityMonitor(new PlacesConnectivityMonitor.Listener() {
+			@Override
+			public void onConnectivityChanged() {
+				if (offlineQueue.isEmpty() || !offlineQueue.isNetworkAvailable()) {
+					return;
+				}
+
+				getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						flushOfflineQueue();
+					}
+				});
+			}
+		});
 		eventQueue = new ConcurrentLinkedQueue<>();
 
 		Context context = App.getAppContext();
@@ -140,6 +190,20 @@ class PlacesMonitorInternal extends Extension {
 		LocalBroadcastManager.getInstance(context).registerReceiver(permissionDeniedReceiver,
 				new IntentFilter(PlacesMonitorConstants.INTENT_ACTION_PERMISSION_DENIED));
 
+		// replay the transitions persisted in the offline queue once the network connectivity is restored
+		connectivityMonitor.start(context);
+
+		// switch the location request profile as the app moves between foreground and background
+		final Context applicationContext = context.getApplicationContext();
+
+		if (applicationContext instanceof Application) {
+			appStateTracker.register((Application) applicationContext);
+			locationManager.setForeground(appStateTracker.isForeground());
+		} else {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "PlacesMonitorInternal : Application not available, the foreground location request profile is used");
+		}
+
 		Log.debug(PlacesMonitorConstants.LOG_TAG,"Registering Places Monitoring extension - version %s", PlacesMonitorConstants.EXTENSION_VERSION);
 	}
 
@@ -168,12 +232,13 @@ class PlacesMonitorInternal extends Extension {
 	 * Overridden method of {@link Extension} class called when extension is unregistered by the core.
 	 *
 	 * <p>
-	 * On unregister of places monitor extension, the shared states are cleared.
+	 * On unregister of places monitor extension, the shared states are cleared and the {@link #connectivityMonitor} is stopped.
 	 */
 	@Override
 	protected void onUnregistered() {
 		super.onUnregistered();
 		getApi().clearSharedEventStates(null);
+		connectivityMonitor.stop(App.getAppContext());
 	}
 
 	/**
@@ -181,8 +246,18 @@ class PlacesMonitorInternal extends Extension {
 	 *
 	 * <p>
 	 * This method is called by the {@link #locationManager} with the current device location to fetch the closest
-	 * {@link PlacesMonitorConstants#NEARBY_GEOFENCES_COUNT} nearby points of interest around the given location.
+	 * {@link PlacesMonitorConfiguration#getNearbyPOICount()} nearby points of interest around the given location,
+	 * limited to the geofence slots available to the {@link #geofenceManager}.
 	 * The obtained POIs are then passed to {@link #geofenceManager} to start monitoring for entry/exit events.
+	 * <p>
+	 * While the {@link #circuitBreaker} holds the requests back, the POIs are served from the last known set in {@link #poiCache}
+	 * and the request is retried for the most recent location once the backoff delay has elapsed.
+	 * <p>
+	 * The POIs of a location within the area prefetched by {@link #prefetchProjectedArea(Location)} are served from the
+	 * {@link #poiCache} without a request.
+	 * <p>
+	 * While the device travels along the expected route, the nearby POIs are only refreshed each time the {@link #routeTracker}
+	 * schedules a geofence swap, and served from the POIs loaded along the route.
 	 *
 	 * @param location A {@link Location} instance representing device's current location
 	 */
@@ -193,23 +268,207 @@ class PlacesMonitorInternal extends Extension {
 			return;
 		}
 
+		lastRequestedLocation = location;
+
+		if (!routeTracker.isRefreshDue(location.getLatitude(), location.getLongitude())) {
+			Log.trace(PlacesMonitorConstants.LOG_TAG,
+					  "PlacesMonitorInternal : Not progressed enough along the expected route, keeping the monitored geofences");
+			return;
+		}
+
+		if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+			servePOIsFromCache(location);
+			return;
+		}
+
 		Log.debug(PlacesMonitorConstants.LOG_TAG,
 				  "PlacesMonitorInternal : New location obtained: " + location.getLatitude() + location.getLongitude() +
 				  "Attempting to get the near by pois");
-		Places.getNearbyPointsOfInterest(location, PlacesMonitorConstants.NEARBY_GEOFENCES_COUNT,
+		final int nearbyPOICount = getNearbyPOICount();
+
+		if (nearbyPOICount <= 0) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"PlacesMonitorInternal : No geofence slots are available, Ignoring to get near by pois");
+			return;
+		}
+
+		final List<PlacesPOI> prefetchedPOIs = poiCache.getPrefetchedPOIs(location, nearbyPOICount,
+											   System.currentTimeMillis());
+
+		if (prefetchedPOIs != null) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "PlacesMonitorInternal : Location is within the prefetched area, serving " + prefetchedPOIs.size() +
+					  " prefetched POIs");
+			geofenceManager.setPOIExpiration(poiCache.getExpiresAt());
+			geofenceManager.startMonitoringFences(prefetchedPOIs);
+			recordRouteProgress(location);
+			return;
+		}
+
+		Places.getNearbyPointsOfInterest(location, nearbyPOICount,
 		new AdobeCallback<List<PlacesPOI>>() {
 			@Override
 			public void call(List<PlacesPOI> placesPOIS) {
+				circuitBreaker.recordSuccess();
+				cancelPendingRetry();
+				poiCache.update(placesPOIS, System.currentTimeMillis());
+				geofenceManager.setPOIExpiration(poiCache.getExpiresAt());
 				geofenceManager.startMonitoringFences(placesPOIS);
+				recordRouteProgress(location);
+				prefetchProjectedArea(location);
+			}
+		}, new AdobeCallback<PlacesRequestError>() {
+			@Override
+			public void call(PlacesRequestError placesRequestError) {
+				handlePlacesRequestError(placesRequestError, location);
+			}
+		});
+	}
+
+	/**
+	 * Prefetches the POIs of the area the user is heading to into the {@link #poiCache}.
+	 * <p>
+	 * This method is called right after a successful nearby POI request, while the radio is still active, so the geofences
+	 * of the projected area are ready without waking the radio again when the user arrives. No action is taken if the
+	 * {@link #poiPredictor} does not expect the user to leave the current area. A failed prefetch is only logged, the
+	 * nearby POIs are requested as usual once the user reaches the projected area.
+	 * <p>
+	 * The Places SDK has no query that leaves its state untouched, so the prefetch replaces the nearby POIs and the last known
+	 * location of the {@link Places} extension with those of the projected location. They are restored with
+	 * {@link #restoreNearbyPOIs()} once the prefetched POIs are received.
+	 *
+	 * @param location A {@link Location} instance representing device's current location
+	 */
+	private void prefetchProjectedArea(final Location location) {
+		final double[] projected = poiPredictor.predict(location, System.currentTimeMillis());
+		final int nearbyPOICount = getNearbyPOICount();
+
+		if (projected == null || nearbyPOICount <= 0) {
+			return;
+		}
+
+		final double latitude = projected[0];
+		final double longitude = projected[1];
+		poiPredictor.recordPrefetch(latitude, longitude, System.currentTimeMillis());
+
+		final Location projectedLocation = new Location(location.getProvider());
+		projectedLocation.setLatitude(latitude);
+		projectedLocation.setLongitude(longitude);
+		projectedLocation.setTime(location.getTime());
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesMonitorInternal : Prefetching the nearby pois of the projected location " + latitude + ", " + longitude);
+
+		Places.getNearbyPointsOfInterest(projectedLocation, nearbyPOICount,
+		new AdobeCallback<List<PlacesPOI>>() {
+			@Override
+			public void call(List<PlacesPOI> placesPOIS) {
+				poiCache.prefetch(placesPOIS, latitude, longitude, System.currentTimeMillis());
+				restoreNearbyPOIs();
+			}
+		}, new AdobeCallback<PlacesRequestError>() {
+			@Override
+			public void call(PlacesRequestError placesRequestError) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG,
+						  "PlacesMonitorInternal : Unable to prefetch the nearby pois of the projected location: " + placesRequestError);
+			}
+		});
+	}
+
+	/**
+	 * Queries the nearby POIs of the {@link #lastRequestedLocation} again after a query made for a speculative location.
+	 * <p>
+	 * The {@link Places} extension resolves the geofence transitions passed to {@code Places.processGeofence}
+	 * against the POIs of its last nearby POI query, and shares its last known location with the other extensions. This query
+	 * sets them back to the location of the user before the next transitions are dispatched. The returned POIs are already
+	 * monitored, so they are not passed to the {@link #geofenceManager} again. No action is taken if no location was requested
+	 * yet, or while the {@link #circuitBreaker} holds the requests back.
+	 */
+	private void restoreNearbyPOIs() {
+		final Location location = lastRequestedLocation;
+		final int nearbyPOICount = getNearbyPOICount();
+
+		if (location == null || nearbyPOICount <= 0 || !circuitBreaker.allowRequest(System.currentTimeMillis())) {
+			return;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesMonitorInternal : Restoring the nearby pois of the Places extension to the current location");
+		Places.getNearbyPointsOfInterest(location, nearbyPOICount,
+		new AdobeCallback<List<PlacesPOI>>() {
+			@Override
+			public void call(List<PlacesPOI> placesPOIS) {
+				Log.trace(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Restored the nearby pois of the current location");
 			}
 		}, new AdobeCallback<PlacesRequestError>() {
 			@Override
 			public void call(PlacesRequestError placesRequestError) {
-				handlePlacesRequestError(placesRequestError);
+				Log.debug(PlacesMonitorConstants.LOG_TAG,
+						  "PlacesMonitorInternal : Unable to restore the nearby pois of the current location: " + placesRequestError);
 			}
 		});
 	}
 
+	/**
+	 * Records a geofence swap with the {@link #routeTracker} once the nearby POIs of the given location are monitored.
+	 *
+	 * @param location A {@link Location} instance representing device's current location
+	 */
+	private void recordRouteProgress(final Location location) {
+		if (routeTracker.advance(location.getLatitude(), location.getLongitude())) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Progressed along the expected route, swapped geofences");
+		}
+	}
+
+	/**
+	 * Evaluates the nearby POIs monitored in software for the given location fix.
+	 *
+	 * <p>
+	 * This method is called by the {@link #locationManager} for each location fix it accepts, before it refreshes the
+	 * nearby POIs with {@link #getPOIsForLocation(Location)}.
+	 *
+	 * @param location A {@link Location} instance representing device's current location
+	 * @see PlacesGeofenceManager#evaluateLocation(Location)
+	 */
+	void evaluateLocation(final Location location) {
+		geofenceManager.evaluateLocation(location);
+	}
+
+	/**
+	 * Replays the content of the {@link #offlineQueue} after the network connectivity is restored.
+	 *
+	 * <p>
+	 * The queued geofence transitions are dispatched to the {@link Places} extension as one batch in the order they occurred,
+	 * followed by a single nearby POI refresh for the most recently queued location.
+	 * This method should be called on the {@link #getExecutor()} thread.
+	 */
+	void flushOfflineQueue() {
+		final List<PlacesOfflineQueue.Entry> entries = offlineQueue.drain();
+
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		final List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+		PlacesOfflineQueue.Entry latestRefresh = null;
+
+		for (PlacesOfflineQueue.Entry entry : entries) {
+			if (entry.isRefresh()) {
+				latestRefresh = entry;
+			} else {
+				transitions.add(entry.getTransition());
+			}
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesMonitorInternal : Network connectivity restored, replaying " + transitions.size() +
+				  " queued geofence transitions");
+		geofenceManager.dispatchQueuedTransitions(transitions);
+
+		if (latestRefresh != null) {
+			getPOIsForLocation(latestRefresh.toLocation());
+		}
+	}
+
 	/**
 	 * This method queues the provided event in {@link #eventQueue}.
 	 *
@@ -227,6 +486,36 @@ class PlacesMonitorInternal extends Extension {
 		eventQueue.add(event);
 	}
 
+	/**
+	 * Reads the configuration shared state at the given shared state update {@link Event} and applies it.
+	 * <p>
+	 * This method is called by the {@link PlacesMonitorListenerHubSharedState} so that the configuration is applied as soon
+	 * as it changes, even if no places monitor event is queued.
+	 * No action is taken if the configuration shared state is pending.
+	 *
+	 * @param event the configuration shared state update {@code Event}
+	 */
+	void processConfigurationSharedState(final Event event) {
+		final Map<String, Object> configSharedState = getApi().getSharedEventState(PlacesMonitorConstants.SharedState.CONFIGURATION,
+				event, new ExtensionErrorCallback<ExtensionError>() {
+			@Override
+			public void error(final ExtensionError extensionError) {
+				if (extensionError != null) {
+					Log.warning(PlacesMonitorConstants.LOG_TAG,
+								String.format("PlacesMonitorInternal : Could not apply configuration, an error occurred while retrieving configuration shared state: %s",
+											  extensionError.getErrorName()));
+				}
+			}
+		});
+
+		if (configSharedState == null) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Configuration shared state is pending");
+			return;
+		}
+
+		updateConfiguration(configSharedState);
+	}
+
 	/**
 	 * Processes the queued event one by one until queue is empty.
 	 *
@@ -258,6 +547,8 @@ class PlacesMonitorInternal extends Extension {
 				return;
 			}
 
+			updateConfiguration(configSharedState);
+
 			if (PlacesMonitorConstants.EventType.MONITOR.equalsIgnoreCase(eventToProcess.getType()) &&
 					PlacesMonitorConstants.EventSource.REQUEST_CONTENT.equalsIgnoreCase(eventToProcess.getSource())) {
 				// handle the places monitor request event
@@ -270,6 +561,45 @@ class PlacesMonitorInternal extends Extension {
 	}
 
 
+	/**
+	 * Reads the {@link PlacesMonitorConfiguration} from the given configuration shared state and applies it to the
+	 * {@link #locationManager} and the {@link #geofenceManager}.
+	 *
+	 * <p>
+	 * No action is taken if the configuration shared state, or the configuration read from it, has not changed since it was
+	 * last applied. The event hub exposes no version of the shared state, so the last shared state is kept to skip reading
+	 * an unchanged one again.
+	 * If the monitoring mode has changed, the device location is updated so that the nearby POIs are monitored in the new mode.
+	 *
+	 * @param configSharedState the configuration shared state
+	 */
+	private void updateConfiguration(final Map<String, Object> configSharedState) {
+		if (configSharedState.equals(lastConfigSharedState)) {
+			return;
+		}
+
+		lastConfigSharedState = new HashMap<String, Object>(configSharedState);
+		final PlacesMonitorConfiguration newConfiguration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		if (newConfiguration.equals(configuration)) {
+			return;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Applying configuration " + newConfiguration);
+		final boolean hasMonitoringModeChanged = newConfiguration.getMonitoringMode() != configuration.getMonitoringMode();
+		configuration = newConfiguration;
+		locationManager.setConfiguration(newConfiguration);
+		geofenceManager.setMonitoringMode(newConfiguration.getMonitoringMode());
+		geofenceManager.setConfidenceThresholds(newConfiguration.getEnterConfidence(), newConfiguration.getExitConfidence());
+		geofenceManager.setTransitionFilterParameters(newConfiguration.getMinDwellTime(), newConfiguration.getMinAbsenceTime(),
+				newConfiguration.getExitHysteresis());
+		geofenceManager.setLoiteringDelay(newConfiguration.getLoiteringDelay());
+
+		if (hasMonitoringModeChanged) {
+			updateLocation();
+		}
+	}
+
 	/**
 	 * Method to process the places monitor request content {@link Event}'s.
 	 *
@@ -296,6 +626,10 @@ class PlacesMonitorInternal extends Extension {
 			updateLocation();
 		} else if (PlacesMonitorConstants.EVENTNAME_SET_LOCATION_PERMISSION.equals(eventName)) {
 			setLocationPermission(event.getEventData());
+		} else if (PlacesMonitorConstants.EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS.equals(eventName)) {
+			setReservedGeofenceSlots(event.getData());
+		} else if (PlacesMonitorConstants.EVENTNAME_SET_EXPECTED_ROUTE.equals(eventName)) {
+			setExpectedRoute(event.getData());
 		}
 		else {
 			Log.warning(PlacesMonitorConstants.LOG_TAG,
@@ -307,22 +641,32 @@ class PlacesMonitorInternal extends Extension {
 	/**
 	 * Method to handle the error that occurred while getting the nearbyPointOfInterest.
 	 *
+	 * <p>
+	 * On {@link PlacesRequestError#CONNECTIVITY_ERROR} the request is queued in the {@link #offlineQueue} and retried
+	 * once the network connectivity is restored.
+	 * On {@link PlacesRequestError#QUERY_SERVICE_UNAVAILABLE} and {@link PlacesRequestError#SERVER_RESPONSE_ERROR} the failure is
+	 * recorded with the {@link #circuitBreaker} and the request is retried after the backoff delay.
+	 *
 	 * @param error A {@link PlacesRequestError} representing the type of error
+	 * @param location The {@link Location} for which the nearby points of interest were requested
 	 */
-	private void handlePlacesRequestError(final PlacesRequestError error) {
+	private void handlePlacesRequestError(final PlacesRequestError error, final Location location) {
 		String errorString = "";
 		switch (error) {
 			case CONNECTIVITY_ERROR:
-				errorString = "No network connectivity.";
+				errorString = "No network connectivity. The request is queued until the connectivity is restored.";
+				offlineQueue.enqueueRefresh(location);
 				break;
 			case INVALID_LATLONG_ERROR:
 				errorString = "An invalid latitude and/or longitude was provided.  Valid values are -90 to 90 (lat) and -180 to 180 (lon).";
 				break;
 			case QUERY_SERVICE_UNAVAILABLE:
 				errorString = "The Places Query Service is unavailable. Try again later.";
+				scheduleRetry(circuitBreaker.recordFailure(error, System.currentTimeMillis()));
 				break;
 			case SERVER_RESPONSE_ERROR:
 				errorString = "There is an error in the response from the server.";
+				scheduleRetry(circuitBreaker.recordFailure(error, System.currentTimeMillis()));
 				break;
 			case CONFIGURATION_ERROR:
 				errorString = "Missing Places configuration.";
@@ -336,6 +680,76 @@ class PlacesMonitorInternal extends Extension {
 		Log.warning(PlacesMonitorConstants.LOG_TAG, "An error occurred while attempting to retrieve nearby points of interest: " + errorString);
 	}
 
+	/**
+	 * Passes the last known POIs closest to the given location to the {@link #geofenceManager}.
+	 * <p>
+	 * No action is taken if the {@link #poiCache} is empty or expired.
+	 *
+	 * @param location A {@link Location} instance representing device's current location
+	 */
+	private void servePOIsFromCache(final Location location) {
+		final List<PlacesPOI> cachedPOIs = poiCache.getPOIs(location, getNearbyPOICount(), System.currentTimeMillis());
+
+		if (cachedPOIs == null) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "PlacesMonitorInternal : Nearby POI requests are backed off (circuit " + circuitBreaker.getState() +
+					  ") and no last known POIs are available, skipping the refresh");
+			return;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "PlacesMonitorInternal : Nearby POI requests are backed off (circuit " + circuitBreaker.getState() +
+				  "), serving " + cachedPOIs.size() + " last known POIs");
+		geofenceManager.setPOIExpiration(poiCache.getExpiresAt());
+		geofenceManager.startMonitoringFences(cachedPOIs);
+	}
+
+	/**
+	 * @return the number of nearby POIs to be monitored, as configured and limited by the available geofence slots unless
+	 * the POIs are monitored in software or in hybrid mode
+	 */
+	private int getNearbyPOICount() {
+		if (configuration.getMonitoringMode() != PlacesMonitorConfiguration.MonitoringMode.OS) {
+			return configuration.getNearbyPOICount();
+		}
+
+		return Math.min(configuration.getNearbyPOICount(), geofenceManager.getAvailableGeofenceSlots());
+	}
+
+	/**
+	 * Schedules a nearby POI request for the {@link #lastRequestedLocation} after the given delay, replacing any pending retry.
+	 *
+	 * @param delay the delay in milliseconds after which the request is retried
+	 */
+	private void scheduleRetry(final long delay) {
+		synchronized (executorMutex) {
+			if (pendingRetry != null) {
+				pendingRetry.cancel(false);
+			}
+
+			pendingRetry = getScheduledExecutor().schedule(new Runnable() {
+				@Override
+				public void run() {
+					getExecutor().execute(new Runnable() {
+						@Override
+						public void run() {
+							getPOIsForLocation(lastRequestedLocation);
+						}
+					});
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void cancelPendingRetry() {
+		synchronized (executorMutex) {
+			if (pendingRetry != null) {
+				pendingRetry.cancel(false);
+				pendingRetry = null;
+			}
+		}
+	}
+
 	// ========================================================================================
 	// Public API handlers
 	// ========================================================================================
@@ -345,10 +759,12 @@ class PlacesMonitorInternal extends Extension {
 	 * Handler for places monitor extension's Start public api call.
 	 *
 	 * <p>
-	 * This method requests the {@link #locationManager} to start monitoring for device location.
+	 * This method requests the {@link #locationManager} to start monitoring for device location, and starts the
+	 * {@link #connectivityMonitor} to replay the {@link #offlineQueue} once the network connectivity is restored.
 	 */
 	private void startMonitoring() {
 		locationManager.startMonitoring();
+		connectivityMonitor.start(App.getAppContext());
 	}
 
 
@@ -357,17 +773,26 @@ class PlacesMonitorInternal extends Extension {
 	 *
 	 * <p>
 	 * This method requests the {@link #locationManager} to stop monitoring the device current location.
-	 * It also requests the {@link #geofenceManager} to stop monitoring the fences that are currently being monitored.
+	 * It also requests the {@link #geofenceManager} to stop monitoring the fences that are currently being monitored, and
+	 * stops the {@link #connectivityMonitor}.
 	 *
 	 * Calling this method with YES for clearData will purge the data even if the monitor is not actively tracking
-	 * the device's location.
+	 * the device's location. The transitions and requests queued in the {@link #offlineQueue} and the POIs in the
+	 * {@link #poiCache} are also discarded.
 	 *
 	 * @param clearData pass YES to clear all client-side Places data from the device.
 	 */
 	private void stopMonitoring(final boolean clearData) {
 		locationManager.stopMonitoring();
 		geofenceManager.stopMonitoringFences(clearData);
+		cancelPendingRetry();
+		connectivityMonitor.stop(App.getAppContext());
 		if(clearData){
+			offlineQueue.clear();
+			poiCache.clear();
+			poiPredictor.clear();
+			routeGeneration++;
+			routeTracker.clear();
 			Places.clear();
 		}
 	}
@@ -392,7 +817,224 @@ class PlacesMonitorInternal extends Extension {
 		locationManager.setLocationPermission(placesMonitorLocationPermission);
 	}
 
+	/**
+	 * Handler for places monitor extension's setReservedGeofenceSlots public api call.
+	 * <p>
+	 * If the geofences currently registered no longer fit in the remaining slots, the device location is updated so that
+	 * a smaller nearby set is registered.
+	 *
+	 * @param eventData the {@link EventData} containing the number of slots reserved by the host application
+	 */
+	private void setReservedGeofenceSlots(final EventData eventData) {
+		if (eventData == null || !eventData.containsKey(PlacesMonitorConstants.EventDataKeys.EVENT_DATA_RESERVED_GEOFENCE_SLOTS)) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Invalid reserved geofence slots value. Ignoring setReservedGeofenceSlots API call");
+			return;
+		}
 
+		final int reservedSlots = eventData.optInteger(PlacesMonitorConstants.EventDataKeys.EVENT_DATA_RESERVED_GEOFENCE_SLOTS, 0);
+
+		if (geofenceManager.setReservedGeofenceSlots(reservedSlots)) {
+			updateLocation();
+		}
+	}
+
+
+
+	/**
+	 * Handler for places monitor extension's setExpectedRoute public api call.
+	 * <p>
+	 * The route replaces the previous one along with the POIs loaded for it, and the POIs along the new route are loaded
+	 * into the {@link #poiCache} with {@link #preloadRoute(int, double, int)}. A route with less than two valid waypoints
+	 * clears the expected route.
+	 *
+	 * @param eventData the {@link EventData} containing the waypoints of the route
+	 */
+	private void setExpectedRoute(final EventData eventData) {
+		final List<String> waypoints = eventData == null ? null : eventData.optStringList(
+										   PlacesMonitorConstants.EventDataKeys.EVENT_DATA_EXPECTED_ROUTE, null);
+		final List<double[]> coordinates = new ArrayList<double[]>();
+
+		if (waypoints != null) {
+			for (String waypoint : waypoints) {
+				final double[] coordinate = parseWaypoint(waypoint);
+
+				if (coordinate != null) {
+					coordinates.add(coordinate);
+				}
+			}
+		}
+
+		routeGeneration++;
+		poiCache.clearRoute();
+
+		if (coordinates.size() < 2) {
+			routeTracker.clear();
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Cleared the expected route");
+			return;
+		}
+
+		final double[] latitudes = new double[coordinates.size()];
+		final double[] longitudes = new double[coordinates.size()];
+
+		for (int i = 0; i < coordinates.size(); i++) {
+			latitudes[i] = coordinates.get(i)[0];
+			longitudes[i] = coordinates.get(i)[1];
+		}
+
+		routeTracker.setRoute(latitudes, longitudes);
+		preloadRoute(routeGeneration, 0, 0);
+	}
+
+	/**
+	 * Loads the POIs along the expected route into the {@link #poiCache}, one bulk query at a time.
+	 * <p>
+	 * Each query is centered on the first point of the route, from the given distance, where the nearby POIs would not be
+	 * served from the {@link #poiCache}, and the next query is made once its POIs are loaded, until the whole route is covered
+	 * or {@link PlacesMonitorConstants.Route#MAX_ROUTE_QUERIES} queries were made. The extent covered by a query thus follows
+	 * the density of the POIs. Where the POIs are too sparse for the query point to be covered, the next
+	 * {@link PlacesMonitorConstants.Route#SPARSE_QUERY_SPACING} meters are skipped.
+	 * <p>
+	 * The preload stops if the route is replaced or cleared, or while the {@link #circuitBreaker} holds the requests back.
+	 * A failed query is only logged. The nearby POIs of the parts of the route left uncovered are queried as usual.
+	 * <p>
+	 * Like the prefetch of the projected area, each query replaces the nearby POIs and the last known location of the
+	 * {@link Places} extension, which are restored with {@link #restoreNearbyPOIs()} once the preload stops.
+	 *
+	 * @param generation the {@link #routeGeneration} of the route being loaded
+	 * @param fromDistance the distance along the route in meters from which the next uncovered point is searched
+	 * @param queryCount the number of queries already made for the route
+	 */
+	private void preloadRoute(final int generation, final double fromDistance, final int queryCount) {
+		if (generation != routeGeneration) {
+			return;
+		}
+
+		final double distance = getUncoveredRouteDistance(fromDistance);
+
+		if (distance < 0) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Preloaded the nearby pois along the " +
+					  Math.round(routeTracker.getLength()) + " meters of the expected route with " + queryCount + " queries");
+			endPreload(queryCount);
+			return;
+		}
+
+		if (queryCount >= PlacesMonitorConstants.Route.MAX_ROUTE_QUERIES) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "PlacesMonitorInternal : Stopped the preload of the expected route after " +
+					  queryCount + " queries, " + Math.round(distance) + " meters along the route");
+			endPreload(queryCount);
+			return;
+		}
+
+		if (getNearbyPOICount() <= 0 || !circuitBreaker.allowRequest(System.currentTimeMillis())) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "PlacesMonitorInternal : Unable to query the nearby pois now, skipping the preload of the expected route");
+			endPreload(queryCount);
+			return;
+		}
+
+		final double[] queryPoint = routeTracker.getPointAt(distance);
+		final double latitude = queryPoint[0];
+		final double longitude = queryPoint[1];
+		final Location queryLocation = new Location(PlacesMonitorConstants.Route.LOCATION_PROVIDER);
+		queryLocation.setLatitude(latitude);
+		queryLocation.setLongitude(longitude);
+		queryLocation.setTime(System.currentTimeMillis());
+
+		Places.getNearbyPointsOfInterest(queryLocation, PlacesMonitorConstants.Route.PRELOAD_POI_COUNT,
+		new AdobeCallback<List<PlacesPOI>>() {
+			@Override
+			public void call(List<PlacesPOI> placesPOIS) {
+				if (generation != routeGeneration) {
+					return;
+				}
+
+				poiCache.addRouteArea(placesPOIS, latitude, longitude, System.currentTimeMillis());
+				final boolean isCovered = poiCache.isLocationCovered(latitude, longitude, getNearbyPOICount(),
+										  System.currentTimeMillis());
+				preloadRoute(generation, isCovered ? distance : distance + PlacesMonitorConstants.Route.SPARSE_QUERY_SPACING,
+							 queryCount + 1);
+			}
+		}, new AdobeCallback<PlacesRequestError>() {
+			@Override
+			public void call(PlacesRequestError placesRequestError) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG,
+						  "PlacesMonitorInternal : Unable to preload the nearby pois of the expected route: " + placesRequestError);
+
+				if (generation == routeGeneration) {
+					endPreload(queryCount);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Restores the nearby POIs of the {@link Places} extension once the preload of the expected route stops, if any query
+	 * succeeded.
+	 *
+	 * @param queryCount the number of queries made for the route
+	 */
+	private void endPreload(final int queryCount) {
+		if (queryCount > 0) {
+			restoreNearbyPOIs();
+		}
+	}
+
+	/**
+	 * @param fromDistance the distance along the route in meters from which the route is checked
+	 * @return the distance along the route in meters of the first point, checked every
+	 * {@link PlacesMonitorConstants.Route#COVERAGE_STEP}, whose nearby POIs would not be served from the {@link #poiCache},
+	 * or -1 if the rest of the route is covered
+	 */
+	private double getUncoveredRouteDistance(final double fromDistance) {
+		final double length = routeTracker.getLength();
+		final int nearbyPOICount = getNearbyPOICount();
+		final long now = System.currentTimeMillis();
+
+		for (double distance = fromDistance; distance < length + PlacesMonitorConstants.Route.COVERAGE_STEP;
+				distance += PlacesMonitorConstants.Route.COVERAGE_STEP) {
+			final double[] point = routeTracker.getPointAt(Math.min(distance, length));
+
+			if (point == null) {
+				return -1;
+			}
+
+			if (!poiCache.isLocationCovered(point[0], point[1], nearbyPOICount, now)) {
+				return Math.min(distance, length);
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @param waypoint the latitude and the longitude of a waypoint, separated by {@link PlacesMonitorConstants.Route#WAYPOINT_SEPARATOR}
+	 * @return the latitude and the longitude of the waypoint, or null if the waypoint is invalid
+	 */
+	private static double[] parseWaypoint(final String waypoint) {
+		if (waypoint == null) {
+			return null;
+		}
+
+		final String[] parts = waypoint.split(PlacesMonitorConstants.Route.WAYPOINT_SEPARATOR);
+
+		if (parts.length != 2) {
+			return null;
+		}
+
+		try {
+			final double latitude = Double.parseDouble(parts[0]);
+			final double longitude = Double.parseDouble(parts[1]);
+
+			if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+				return null;
+			}
+
+			return new double[] {latitude, longitude};
+		} catch (NumberFormatException e) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Invalid expected route waypoint " + waypoint + ", ignoring it");
+			return null;
+		}
+	}
 
 	// ========================================================================================
 	// Getters for private members
@@ -412,6 +1054,39 @@ class PlacesMonitorInternal extends Extension {
 		}
 	}
 
+	/**
+	 * Getter for the {@link #scheduledExecutorService}. Access to which is mutex protected.
+	 *
+	 * @return A non-null {@link ScheduledExecutorService} instance
+	 */
+	ScheduledExecutorService getScheduledExecutor() {
+		synchronized (executorMutex) {
+			if (scheduledExecutorService == null) {
+				scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+			}
+
+			return scheduledExecutorService;
+		}
+	}
+
+	/**
+	 * Getter for the state of the {@link #circuitBreaker} guarding the nearby POI requests.
+	 *
+	 * @return the most restrictive {@link PlacesRequestCircuitBreaker.State} across all the error classes
+	 */
+	PlacesRequestCircuitBreaker.State getCircuitBreakerState() {
+		return circuitBreaker.getState();
+	}
+
+	/**
+	 * Getter for the {@link #configuration}.
+	 *
+	 * @return the {@link PlacesMonitorConfiguration} currently applied
+	 */
+	PlacesMonitorConfiguration getConfiguration() {
+		return configuration;
+	}
+
 	/**
 	 * Getter for the {@link #eventQueue}.
 	 *
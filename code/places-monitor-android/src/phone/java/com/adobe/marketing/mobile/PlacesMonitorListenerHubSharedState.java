@@ -17,7 +17,7 @@ package com.adobe.marketing.mobile;
 
 /**
  * Listens for {@link PlacesMonitorConstants.EventType#HUB}, {@link PlacesMonitorConstants.EventSource#SHARED_STATE} events
- * and triggers the queued places monitor events waiting for valid configuration shared state
+ * and applies the configuration shared state, then triggers the queued places monitor events waiting for it
  * @see PlacesMonitorInternal
  */
 class PlacesMonitorListenerHubSharedState extends ExtensionListener {
@@ -36,9 +36,11 @@ class PlacesMonitorListenerHubSharedState extends ExtensionListener {
 	/**
 	 * Listens to {@code PlacesMonitorConstants.EventType#HUB}, {@code PlacesMonitorConstants.EventSource#SHARED_STATE} event.
 	 * <p>
-	 * Triggers the queued events which are waiting for valid configuration shared state.
+	 * Applies the configuration shared state, even if no event is queued, and triggers the queued events which are waiting for
+	 * valid configuration shared state.
 	 *
 	 * @param event the shared state update {@link Event}
+	 * @see PlacesMonitorInternal#processConfigurationSharedState(Event)
 	 * @see PlacesMonitorInternal#processEvents()
 	 */
 	@Override
@@ -60,7 +62,8 @@ class PlacesMonitorListenerHubSharedState extends ExtensionListener {
 			parentExtension.getExecutor().execute(new Runnable() {
 				@Override
 				public void run() {
-					parentExtension.processEvents();;
+					parentExtension.processConfigurationSharedState(event);
+					parentExtension.processEvents();
 				}
 			});
 		}
@@ -0,0 +1,49 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesMotionGate.java
+//
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Source of the motion state of the device, used to pause the location updates while the device is still.
+ * <p>
+ * A gate which cannot observe the motion of the device never reports it as still, so the location updates are never
+ * paused without a signal that the device stopped moving.
+ */
+interface PlacesMotionGate {
+
+	/**
+	 * Receiver of the motion state changes reported by a {@link PlacesMotionGate}.
+	 */
+	interface Listener {
+		/**
+		 * Called when the device stops or starts moving.
+		 *
+		 * @param isStill {@code boolean} indicating if the device is still
+		 */
+		void onMotionStateChanged(boolean isStill);
+	}
+
+	/**
+	 * Starts observing the motion of the device, replacing the listener if already started.
+	 *
+	 * @param listener the {@link Listener} notified of the motion state changes
+	 */
+	void start(Listener listener);
+
+	/**
+	 * Stops observing the motion of the device. No further change is reported to the listener.
+	 */
+	void stop();
+}
@@ -0,0 +1,373 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesOfflineQueue.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class to hold the geofence transitions and nearby POI refresh requests that could not be processed while the device
+ * had no network connectivity.
+ * <p>
+ * The queue is persisted in {@link SharedPreferences} and is bounded to {@link PlacesMonitorConstants.OfflineQueue#MAX_ENTRIES}.
+ * When the queue is full, the oldest entry is dropped to make room for the new one. Entries older than
+ * {@link PlacesMonitorConstants.OfflineQueue#MAX_AGE_MILLISECONDS} are dropped when the queue is drained.
+ * Only the most recent refresh request is retained, since a refresh for an older location is superseded by a newer one.
+ */
+class PlacesOfflineQueue {
+	private static final String ENTRY_SEPARATOR = "\n";
+	private static final String FIELD_SEPARATOR = "|";
+	private static final String FIELD_SEPARATOR_REGEX = "\\|";
+	private static final String TYPE_TRANSITION = "T";
+	private static final String TYPE_REFRESH = "R";
+	private static final String LOCATION_PROVIDER = "placesmonitor";
+	private static final String ENCODING = "UTF-8";
+
+	private final LinkedList<Entry> entries;
+	private int droppedCount;
+	private int expiredCount;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesOfflineQueue() {
+		entries = new LinkedList<Entry>();
+	}
+
+	/**
+	 * Appends the given geofence transitions to the queue, preserving their order.
+	 *
+	 * @param transitions a {@link List} of {@link PlacesTransitionBatcher.Transition}s that could not be dispatched
+	 */
+	synchronized void enqueueTransitions(final List<PlacesTransitionBatcher.Transition> transitions) {
+		if (transitions == null || transitions.isEmpty()) {
+			return;
+		}
+
+		for (PlacesTransitionBatcher.Transition transition : transitions) {
+			append(new Entry(transition));
+		}
+
+		save();
+	}
+
+	/**
+	 * Queues a request to refresh the nearby POIs for the given location, replacing any previously queued refresh request.
+	 *
+	 * @param location the {@link Location} for which the nearby POIs could not be retrieved
+	 */
+	synchronized void enqueueRefresh(final Location location) {
+		if (location == null) {
+			return;
+		}
+
+		for (Iterator<Entry> iterator = entries.iterator(); iterator.hasNext();) {
+			if (iterator.next().isRefresh()) {
+				iterator.remove();
+			}
+		}
+
+		append(new Entry(location.getLatitude(), location.getLongitude(), System.currentTimeMillis()));
+		save();
+	}
+
+	/**
+	 * Removes and returns all the entries of the queue in the order they were queued.
+	 * <p>
+	 * Entries older than {@link PlacesMonitorConstants.OfflineQueue#MAX_AGE_MILLISECONDS} are dropped.
+	 *
+	 * @return a {@link List} of queued {@link Entry}s, empty if there are none
+	 */
+	synchronized List<Entry> drain() {
+		final long oldestAllowed = System.currentTimeMillis() - PlacesMonitorConstants.OfflineQueue.MAX_AGE_MILLISECONDS;
+		final List<Entry> drained = new ArrayList<Entry>(entries.size());
+
+		for (Entry entry : entries) {
+			if (entry.getTimestamp() < oldestAllowed) {
+				expiredCount++;
+				continue;
+			}
+
+			drained.add(entry);
+		}
+
+		entries.clear();
+		save();
+		return drained;
+	}
+
+	/**
+	 * Removes all the entries from the queue and from persistence.
+	 */
+	synchronized void clear() {
+		entries.clear();
+		save();
+	}
+
+	synchronized boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of entries dropped because the queue was full
+	 */
+	synchronized int getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return the number of entries dropped because they were too old when the queue was drained
+	 */
+	synchronized int getExpiredCount() {
+		return expiredCount;
+	}
+
+	/**
+	 * Verifies if the device currently has network connectivity.
+	 * <p>
+	 * Returns true if the connectivity cannot be determined, so that no transition is held back unnecessarily.
+	 *
+	 * @return {@code boolean} indicating if network connectivity is available
+	 */
+	boolean isNetworkAvailable() {
+		Context context = App.getAppContext();
+
+		if (context == null) {
+			return true;
+		}
+
+		try {
+			ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(
+						Context.CONNECTIVITY_SERVICE);
+
+			if (connectivityManager == null) {
+				return true;
+			}
+
+			NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+			return networkInfo != null && networkInfo.isConnected();
+		} catch (SecurityException e) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "Unable to verify network connectivity, ACCESS_NETWORK_STATE permission is not granted");
+			return true;
+		}
+	}
+
+	// ========================================================================================
+	// Load/Save queue to persistence
+	// ========================================================================================
+
+	/**
+	 * Loads the persisted queue entries into memory.
+	 * <p>
+	 * This method is called during the boot time of the SDK.
+	 * Malformed entries are ignored.
+	 */
+	synchronized void loadPersistedData() {
+		SharedPreferences sharedPreferences = getSharedPreference();
+
+		if (sharedPreferences == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to load offline queue from persistence, sharedPreference is null");
+			return;
+		}
+
+		entries.clear();
+		String serializedQueue = sharedPreferences.getString(PlacesMonitorConstants.SharedPreference.OFFLINE_QUEUE_KEY, null);
+
+		if (serializedQueue == null || serializedQueue.isEmpty()) {
+			return;
+		}
+
+		for (String serializedEntry : serializedQueue.split(ENTRY_SEPARATOR)) {
+			Entry entry = Entry.deserialize(serializedEntry);
+
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+
+		Log.trace(PlacesMonitorConstants.LOG_TAG, "PlacesOfflineQueue loaded " + entries.size() + " entries from persistence");
+	}
+
+	private void save() {
+		SharedPreferences sharedPreferences = getSharedPreference();
+
+		if (sharedPreferences == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to save offline queue to persistence, sharedPreference is null");
+			return;
+		}
+
+		SharedPreferences.Editor editor = sharedPreferences.edit();
+
+		if (editor == null) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG,
+						"Unable to save offline queue to persistence, shared preference editor is null");
+			return;
+		}
+
+		if (entries.isEmpty()) {
+			editor.remove(PlacesMonitorConstants.SharedPreference.OFFLINE_QUEUE_KEY);
+		} else {
+			StringBuilder builder = new StringBuilder();
+
+			for (Entry entry : entries) {
+				if (builder.length() > 0) {
+					builder.append(ENTRY_SEPARATOR);
+				}
+
+				builder.append(entry.serialize());
+			}
+
+			editor.putString(PlacesMonitorConstants.SharedPreference.OFFLINE_QUEUE_KEY, builder.toString());
+		}
+
+		editor.commit();
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private void append(final Entry entry) {
+		while (entries.size() >= PlacesMonitorConstants.OfflineQueue.MAX_ENTRIES) {
+			entries.removeFirst();
+			droppedCount++;
+		}
+
+		entries.add(entry);
+	}
+
+	private SharedPreferences getSharedPreference() {
+		Context appContext = App.getAppContext();
+
+		if (appContext == null) {
+			return null;
+		}
+
+		return appContext.getSharedPreferences(PlacesMonitorConstants.SharedPreference.MASTER_KEY, 0);
+	}
+
+	/**
+	 * A single entry of the {@link PlacesOfflineQueue}, either a geofence transition or a nearby POI refresh request.
+	 */
+	static final class Entry {
+		private final PlacesTransitionBatcher.Transition transition;
+		private final double latitude;
+		private final double longitude;
+		private final long timestamp;
+
+		Entry(final PlacesTransitionBatcher.Transition transition) {
+			this.transition = transition;
+			this.latitude = transition.getLatitude();
+			this.longitude = transition.getLongitude();
+			this.timestamp = transition.getTimestamp();
+		}
+
+		Entry(final double latitude, final double longitude, final long timestamp) {
+			this.transition = null;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.timestamp = timestamp;
+		}
+
+		boolean isRefresh() {
+			return transition == null;
+		}
+
+		PlacesTransitionBatcher.Transition getTransition() {
+			return transition;
+		}
+
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * @return a {@link Location} representing the location of a refresh request
+		 */
+		Location toLocation() {
+			Location location = new Location(LOCATION_PROVIDER);
+			location.setLatitude(latitude);
+			location.setLongitude(longitude);
+			location.setTime(timestamp);
+			return location;
+		}
+
+		String serialize() {
+			if (isRefresh()) {
+				return TYPE_REFRESH + FIELD_SEPARATOR + timestamp + FIELD_SEPARATOR + latitude + FIELD_SEPARATOR + longitude;
+			}
+
+			return TYPE_TRANSITION + FIELD_SEPARATOR + timestamp + FIELD_SEPARATOR + transition.getTransitionType() +
+				   FIELD_SEPARATOR + latitude + FIELD_SEPARATOR + longitude + FIELD_SEPARATOR + transition.getRadius() +
+				   FIELD_SEPARATOR + encode(transition.getIdentifier());
+		}
+
+		static Entry deserialize(final String serializedEntry) {
+			String[] fields = serializedEntry.split(FIELD_SEPARATOR_REGEX);
+
+			try {
+				if (TYPE_REFRESH.equals(fields[0]) && fields.length == 4) {
+					return new Entry(Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Long.parseLong(fields[1]));
+				}
+
+				if (TYPE_TRANSITION.equals(fields[0]) && fields.length == 7) {
+					return new Entry(new PlacesTransitionBatcher.Transition(decode(fields[6]),
+									 Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), Float.parseFloat(fields[5]),
+									 Integer.parseInt(fields[2]), Long.parseLong(fields[1])));
+				}
+			} catch (NumberFormatException e) {
+				// fall through, the entry is malformed
+			}
+
+			Log.debug(PlacesMonitorConstants.LOG_TAG, "Ignoring malformed offline queue entry " + serializedEntry);
+			return null;
+		}
+
+		private static String encode(final String value) {
+			try {
+				return URLEncoder.encode(value, ENCODING);
+			} catch (UnsupportedEncodingException e) {
+				return value;
+			}
+		}
+
+		private static String decode(final String value) {
+			try {
+				return URLDecoder.decode(value, ENCODING);
+			} catch (UnsupportedEncodingException e) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOICache.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class to hold the last known set of nearby POIs obtained from the {@link Places} extension.
+ * <p>
+ * The cached POIs are used to serve the nearby POI refreshes while the Places query service cannot be reached.
+ * The cache expires after {@link PlacesMonitorConstants.POICache#TTL_MILLISECONDS}.
+ * The nearest POIs to a location are found with a {@link PlacesPOIKdTree}, rebuilt whenever the cached POIs are replaced.
+ * <p>
+ * The POIs of the area the user is heading to, and of the areas along the route expected by the application, can be
+ * prefetched along with the POIs of the last query. A prefetched area is the circle around the query location enclosing
+ * the POIs returned for it, and a location is served from the cache without a query as long as the circle around it
+ * enclosing its nearest POIs lies within one of the prefetched areas. The area the user is heading to is replaced by each
+ * query, while the areas along the route are kept until the route is cleared.
+ */
+class PlacesPOICache {
+
+	/**
+	 * The POIs returned for a query location, and the circle known to hold no other POI.
+	 */
+	private static final class Area {
+		private final List<PlacesPOI> pois;
+		private final double latitude;
+		private final double longitude;
+		private final double radius;
+		private final long fetchedAt;
+
+		Area(final List<PlacesPOI> nearbyPOIs, final double latitude, final double longitude, final long fetchedAt) {
+			this.pois = nearbyPOIs == null ? new ArrayList<PlacesPOI>() : new ArrayList<PlacesPOI>(nearbyPOIs);
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.fetchedAt = fetchedAt;
+			double enclosingRadius = 0;
+
+			for (PlacesPOI poi : pois) {
+				enclosingRadius = Math.max(enclosingRadius, PlacesGeoMath.distance(latitude, longitude, poi));
+			}
+
+			this.radius = enclosingRadius;
+		}
+	}
+
+	private List<PlacesPOI> pois;
+	private List<PlacesPOI> queriedPOIs;
+	private Area prefetchedArea;
+	private List<Area> routeAreas;
+	private long fetchedAt;
+	private int prefetchHits;
+	private final PlacesPOIStore store;
+	private final PlacesPOIKdTree kdTree;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesPOICache() {
+		pois = new ArrayList<PlacesPOI>();
+		queriedPOIs = new ArrayList<PlacesPOI>();
+		routeAreas = new ArrayList<Area>();
+		store = new PlacesPOIStore();
+		kdTree = new PlacesPOIKdTree();
+	}
+
+	/**
+	 * Replaces the cached POIs with the given set, dropping the area the user was heading to.
+	 *
+	 * @param nearbyPOIs the {@link List} of {@link PlacesPOI}s obtained from the {@code Places} extension
+	 * @param now the time at which the POIs were obtained, in milliseconds
+	 */
+	synchronized void update(final List<PlacesPOI> nearbyPOIs, final long now) {
+		queriedPOIs = nearbyPOIs == null ? new ArrayList<PlacesPOI>() : new ArrayList<PlacesPOI>(nearbyPOIs);
+		prefetchedArea = null;
+		fetchedAt = now;
+		rebuild();
+	}
+
+	/**
+	 * Adds the POIs prefetched around a projected location to the cached POIs, replacing the previously prefetched area.
+	 *
+	 * @param nearbyPOIs the {@link List} of {@link PlacesPOI}s obtained from the {@code Places} extension for the projected location
+	 * @param latitude the latitude of the projected location
+	 * @param longitude the longitude of the projected location
+	 * @param now the time at which the POIs were obtained, in milliseconds
+	 */
+	synchronized void prefetch(final List<PlacesPOI> nearbyPOIs, final double latitude, final double longitude,
+							   final long now) {
+		prefetchedArea = new Area(nearbyPOIs, latitude, longitude, now);
+		rebuild();
+	}
+
+	/**
+	 * Adds the POIs loaded around a point of the expected route to the cached POIs.
+	 *
+	 * @param nearbyPOIs the {@link List} of {@link PlacesPOI}s obtained from the {@code Places} extension for the route point
+	 * @param latitude the latitude of the route point
+	 * @param longitude the longitude of the route point
+	 * @param now the time at which the POIs were obtained, in milliseconds
+	 */
+	synchronized void addRouteArea(final List<PlacesPOI> nearbyPOIs, final double latitude, final double longitude,
+								   final long now) {
+		routeAreas.add(new Area(nearbyPOIs, latitude, longitude, now));
+		rebuild();
+	}
+
+	/**
+	 * Drops the POIs loaded along the expected route.
+	 */
+	synchronized void clearRoute() {
+		routeAreas = new ArrayList<Area>();
+		rebuild();
+	}
+
+	/**
+	 * @return the number of areas loaded along the expected route
+	 */
+	synchronized int getRouteAreaCount() {
+		return routeAreas.size();
+	}
+
+	/**
+	 * Returns the cached POIs closest to the given location if the location lies within a prefetched area.
+	 * <p>
+	 * The POIs are returned only if no POI outside the cache can be closer to the location than the returned ones, that is
+	 * if the circle around the location enclosing the returned POIs lies within one of the prefetched areas.
+	 *
+	 * @param location the {@link Location} for which the nearby POIs are requested
+	 * @param count the maximum number of POIs to be returned
+	 * @param now the current time in milliseconds
+	 * @return a {@link List} of {@link PlacesPOI}s ordered by distance, or null if the location is not covered
+	 */
+	synchronized List<PlacesPOI> getPrefetchedPOIs(final Location location, final int count, final long now) {
+		if (location == null || count <= 0 || (prefetchedArea == null && routeAreas.isEmpty())) {
+			return null;
+		}
+
+		final int limit = Math.min(count, pois.size());
+		final int[] indices = new int[limit];
+		final double[] distances = new double[limit];
+
+		if (!findCoveredPOIs(location.getLatitude(), location.getLongitude(), count, now, indices, distances)) {
+			return null;
+		}
+
+		prefetchHits++;
+		return copyPOIs(indices, distances, limit);
+	}
+
+	/**
+	 * Verifies if the POIs closest to the given location would be served by {@link #getPrefetchedPOIs(Location, int, long)}.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param count the number of POIs to be served
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the location is covered by the prefetched areas
+	 */
+	synchronized boolean isLocationCovered(final double latitude, final double longitude, final int count, final long now) {
+		if (count <= 0 || (prefetchedArea == null && routeAreas.isEmpty())) {
+			return false;
+		}
+
+		final int limit = Math.min(count, pois.size());
+		return findCoveredPOIs(latitude, longitude, count, now, new int[limit], new double[limit]);
+	}
+
+	/**
+	 * Returns the cached POIs closest to the given location.
+	 * <p>
+	 * The returned POIs are copies whose {@link PlacesPOI#containsUser()} flag is evaluated against the given location,
+	 * since the flag reported by the server applies to the location of the original request.
+	 *
+	 * @param location the {@link Location} for which the nearby POIs are requested
+	 * @param count the maximum number of POIs to be returned
+	 * @param now the current time in milliseconds
+	 * @return a {@link List} of {@link PlacesPOI}s ordered by distance, or null if the cache is empty or expired
+	 */
+	synchronized List<PlacesPOI> getPOIs(final Location location, final int count, final long now) {
+		if (location == null || pois.isEmpty() || isExpired(now)) {
+			return null;
+		}
+
+		final int limit = Math.min(count, pois.size());
+
+		if (limit <= 0) {
+			return new ArrayList<PlacesPOI>();
+		}
+
+		final int[] indices = new int[limit];
+		final double[] distances = new double[limit];
+		final int found = kdTree.nearest(location.getLatitude(), location.getLongitude(), limit, indices, distances);
+		return copyPOIs(indices, distances, found);
+	}
+
+	/**
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the cached POIs are older than {@link PlacesMonitorConstants.POICache#TTL_MILLISECONDS}
+	 */
+	synchronized boolean isExpired(final long now) {
+		return now - fetchedAt > PlacesMonitorConstants.POICache.TTL_MILLISECONDS;
+	}
+
+	/**
+	 * @return the time at which the cached POIs were obtained, in milliseconds
+	 */
+	synchronized long getFetchedAt() {
+		return fetchedAt;
+	}
+
+	/**
+	 * @return the time at which the cached POIs expire, in milliseconds
+	 */
+	synchronized long getExpiresAt() {
+		return fetchedAt + PlacesMonitorConstants.POICache.TTL_MILLISECONDS;
+	}
+
+	synchronized int size() {
+		return pois.size();
+	}
+
+	/**
+	 * @return the number of nearby POI refreshes served from the prefetched area
+	 */
+	synchronized int getPrefetchHits() {
+		return prefetchHits;
+	}
+
+	/**
+	 * Removes all the cached POIs.
+	 */
+	synchronized void clear() {
+		pois = new ArrayList<PlacesPOI>();
+		queriedPOIs = new ArrayList<PlacesPOI>();
+		prefetchedArea = null;
+		routeAreas = new ArrayList<Area>();
+		fetchedAt = 0;
+		store.clear();
+		kdTree.build(store.getLatitudes(), store.getLongitudes(), 0);
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Finds the cached POIs closest to the location, filling as many indices and distances as the arrays hold.
+	 *
+	 * @return {@code boolean} indicating if the count closest POIs were found and the circle around the location enclosing
+	 * them lies within a prefetched area
+	 */
+	private boolean findCoveredPOIs(final double latitude, final double longitude, final int count, final long now,
+									final int[] indices, final double[] distances) {
+		final int found = kdTree.nearest(latitude, longitude, indices.length, indices, distances);
+		double farthest = 0;
+
+		for (int i = 0; i < found; i++) {
+			farthest = Math.max(farthest, distances[i]);
+		}
+
+		return found >= count && isCovered(latitude, longitude, farthest, now);
+	}
+
+	/**
+	 * @return {@code boolean} indicating if the circle of the given radius around the location lies within an unexpired
+	 * prefetched area
+	 */
+	private boolean isCovered(final double latitude, final double longitude, final double radius, final long now) {
+		final List<Area> areas = new ArrayList<Area>(routeAreas);
+
+		if (prefetchedArea != null) {
+			areas.add(prefetchedArea);
+		}
+
+		for (Area area : areas) {
+			if (now - area.fetchedAt <= PlacesMonitorConstants.POICache.TTL_MILLISECONDS
+					&& PlacesGeoMath.haversine(latitude, longitude, area.latitude, area.longitude) + radius <= area.radius) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Merges the queried and the prefetched POIs, dropping the duplicates, and rebuilds the spatial index.
+	 */
+	private void rebuild() {
+		final Set<String> identifiers = new HashSet<String>();
+		pois = new ArrayList<PlacesPOI>();
+		addPOIs(queriedPOIs, identifiers);
+
+		if (prefetchedArea != null) {
+			addPOIs(prefetchedArea.pois, identifiers);
+		}
+
+		for (Area area : routeAreas) {
+			addPOIs(area.pois, identifiers);
+		}
+
+		store.load(pois);
+		kdTree.build(store.getLatitudes(), store.getLongitudes(), store.size());
+	}
+
+	private void addPOIs(final List<PlacesPOI> areaPOIs, final Set<String> identifiers) {
+		for (PlacesPOI poi : areaPOIs) {
+			if (identifiers.add(poi.getIdentifier())) {
+				pois.add(poi);
+			}
+		}
+	}
+
+	/**
+	 * Copies the found POIs, with their {@link PlacesPOI#containsUser()} flag evaluated against their distance to the user.
+	 */
+	private List<PlacesPOI> copyPOIs(final int[] indices, final double[] distances, final int found) {
+		final List<PlacesPOI> nearbyPOIs = new ArrayList<PlacesPOI>(found);
+
+		for (int i = 0; i < found; i++) {
+			final PlacesPOI poi = pois.get(indices[i]);
+			PlacesPOI copy = new PlacesPOI(poi.getIdentifier(), poi.getName(), poi.getLatitude(), poi.getLongitude(),
+										   poi.getRadius(), poi.getLibrary(), poi.getWeight(), poi.getMetadata());
+			copy.setContainsUser(distances[i] <= poi.getRadius());
+			nearbyPOIs.add(copy);
+		}
+
+		return nearbyPOIs;
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIGridIndex.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.Arrays;
+
+/**
+ * Class to index POIs in a uniform latitude/longitude grid, in order to retrieve the candidate POIs around a location without
+ * scanning all of them.
+ * <p>
+ * Each POI is identified by a non-negative {@code int} chosen by the caller and is stored in the cell of its center. A query
+ * returns the POIs of all the cells within the search radius extended by the largest indexed POI radius, so every POI whose
+ * region may contain the queried location is returned. The caller is expected to verify the exact containment of the candidates.
+ * <p>
+ * Cells are looked up in an open addressing table keyed by their row and column, so inserts, removals and queries do not
+ * allocate once the index has grown to its working size.
+ */
+class PlacesPOIGridIndex {
+	private static final int INITIAL_TABLE_SIZE = 64;
+	private static final int INITIAL_CELL_CAPACITY = 4;
+	private static final int NO_CELL = -1;
+
+	private final double cellSizeDegrees;
+	private final int columnCount;
+
+	// open addressing table mapping the cell keys to the cell indices
+	private long[] tableKeys;
+	private int[] tableCells;
+	private int tableMask;
+
+	// cells
+	private int[][] cellItems;
+	private int[] cellSizes;
+	private int cellCount;
+
+	// items
+	private int[] itemCells;
+	private int[] itemPositions;
+	private int size;
+	private double maxRadius;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param cellSizeDegrees the size of the grid cells in degrees of latitude and longitude
+	 */
+	PlacesPOIGridIndex(final double cellSizeDegrees) {
+		this.cellSizeDegrees = cellSizeDegrees;
+		this.columnCount = (int) Math.ceil(360 / cellSizeDegrees);
+		clear();
+	}
+
+	/**
+	 * Adds a POI to the index, replacing its previous position if it was already indexed.
+	 *
+	 * @param id the non-negative identifier of the POI
+	 * @param latitude the latitude of the POI center
+	 * @param longitude the longitude of the POI center
+	 * @param radius the radius of the POI in meters
+	 */
+	void insert(final int id, final double latitude, final double longitude, final double radius) {
+		if (id < 0) {
+			return;
+		}
+
+		ensureItemCapacity(id + 1);
+
+		if (itemCells[id] != NO_CELL) {
+			remove(id);
+		}
+
+		final int cell = getOrCreateCell(row(latitude), column(longitude));
+
+		if (cellSizes[cell] == cellItems[cell].length) {
+			cellItems[cell] = Arrays.copyOf(cellItems[cell], cellItems[cell].length * 2);
+		}
+
+		itemCells[id] = cell;
+		itemPositions[id] = cellSizes[cell];
+		cellItems[cell][cellSizes[cell]++] = id;
+		size++;
+
+		if (radius > maxRadius) {
+			maxRadius = radius;
+		}
+	}
+
+	/**
+	 * Removes a POI from the index.
+	 * <p>
+	 * No action is taken if the POI is not indexed.
+	 *
+	 * @param id the identifier of the POI
+	 */
+	void remove(final int id) {
+		if (id < 0 || id >= itemCells.length || itemCells[id] == NO_CELL) {
+			return;
+		}
+
+		final int cell = itemCells[id];
+		final int position = itemPositions[id];
+		final int last = --cellSizes[cell];
+
+		// move the last item of the cell into the freed position
+		final int movedId = cellItems[cell][last];
+		cellItems[cell][position] = movedId;
+		itemPositions[movedId] = position;
+
+		itemCells[id] = NO_CELL;
+		size--;
+	}
+
+	/**
+	 * Retrieves the POIs whose region may overlap the circle of the given radius around the given location.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param searchRadius the radius in meters around the location, 0 to retrieve the POIs which may contain the location
+	 * @param results the array receiving the identifiers of the candidate POIs, at least {@link #size()} long
+	 * @return the number of candidate POIs written into the results
+	 */
+	int query(final double latitude, final double longitude, final double searchRadius, final int[] results) {
+		if (size == 0) {
+			return 0;
+		}
+
+		final double reach = searchRadius + maxRadius;
+		final double latitudeReach = reach / PlacesGeoMath.METERS_PER_DEGREE;
+
+		// the longitude reach is the widest at the latitude closest to a pole
+		final double highestLatitude = Math.min(90, Math.max(Math.abs(latitude - latitudeReach), Math.abs(latitude + latitudeReach)));
+		final double longitudeScale = Math.max(Math.cos(Math.toRadians(highestLatitude)), 1e-6);
+		final double longitudeReach = Math.min(180, reach / (PlacesGeoMath.METERS_PER_DEGREE * longitudeScale));
+
+		final int minRow = row(latitude - latitudeReach);
+		final int maxRow = row(latitude + latitudeReach);
+		final int minColumn = (int) Math.floor((longitude - longitudeReach + 180) / cellSizeDegrees);
+		final int columnSpan = Math.min(columnCount - 1, (int) Math.floor((longitude + longitudeReach + 180) / cellSizeDegrees) - minColumn);
+		int count = 0;
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int offset = 0; offset <= columnSpan; offset++) {
+				final int cell = findCell(row, wrapColumn(minColumn + offset));
+
+				if (cell == NO_CELL) {
+					continue;
+				}
+
+				final int[] items = cellItems[cell];
+				final int cellSize = cellSizes[cell];
+
+				for (int i = 0; i < cellSize && count < results.length; i++) {
+					results[count++] = items[i];
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return the number of indexed POIs
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of grid cells allocated by the index
+	 */
+	int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Removes all the indexed POIs.
+	 */
+	void clear() {
+		tableKeys = new long[INITIAL_TABLE_SIZE];
+		tableCells = new int[INITIAL_TABLE_SIZE];
+		Arrays.fill(tableCells, NO_CELL);
+		tableMask = INITIAL_TABLE_SIZE - 1;
+		cellItems = new int[INITIAL_TABLE_SIZE / 2][];
+		cellSizes = new int[INITIAL_TABLE_SIZE / 2];
+		cellCount = 0;
+		itemCells = new int[0];
+		itemPositions = new int[0];
+		size = 0;
+		maxRadius = 0;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private int row(final double latitude) {
+		return (int) Math.floor((Math.max(-90, Math.min(90, latitude)) + 90) / cellSizeDegrees);
+	}
+
+	private int column(final double longitude) {
+		return wrapColumn((int) Math.floor((longitude + 180) / cellSizeDegrees));
+	}
+
+	private int wrapColumn(final int column) {
+		final int wrapped = column % columnCount;
+		return wrapped < 0 ? wrapped + columnCount : wrapped;
+	}
+
+	private static long key(final int row, final int column) {
+		return ((long) row << 32) | (column & 0xffffffffL);
+	}
+
+	private int slot(final long key) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & tableMask;
+	}
+
+	private int findCell(final int row, final int column) {
+		final long key = key(row, column);
+
+		for (int slot = slot(key); tableCells[slot] != NO_CELL; slot = (slot + 1) & tableMask) {
+			if (tableKeys[slot] == key) {
+				return tableCells[slot];
+			}
+		}
+
+		return NO_CELL;
+	}
+
+	private int getOrCreateCell(final int row, final int column) {
+		final int existingCell = findCell(row, column);
+
+		if (existingCell != NO_CELL) {
+			return existingCell;
+		}
+
+		// keep the table at most half full
+		if ((cellCount + 1) * 2 > tableKeys.length) {
+			growTable();
+		}
+
+		if (cellCount == cellItems.length) {
+			cellItems = Arrays.copyOf(cellItems, cellItems.length * 2);
+			cellSizes = Arrays.copyOf(cellSizes, cellSizes.length * 2);
+		}
+
+		final int cell = cellCount++;
+		cellItems[cell] = new int[INITIAL_CELL_CAPACITY];
+		cellSizes[cell] = 0;
+		putCell(key(row, column), cell);
+		return cell;
+	}
+
+	private void putCell(final long key, final int cell) {
+		int slot = slot(key);
+
+		while (tableCells[slot] != NO_CELL) {
+			slot = (slot + 1) & tableMask;
+		}
+
+		tableKeys[slot] = key;
+		tableCells[slot] = cell;
+	}
+
+	private void growTable() {
+		final long[] oldKeys = tableKeys;
+		final int[] oldCells = tableCells;
+		tableKeys = new long[oldKeys.length * 2];
+		tableCells = new int[oldCells.length * 2];
+		Arrays.fill(tableCells, NO_CELL);
+		tableMask = tableKeys.length - 1;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldCells[i] != NO_CELL) {
+				putCell(oldKeys[i], oldCells[i]);
+			}
+		}
+	}
+
+	private void ensureItemCapacity(final int capacity) {
+		if (capacity <= itemCells.length) {
+			return;
+		}
+
+		final int oldLength = itemCells.length;
+		final int newLength = Math.max(capacity, oldLength * 2);
+		itemCells = Arrays.copyOf(itemCells, newLength);
+		itemPositions = Arrays.copyOf(itemPositions, newLength);
+		Arrays.fill(itemCells, oldLength, newLength, NO_CELL);
+	}
+}
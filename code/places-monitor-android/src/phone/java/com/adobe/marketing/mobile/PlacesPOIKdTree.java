@@ -0,0 +1,276 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIKdTree.java
+//
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Class to find the k nearest POIs to a location.
+ * <p>
+ * The POI centers are converted to points on the unit sphere and organized in a static three dimensional KD-tree, which is
+ * rebuilt with {@link #build(double[], double[], int)} whenever the POI set changes. The straight line distance between two
+ * points on the sphere grows with their great-circle distance, so the tree returns the same neighbours as a haversine search,
+ * including across the antimeridian.
+ * <p>
+ * The results of {@link #nearest(double, double, int, int[], double[])} are written into arrays provided by the caller, so a
+ * query does not allocate.
+ */
+class PlacesPOIKdTree {
+	private double[] xs;
+	private double[] ys;
+	private double[] zs;
+	private int[] order;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesPOIKdTree() {
+		build(new double[0], new double[0], 0);
+	}
+
+	/**
+	 * Rebuilds the tree from the given POI coordinates.
+	 * <p>
+	 * The POIs are identified by their position in the given arrays.
+	 *
+	 * @param latitudes the latitudes of the POI centers
+	 * @param longitudes the longitudes of the POI centers
+	 * @param count the number of POIs to be read from the arrays
+	 */
+	void build(final double[] latitudes, final double[] longitudes, final int count) {
+		if (xs == null || xs.length < count) {
+			xs = new double[count];
+			ys = new double[count];
+			zs = new double[count];
+			order = new int[count];
+		}
+
+		for (int i = 0; i < count; i++) {
+			final double latitude = Math.toRadians(latitudes[i]);
+			final double longitude = Math.toRadians(longitudes[i]);
+			final double cosLatitude = Math.cos(latitude);
+			xs[i] = cosLatitude * Math.cos(longitude);
+			ys[i] = cosLatitude * Math.sin(longitude);
+			zs[i] = Math.sin(latitude);
+			order[i] = i;
+		}
+
+		size = count;
+		buildRange(0, count, 0);
+	}
+
+	/**
+	 * Finds the POIs nearest to the given location.
+	 *
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param k the maximum number of POIs to be returned, bounded by the length of the result arrays
+	 * @param indices the array receiving the positions of the nearest POIs, ordered by distance
+	 * @param distances the array receiving the great-circle distances in meters of the nearest POIs
+	 * @return the number of POIs written into the result arrays
+	 */
+	int nearest(final double latitude, final double longitude, final int k, final int[] indices, final double[] distances) {
+		final int limit = Math.min(Math.min(k, size), Math.min(indices.length, distances.length));
+
+		if (limit <= 0) {
+			return 0;
+		}
+
+		final double latitudeRadians = Math.toRadians(latitude);
+		final double longitudeRadians = Math.toRadians(longitude);
+		final double cosLatitude = Math.cos(latitudeRadians);
+		final double x = cosLatitude * Math.cos(longitudeRadians);
+		final double y = cosLatitude * Math.sin(longitudeRadians);
+		final double z = Math.sin(latitudeRadians);
+
+		// the result arrays hold a max-heap of squared chord lengths during the search
+		final int found = search(0, size, 0, x, y, z, limit, indices, distances, 0);
+
+		// sort the heap in ascending order of distance
+		for (int end = found - 1; end > 0; end--) {
+			swap(indices, distances, 0, end);
+			siftDown(indices, distances, 0, end);
+		}
+
+		for (int i = 0; i < found; i++) {
+			distances[i] = 2 * PlacesGeoMath.EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(distances[i]) / 2));
+		}
+
+		return found;
+	}
+
+	/**
+	 * @return the number of POIs in the tree
+	 */
+	int size() {
+		return size;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Arranges the POIs of the given range so that the median on the splitting axis sits in the middle, with the closer POIs
+	 * on its left and the farther ones on its right, and recurses on both halves.
+	 */
+	private void buildRange(final int from, final int to, final int depth) {
+		if (to - from <= 1) {
+			return;
+		}
+
+		final int axis = depth % 3;
+		final int middle = (from + to) >>> 1;
+		int left = from;
+		int right = to - 1;
+
+		// quickselect the median of the range on the splitting axis
+		while (left < right) {
+			final double pivot = coordinate(order[(left + right) >>> 1], axis);
+			int i = left;
+			int j = right;
+
+			while (i <= j) {
+				while (coordinate(order[i], axis) < pivot) {
+					i++;
+				}
+
+				while (coordinate(order[j], axis) > pivot) {
+					j--;
+				}
+
+				if (i <= j) {
+					final int swap = order[i];
+					order[i] = order[j];
+					order[j] = swap;
+					i++;
+					j--;
+				}
+			}
+
+			if (middle <= j) {
+				right = j;
+			} else if (middle >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+
+		buildRange(from, middle, depth + 1);
+		buildRange(middle + 1, to, depth + 1);
+	}
+
+	private int search(final int from, final int to, final int depth, final double x, final double y, final double z,
+					   final int limit, final int[] indices, final double[] distances, final int found) {
+		if (from >= to) {
+			return found;
+		}
+
+		final int axis = depth % 3;
+		final int middle = (from + to) >>> 1;
+		final int node = order[middle];
+		int count = offer(node, squaredChord(node, x, y, z), limit, indices, distances, found);
+
+		final double delta = (axis == 0 ? x : axis == 1 ? y : z) - coordinate(node, axis);
+		final boolean nearLeft = delta < 0;
+		count = nearLeft
+				? search(from, middle, depth + 1, x, y, z, limit, indices, distances, count)
+				: search(middle + 1, to, depth + 1, x, y, z, limit, indices, distances, count);
+
+		// visit the far side only if it may hold a closer POI than the farthest one found
+		if (count < limit || delta * delta < distances[0]) {
+			count = nearLeft
+					? search(middle + 1, to, depth + 1, x, y, z, limit, indices, distances, count)
+					: search(from, middle, depth + 1, x, y, z, limit, indices, distances, count);
+		}
+
+		return count;
+	}
+
+	private static int offer(final int node, final double squaredChord, final int limit, final int[] indices,
+							 final double[] distances, final int found) {
+		if (found < limit) {
+			// append and sift up
+			int child = found;
+			indices[child] = node;
+			distances[child] = squaredChord;
+
+			while (child > 0) {
+				final int parent = (child - 1) / 2;
+
+				if (distances[parent] >= distances[child]) {
+					break;
+				}
+
+				swap(indices, distances, parent, child);
+				child = parent;
+			}
+
+			return found + 1;
+		}
+
+		if (squaredChord < distances[0]) {
+			// replace the farthest POI found so far
+			indices[0] = node;
+			distances[0] = squaredChord;
+			siftDown(indices, distances, 0, found);
+		}
+
+		return found;
+	}
+
+	private static void siftDown(final int[] indices, final double[] distances, final int start, final int end) {
+		int parent = start;
+
+		while (true) {
+			final int left = 2 * parent + 1;
+
+			if (left >= end) {
+				return;
+			}
+
+			final int right = left + 1;
+			final int largest = right < end && distances[right] > distances[left] ? right : left;
+
+			if (distances[parent] >= distances[largest]) {
+				return;
+			}
+
+			swap(indices, distances, parent, largest);
+			parent = largest;
+		}
+	}
+
+	private static void swap(final int[] indices, final double[] distances, final int first, final int second) {
+		final int index = indices[first];
+		indices[first] = indices[second];
+		indices[second] = index;
+		final double distance = distances[first];
+		distances[first] = distances[second];
+		distances[second] = distance;
+	}
+
+	private double squaredChord(final int node, final double x, final double y, final double z) {
+		final double dx = xs[node] - x;
+		final double dy = ys[node] - y;
+		final double dz = zs[node] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private double coordinate(final int node, final int axis) {
+		return axis == 0 ? xs[node] : axis == 1 ? ys[node] : zs[node];
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIPredictor.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.location.Location;
+
+/**
+ * Class to predict the area the user is heading to, from the bearing and the speed of a location.
+ * <p>
+ * The location is projected along its bearing by the distance covered at its speed within
+ * {@link PlacesMonitorConstants.Prefetch#PREDICTION_HORIZON_SECONDS}, bounded by
+ * {@link PlacesMonitorConstants.Prefetch#MAX_PROJECTION_DISTANCE}. No prediction is made for a user slower than
+ * {@link PlacesMonitorConstants.Prefetch#MIN_SPEED}, since the nearby POIs already cover the area the user can reach.
+ * A new prediction is made at most once every {@link PlacesMonitorConstants.Prefetch#MIN_PREFETCH_INTERVAL}, and only if it
+ * is farther than {@link PlacesMonitorConstants.Prefetch#MIN_PREFETCH_SEPARATION} from the last prefetched location.
+ */
+class PlacesPOIPredictor {
+	private boolean hasPrefetched;
+	private double prefetchLatitude;
+	private double prefetchLongitude;
+	private long prefetchedAt;
+
+	/**
+	 * Projects the given location to the location the user is expected to reach.
+	 *
+	 * @param location the current {@link Location} of the user
+	 * @param now the current time in milliseconds
+	 * @return the latitude and longitude of the projected location, or null if no prefetch is needed
+	 */
+	synchronized double[] predict(final Location location, final long now) {
+		if (location == null || !location.hasBearing() || !location.hasSpeed()
+				|| location.getSpeed() < PlacesMonitorConstants.Prefetch.MIN_SPEED) {
+			return null;
+		}
+
+		if (hasPrefetched && now - prefetchedAt < PlacesMonitorConstants.Prefetch.MIN_PREFETCH_INTERVAL) {
+			return null;
+		}
+
+		final double distance = Math.min(location.getSpeed() * PlacesMonitorConstants.Prefetch.PREDICTION_HORIZON_SECONDS,
+										 PlacesMonitorConstants.Prefetch.MAX_PROJECTION_DISTANCE);
+		final double[] projected = PlacesGeoMath.project(location.getLatitude(), location.getLongitude(), location.getBearing(),
+								   distance);
+
+		if (hasPrefetched && PlacesGeoMath.haversine(projected[0], projected[1], prefetchLatitude,
+				prefetchLongitude) < PlacesMonitorConstants.Prefetch.MIN_PREFETCH_SEPARATION) {
+			return null;
+		}
+
+		return projected;
+	}
+
+	/**
+	 * Records the location for which nearby POIs were prefetched.
+	 *
+	 * @param latitude the latitude of the prefetched location
+	 * @param longitude the longitude of the prefetched location
+	 * @param now the current time in milliseconds
+	 */
+	synchronized void recordPrefetch(final double latitude, final double longitude, final long now) {
+		hasPrefetched = true;
+		prefetchLatitude = latitude;
+		prefetchLongitude = longitude;
+		prefetchedAt = now;
+	}
+
+	/**
+	 * Forgets the last prefetched location.
+	 */
+	synchronized void clear() {
+		hasPrefetched = false;
+		prefetchLatitude = 0;
+		prefetchLongitude = 0;
+		prefetchedAt = 0;
+	}
+}
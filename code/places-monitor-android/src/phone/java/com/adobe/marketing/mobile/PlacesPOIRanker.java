@@ -0,0 +1,191 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIRanker.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Class to rank the nearby POIs competing for the limited geofence slots.
+ * <p>
+ * Each POI is scored as the weighted sum of four components between 0 and 1:
+ * <ul>
+ *     <li> distance, decaying with the distance between the user and the boundary of the POI, or following the order of the
+ *     POIs returned by the {@link Places} extension, nearest first, if the location of the user is unknown </li>
+ *     <li> priority, set with the {@link PlacesMonitorConstants.POIRanking#PRIORITY_METADATA_KEY} metadata, or otherwise the
+ *     weight of the POI relative to the highest weight among the candidates </li>
+ *     <li> business value, set with the {@link PlacesMonitorConstants.POIRanking#VALUE_METADATA_KEY} metadata </li>
+ *     <li> entry probability, 1 for a POI the user is within or entering, since its exit has to be reported, and otherwise
+ *     growing with the number of recorded visits </li>
+ * </ul>
+ * The score of each POI of the last ranking is retained along with its components, to explain the allocation of the slots.
+ */
+class PlacesPOIRanker {
+
+	/**
+	 * The score of a POI, with the components it was computed from.
+	 */
+	static final class Score {
+		private final String identifier;
+		private final double distance;
+		private final double priority;
+		private final double value;
+		private final double entryProbability;
+		private final double total;
+
+		Score(final String identifier, final double distance, final double priority, final double value,
+			  final double entryProbability) {
+			this.identifier = identifier;
+			this.distance = distance;
+			this.priority = priority;
+			this.value = value;
+			this.entryProbability = entryProbability;
+			this.total = PlacesMonitorConstants.POIRanking.DISTANCE_WEIGHT * distance
+						 + PlacesMonitorConstants.POIRanking.PRIORITY_WEIGHT * priority
+						 + PlacesMonitorConstants.POIRanking.VALUE_WEIGHT * value
+						 + PlacesMonitorConstants.POIRanking.ENTRY_WEIGHT * entryProbability;
+		}
+
+		String getIdentifier() {
+			return identifier;
+		}
+
+		double getDistance() {
+			return distance;
+		}
+
+		double getPriority() {
+			return priority;
+		}
+
+		double getValue() {
+			return value;
+		}
+
+		double getEntryProbability() {
+			return entryProbability;
+		}
+
+		double getTotal() {
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%s score %.3f (distance %.2f, priority %.2f, value %.2f, entry %.2f)", identifier,
+								 total, distance, priority, value, entryProbability);
+		}
+	}
+
+	private Map<String, Score> scores;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesPOIRanker() {
+		scores = new HashMap<String, Score>();
+	}
+
+	/**
+	 * Orders the given POIs by decreasing score, retaining their order for equal scores.
+	 *
+	 * @param pois the {@link List} of nearby {@link PlacesPOI}s, the nearest first
+	 * @param hasLocation {@code boolean} indicating if the location of the user is known
+	 * @param latitude the latitude of the user, ignored if the location is unknown
+	 * @param longitude the longitude of the user, ignored if the location is unknown
+	 * @param poiStates the {@link PlacesPOIStateTable} recording the transitions of the nearby POIs
+	 * @return a new {@code List} of the ordered {@code PlacesPOI}s
+	 */
+	synchronized List<PlacesPOI> rank(final List<PlacesPOI> pois, final boolean hasLocation, final double latitude,
+									  final double longitude, final PlacesPOIStateTable poiStates) {
+		final Map<String, Score> newScores = new HashMap<String, Score>();
+		int maxWeight = 0;
+
+		for (PlacesPOI poi : pois) {
+			maxWeight = Math.max(maxWeight, poi.getWeight());
+		}
+
+		for (int i = 0; i < pois.size(); i++) {
+			final PlacesPOI poi = pois.get(i);
+			final double distance = hasLocation ? getDistanceScore(poi, latitude, longitude) : 1 - (double) i / pois.size();
+			final Score score = new Score(poi.getIdentifier(), distance, getPriorityScore(poi, maxWeight), getValueScore(poi),
+										  getEntryScore(poi, poiStates));
+			newScores.put(poi.getIdentifier(), score);
+			Log.trace(PlacesMonitorConstants.LOG_TAG, "Ranking POI " + score);
+		}
+
+		final List<PlacesPOI> rankedPOIs = new ArrayList<PlacesPOI>(pois);
+		Collections.sort(rankedPOIs, new Comparator<PlacesPOI>() {
+			@Override
+			public int compare(final PlacesPOI first, final PlacesPOI second) {
+				return Double.compare(newScores.get(second.getIdentifier()).getTotal(),
+									  newScores.get(first.getIdentifier()).getTotal());
+			}
+		});
+		scores = newScores;
+		return rankedPOIs;
+	}
+
+	/**
+	 * @param identifier the identifier of a POI
+	 * @return the {@link Score} of the POI in the last ranking, null if it was not ranked
+	 */
+	synchronized Score getScore(final String identifier) {
+		return scores.get(identifier);
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private static double getDistanceScore(final PlacesPOI poi, final double latitude, final double longitude) {
+		final double boundaryDistance = Math.max(0, PlacesGeoMath.distance(latitude, longitude, poi) - poi.getRadius());
+		return 1 / (1 + boundaryDistance / PlacesMonitorConstants.POIRanking.DISTANCE_SCALE);
+	}
+
+	private static double getPriorityScore(final PlacesPOI poi, final int maxWeight) {
+		final Integer priority = PlacesGeofencePolicy.getMetadataInteger(poi,
+								 PlacesMonitorConstants.POIRanking.PRIORITY_METADATA_KEY);
+
+		if (priority != null) {
+			return Math.min(priority, PlacesMonitorConstants.POIRanking.MAX_METADATA_SCORE)
+				   / (double) PlacesMonitorConstants.POIRanking.MAX_METADATA_SCORE;
+		}
+
+		return maxWeight > 0 ? Math.max(0, poi.getWeight()) / (double) maxWeight : 0;
+	}
+
+	private static double getValueScore(final PlacesPOI poi) {
+		final Integer value = PlacesGeofencePolicy.getMetadataInteger(poi, PlacesMonitorConstants.POIRanking.VALUE_METADATA_KEY);
+		return value == null ? 0 : Math.min(value, PlacesMonitorConstants.POIRanking.MAX_METADATA_SCORE)
+			   / (double) PlacesMonitorConstants.POIRanking.MAX_METADATA_SCORE;
+	}
+
+	private static double getEntryScore(final PlacesPOI poi, final PlacesPOIStateTable poiStates) {
+		if (poi.containsUser() || poiStates.getState(poi.getIdentifier()) != PlacesPOIStateTable.State.OUTSIDE) {
+			return 1;
+		}
+
+		// each visit records an entry and an exit
+		final double visits = (poiStates.getSequence(poi.getIdentifier()) + 1) / 2;
+		return visits / (visits + PlacesMonitorConstants.POIRanking.VISIT_SATURATION);
+	}
+}
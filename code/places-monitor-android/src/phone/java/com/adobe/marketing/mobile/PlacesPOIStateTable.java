@@ -0,0 +1,386 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIStateTable.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class to record the transition state of each nearby POI.
+ * <p>
+ * Each POI moves between {@link State#OUTSIDE} and {@link State#INSIDE}, through {@link State#ENTERING} or
+ * {@link State#EXITING} while its transition is held by the {@link PlacesTransitionFilter}. An entry is recorded only for a POI
+ * the user is not already within and an exit only for a POI the user is within, so a repeated OS trigger or a transition
+ * found by both monitoring tiers is emitted once. Each recorded transition increments the sequence number of the POI.
+ * <p>
+ * The table is serialized as one compact string, so that the recorded states survive the restarts of the application.
+ * The held transitions do not survive them, so a POI persisted while entering is restored outside and a POI persisted while
+ * exiting is restored inside.
+ */
+class PlacesPOIStateTable {
+	private static final String ENTRY_SEPARATOR = "\n";
+	private static final String FIELD_SEPARATOR = "|";
+	private static final String FIELD_SEPARATOR_REGEX = "\\|";
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * The transition state of a POI.
+	 */
+	enum State {
+		OUTSIDE('O'),
+		ENTERING('N'),
+		INSIDE('I'),
+		EXITING('X');
+
+		private final char code;
+
+		State(final char code) {
+			this.code = code;
+		}
+
+		static State fromCode(final char code) {
+			for (State state : values()) {
+				if (state.code == code) {
+					return state;
+				}
+			}
+
+			return null;
+		}
+	}
+
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesPOIStateTable() {
+		entries = new LinkedHashMap<String, Entry>();
+	}
+
+	/**
+	 * Records the entry of the user in a POI.
+	 * <p>
+	 * If the user is already within the POI, only its last confirmation time is updated.
+	 *
+	 * @param identifier the identifier of the POI
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the entry is a new transition to be emitted
+	 */
+	synchronized boolean recordEntry(final String identifier, final long now) {
+		final Entry entry = getOrCreate(identifier);
+		entry.lastConfirmedAt = now;
+
+		if (entry.isInside()) {
+			return false;
+		}
+
+		entry.state = State.INSIDE;
+		entry.enteredAt = now;
+		entry.sequence++;
+		return true;
+	}
+
+	/**
+	 * Records the exit of the user from a POI.
+	 *
+	 * @param identifier the identifier of the POI
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the exit is a new transition to be emitted, false if the user was not within the POI
+	 */
+	synchronized boolean recordExit(final String identifier, final long now) {
+		final Entry entry = entries.get(identifier);
+
+		if (entry == null || !entry.isInside()) {
+			return false;
+		}
+
+		entry.state = State.OUTSIDE;
+		entry.enteredAt = 0;
+		entry.lastConfirmedAt = now;
+		entry.sequence++;
+		return true;
+	}
+
+	/**
+	 * Records that the user is still within a POI, without a transition.
+	 *
+	 * @param identifier the identifier of the POI
+	 * @param now the current time in milliseconds
+	 */
+	synchronized void confirm(final String identifier, final long now) {
+		final Entry entry = entries.get(identifier);
+
+		if (entry != null && entry.isInside()) {
+			entry.lastConfirmedAt = now;
+		}
+	}
+
+	/**
+	 * Marks the transition of a POI as held by the {@link PlacesTransitionFilter}.
+	 *
+	 * @param identifier the identifier of the POI
+	 * @param entering {@code boolean} indicating if the held transition is an entry, false for an exit
+	 */
+	synchronized void markPending(final String identifier, final boolean entering) {
+		if (entering) {
+			final Entry entry = getOrCreate(identifier);
+
+			if (entry.state == State.OUTSIDE) {
+				entry.state = State.ENTERING;
+			}
+		} else {
+			final Entry entry = entries.get(identifier);
+
+			if (entry != null && entry.state == State.INSIDE) {
+				entry.state = State.EXITING;
+			}
+		}
+	}
+
+	/**
+	 * Reverts a POI to its previous state after its held transition was dropped.
+	 *
+	 * @param identifier the identifier of the POI
+	 */
+	synchronized void cancelPending(final String identifier) {
+		final Entry entry = entries.get(identifier);
+
+		if (entry != null) {
+			entry.state = entry.settledState();
+		}
+	}
+
+	/**
+	 * @param identifier the identifier of the POI
+	 * @return {@code boolean} indicating if the user is within the POI, including while its exit is held
+	 */
+	synchronized boolean isInside(final String identifier) {
+		final Entry entry = entries.get(identifier);
+		return entry != null && entry.isInside();
+	}
+
+	/**
+	 * @param identifier the identifier of the POI
+	 * @return the {@link State} of the POI, {@link State#OUTSIDE} if it is not recorded
+	 */
+	synchronized State getState(final String identifier) {
+		final Entry entry = entries.get(identifier);
+		return entry == null ? State.OUTSIDE : entry.state;
+	}
+
+	/**
+	 * @param identifier the identifier of the POI
+	 * @return the time in milliseconds at which the user entered the POI, 0 if the user is outside or the time is unknown
+	 */
+	synchronized long getEnteredAt(final String identifier) {
+		final Entry entry = entries.get(identifier);
+		return entry == null ? 0 : entry.enteredAt;
+	}
+
+	/**
+	 * @param identifier the identifier of the POI
+	 * @return the time in milliseconds at which the state of the POI was last confirmed, 0 if unknown
+	 */
+	synchronized long getLastConfirmedAt(final String identifier) {
+		final Entry entry = entries.get(identifier);
+		return entry == null ? 0 : entry.lastConfirmedAt;
+	}
+
+	/**
+	 * @param identifier the identifier of the POI
+	 * @return the number of transitions recorded for the POI
+	 */
+	synchronized long getSequence(final String identifier) {
+		final Entry entry = entries.get(identifier);
+		return entry == null ? 0 : entry.sequence;
+	}
+
+	/**
+	 * @return a new {@link Set} of the identifiers of the POIs the user is within, including those whose exit is held
+	 */
+	synchronized Set<String> getInsideIdentifiers() {
+		final Set<String> identifiers = new HashSet<String>();
+
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			if (entry.getValue().isInside()) {
+				identifiers.add(entry.getKey());
+			}
+		}
+
+		return identifiers;
+	}
+
+	/**
+	 * Drops the records of the POIs which are not in the given collection.
+	 *
+	 * @param identifiers the identifiers of the POIs to be kept
+	 */
+	synchronized void retain(final Collection<String> identifiers) {
+		for (Iterator<String> iterator = entries.keySet().iterator(); iterator.hasNext();) {
+			if (!identifiers.contains(iterator.next())) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops all the records.
+	 */
+	synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of recorded POIs
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Serializes the table, one line per POI holding its encoded identifier, state code, entry time, last confirmation time
+	 * and sequence number.
+	 *
+	 * @return the serialized table, an empty string if no POI is recorded
+	 */
+	synchronized String serialize() {
+		final StringBuilder builder = new StringBuilder();
+
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			if (builder.length() > 0) {
+				builder.append(ENTRY_SEPARATOR);
+			}
+
+			final Entry value = entry.getValue();
+			builder.append(encode(entry.getKey())).append(FIELD_SEPARATOR).append(value.state.code)
+			.append(FIELD_SEPARATOR).append(value.enteredAt).append(FIELD_SEPARATOR).append(value.lastConfirmedAt)
+			.append(FIELD_SEPARATOR).append(value.sequence);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Replaces the records with the ones of a serialized table.
+	 * <p>
+	 * The held transitions are not restored and the malformed lines are ignored.
+	 *
+	 * @param serializedTable a table serialized by {@link #serialize()}, may be null
+	 */
+	synchronized void deserialize(final String serializedTable) {
+		entries.clear();
+
+		if (serializedTable == null || serializedTable.isEmpty()) {
+			return;
+		}
+
+		for (String serializedEntry : serializedTable.split(ENTRY_SEPARATOR)) {
+			final String[] fields = serializedEntry.split(FIELD_SEPARATOR_REGEX);
+			final State state = fields.length == 5 && fields[1].length() == 1 ? State.fromCode(fields[1].charAt(0)) : null;
+
+			if (state == null) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Ignoring malformed POI state " + serializedEntry);
+				continue;
+			}
+
+			try {
+				final Entry entry = new Entry();
+				entry.state = state;
+				entry.enteredAt = Long.parseLong(fields[2]);
+				entry.lastConfirmedAt = Long.parseLong(fields[3]);
+				entry.sequence = Long.parseLong(fields[4]);
+				entry.state = entry.settledState();
+				entries.put(decode(fields[0]), entry);
+			} catch (NumberFormatException e) {
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Ignoring malformed POI state " + serializedEntry);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the records with the POIs of the legacy persisted set of regions the user is within.
+	 *
+	 * @param identifiers a {@link Set} of identifiers of the POIs the user is within, may be null
+	 */
+	synchronized void loadInsideIdentifiers(final Set<String> identifiers) {
+		entries.clear();
+
+		if (identifiers == null) {
+			return;
+		}
+
+		for (String identifier : identifiers) {
+			getOrCreate(identifier).state = State.INSIDE;
+		}
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private Entry getOrCreate(final String identifier) {
+		Entry entry = entries.get(identifier);
+
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(identifier, entry);
+		}
+
+		return entry;
+	}
+
+	private static String encode(final String value) {
+		try {
+			return URLEncoder.encode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return value;
+		}
+	}
+
+	private static String decode(final String value) {
+		try {
+			return URLDecoder.decode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return value;
+		}
+	}
+
+	/**
+	 * The recorded state of one POI.
+	 */
+	private static final class Entry {
+		private State state = State.OUTSIDE;
+		private long enteredAt;
+		private long lastConfirmedAt;
+		private long sequence;
+
+		private boolean isInside() {
+			return state == State.INSIDE || state == State.EXITING;
+		}
+
+		private State settledState() {
+			return isInside() ? State.INSIDE : State.OUTSIDE;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIStore.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to hold the geometry of a set of POIs in parallel primitive arrays.
+ * <p>
+ * The POI at position {@code i} is described by the {@code i}-th entry of each array. The identifiers are interned in a table
+ * and each POI refers to its identifier by an {@code int} index, so POIs sharing an identifier share a single entry.
+ * Compared to a {@link List} of {@link PlacesPOI}, the store does not retain the names, metadata or boxed fields of the POIs,
+ * and the distance and containment loops read contiguous memory.
+ * <p>
+ * The backing arrays may be larger than {@link #size()}; only their first {@code size()} entries are valid.
+ */
+class PlacesPOIStore {
+
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[] longitudeScales;
+	private float[] radii;
+	private int[] priorities;
+	private int[] identifierIndices;
+	private int size;
+
+	private String[] identifiers;
+	private int identifierCount;
+	private final Map<String, Integer> identifierTable;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesPOIStore() {
+		identifierTable = new HashMap<String, Integer>();
+		allocate(0);
+	}
+
+	/**
+	 * Replaces the content of the store with the given POIs, in the order they are provided.
+	 * <p>
+	 * The backing arrays are reused if they are large enough.
+	 *
+	 * @param pois the {@link List} of {@link PlacesPOI}s to be loaded, null to empty the store
+	 */
+	void load(final List<PlacesPOI> pois) {
+		final int count = pois == null ? 0 : pois.size();
+
+		if (count > latitudes.length) {
+			allocate(count);
+		}
+
+		Arrays.fill(identifiers, 0, identifierCount, null);
+		identifierCount = 0;
+		identifierTable.clear();
+
+		for (int i = 0; i < count; i++) {
+			final PlacesPOI poi = pois.get(i);
+			latitudes[i] = poi.getLatitude();
+			longitudes[i] = poi.getLongitude();
+			longitudeScales[i] = PlacesGeoMath.longitudeScale(poi.getLatitude());
+			radii[i] = poi.getRadius();
+			priorities[i] = poi.getWeight();
+			identifierIndices[i] = intern(poi.getIdentifier());
+		}
+
+		size = count;
+	}
+
+	/**
+	 * @return the number of POIs in the store
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct identifiers in the store
+	 */
+	int getIdentifierCount() {
+		return identifierCount;
+	}
+
+	double getLatitude(final int index) {
+		return latitudes[index];
+	}
+
+	double getLongitude(final int index) {
+		return longitudes[index];
+	}
+
+	/**
+	 * @param index the position of the POI
+	 * @return the cosine of the latitude of the POI, scaling the longitude differences to distances
+	 */
+	double getLongitudeScale(final int index) {
+		return longitudeScales[index];
+	}
+
+	float getRadius(final int index) {
+		return radii[index];
+	}
+
+	/**
+	 * @param index the position of the POI
+	 * @return the priority of the POI, as provided by {@link PlacesPOI#getWeight()}
+	 */
+	int getPriority(final int index) {
+		return priorities[index];
+	}
+
+	String getIdentifier(final int index) {
+		return identifiers[identifierIndices[index]];
+	}
+
+	/**
+	 * @param index the position of the POI
+	 * @return the index of the POI identifier in the interned identifier table
+	 */
+	int getIdentifierIndex(final int index) {
+		return identifierIndices[index];
+	}
+
+	/**
+	 * @param identifier the identifier of a POI
+	 * @return the index of the given identifier in the interned identifier table, -1 if no POI of the store has this identifier
+	 */
+	int findIdentifierIndex(final String identifier) {
+		final Integer index = identifierTable.get(identifier);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the backing array of the POI latitudes
+	 */
+	double[] getLatitudes() {
+		return latitudes;
+	}
+
+	/**
+	 * @return the backing array of the POI longitudes
+	 */
+	double[] getLongitudes() {
+		return longitudes;
+	}
+
+	/**
+	 * Removes all the POIs and releases the backing arrays.
+	 */
+	void clear() {
+		identifierTable.clear();
+		allocate(0);
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private int intern(final String identifier) {
+		final Integer existingIndex = identifierTable.get(identifier);
+
+		if (existingIndex != null) {
+			return existingIndex;
+		}
+
+		final int index = identifierCount++;
+		identifiers[index] = identifier;
+		identifierTable.put(identifier, index);
+		return index;
+	}
+
+	private void allocate(final int capacity) {
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		longitudeScales = new double[capacity];
+		radii = new float[capacity];
+		priorities = new int[capacity];
+		identifierIndices = new int[capacity];
+		identifiers = new String[capacity];
+		identifierCount = 0;
+		size = 0;
+	}
+}
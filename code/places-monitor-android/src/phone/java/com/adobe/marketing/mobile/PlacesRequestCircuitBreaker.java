@@ -0,0 +1,207 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesRequestCircuitBreaker.java
+//
+
+package com.adobe.marketing.mobile;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class to throttle the nearby POI requests while the Places query service is failing.
+ * <p>
+ * A circuit is maintained for each class of {@link PlacesRequestError}. Every failure backs the requests off with a jittered
+ * exponential delay, starting from {@link PlacesMonitorConstants.RequestRetry#BASE_BACKOFF_MILLISECONDS} and capped at
+ * {@link PlacesMonitorConstants.RequestRetry#MAX_BACKOFF_MILLISECONDS}.
+ * After {@link PlacesMonitorConstants.RequestRetry#FAILURE_THRESHOLD} consecutive failures the circuit opens, and once the
+ * backoff delay has elapsed a single trial request is allowed in the half open state. A failed trial opens the circuit again with
+ * a longer delay, while a successful request closes all the circuits.
+ */
+class PlacesRequestCircuitBreaker {
+
+	enum State {
+		CLOSED,
+		HALF_OPEN,
+		OPEN
+	}
+
+	private final Map<PlacesRequestError, Circuit> circuits;
+	private final Random random;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesRequestCircuitBreaker() {
+		this(new Random());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param random the {@link Random} instance used to jitter the backoff delays
+	 */
+	PlacesRequestCircuitBreaker(final Random random) {
+		this.circuits = new EnumMap<PlacesRequestError, Circuit>(PlacesRequestError.class);
+		this.random = random;
+	}
+
+	/**
+	 * Verifies if a nearby POI request can be made at the given time.
+	 * <p>
+	 * An open circuit whose backoff delay has elapsed moves to the half open state and permits one trial request.
+	 * Further requests are held back for {@link PlacesMonitorConstants.RequestRetry#BASE_BACKOFF_MILLISECONDS} while the trial is in flight.
+	 *
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the request is allowed
+	 */
+	synchronized boolean allowRequest(final long now) {
+		for (Map.Entry<PlacesRequestError, Circuit> entry : circuits.entrySet()) {
+			final Circuit circuit = entry.getValue();
+
+			if (now < circuit.retryAt) {
+				return false;
+			}
+		}
+
+		for (Map.Entry<PlacesRequestError, Circuit> entry : circuits.entrySet()) {
+			final Circuit circuit = entry.getValue();
+
+			if (circuit.state == State.CLOSED) {
+				continue;
+			}
+
+			if (circuit.state == State.OPEN) {
+				circuit.state = State.HALF_OPEN;
+				Log.debug(PlacesMonitorConstants.LOG_TAG,
+						  "Circuit for " + entry.getKey() + " is half open, allowing a trial nearby POI request");
+			}
+
+			// hold back further requests while the trial request is in flight
+			circuit.retryAt = now + PlacesMonitorConstants.RequestRetry.BASE_BACKOFF_MILLISECONDS;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Records a successful nearby POI request, closing all the circuits.
+	 */
+	synchronized void recordSuccess() {
+		if (circuits.isEmpty()) {
+			return;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG, "Nearby POI request succeeded, closing all the circuits");
+		circuits.clear();
+	}
+
+	/**
+	 * Records a failed nearby POI request and computes the delay after which it may be retried.
+	 *
+	 * @param error the {@link PlacesRequestError} of the failed request
+	 * @param now the current time in milliseconds
+	 * @return the backoff delay in milliseconds
+	 */
+	synchronized long recordFailure(final PlacesRequestError error, final long now) {
+		Circuit circuit = circuits.get(error);
+
+		if (circuit == null) {
+			circuit = new Circuit();
+			circuits.put(error, circuit);
+		}
+
+		circuit.consecutiveFailures++;
+		final long delay = getBackoffDelay(circuit.consecutiveFailures);
+		circuit.retryAt = now + delay;
+
+		if (circuit.state == State.HALF_OPEN
+				|| circuit.consecutiveFailures >= PlacesMonitorConstants.RequestRetry.FAILURE_THRESHOLD) {
+			if (circuit.state != State.OPEN) {
+				Log.warning(PlacesMonitorConstants.LOG_TAG,
+							"Circuit for " + error + " is open after " + circuit.consecutiveFailures + " consecutive failures");
+			}
+
+			circuit.state = State.OPEN;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "Nearby POI request failed with " + error + ", backing off for " + delay + " milliseconds");
+		return delay;
+	}
+
+	/**
+	 * Returns the most restrictive state across all the circuits.
+	 *
+	 * @return {@link State#OPEN} if any circuit is open, {@link State#HALF_OPEN} if any circuit is half open, else {@link State#CLOSED}
+	 */
+	synchronized State getState() {
+		State state = State.CLOSED;
+
+		for (Circuit circuit : circuits.values()) {
+			if (circuit.state.ordinal() > state.ordinal()) {
+				state = circuit.state;
+			}
+		}
+
+		return state;
+	}
+
+	/**
+	 * @param error the {@link PlacesRequestError} identifying the circuit
+	 * @return the {@link State} of the circuit for the given error class
+	 */
+	synchronized State getState(final PlacesRequestError error) {
+		final Circuit circuit = circuits.get(error);
+		return circuit == null ? State.CLOSED : circuit.state;
+	}
+
+	/**
+	 * @param error the {@link PlacesRequestError} identifying the circuit
+	 * @return the number of consecutive failures recorded for the given error class
+	 */
+	synchronized int getConsecutiveFailures(final PlacesRequestError error) {
+		final Circuit circuit = circuits.get(error);
+		return circuit == null ? 0 : circuit.consecutiveFailures;
+	}
+
+	/**
+	 * Removes all the recorded failures, closing all the circuits.
+	 */
+	synchronized void reset() {
+		circuits.clear();
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Computes the exponential backoff delay for the given number of consecutive failures, with equal jitter applied so that
+	 * the retries of many devices failing at the same time are spread out.
+	 */
+	private long getBackoffDelay(final int consecutiveFailures) {
+		final int exponent = Math.min(consecutiveFailures - 1, 30);
+		final long delay = Math.min(PlacesMonitorConstants.RequestRetry.MAX_BACKOFF_MILLISECONDS,
+									PlacesMonitorConstants.RequestRetry.BASE_BACKOFF_MILLISECONDS << exponent);
+		final long halfDelay = delay / 2;
+		return halfDelay + (long) (random.nextDouble() * (delay - halfDelay));
+	}
+
+	private static final class Circuit {
+		private State state = State.CLOSED;
+		private int consecutiveFailures;
+		private long retryAt;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesRouteTracker.java
+//
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Class to follow the progress of the user along the route expected by the application.
+ * <p>
+ * The route is a polyline of waypoints. The POIs along the route are loaded with bulk queries centered on the points of
+ * the route returned by {@link #getPointAt(double)}. The location of the user is matched to the closest point
+ * of the route within {@link PlacesMonitorConstants.Route#CORRIDOR_WIDTH}, and the monitored geofences are swapped each
+ * time the user progresses by {@link PlacesMonitorConstants.Route#FENCE_SWAP_DISTANCE} along the route. A swap is recorded
+ * with {@link #advance(double, double)} once the nearby POIs have been refreshed, so that a failed refresh stays due.
+ */
+class PlacesRouteTracker {
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[] cumulativeDistances;
+	private double lastSwapProgress;
+	private boolean hasSwapped;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesRouteTracker() {
+		clear();
+	}
+
+	/**
+	 * Replaces the expected route.
+	 *
+	 * @param routeLatitudes the latitudes of the waypoints of the route, in travel order
+	 * @param routeLongitudes the longitudes of the waypoints of the route, in travel order
+	 */
+	synchronized void setRoute(final double[] routeLatitudes, final double[] routeLongitudes) {
+		final int count = Math.min(routeLatitudes.length, routeLongitudes.length);
+		latitudes = new double[count];
+		longitudes = new double[count];
+		cumulativeDistances = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			latitudes[i] = routeLatitudes[i];
+			longitudes[i] = routeLongitudes[i];
+			cumulativeDistances[i] = i == 0 ? 0 : cumulativeDistances[i - 1] + PlacesGeoMath.haversine(latitudes[i - 1],
+									 longitudes[i - 1], latitudes[i], longitudes[i]);
+		}
+
+		lastSwapProgress = 0;
+		hasSwapped = false;
+	}
+
+	/**
+	 * @return {@code boolean} indicating if a route with at least two waypoints is set
+	 */
+	synchronized boolean hasRoute() {
+		return latitudes.length >= 2;
+	}
+
+	/**
+	 * @return the length of the route in meters
+	 */
+	synchronized double getLength() {
+		return latitudes.length == 0 ? 0 : cumulativeDistances[latitudes.length - 1];
+	}
+
+	/**
+	 * Returns the point at the given distance along the route.
+	 *
+	 * @param distance the distance from the start of the route in meters, clamped to the route
+	 * @return the latitude and the longitude of the point, or null if no route is set
+	 */
+	synchronized double[] getPointAt(final double distance) {
+		if (!hasRoute()) {
+			return null;
+		}
+
+		return pointAt(Math.max(0, Math.min(getLength(), distance)));
+	}
+
+	/**
+	 * Matches the given location to the route.
+	 *
+	 * @param latitude the latitude of the user
+	 * @param longitude the longitude of the user
+	 * @return the distance covered along the route in meters, or -1 if the location is off the route corridor
+	 */
+	synchronized double getProgress(final double latitude, final double longitude) {
+		if (!hasRoute()) {
+			return -1;
+		}
+
+		final double scale = PlacesGeoMath.longitudeScale(latitude) * PlacesGeoMath.METERS_PER_DEGREE;
+		double bestOffset = Double.MAX_VALUE;
+		double bestProgress = -1;
+
+		for (int i = 1; i < latitudes.length; i++) {
+			// project the location on the segment in a local plane centered on the location
+			final double startX = PlacesGeoMath.wrapLongitude(longitudes[i - 1] - longitude) * scale;
+			final double startY = (latitudes[i - 1] - latitude) * PlacesGeoMath.METERS_PER_DEGREE;
+			final double deltaX = PlacesGeoMath.wrapLongitude(longitudes[i] - longitudes[i - 1]) * scale;
+			final double deltaY = (latitudes[i] - latitudes[i - 1]) * PlacesGeoMath.METERS_PER_DEGREE;
+			final double squaredLength = deltaX * deltaX + deltaY * deltaY;
+			final double fraction = squaredLength == 0 ? 0 : Math.max(0, Math.min(1,
+									-(startX * deltaX + startY * deltaY) / squaredLength));
+			final double offsetX = startX + fraction * deltaX;
+			final double offsetY = startY + fraction * deltaY;
+			final double offset = Math.sqrt(offsetX * offsetX + offsetY * offsetY);
+
+			if (offset < bestOffset) {
+				bestOffset = offset;
+				bestProgress = cumulativeDistances[i - 1] + fraction * (cumulativeDistances[i] - cumulativeDistances[i - 1]);
+			}
+		}
+
+		return bestOffset <= PlacesMonitorConstants.Route.CORRIDOR_WIDTH ? bestProgress : -1;
+	}
+
+	/**
+	 * Verifies if the nearby POIs are to be refreshed for the given location.
+	 *
+	 * @param latitude the latitude of the user
+	 * @param longitude the longitude of the user
+	 * @return {@code boolean} indicating if the location is off the route corridor, or if the user has progressed by
+	 * {@link PlacesMonitorConstants.Route#FENCE_SWAP_DISTANCE} along the route since the last swap
+	 */
+	synchronized boolean isRefreshDue(final double latitude, final double longitude) {
+		final double progress = getProgress(latitude, longitude);
+		return progress < 0 || !hasSwapped
+			   || Math.abs(progress - lastSwapProgress) >= PlacesMonitorConstants.Route.FENCE_SWAP_DISTANCE;
+	}
+
+	/**
+	 * Records the progress of the user along the route.
+	 *
+	 * @param latitude the latitude of the user
+	 * @param longitude the longitude of the user
+	 * @return {@code boolean} indicating if the monitored geofences are to be swapped for the POIs around the location
+	 */
+	synchronized boolean advance(final double latitude, final double longitude) {
+		final double progress = getProgress(latitude, longitude);
+
+		if (progress < 0) {
+			return false;
+		}
+
+		if (hasSwapped && Math.abs(progress - lastSwapProgress) < PlacesMonitorConstants.Route.FENCE_SWAP_DISTANCE) {
+			return false;
+		}
+
+		hasSwapped = true;
+		lastSwapProgress = progress;
+		return true;
+	}
+
+	/**
+	 * Drops the route.
+	 */
+	synchronized void clear() {
+		latitudes = new double[0];
+		longitudes = new double[0];
+		cumulativeDistances = new double[0];
+		lastSwapProgress = 0;
+		hasSwapped = false;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Interpolates the point at the given distance along the route.
+	 */
+	private double[] pointAt(final double distance) {
+		for (int i = 1; i < latitudes.length; i++) {
+			if (distance <= cumulativeDistances[i] || i == latitudes.length - 1) {
+				final double segmentLength = cumulativeDistances[i] - cumulativeDistances[i - 1];
+				final double fraction = segmentLength == 0 ? 0 : Math.min(1,
+										(distance - cumulativeDistances[i - 1]) / segmentLength);
+				return new double[] {
+						   latitudes[i - 1] + fraction * (latitudes[i] - latitudes[i - 1]),
+						   PlacesGeoMath.wrapLongitude(longitudes[i - 1] + fraction * PlacesGeoMath.wrapLongitude(longitudes[i] -
+								   longitudes[i - 1]))
+					   };
+			}
+		}
+
+		return new double[] {latitudes[0], longitudes[0]};
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesSoftwareGeofenceEngine.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class to evaluate the containment of the nearby POIs in-library, without registering them with the OS.
+ * <p>
+ * The number of POIs is not bound by the OS geofence limit. The POI geometry is held in a {@link PlacesPOIStore} and the
+ * transitions of an evaluation are written into preallocated buffers, so that evaluating a location fix without any transition
+ * does not allocate. The transitions are returned as an immutable list built under the same lock as the evaluation, so that a
+ * concurrent {@link #setPOIs(List, Set)} cannot change the POIs they are read from.
+ * <p>
+ * Only the POIs the user is within and the candidates retrieved from a {@link PlacesPOIGridIndex} around the fix are tested,
+ * so the cost of an evaluation does not grow with the total number of POIs.
+ * <p>
+ * When the accuracy of a fix is known, a transition is emitted only if the overlap of the accuracy circle with the POI
+ * circle gives enough confidence, see {@link PlacesGeoMath#enterConfidence(double, double, double)} and
+ * {@link PlacesGeoMath#exitConfidence(double, double, double)}. Otherwise the POI keeps its state until a better fix arrives.
+ * An exit is evaluated against the POI radius extended by the exit hysteresis, so that a fix wandering around the boundary
+ * does not report alternating transitions.
+ * <p>
+ * A POI transitions at most once per evaluation: a POI exited by a fix is not tested for an entry by the same fix, which
+ * could otherwise happen when the enter and exit confidences add up to 1 or less.
+ */
+class PlacesSoftwareGeofenceEngine {
+	private final PlacesPOIStore store;
+	private boolean[] inside;
+	private boolean[] exited;
+	private int[] insideIndices;
+	private int insideCount;
+	private int[] candidates;
+	private final PlacesPOIGridIndex gridIndex;
+	private double enterConfidence;
+	private double exitConfidence;
+	private double exitHysteresis;
+
+	private int[] transitionIndices;
+	private int[] transitionTypes;
+	private int transitionCount;
+
+	// evaluation metrics
+	private long evaluationCount;
+	private long evaluationNanos;
+	private long heldTransitionCount;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesSoftwareGeofenceEngine() {
+		store = new PlacesPOIStore();
+		gridIndex = new PlacesPOIGridIndex(PlacesMonitorConstants.SoftwareGeofence.GRID_CELL_SIZE_DEGREES);
+		enterConfidence = PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE;
+		exitConfidence = PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE;
+		allocate(0);
+	}
+
+	/**
+	 * Sets the minimum confidences required to emit the transitions.
+	 *
+	 * @param enterConfidence the minimum confidence that the user is within a POI for an entry to be emitted
+	 * @param exitConfidence the minimum confidence that the user is outside a POI for an exit to be emitted
+	 */
+	synchronized void setConfidenceThresholds(final double enterConfidence, final double exitConfidence) {
+		this.enterConfidence = enterConfidence;
+		this.exitConfidence = exitConfidence;
+	}
+
+	/**
+	 * Replaces the evaluated POIs with the given set.
+	 * <p>
+	 * The POIs whose identifier is contained in the given set of regions the user is within start in the inside state,
+	 * so that no duplicate entry is emitted for them.
+	 *
+	 * @param nearbyPOIs the {@link List} of {@link PlacesPOI}s to be evaluated
+	 * @param userWithinGeofences a {@link Set} of identifiers of the regions the user is currently within
+	 */
+	synchronized void setPOIs(final List<PlacesPOI> nearbyPOIs, final Set<String> userWithinGeofences) {
+		store.load(nearbyPOIs);
+		final int count = store.size();
+
+		if (count > inside.length) {
+			allocate(count);
+		}
+
+		gridIndex.clear();
+		insideCount = 0;
+
+		for (int i = 0; i < count; i++) {
+			inside[i] = userWithinGeofences != null && userWithinGeofences.contains(store.getIdentifier(i));
+			gridIndex.insert(i, store.getLatitude(i), store.getLongitude(i), store.getRadius(i));
+
+			if (inside[i]) {
+				insideIndices[insideCount++] = i;
+			}
+		}
+
+		transitionCount = 0;
+	}
+
+	/**
+	 * Sets the distance beyond the radius of a POI the user has to move for an exit to be emitted.
+	 *
+	 * @param exitHysteresis the exit hysteresis in meters
+	 */
+	synchronized void setExitHysteresis(final double exitHysteresis) {
+		this.exitHysteresis = Math.max(0, exitHysteresis);
+	}
+
+	/**
+	 * Evaluates the containment of the POIs for the given location, whose accuracy is unknown.
+	 *
+	 * @param latitude the latitude of the location fix
+	 * @param longitude the longitude of the location fix
+	 * @return an immutable {@link List} of the {@link PlacesTransitionBatcher.Transition}s which occurred since the previous
+	 * evaluation
+	 * @see #evaluate(double, double, double)
+	 */
+	synchronized List<PlacesTransitionBatcher.Transition> evaluate(final double latitude, final double longitude) {
+		return evaluate(latitude, longitude, 0);
+	}
+
+	/**
+	 * Evaluates the containment of the POIs for the given location.
+	 * <p>
+	 * The POIs the user is within are tested for exits, and the candidates around the location are tested for entries.
+	 * The transitions whose confidence is below its threshold are held and counted in {@link #getHeldTransitionCount()}.
+	 *
+	 * @param latitude the latitude of the location fix
+	 * @param longitude the longitude of the location fix
+	 * @param accuracy the accuracy radius of the location fix in meters, 0 if unknown
+	 * @return an immutable {@link List} of the {@link PlacesTransitionBatcher.Transition}s which occurred since the previous
+	 * evaluation
+	 */
+	synchronized List<PlacesTransitionBatcher.Transition> evaluate(final double latitude, final double longitude,
+			final double accuracy) {
+		final long start = System.nanoTime();
+		transitionCount = 0;
+
+		// exits, the POIs the user was within
+		for (int k = insideCount - 1; k >= 0; k--) {
+			final int i = insideIndices[k];
+			final double exitRadius = store.getRadius(i) + exitHysteresis;
+
+			if (accuracy <= 0) {
+				if (contains(i, latitude, longitude, exitRadius)) {
+					continue;
+				}
+			} else {
+				final double distance = distance(i, latitude, longitude, exitRadius, accuracy);
+
+				if (PlacesGeoMath.exitConfidence(distance, exitRadius, accuracy) < exitConfidence) {
+					if (distance > exitRadius) {
+						heldTransitionCount++;
+					}
+
+					continue;
+				}
+			}
+
+			inside[i] = false;
+			exited[i] = true;
+			insideIndices[k] = insideIndices[--insideCount];
+			recordTransition(i, Geofence.GEOFENCE_TRANSITION_EXIT);
+		}
+
+		// entries, the candidate POIs whose region may overlap the accuracy circle of the fix
+		final int candidateCount = gridIndex.query(latitude, longitude, Math.max(0, accuracy), candidates);
+
+		for (int k = 0; k < candidateCount; k++) {
+			final int i = candidates[k];
+
+			if (inside[i] || exited[i]) {
+				continue;
+			}
+
+			final boolean entered;
+
+			if (accuracy <= 0) {
+				entered = contains(i, latitude, longitude, store.getRadius(i));
+			} else {
+				final double distance = distance(i, latitude, longitude, store.getRadius(i), accuracy);
+				entered = PlacesGeoMath.enterConfidence(distance, store.getRadius(i), accuracy) >= enterConfidence;
+
+				if (!entered && distance <= store.getRadius(i)) {
+					heldTransitionCount++;
+				}
+			}
+
+			if (entered) {
+				inside[i] = true;
+				insideIndices[insideCount++] = i;
+				recordTransition(i, Geofence.GEOFENCE_TRANSITION_ENTER);
+			}
+		}
+
+		// only the exits of this evaluation were marked
+		for (int k = 0; k < transitionCount; k++) {
+			exited[transitionIndices[k]] = false;
+		}
+
+		evaluationCount++;
+		evaluationNanos += System.nanoTime() - start;
+		return getTransitions();
+	}
+
+	/**
+	 * @return the number of POIs being evaluated
+	 */
+	synchronized int size() {
+		return store.size();
+	}
+
+	/**
+	 * Removes all the evaluated POIs.
+	 */
+	synchronized void clear() {
+		store.clear();
+		allocate(0);
+	}
+
+	/**
+	 * @return the number of location fixes evaluated
+	 */
+	synchronized long getEvaluationCount() {
+		return evaluationCount;
+	}
+
+	/**
+	 * @return the number of transitions of the fix centers which were held for lack of confidence
+	 */
+	synchronized long getHeldTransitionCount() {
+		return heldTransitionCount;
+	}
+
+	/**
+	 * @return the average time spent evaluating a location fix in nanoseconds, 0 if no fix was evaluated
+	 */
+	synchronized long getAverageEvaluationNanos() {
+		return evaluationCount == 0 ? 0 : evaluationNanos / evaluationCount;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	/**
+	 * Builds the transitions recorded by the current evaluation from the POIs for which they occurred.
+	 */
+	private List<PlacesTransitionBatcher.Transition> getTransitions() {
+		if (transitionCount == 0) {
+			return Collections.emptyList();
+		}
+
+		final long now = System.currentTimeMillis();
+		final List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>(
+			transitionCount);
+
+		for (int k = 0; k < transitionCount; k++) {
+			final int i = transitionIndices[k];
+			transitions.add(new PlacesTransitionBatcher.Transition(store.getIdentifier(i), store.getLatitude(i),
+							store.getLongitude(i), store.getRadius(i), transitionTypes[k], now));
+		}
+
+		return Collections.unmodifiableList(transitions);
+	}
+
+	private boolean contains(final int i, final double latitude, final double longitude, final double radius) {
+		return PlacesGeoMath.contains(latitude, longitude, store.getLatitude(i), store.getLongitude(i),
+									  store.getLongitudeScale(i), radius);
+	}
+
+	private double distance(final int i, final double latitude, final double longitude, final double radius,
+							final double accuracy) {
+		return PlacesGeoMath.overlapDistance(latitude, longitude, store.getLatitude(i), store.getLongitude(i),
+											 store.getLongitudeScale(i), radius, accuracy);
+	}
+
+	private void recordTransition(final int i, final int transitionType) {
+		if (transitionCount >= transitionIndices.length) {
+			Log.warning(PlacesMonitorConstants.LOG_TAG, "Dropping the software geofence transition of " + store.getIdentifier(i)
+						+ ", the transition buffer is full");
+			return;
+		}
+
+		transitionIndices[transitionCount] = i;
+		transitionTypes[transitionCount] = transitionType;
+		transitionCount++;
+	}
+
+	private void allocate(final int capacity) {
+		inside = new boolean[capacity];
+		exited = new boolean[capacity];
+		insideIndices = new int[capacity];
+		insideCount = 0;
+		candidates = new int[capacity];
+		gridIndex.clear();
+		// a POI transitions at most once per evaluation, the margin only guards against a broken invariant
+		transitionIndices = new int[2 * capacity];
+		transitionTypes = new int[2 * capacity];
+		transitionCount = 0;
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesTransitionBatcher.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to collect the curated geofence transitions of a single geofence trigger or nearby POI refresh and
+ * dispatch them to the {@link Places} extension as one unit.
+ * <p>
+ * Transitions are de-duplicated by region identifier and transition type. When dispatched, all the exit transitions
+ * of the batch are processed before the entry transitions.
+ * If a {@link PlacesOfflineQueue} is set and the device has no network connectivity, the batch is queued instead
+ * and replayed once the connectivity is restored.
+ */
+class PlacesTransitionBatcher {
+
+	private final Map<String, Transition> pendingExits;
+	private final Map<String, Transition> pendingEnters;
+	private PlacesOfflineQueue offlineQueue;
+
+	// batch metrics
+	private int batchCount;
+	private int transitionCount;
+	private int duplicateCount;
+	private int lastBatchSize;
+	private int largestBatchSize;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesTransitionBatcher() {
+		pendingExits = new LinkedHashMap<String, Transition>();
+		pendingEnters = new LinkedHashMap<String, Transition>();
+	}
+
+	/**
+	 * Adds the transition of an OS triggered {@link Geofence} to the current batch.
+	 * <p>
+	 * No action is taken if the geofence is null or if the transition type is neither entry nor exit.
+	 *
+	 * @param geofence the triggered {@code Geofence}
+	 * @param transitionType {@code int} representing the transition type of the geofence
+	 */
+	synchronized void add(final Geofence geofence, final int transitionType) {
+		if (geofence == null) {
+			return;
+		}
+
+		addTransition(new Transition(geofence, transitionType));
+	}
+
+	/**
+	 * Adds the transition of a {@link PlacesPOI} to the current batch.
+	 * <p>
+	 * The {@link Geofence} required by the {@link Places} extension is built only if the transition survives
+	 * the de-duplication of the batch.
+	 * No action is taken if the poi is null or if the transition type is neither entry nor exit.
+	 *
+	 * @param poi the {@code PlacesPOI} for which the transition occurred
+	 * @param transitionType {@code int} representing the transition type for the poi
+	 */
+	synchronized void add(final PlacesPOI poi, final int transitionType) {
+		if (poi == null) {
+			return;
+		}
+
+		addTransition(new Transition(poi, transitionType));
+	}
+
+	/**
+	 * Adds an already built {@link Transition} to the current batch.
+	 * <p>
+	 * No action is taken if the transition is null or if its type is neither entry nor exit.
+	 *
+	 * @param transition the {@code Transition} to be added
+	 */
+	synchronized void add(final Transition transition) {
+		if (transition == null) {
+			return;
+		}
+
+		addTransition(transition);
+	}
+
+	/**
+	 * Removes all the transitions of the current batch and returns them in dispatch order, exits first followed by entries.
+	 *
+	 * @return a {@link List} of ordered {@link Transition}s, empty if there are no pending transitions
+	 */
+	synchronized List<Transition> drain() {
+		List<Transition> batch = new ArrayList<Transition>(pendingExits.size() + pendingEnters.size());
+		batch.addAll(pendingExits.values());
+		batch.addAll(pendingEnters.values());
+		pendingExits.clear();
+		pendingEnters.clear();
+		return batch;
+	}
+
+	/**
+	 * Dispatches all the transitions of the current batch to the {@link Places} extension.
+	 * <p>
+	 * The batch is queued in the {@link #offlineQueue} instead, if one is set and the device has no network connectivity.
+	 * No action is taken if the current batch is empty.
+	 *
+	 * @see #dispatch(List)
+	 */
+	void flush() {
+		final List<Transition> batch = drain();
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		if (offlineQueue != null && !offlineQueue.isNetworkAvailable()) {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "No network connectivity, queueing a batch of " + batch.size() + " geofence transitions");
+			offlineQueue.enqueueTransitions(batch);
+			return;
+		}
+
+		dispatch(batch);
+	}
+
+	/**
+	 * Dispatches the given transitions to the {@link Places} extension as one batch, in the order they are provided.
+	 *
+	 * @param batch an ordered {@link List} of {@link Transition}s to be dispatched
+	 * @see Places#processGeofence(Geofence, int)
+	 */
+	void dispatch(final List<Transition> batch) {
+		if (batch == null || batch.isEmpty()) {
+			return;
+		}
+
+		for (Transition transition : batch) {
+			Places.processGeofence(transition.getGeofence(), transition.getTransitionType());
+		}
+
+		recordBatch(batch.size());
+	}
+
+	/**
+	 * Sets the {@link PlacesOfflineQueue} which holds the batches flushed while the device has no network connectivity.
+	 *
+	 * @param offlineQueue the {@code PlacesOfflineQueue} instance
+	 */
+	synchronized void setOfflineQueue(final PlacesOfflineQueue offlineQueue) {
+		this.offlineQueue = offlineQueue;
+	}
+
+	// ========================================================================================
+	// Batch metrics
+	// ========================================================================================
+
+	/**
+	 * @return the number of non-empty batches dispatched
+	 */
+	synchronized int getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * @return the total number of transitions dispatched across all batches
+	 */
+	synchronized int getTransitionCount() {
+		return transitionCount;
+	}
+
+	/**
+	 * @return the number of duplicate transitions dropped while collecting batches
+	 */
+	synchronized int getDuplicateCount() {
+		return duplicateCount;
+	}
+
+	/**
+	 * @return the size of the most recently dispatched batch
+	 */
+	synchronized int getLastBatchSize() {
+		return lastBatchSize;
+	}
+
+	/**
+	 * @return the size of the largest batch dispatched
+	 */
+	synchronized int getLargestBatchSize() {
+		return largestBatchSize;
+	}
+
+	/**
+	 * @return the average number of transitions per dispatched batch, 0 if no batch was dispatched
+	 */
+	synchronized double getAverageBatchSize() {
+		return batchCount == 0 ? 0 : (double) transitionCount / batchCount;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private void addTransition(final Transition transition) {
+		final Map<String, Transition> pending;
+
+		if (transition.getTransitionType() == Geofence.GEOFENCE_TRANSITION_EXIT) {
+			pending = pendingExits;
+		} else if (transition.getTransitionType() == Geofence.GEOFENCE_TRANSITION_ENTER) {
+			pending = pendingEnters;
+		} else {
+			Log.debug(PlacesMonitorConstants.LOG_TAG,
+					  "Ignoring transition for region " + transition.getIdentifier() + ", unsupported transition type " +
+					  transition.getTransitionType());
+			return;
+		}
+
+		if (pending.containsKey(transition.getIdentifier())) {
+			duplicateCount++;
+			Log.trace(PlacesMonitorConstants.LOG_TAG,
+					  "Ignoring duplicate transition for region " + transition.getIdentifier() + " in the current batch");
+			return;
+		}
+
+		pending.put(transition.getIdentifier(), transition);
+	}
+
+	private synchronized void recordBatch(final int size) {
+		batchCount++;
+		transitionCount += size;
+		lastBatchSize = size;
+
+		if (size > largestBatchSize) {
+			largestBatchSize = size;
+		}
+
+		Log.debug(PlacesMonitorConstants.LOG_TAG,
+				  "Dispatched a batch of " + size + " geofence transitions. Batches: " + batchCount + ", largest batch: " +
+				  largestBatchSize + ", duplicates dropped: " + duplicateCount);
+	}
+
+	/**
+	 * A single geofence transition collected by the {@link PlacesTransitionBatcher}.
+	 */
+	static final class Transition {
+		private static final float MINIMUM_RADIUS = 1;
+
+		private final String identifier;
+		private final double latitude;
+		private final double longitude;
+		private final float radius;
+		private final int transitionType;
+		private final long timestamp;
+		private Geofence geofence;
+
+		Transition(final Geofence geofence, final int transitionType) {
+			this.identifier = geofence.getRequestId();
+			this.latitude = 0;
+			this.longitude = 0;
+			this.radius = 0;
+			this.transitionType = transitionType;
+			this.timestamp = System.currentTimeMillis();
+			this.geofence = geofence;
+		}
+
+		Transition(final PlacesPOI poi, final int transitionType) {
+			this(poi.getIdentifier(), poi.getLatitude(), poi.getLongitude(), poi.getRadius(), transitionType,
+				 System.currentTimeMillis());
+		}
+
+		Transition(final String identifier, final double latitude, final double longitude, final float radius,
+				   final int transitionType, final long timestamp) {
+			this.identifier = identifier;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.radius = radius;
+			this.transitionType = transitionType;
+			this.timestamp = timestamp;
+		}
+
+		String getIdentifier() {
+			return identifier;
+		}
+
+		int getTransitionType() {
+			return transitionType;
+		}
+
+		double getLatitude() {
+			return latitude;
+		}
+
+		double getLongitude() {
+			return longitude;
+		}
+
+		float getRadius() {
+			return radius;
+		}
+
+		long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Returns the {@link Geofence} for this transition, building it from the region attributes if the transition
+		 * was not triggered by the OS or was restored from the {@link PlacesOfflineQueue}.
+		 * <p>
+		 * The {@link Places} extension resolves the region by its identifier, so a minimal radius is used for transitions
+		 * whose region attributes are unknown.
+		 *
+		 * @return a {@code Geofence} instance representing the region of this transition
+		 */
+		Geofence getGeofence() {
+			if (geofence == null) {
+				geofence = new Geofence.Builder()
+				.setRequestId(identifier)
+				.setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT)
+				.setCircularRegion(latitude, longitude, Math.max(radius, MINIMUM_RADIUS))
+				.setExpirationDuration(Geofence.NEVER_EXPIRE)
+				.build();
+			}
+
+			return geofence;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesTransitionFilter.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to debounce the transitions of each POI, so that a device idling near a region boundary does not report
+ * alternating entries and exits.
+ * <p>
+ * An entry is held until the user has dwelled in the region for the minimum dwell time, and an exit until the user has been
+ * away for the minimum absence time. A held transition followed by the opposite transition of the same POI is a flap,
+ * and both are dropped. The held transitions are released by {@link #releaseDue(long)} once their delay has elapsed.
+ * <p>
+ * With both delays set to zero, every transition is let through immediately.
+ */
+class PlacesTransitionFilter {
+	private long minDwellTime;
+	private long minAbsenceTime;
+	private final Map<String, PendingTransition> pendingTransitions;
+
+	// event rate reduction metrics
+	private long offeredCount;
+	private long suppressedCount;
+
+	/**
+	 * Constructor.
+	 */
+	PlacesTransitionFilter() {
+		minDwellTime = PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_DWELL_TIME;
+		minAbsenceTime = PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_ABSENCE_TIME;
+		pendingTransitions = new LinkedHashMap<String, PendingTransition>();
+	}
+
+	/**
+	 * Sets the delays for which the transitions are held.
+	 *
+	 * @param minDwellTime the time in milliseconds the user has to stay within a region before its entry is reported
+	 * @param minAbsenceTime the time in milliseconds the user has to stay outside a region before its exit is reported
+	 */
+	synchronized void setDelays(final long minDwellTime, final long minAbsenceTime) {
+		this.minDwellTime = Math.max(0, minDwellTime);
+		this.minAbsenceTime = Math.max(0, minAbsenceTime);
+	}
+
+	/**
+	 * Offers a new transition to the filter.
+	 * <p>
+	 * The transitions other than entries and exits are let through.
+	 *
+	 * @param transition the {@link PlacesTransitionBatcher.Transition} which occurred
+	 * @param now the current time in milliseconds
+	 * @return {@code boolean} indicating if the transition is to be processed now, false if it is held or dropped
+	 */
+	synchronized boolean offer(final PlacesTransitionBatcher.Transition transition, final long now) {
+		if (transition == null) {
+			return false;
+		}
+
+		offeredCount++;
+		final String identifier = transition.getIdentifier();
+		final PendingTransition pending = pendingTransitions.get(identifier);
+
+		if (pending != null) {
+			if (pending.transition.getTransitionType() == transition.getTransitionType()) {
+				// a repeated trigger, the original one keeps its timer
+				suppressedCount++;
+			} else {
+				// the user came back before the held transition was confirmed
+				pendingTransitions.remove(identifier);
+				suppressedCount += 2;
+				Log.debug(PlacesMonitorConstants.LOG_TAG, "Dropping flapping transitions of region " + identifier);
+			}
+
+			return false;
+		}
+
+		final long delay = getDelay(transition.getTransitionType());
+
+		if (delay <= 0) {
+			return true;
+		}
+
+		pendingTransitions.put(identifier, new PendingTransition(transition, now + delay));
+		return false;
+	}
+
+	/**
+	 * Removes and returns the held transitions whose delay has elapsed, in the order in which they occurred.
+	 *
+	 * @param now the current time in milliseconds
+	 * @return a {@link List} of confirmed {@link PlacesTransitionBatcher.Transition}s, empty if none is due
+	 */
+	synchronized List<PlacesTransitionBatcher.Transition> releaseDue(final long now) {
+		final List<PlacesTransitionBatcher.Transition> dueTransitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+
+		for (Iterator<PendingTransition> iterator = pendingTransitions.values().iterator(); iterator.hasNext();) {
+			final PendingTransition pending = iterator.next();
+
+			if (pending.dueAt <= now) {
+				iterator.remove();
+				dueTransitions.add(pending.transition);
+			}
+		}
+
+		return dueTransitions;
+	}
+
+	/**
+	 * @param identifier the identifier of a POI
+	 * @return {@code boolean} indicating if a transition of the POI is held
+	 */
+	synchronized boolean isPending(final String identifier) {
+		return pendingTransitions.containsKey(identifier);
+	}
+
+	/**
+	 * Drops all the held transitions.
+	 */
+	synchronized void clear() {
+		pendingTransitions.clear();
+	}
+
+	/**
+	 * @return the number of transitions currently held
+	 */
+	synchronized int getPendingCount() {
+		return pendingTransitions.size();
+	}
+
+	/**
+	 * @return the number of transitions offered to the filter
+	 */
+	synchronized long getOfferedCount() {
+		return offeredCount;
+	}
+
+	/**
+	 * @return the number of offered transitions dropped as flaps or repeated triggers
+	 */
+	synchronized long getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	/**
+	 * @return the fraction of the offered transitions which were dropped, 0 if no transition was offered
+	 */
+	synchronized double getRateReduction() {
+		return offeredCount == 0 ? 0 : (double) suppressedCount / offeredCount;
+	}
+
+	// ========================================================================================
+	// private methods
+	// ========================================================================================
+
+	private long getDelay(final int transitionType) {
+		if (transitionType == Geofence.GEOFENCE_TRANSITION_ENTER) {
+			return minDwellTime;
+		} else if (transitionType == Geofence.GEOFENCE_TRANSITION_EXIT) {
+			return minAbsenceTime;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * A transition held by the {@link PlacesTransitionFilter}.
+	 */
+	private static final class PendingTransition {
+		private final PlacesTransitionBatcher.Transition transition;
+		private final long dueAt;
+
+		PendingTransition(final PlacesTransitionBatcher.Transition transition, final long dueAt) {
+			this.transition = transition;
+			this.dueAt = dueAt;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesActivityRecognitionMotionGateTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.content.LocalBroadcastManager;
+
+import com.google.android.gms.location.ActivityRecognition;
+import com.google.android.gms.location.ActivityRecognitionClient;
+import com.google.android.gms.location.ActivityTransition;
+import com.google.android.gms.location.ActivityTransitionEvent;
+import com.google.android.gms.location.ActivityTransitionRequest;
+import com.google.android.gms.location.ActivityTransitionResult;
+import com.google.android.gms.location.DetectedActivity;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({App.class, ActivityRecognition.class, ActivityTransitionResult.class, PendingIntent.class,
+				 LocalBroadcastManager.class, PlacesActivity.class})
+public class PlacesActivityRecognitionMotionGateTests {
+	private PlacesActivityRecognitionMotionGate motionGate;
+	private List<Boolean> reportedStates;
+	private PlacesMotionGate.Listener listener;
+
+	@Mock
+	Context context;
+
+	@Mock
+	Intent intent;
+
+	@Mock
+	ActivityRecognitionClient activityRecognitionClient;
+
+	@Mock
+	PendingIntent pendingIntent;
+
+	@Mock
+	LocalBroadcastManager localBroadcastManager;
+
+	@Mock
+	Task<Void> task;
+
+	@Mock
+	ActivityTransitionResult transitionResult;
+
+	@Before
+	public void before() {
+		PowerMockito.mockStatic(App.class);
+		PowerMockito.mockStatic(ActivityRecognition.class);
+		PowerMockito.mockStatic(ActivityTransitionResult.class);
+		PowerMockito.mockStatic(PendingIntent.class);
+		PowerMockito.mockStatic(LocalBroadcastManager.class);
+		PowerMockito.mockStatic(PlacesActivity.class);
+		Mockito.when(PlacesActivity.isActivityRecognitionPermissionGranted()).thenReturn(true);
+		Mockito.when(App.getAppContext()).thenReturn(context);
+		Mockito.when(ActivityRecognition.getClient(context)).thenReturn(activityRecognitionClient);
+		Mockito.when(PendingIntent.getBroadcast(eq(context), eq(0), any(Intent.class),
+												eq(PendingIntent.FLAG_UPDATE_CURRENT))).thenReturn(pendingIntent);
+		Mockito.when(LocalBroadcastManager.getInstance(context)).thenReturn(localBroadcastManager);
+		Mockito.when(activityRecognitionClient.requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+					 eq(pendingIntent))).thenReturn(task);
+
+		motionGate = new PlacesActivityRecognitionMotionGate();
+		reportedStates = new ArrayList<Boolean>();
+		listener = new PlacesMotionGate.Listener() {
+			@Override
+			public void onMotionStateChanged(final boolean isStill) {
+				reportedStates.add(isStill);
+			}
+		};
+	}
+
+	@Test
+	public void test_start_requestsStillTransitions() {
+		// test
+		motionGate.start(listener);
+		motionGate.start(listener);
+
+		// verify
+		verify(activityRecognitionClient, times(1)).requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+				eq(pendingIntent));
+		verify(localBroadcastManager, times(1)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_start_when_activityRecognitionUnavailable() {
+		// setup
+		Mockito.when(ActivityRecognition.getClient(context)).thenReturn(null);
+
+		// test
+		motionGate.start(listener);
+
+		// verify
+		verify(localBroadcastManager, times(0)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_start_when_permissionNotGranted_retriesOnNextStart() {
+		// setup
+		Mockito.when(PlacesActivity.isActivityRecognitionPermissionGranted()).thenReturn(false);
+
+		// test
+		motionGate.start(listener);
+
+		// verify
+		verify(activityRecognitionClient, times(0)).requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+				eq(pendingIntent));
+		verify(localBroadcastManager, times(0)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+
+		// test, the permission is granted later
+		Mockito.when(PlacesActivity.isActivityRecognitionPermissionGranted()).thenReturn(true);
+		motionGate.start(listener);
+
+		// verify
+		verify(activityRecognitionClient, times(1)).requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+				eq(pendingIntent));
+	}
+
+	@Test
+	public void test_start_when_securityException_staysStopped() {
+		// setup
+		Mockito.when(activityRecognitionClient.requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+					 eq(pendingIntent))).thenThrow(new SecurityException("permission revoked"));
+
+		// test
+		motionGate.start(listener);
+		motionGate.start(listener);
+
+		// verify the request is tried again and no receiver is left registered
+		verify(activityRecognitionClient, times(2)).requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+				eq(pendingIntent));
+		verify(localBroadcastManager, times(0)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_start_when_requestFails_staysStopped() {
+		// setup
+		final ArgumentCaptor<OnFailureListener> onFailureCallback = ArgumentCaptor.forClass(OnFailureListener.class);
+		motionGate.start(listener);
+		verify(task, times(1)).addOnFailureListener(onFailureCallback.capture());
+
+		// test
+		onFailureCallback.getValue().onFailure(new Exception("unavailable"));
+		motionGate.start(listener);
+
+		// verify the receiver is unregistered and the request is tried again
+		verify(localBroadcastManager, times(1)).unregisterReceiver(any(BroadcastReceiver.class));
+		verify(activityRecognitionClient, times(2)).requestActivityTransitionUpdates(any(ActivityTransitionRequest.class),
+				eq(pendingIntent));
+	}
+
+	@Test
+	public void test_stop_removesTransitionUpdates() {
+		// setup
+		motionGate.start(listener);
+
+		// test
+		motionGate.stop();
+
+		// verify
+		verify(activityRecognitionClient, times(1)).removeActivityTransitionUpdates(pendingIntent);
+		verify(localBroadcastManager, times(1)).unregisterReceiver(any(BroadcastReceiver.class));
+	}
+
+	@Test
+	public void test_onTransitionReceived_reportsLastStillTransition() {
+		// setup
+		motionGate.start(listener);
+		mockTransitions(transition(DetectedActivity.STILL, ActivityTransition.ACTIVITY_TRANSITION_EXIT),
+						transition(DetectedActivity.STILL, ActivityTransition.ACTIVITY_TRANSITION_ENTER),
+						transition(DetectedActivity.WALKING, ActivityTransition.ACTIVITY_TRANSITION_EXIT));
+
+		// test
+		motionGate.onTransitionReceived(intent);
+
+		// verify
+		assertEquals(Arrays.asList(true), reportedStates);
+	}
+
+	@Test
+	public void test_onTransitionReceived_when_noStillTransition() {
+		// setup
+		motionGate.start(listener);
+		mockTransitions(transition(DetectedActivity.WALKING, ActivityTransition.ACTIVITY_TRANSITION_ENTER));
+
+		// test
+		motionGate.onTransitionReceived(intent);
+
+		// verify
+		assertEquals(0, reportedStates.size());
+	}
+
+	@Test
+	public void test_onTransitionReceived_afterStop() {
+		// setup
+		motionGate.start(listener);
+		motionGate.stop();
+		mockTransitions(transition(DetectedActivity.STILL, ActivityTransition.ACTIVITY_TRANSITION_EXIT));
+
+		// test
+		motionGate.onTransitionReceived(intent);
+
+		// verify
+		assertEquals(0, reportedStates.size());
+	}
+
+	private void mockTransitions(final ActivityTransitionEvent... events) {
+		Mockito.when(ActivityTransitionResult.hasResult(intent)).thenReturn(true);
+		Mockito.when(ActivityTransitionResult.extractResult(intent)).thenReturn(transitionResult);
+		Mockito.when(transitionResult.getTransitionEvents()).thenReturn(Arrays.asList(events));
+	}
+
+	private ActivityTransitionEvent transition(final int activityType, final int transitionType) {
+		ActivityTransitionEvent event = Mockito.mock(ActivityTransitionEvent.class);
+		Mockito.when(event.getActivityType()).thenReturn(activityType);
+		Mockito.when(event.getTransitionType()).thenReturn(transitionType);
+		return event;
+	}
+}
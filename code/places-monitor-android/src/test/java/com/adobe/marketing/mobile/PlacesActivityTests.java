@@ -214,6 +214,64 @@ public class PlacesActivityTests {
 		assertFalse(isGranted);
 	}
 
+	// ========================================================================================
+	// isActivityRecognitionPermissionGranted
+	// ========================================================================================
+
+	@Test
+	public void test_isActivityRecognitionPermissionGranted_for_OSLessThanAndroidQ() throws Exception {
+		// setup, SDK_INT is 25
+		Mockito.when(ActivityCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION)).thenReturn(
+			PackageManager.PERMISSION_DENIED);
+
+		// test
+		boolean isGranted = PlacesActivity.isActivityRecognitionPermissionGranted();
+
+		// verify
+		assertTrue(isGranted);
+	}
+
+	@Test
+	public void test_isActivityRecognitionPermissionGranted_when_PermissionGranted() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 29);
+		Mockito.when(ActivityCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION)).thenReturn(
+			PackageManager.PERMISSION_GRANTED);
+
+		// test
+		boolean isGranted = PlacesActivity.isActivityRecognitionPermissionGranted();
+
+		// verify
+		assertTrue(isGranted);
+	}
+
+	@Test
+	public void test_isActivityRecognitionPermissionGranted_when_PermissionDenied() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 29);
+		Mockito.when(ActivityCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION)).thenReturn(
+			PackageManager.PERMISSION_DENIED);
+
+		// test
+		boolean isGranted = PlacesActivity.isActivityRecognitionPermissionGranted();
+
+		// verify
+		assertFalse(isGranted);
+	}
+
+	@Test
+	public void test_isActivityRecognitionPermissionGranted_when_AppContextNull() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 29);
+		Mockito.when(App.getAppContext()).thenReturn(null);
+
+		// test
+		boolean isGranted = PlacesActivity.isActivityRecognitionPermissionGranted();
+
+		// verify
+		assertFalse(isGranted);
+	}
+
 
 	// ========================================================================================
 	// askPermission
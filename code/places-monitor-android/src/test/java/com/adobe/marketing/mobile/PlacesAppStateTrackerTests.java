@@ -0,0 +1,160 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesAppStateTrackerTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.app.Activity;
+import android.app.Application;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({App.class})
+public class PlacesAppStateTrackerTests {
+	private PlacesAppStateTracker appStateTracker;
+	private List<Boolean> reportedStates;
+
+	@Mock
+	Application application;
+
+	@Mock
+	Activity activity;
+
+	@Mock
+	Activity otherActivity;
+
+	@Before
+	public void before() {
+		PowerMockito.mockStatic(App.class);
+		reportedStates = new ArrayList<Boolean>();
+		appStateTracker = new PlacesAppStateTracker(new PlacesAppStateTracker.Listener() {
+			@Override
+			public void onAppStateChanged(final boolean isForeground) {
+				reportedStates.add(isForeground);
+			}
+		});
+	}
+
+	@Test
+	public void test_register_withCurrentActivity_isForeground() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(activity);
+
+		// test
+		appStateTracker.register(application);
+
+		// verify
+		verify(application, times(1)).registerActivityLifecycleCallbacks(appStateTracker);
+		assertTrue(appStateTracker.isForeground());
+		assertTrue(reportedStates.isEmpty());
+	}
+
+	@Test
+	public void test_register_withoutCurrentActivity_isBackground() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(null);
+
+		// test
+		appStateTracker.register(application);
+
+		// verify
+		assertFalse(appStateTracker.isForeground());
+		assertTrue(reportedStates.isEmpty());
+	}
+
+	@Test
+	public void test_activityStartedAndStopped_reportsTransitions() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(null);
+		appStateTracker.register(application);
+
+		// test
+		appStateTracker.onActivityStarted(activity);
+		appStateTracker.onActivityStopped(activity);
+
+		// verify
+		assertEquals(Arrays.asList(true, false), reportedStates);
+		assertFalse(appStateTracker.isForeground());
+	}
+
+	@Test
+	public void test_navigationBetweenActivities_staysForeground() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(activity);
+		appStateTracker.register(application);
+
+		// test, the next activity starts before the previous one stops
+		appStateTracker.onActivityStarted(otherActivity);
+		appStateTracker.onActivityStopped(activity);
+
+		// verify
+		assertTrue(reportedStates.isEmpty());
+		assertTrue(appStateTracker.isForeground());
+
+		// test
+		appStateTracker.onActivityStopped(otherActivity);
+
+		// verify
+		assertEquals(Arrays.asList(false), reportedStates);
+	}
+
+	@Test
+	public void test_configurationChange_staysForeground() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(activity);
+		Mockito.when(activity.isChangingConfigurations()).thenReturn(true);
+		appStateTracker.register(application);
+
+		// test, the activity is recreated after a rotation
+		appStateTracker.onActivityStopped(activity);
+		appStateTracker.onActivityStarted(otherActivity);
+
+		// verify
+		assertTrue(reportedStates.isEmpty());
+		assertTrue(appStateTracker.isForeground());
+	}
+
+	@Test
+	public void test_unbalancedStop_doesNotUnderflow() {
+		// setup
+		Mockito.when(App.getCurrentActivity()).thenReturn(null);
+		appStateTracker.register(application);
+
+		// test
+		appStateTracker.onActivityStopped(activity);
+		appStateTracker.onActivityStarted(activity);
+
+		// verify
+		assertEquals(Arrays.asList(true), reportedStates);
+		assertTrue(appStateTracker.isForeground());
+	}
+}
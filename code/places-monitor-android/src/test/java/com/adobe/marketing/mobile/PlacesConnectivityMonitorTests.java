@@ -0,0 +1,196 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesConnectivityMonitorTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(PowerMockRunner.class)
+public class PlacesConnectivityMonitorTests {
+	private PlacesConnectivityMonitor connectivityMonitor;
+	private int notificationCount;
+	private int sdkVersion;
+
+	@Mock
+	Context context;
+
+	@Mock
+	ConnectivityManager connectivityManager;
+
+	@Mock
+	Network network;
+
+	@Mock
+	Intent intent;
+
+	@Before
+	public void before() throws Exception {
+		sdkVersion = Build.VERSION.SDK_INT;
+		Mockito.when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+		connectivityMonitor = new PlacesConnectivityMonitor(new PlacesConnectivityMonitor.Listener() {
+			@Override
+			public void onConnectivityChanged() {
+				notificationCount++;
+			}
+		});
+	}
+
+	@After
+	public void after() throws Exception {
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), sdkVersion);
+	}
+
+	@Test
+	public void test_start_belowApi24_registersConnectivityReceiver() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 23);
+		final ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+
+		// test
+		connectivityMonitor.start(context);
+		connectivityMonitor.start(context);
+
+		// verify
+		assertTrue(connectivityMonitor.isStarted());
+		verify(context, times(1)).registerReceiver(receiverCaptor.capture(), any(IntentFilter.class));
+		verify(connectivityManager, times(0)).registerDefaultNetworkCallback(any(ConnectivityManager.NetworkCallback.class));
+
+		// test and verify the listener is notified of the broadcast
+		receiverCaptor.getValue().onReceive(context, intent);
+		assertEquals(1, notificationCount);
+
+		// test and verify the receiver is unregistered
+		connectivityMonitor.stop(context);
+		assertFalse(connectivityMonitor.isStarted());
+		verify(context, times(1)).unregisterReceiver(receiverCaptor.getValue());
+	}
+
+	@Test
+	public void test_start_fromApi24_registersNetworkCallback() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 24);
+		final ArgumentCaptor<ConnectivityManager.NetworkCallback> callbackCaptor = ArgumentCaptor.forClass(
+					ConnectivityManager.NetworkCallback.class);
+
+		// test
+		connectivityMonitor.start(context);
+		connectivityMonitor.start(context);
+
+		// verify
+		assertTrue(connectivityMonitor.isStarted());
+		verify(connectivityManager, times(1)).registerDefaultNetworkCallback(callbackCaptor.capture());
+		verify(context, times(0)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+
+		// test and verify the listener is notified of the available network
+		callbackCaptor.getValue().onAvailable(network);
+		assertEquals(1, notificationCount);
+
+		// test and verify the callback is unregistered
+		connectivityMonitor.stop(context);
+		assertFalse(connectivityMonitor.isStarted());
+		verify(connectivityManager, times(1)).unregisterNetworkCallback(callbackCaptor.getValue());
+		verify(context, times(0)).unregisterReceiver(any(BroadcastReceiver.class));
+	}
+
+	@Test
+	public void test_start_when_networkCallbackDenied_registersConnectivityReceiver() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 24);
+		doThrow(new SecurityException()).when(connectivityManager).registerDefaultNetworkCallback(any(
+					ConnectivityManager.NetworkCallback.class));
+
+		// test
+		connectivityMonitor.start(context);
+		connectivityMonitor.stop(context);
+
+		// verify
+		verify(context, times(1)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+		verify(context, times(1)).unregisterReceiver(any(BroadcastReceiver.class));
+		verify(connectivityManager, times(0)).unregisterNetworkCallback(any(ConnectivityManager.NetworkCallback.class));
+	}
+
+	@Test
+	public void test_stop_when_notStarted() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 23);
+
+		// test
+		connectivityMonitor.stop(context);
+
+		// verify
+		verify(context, times(0)).unregisterReceiver(any(BroadcastReceiver.class));
+		assertFalse(connectivityMonitor.isStarted());
+	}
+
+	@Test
+	public void test_stop_when_receiverNotRegistered_doesNotThrow() throws Exception {
+		// setup
+		setFinalStatic(Build.VERSION.class.getField("SDK_INT"), 23);
+		doThrow(new IllegalArgumentException("Receiver not registered")).when(context).unregisterReceiver(any(
+					BroadcastReceiver.class));
+		connectivityMonitor.start(context);
+
+		// test
+		connectivityMonitor.stop(context);
+
+		// verify the monitor can be started again
+		assertFalse(connectivityMonitor.isStarted());
+		connectivityMonitor.start(context);
+		verify(context, times(2)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_start_when_contextNull() {
+		// test
+		connectivityMonitor.start(null);
+
+		// verify
+		assertFalse(connectivityMonitor.isStarted());
+	}
+
+	private static void setFinalStatic(final Field field, final Object newValue) throws Exception {
+		field.setAccessible(true);
+		Field modifiersField = Field.class.getDeclaredField("modifiers");
+		modifiersField.setAccessible(true);
+		modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
+		field.set(null, newValue);
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesDistrictTierTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesDistrictTierTests {
+	private static final String DISTRICT_A = PlacesMonitorConstants.DistrictTier.DISTRICT_ID_PREFIX + "a1";
+	private static final String DISTRICT_B = PlacesMonitorConstants.DistrictTier.DISTRICT_ID_PREFIX + "b1";
+
+	private PlacesDistrictTier districtTier;
+
+	@Before
+	public void before() {
+		districtTier = new PlacesDistrictTier();
+	}
+
+	@Test
+	public void test_setFences_groupsFencesIntoDistricts() {
+		// test
+		districtTier.setFences(twoDistrictFences());
+
+		// verify
+		List<PlacesFencePlanner.Fence> districts = districtTier.getDistricts();
+		assertEquals(2, districts.size());
+		assertEquals(DISTRICT_A, districts.get(0).getIdentifier());
+		assertEquals(DISTRICT_B, districts.get(1).getIdentifier());
+		assertEquals(3, districts.get(0).getMembers().size());
+
+		// verify each district encloses its POIs
+		for (PlacesFencePlanner.Fence district : districts) {
+			for (PlacesPOI member : district.getMembers()) {
+				assertTrue(PlacesGeoMath.distance(district.getLatitude(), district.getLongitude(), member) + member.getRadius()
+						   <= district.getRadius());
+			}
+		}
+	}
+
+	@Test
+	public void test_getRegisteredFences_onlyFencesOfActiveDistricts() {
+		// setup
+		districtTier.setFences(twoDistrictFences());
+
+		// test and verify, only the districts are registered while the user is outside
+		assertEquals(2, districtTier.getRegisteredFences().size());
+		assertEquals(0, districtTier.getActiveFences().size());
+
+		// test and verify, entering a district registers its fences
+		assertTrue(districtTier.activate(DISTRICT_A));
+		assertFalse(districtTier.activate(DISTRICT_A));
+		List<PlacesFencePlanner.Fence> registeredFences = districtTier.getRegisteredFences();
+		assertEquals(5, registeredFences.size());
+		assertEquals("a1", registeredFences.get(2).getIdentifier());
+
+		// test and verify, leaving it releases them
+		assertTrue(districtTier.release(DISTRICT_A));
+		assertFalse(districtTier.release(DISTRICT_A));
+		assertEquals(2, districtTier.getRegisteredFences().size());
+	}
+
+	@Test
+	public void test_getRegisteredFences_withoutSavedSlots_registersAllFences() {
+		// setup
+		districtTier.setFences(twoDistrictFences());
+
+		// test
+		districtTier.activate(DISTRICT_A);
+		districtTier.activate(DISTRICT_B);
+
+		// verify
+		assertEquals(6, districtTier.getRegisteredFences().size());
+		assertNull(districtTier.getDistrict(districtTier.getRegisteredFences().get(0).getIdentifier()));
+	}
+
+	@Test
+	public void test_setFences_singleDistrict_isNotUsed() {
+		// setup
+		List<PlacesFencePlanner.Fence> fences = new ArrayList<PlacesFencePlanner.Fence>();
+		fences.add(fence("a1", 22.22));
+		fences.add(fence("a2", 22.225));
+
+		// test
+		districtTier.setFences(fences);
+
+		// verify
+		assertEquals(0, districtTier.getDistricts().size());
+		assertEquals(2, districtTier.getRegisteredFences().size());
+		assertFalse(districtTier.activate(DISTRICT_A));
+	}
+
+	@Test
+	public void test_setFences_keepsActiveDistricts() {
+		// setup
+		districtTier.setFences(twoDistrictFences());
+		districtTier.activate(DISTRICT_B);
+
+		// test
+		districtTier.setFences(twoDistrictFences());
+
+		// verify
+		assertTrue(districtTier.isActive(DISTRICT_B));
+		assertFalse(districtTier.isActive(DISTRICT_A));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		districtTier.setFences(twoDistrictFences());
+		districtTier.activate(DISTRICT_A);
+
+		// test
+		districtTier.clear();
+
+		// verify
+		assertEquals(0, districtTier.getDistricts().size());
+		assertEquals(0, districtTier.getRegisteredFences().size());
+		assertFalse(districtTier.isActive(DISTRICT_A));
+	}
+
+	private List<PlacesFencePlanner.Fence> twoDistrictFences() {
+		List<PlacesFencePlanner.Fence> fences = new ArrayList<PlacesFencePlanner.Fence>();
+		fences.add(fence("a1", 22.22));
+		fences.add(fence("a2", 22.225));
+		fences.add(fence("a3", 22.23));
+		fences.add(fence("b1", 22.30));
+		fences.add(fence("b2", 22.305));
+		fences.add(fence("b3", 22.31));
+		return fences;
+	}
+
+	private PlacesFencePlanner.Fence fence(final String id, final double latitude) {
+		List<PlacesPOI> members = new ArrayList<PlacesPOI>();
+		members.add(new PlacesPOI(id, "name", latitude, 33.33, 100, "libraryID", 200, null));
+		return new PlacesFencePlanner.Fence(id, latitude, 33.33, 100, members);
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesFakeMotionGate.java
+//
+
+package com.adobe.marketing.mobile;
+
+/**
+ * {@link PlacesMotionGate} driven by the tests, reporting the motion state set with {@link #setStill(boolean)}.
+ */
+class PlacesFakeMotionGate implements PlacesMotionGate {
+	private Listener listener;
+
+	@Override
+	public void start(final Listener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void stop() {
+		listener = null;
+	}
+
+	boolean isStarted() {
+		return listener != null;
+	}
+
+	/**
+	 * Reports the given motion state to the listener, if the gate is started.
+	 *
+	 * @param isStill {@code boolean} indicating if the device is still
+	 */
+	void setStill(final boolean isStill) {
+		if (listener != null) {
+			listener.onMotionStateChanged(isStill);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesFencePlannerTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesFencePlannerTests {
+	private PlacesFencePlanner planner;
+
+	@Before
+	public void before() {
+		planner = new PlacesFencePlanner();
+	}
+
+	@Test
+	public void test_plan_keepsLargeSeparatePOIs() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		pois.add(poi("id2", 22.23, 33.33, 150));
+
+		// test
+		List<PlacesFencePlanner.Fence> fences = planner.plan(pois);
+
+		// verify
+		assertEquals(2, fences.size());
+		assertEquals("id1", fences.get(0).getIdentifier());
+		assertFalse(fences.get(0).isProxy());
+		assertEquals(100, fences.get(0).getRadius(), 0);
+		assertEquals("id2", fences.get(1).getIdentifier());
+		assertEquals(0, planner.getSavedSlots());
+	}
+
+	@Test
+	public void test_plan_inflatesSmallPOI() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 20));
+
+		// test
+		List<PlacesFencePlanner.Fence> fences = planner.plan(pois);
+
+		// verify
+		assertEquals(1, fences.size());
+		assertTrue(fences.get(0).isProxy());
+		assertEquals(PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + "id1", fences.get(0).getIdentifier());
+		assertEquals(PlacesMonitorConstants.FencePlanner.MIN_FENCE_RADIUS, fences.get(0).getRadius(), 0);
+		assertEquals(22.22, fences.get(0).getLatitude(), 0);
+		assertEquals(1, fences.get(0).getMembers().size());
+	}
+
+	@Test
+	public void test_plan_mergesAdjacentPOIs() {
+		// setup, two regions about 44 meters apart and a distant one
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id2", 22.22, 33.33, 30));
+		pois.add(poi("id9", 22.30, 33.33, 30));
+		pois.add(poi("id1", 22.2204, 33.33, 30));
+
+		// test
+		List<PlacesFencePlanner.Fence> fences = planner.plan(pois);
+
+		// verify
+		assertEquals(2, fences.size());
+		PlacesFencePlanner.Fence cluster = fences.get(0);
+		assertTrue(cluster.isProxy());
+		assertEquals(PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + "id1", cluster.getIdentifier());
+		assertEquals(2, cluster.getMembers().size());
+		assertEquals(1, planner.getSavedSlots());
+
+		// verify the cluster fence encloses the regions of its members
+		for (PlacesPOI member : cluster.getMembers()) {
+			assertTrue(PlacesGeoMath.distance(cluster.getLatitude(), cluster.getLongitude(), member) + member.getRadius()
+					   <= cluster.getRadius());
+		}
+	}
+
+	@Test
+	public void test_plan_doesNotMergeSeparatedPOIs() {
+		// setup, the boundaries are about 61 meters apart
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 30));
+		pois.add(poi("id2", 22.2211, 33.33, 30));
+		pois.add(poi("id3", 22.2222, 33.33, 30));
+
+		// test
+		List<PlacesFencePlanner.Fence> fences = planner.plan(pois);
+
+		// verify
+		assertEquals(3, fences.size());
+		assertEquals(0, planner.getSavedSlots());
+	}
+
+	@Test
+	public void test_plan_boundsClusterRadius() {
+		// setup, a chain of adjacent regions spanning more than the maximum cluster diameter
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+
+		for (int i = 0; i < 10; i++) {
+			pois.add(poi("id" + i, 22.22 + i * 0.001, 33.33, 50));
+		}
+
+		// test
+		List<PlacesFencePlanner.Fence> fences = planner.plan(pois);
+
+		// verify
+		assertTrue(fences.size() > 1);
+		int memberCount = 0;
+
+		for (PlacesFencePlanner.Fence fence : fences) {
+			assertTrue(fence.getRadius() <= PlacesMonitorConstants.FencePlanner.MAX_CLUSTER_RADIUS + 1);
+			memberCount += fence.getMembers().size();
+		}
+
+		assertEquals(10, memberCount);
+	}
+
+	@Test
+	public void test_plan_emptyList() {
+		// test and verify
+		assertEquals(0, planner.plan(new ArrayList<PlacesPOI>()).size());
+		assertEquals(0, planner.getSavedSlots());
+	}
+
+	private PlacesPOI poi(final String id, final double latitude, final double longitude, final int radius) {
+		return new PlacesPOI(id, "name", latitude, longitude, radius, "libraryID", 200, null);
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeoMathTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesGeoMathTests {
+	private static final int SCAN_SAMPLE_COUNT = 200000;
+
+	@Test
+	public void test_haversine_knownDistances() {
+		// one degree of latitude
+		assertEquals(111195.08, PlacesGeoMath.haversine(10, 20, 11, 20), 0.01);
+		// one degree of longitude at the equator, across the antimeridian
+		assertEquals(111195.08, PlacesGeoMath.haversine(0, 179.5, 0, -179.5), 0.01);
+		// Paris to London
+		assertEquals(343.5e3, PlacesGeoMath.haversine(48.8566, 2.3522, 51.5074, -0.1278), 1e3);
+		// same point
+		assertEquals(0, PlacesGeoMath.haversine(22.22, 33.33, 22.22, 33.33), 0);
+	}
+
+	@Test
+	public void test_equirectangular_matchesHaversineForShortDistances() {
+		// setup, 500 meters north east of a POI at 45 degrees
+		double scale = PlacesGeoMath.longitudeScale(45);
+
+		// test
+		double approximate = PlacesGeoMath.equirectangular(45.00318, 1.0045, 45, 1, scale);
+		double exact = PlacesGeoMath.haversine(45.00318, 1.0045, 45, 1);
+
+		// verify
+		assertEquals(exact, approximate, 0.5);
+	}
+
+	@Test
+	public void test_equirectangular_wrapsAroundAntimeridian() {
+		// setup
+		double scale = PlacesGeoMath.longitudeScale(0);
+
+		// test and verify
+		assertEquals(22.2, PlacesGeoMath.equirectangular(0, -179.9999, 0, 179.9999, scale), 0.1);
+	}
+
+	@Test
+	public void test_project_knownDistances() {
+		// test
+		double[] north = PlacesGeoMath.project(22.22, 33.33, 0, 1000);
+		double[] east = PlacesGeoMath.project(22.22, 33.33, 90, 2500);
+
+		// verify
+		assertEquals(22.22 + 1000 / PlacesGeoMath.METERS_PER_DEGREE, north[0], 1e-9);
+		assertEquals(33.33, north[1], 1e-9);
+		assertEquals(2500, PlacesGeoMath.haversine(22.22, 33.33, east[0], east[1]), 0.01);
+		assertTrue(east[1] > 33.33);
+	}
+
+	@Test
+	public void test_project_wrapsAroundAntimeridian() {
+		// test
+		double[] projected = PlacesGeoMath.project(0, 179.999, 90, 1000);
+
+		// verify
+		assertTrue(projected[1] < -179.99);
+		assertEquals(1000, PlacesGeoMath.haversine(0, 179.999, projected[0], projected[1]), 0.01);
+	}
+
+	@Test
+	public void test_contains_boundary() {
+		// setup, a 100 meters POI and a location 99.5 then 100.5 meters north of its center
+		double scale = PlacesGeoMath.longitudeScale(22.22);
+		double inside = 22.22 + 99.5 / PlacesGeoMath.METERS_PER_DEGREE;
+		double outside = 22.22 + 100.5 / PlacesGeoMath.METERS_PER_DEGREE;
+
+		// test and verify
+		assertTrue(PlacesGeoMath.contains(inside, 33.33, 22.22, 33.33, scale, 100));
+		assertFalse(PlacesGeoMath.contains(outside, 33.33, 22.22, 33.33, scale, 100));
+	}
+
+	@Test
+	public void test_contains_nearPole() {
+		// setup, at 89.99 degrees the longitude scale is below the usable range
+		double scale = PlacesGeoMath.longitudeScale(89.99);
+
+		// test and verify
+		assertTrue(PlacesGeoMath.contains(89.99, 100, 89.99, 0, scale, 2000));
+		assertFalse(PlacesGeoMath.contains(89.99, 100, 89.99, 0, scale, 1000));
+	}
+
+	@Test
+	public void test_needsExactDistance() {
+		// setup
+		double scale = PlacesGeoMath.longitudeScale(45);
+
+		// test and verify, far from the radius the approximation decides alone
+		assertFalse(PlacesGeoMath.needsExactDistance(10, 100, 0.0001, scale));
+		assertFalse(PlacesGeoMath.needsExactDistance(1000, 100, 0.009, scale));
+		// near the radius the exact distance is computed
+		assertTrue(PlacesGeoMath.needsExactDistance(100.5, 100, 0.0009, scale));
+		// close to a pole the exact distance is always computed
+		assertTrue(PlacesGeoMath.needsExactDistance(10, 100, 0.0001, PlacesGeoMath.longitudeScale(89.99)));
+	}
+
+	@Test
+	public void test_overlapArea() {
+		// disjoint circles
+		assertEquals(0, PlacesGeoMath.overlapArea(300, 100, 200), 0);
+		// the smaller circle is within the larger one
+		assertEquals(Math.PI * 100 * 100, PlacesGeoMath.overlapArea(50, 100, 200), 1e-6);
+		// identical circles
+		assertEquals(Math.PI * 100 * 100, PlacesGeoMath.overlapArea(0, 100, 100), 1e-6);
+		// two unit circles whose centers are one radius apart overlap over 2pi/3 - sqrt(3)/2
+		assertEquals(2 * Math.PI / 3 - Math.sqrt(3) / 2, PlacesGeoMath.overlapArea(1, 1, 1), 1e-9);
+	}
+
+	@Test
+	public void test_enterConfidence() {
+		// unknown accuracy
+		assertEquals(1, PlacesGeoMath.enterConfidence(99, 100, 0), 0);
+		assertEquals(0, PlacesGeoMath.enterConfidence(101, 100, 0), 0);
+		// accurate fix within the POI
+		assertEquals(1, PlacesGeoMath.enterConfidence(20, 100, 5), 0);
+		// fix on the boundary, about half of the accuracy circle is within the POI
+		assertEquals(0.5, PlacesGeoMath.enterConfidence(10000, 10000, 5), 0.01);
+		// inaccurate fix around a small POI
+		assertEquals(50.0 * 50 / (300 * 300), PlacesGeoMath.enterConfidence(0, 50, 300), 1e-9);
+	}
+
+	@Test
+	public void test_exitConfidence() {
+		// unknown accuracy
+		assertEquals(0, PlacesGeoMath.exitConfidence(99, 100, 0), 0);
+		assertEquals(1, PlacesGeoMath.exitConfidence(101, 100, 0), 0);
+		// accurate fix outside the POI
+		assertEquals(1, PlacesGeoMath.exitConfidence(200, 100, 5), 0);
+		// an inaccurate fix covering the whole POI is no evidence of an exit
+		assertEquals(0, PlacesGeoMath.exitConfidence(0, 50, 300), 1e-9);
+		// fix on the boundary
+		assertEquals(0.5, PlacesGeoMath.exitConfidence(10000, 10000, 5), 0.01);
+	}
+
+	@Test
+	public void test_overlapDistance() {
+		// setup
+		double scale = PlacesGeoMath.longitudeScale(45);
+		double latitude = 45 + 120 / PlacesGeoMath.METERS_PER_DEGREE;
+
+		// test and verify, the circles partially overlap so the distance is exact
+		assertEquals(PlacesGeoMath.haversine(latitude, 1, 45, 1),
+					 PlacesGeoMath.overlapDistance(latitude, 1, 45, 1, scale, 100, 50), 0);
+	}
+
+	@Test
+	public void test_contains_agreesWithHaversine() {
+		// setup, random locations around random POIs from the equator to high latitudes, many of them close to the boundary
+		Random random = new Random(20190612L);
+		int exactCount = 0;
+		int sampleCount = 200000;
+
+		for (int i = 0; i < sampleCount; i++) {
+			double centerLatitude = (random.nextDouble() * 2 - 1) * 85;
+			double centerLongitude = (random.nextDouble() * 2 - 1) * 180;
+			double radius = 20 + random.nextDouble() * 5000;
+			double scale = PlacesGeoMath.longitudeScale(centerLatitude);
+
+			// distances up to three radii, half of the samples within 2% of the radius
+			double distance = i % 2 == 0 ? radius * (0.98 + random.nextDouble() * 0.04) : random.nextDouble() * 3 * radius;
+			double bearing = random.nextDouble() * 2 * Math.PI;
+			double latitude = centerLatitude + distance * Math.cos(bearing) / PlacesGeoMath.METERS_PER_DEGREE;
+			double longitude = centerLongitude + distance * Math.sin(bearing) / (PlacesGeoMath.METERS_PER_DEGREE * scale);
+			longitude = PlacesGeoMath.wrapLongitude(longitude);
+
+			// test
+			boolean contains = PlacesGeoMath.contains(latitude, longitude, centerLatitude, centerLongitude, scale, radius);
+
+			// verify
+			boolean expected = PlacesGeoMath.haversine(latitude, longitude, centerLatitude, centerLongitude) <= radius;
+			assertEquals("latitude " + latitude + ", longitude " + longitude + ", center " + centerLatitude + ","
+						 + centerLongitude + ", radius " + radius, expected, contains);
+
+			double approximate = PlacesGeoMath.equirectangular(latitude, longitude, centerLatitude, centerLongitude, scale);
+
+			if (PlacesGeoMath.needsExactDistance(approximate, radius, latitude - centerLatitude, scale)) {
+				exactCount++;
+			}
+		}
+
+		// verify the samples far from the boundary are decided by the approximation
+		assertTrue("exact distance computed for " + exactCount + " samples", exactCount < sampleCount * 0.6);
+	}
+
+	@Test
+	public void test_contains_scanMatchesHaversine() {
+		// setup, locations spread up to 3 radii around POIs at every latitude up to 80 degrees
+		final Random random = new Random(36);
+		final double[] latitudes = new double[SCAN_SAMPLE_COUNT];
+		final double[] longitudes = new double[SCAN_SAMPLE_COUNT];
+		final double[] centerLatitudes = new double[SCAN_SAMPLE_COUNT];
+		final double[] centerLongitudes = new double[SCAN_SAMPLE_COUNT];
+		final double[] longitudeScales = new double[SCAN_SAMPLE_COUNT];
+		final double[] radii = new double[SCAN_SAMPLE_COUNT];
+
+		for (int i = 0; i < SCAN_SAMPLE_COUNT; i++) {
+			centerLatitudes[i] = random.nextDouble() * 160 - 80;
+			centerLongitudes[i] = random.nextDouble() * 360 - 180;
+			longitudeScales[i] = PlacesGeoMath.longitudeScale(centerLatitudes[i]);
+			radii[i] = 50 + random.nextDouble() * 950;
+
+			final double distance = random.nextDouble() * 3 * radii[i];
+			final double bearing = random.nextDouble() * 2 * Math.PI;
+			latitudes[i] = centerLatitudes[i] + distance * Math.cos(bearing) / PlacesGeoMath.METERS_PER_DEGREE;
+			longitudes[i] = PlacesGeoMath.wrapLongitude(centerLongitudes[i] + distance * Math.sin(bearing) /
+							(PlacesGeoMath.METERS_PER_DEGREE * longitudeScales[i]));
+		}
+
+		// test
+		final int containsMatches = containsScan(latitudes, longitudes, centerLatitudes, centerLongitudes, longitudeScales,
+									radii);
+		final int haversineMatches = haversineScan(latitudes, longitudes, centerLatitudes, centerLongitudes, radii);
+
+		// verify
+		assertEquals(haversineMatches, containsMatches);
+	}
+
+	private int containsScan(final double[] latitudes, final double[] longitudes, final double[] centerLatitudes,
+							 final double[] centerLongitudes, final double[] longitudeScales, final double[] radii) {
+		int matches = 0;
+
+		for (int i = 0; i < latitudes.length; i++) {
+			if (PlacesGeoMath.contains(latitudes[i], longitudes[i], centerLatitudes[i], centerLongitudes[i], longitudeScales[i],
+									   radii[i])) {
+				matches++;
+			}
+		}
+
+		return matches;
+	}
+
+	private int haversineScan(final double[] latitudes, final double[] longitudes, final double[] centerLatitudes,
+							  final double[] centerLongitudes, final double[] radii) {
+		int matches = 0;
+
+		for (int i = 0; i < latitudes.length; i++) {
+			if (PlacesGeoMath.haversine(latitudes[i], longitudes[i], centerLatitudes[i], centerLongitudes[i]) <= radii[i]) {
+				matches++;
+			}
+		}
+
+		return matches;
+	}
+}
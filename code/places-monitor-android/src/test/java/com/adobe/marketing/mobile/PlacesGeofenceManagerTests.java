@@ -21,9 +21,13 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.location.Location;
 import android.support.v4.app.ActivityCompat;
 
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.Status;
 import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofenceStatusCodes;
 import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingEvent;
 import com.google.android.gms.location.GeofencingRequest;
@@ -47,8 +51,10 @@ import org.powermock.reflect.Whitebox;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -62,7 +68,7 @@ import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({Context.class, App.class, LocationServices.class, PendingIntent.class, ActivityCompat.class, Intent.class, Places.class, GeofencingEvent.class})
+@PrepareForTest({Context.class, App.class, LocationServices.class, PendingIntent.class, ActivityCompat.class, Intent.class, Places.class, GeofencingEvent.class, Location.class})
 public class PlacesGeofenceManagerTests {
 	static private String MONITOR_SHARED_PREFERENCE_KEY = "com.adobe.placesMonitor";
 	private final String FINE_LOCATION = Manifest.permission.ACCESS_FINE_LOCATION;
@@ -93,6 +99,9 @@ public class PlacesGeofenceManagerTests {
 	@Mock
 	Void mockVoid;
 
+	@Mock
+	Location location;
+
 	@Mock
 	SharedPreferences mockSharedPreference;
 
@@ -172,6 +181,56 @@ public class PlacesGeofenceManagerTests {
 		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_ENTER));
 	}
 
+	@Test
+	public void test_startMonitoringFences_withLoiteringDelay_holdsEntries() {
+		// setup, the second poi overrides the loitering delay
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(
+					OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		geofenceManager.setLoiteringDelay(120000);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		PlacesPOI dwellPOI = new PlacesPOI("id1", "name1", 22.22, 33.33, 100, "libraryID", 200, null);
+		dwellPOI.setContainsUser(true);
+		pois.add(dwellPOI);
+		Map<String, String> metadata = new HashMap<String, String>();
+		metadata.put(PlacesMonitorConstants.GeofencePolicy.LOITERING_DELAY_METADATA_KEY, "0");
+		PlacesPOI immediatePOI = new PlacesPOI("id2", "name2", 22.23, 33.33, 100, "libraryID", 200, metadata);
+		immediatePOI.setContainsUser(true);
+		pois.add(immediatePOI);
+
+		// test
+		geofenceManager.startMonitoringFences(pois);
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+
+		// verify the initial dwell trigger is requested
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(GeofencingRequest.INITIAL_TRIGGER_DWELL, addedFences.getValue().getInitialTrigger());
+
+		// verify only the entry of the poi without loitering delay is dispatched
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+		assertEquals(PlacesPOIStateTable.State.ENTERING, geofenceManager.getPOIStates().getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.INSIDE, geofenceManager.getPOIStates().getState("id2"));
+	}
+
+	@Test
+	public void test_startMonitoringFences_withoutLoiteringDelay_noInitialTrigger() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(
+					OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+
+		// test
+		geofenceManager.startMonitoringFences(poiListA());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+
+		// verify
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(0, addedFences.getValue().getInitialTrigger());
+	}
+
 	@Test
 	public void test_startMonitoringFences_onFailureToRemoveOldFences_stillAddsNewPOIs() {
 		// setup other captors
@@ -242,6 +301,83 @@ public class PlacesGeofenceManagerTests {
 	}
 
 
+	@Test
+	public void test_startMonitoringFences_fitsReservedGeofenceSlots() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(
+					OnSuccessListener.class);
+		geofenceManager.setReservedGeofenceSlots(98);
+
+		// test
+		geofenceManager.startMonitoringFences(poiListA());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+
+		// verify only the leading pois that fit are registered
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(2, addedFences.getValue().getGeofences().size());
+		assertEquals("id1", addedFences.getValue().getGeofences().get(0).getRequestId());
+
+		// verify the budget is updated on success
+		verify(addTask, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockVoid);
+		assertEquals(2, geofenceManager.getSlotBudget().getUsedSlots());
+		assertEquals(0, geofenceManager.getSlotBudget().getFreeSlots());
+	}
+
+	@Test
+	public void test_startMonitoringFences_givesReducedSlotsToHighestValuePOIs() {
+		// setup
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(
+					OnSuccessListener.class);
+		geofenceManager.setReservedGeofenceSlots(99);
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+		geofenceManager.evaluateLocation(location);
+		Map<String, String> metadata = new HashMap<String, String>();
+		metadata.put(PlacesMonitorConstants.POIRanking.VALUE_METADATA_KEY, "100");
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(new PlacesPOI("id1", "name1", 22.22, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("id2", "name2", 22.223, 33.33, 100, "libraryID", 200, metadata));
+
+		// test
+		geofenceManager.startMonitoringFences(pois);
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+
+		// verify the only slot goes to the valuable poi rather than the nearest one
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(1, addedFences.getValue().getGeofences().size());
+		assertEquals("id2", addedFences.getValue().getGeofences().get(0).getRequestId());
+		assertEquals(1, geofenceManager.getPOIRanker().getScore("id2").getValue(), 0);
+	}
+
+	@Test
+	public void test_startMonitoringFences_when_tooManyGeofences_shrinksAndRetries() {
+		// setup
+		final ArgumentCaptor<OnFailureListener> onFailureCallback = ArgumentCaptor.forClass(OnFailureListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(
+					OnSuccessListener.class);
+
+		// test
+		geofenceManager.startMonitoringFences(poiListA());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		verify(addTask, times(1)).addOnFailureListener(onFailureCallback.capture());
+		onFailureCallback.getValue().onFailure(new ApiException(new Status(GeofenceStatusCodes.GEOFENCE_TOO_MANY_GEOFENCES)));
+
+		// verify the registration is retried with half the geofences
+		verify(geofencingClient, times(2)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(4, addedFences.getAllValues().get(0).getGeofences().size());
+		assertEquals(2, addedFences.getAllValues().get(1).getGeofences().size());
+		assertEquals(1, geofenceManager.getSlotBudget().getRetryHistory().size());
+		assertEquals(2, geofenceManager.getAvailableGeofenceSlots());
+	}
+
 	@Test
 	public void test_startMonitoringFences_addFence_throwsSecurityException() {
 		Mockito.when(geofencingClient.addGeofences(any(GeofencingRequest.class),
@@ -323,7 +459,7 @@ public class PlacesGeofenceManagerTests {
 		// setup
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
 		final ArgumentCaptor<OnFailureListener> onFailureCallback = ArgumentCaptor.forClass(OnFailureListener.class);
@@ -343,13 +479,14 @@ public class PlacesGeofenceManagerTests {
 		onSuccessCallback.getValue().onSuccess(mockVoid);
 
 		// verify internal state of userWithGeofence
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(0, resultUserWithInGeofences.size());
 
 		// verify interaction with SharedPreference
 		verify(mockSharedPreference, times(1)).edit();
 		verify(mockSharedPreferenceEditor, times(1)).remove(eq(
 				PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY));
+		verify(mockSharedPreferenceEditor, times(1)).remove(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY));
 		verify(mockSharedPreferenceEditor, times(1)).commit();
 	}
 
@@ -358,7 +495,7 @@ public class PlacesGeofenceManagerTests {
 		// setup
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
 		final ArgumentCaptor<OnFailureListener> onFailureCallback = ArgumentCaptor.forClass(OnFailureListener.class);
@@ -378,7 +515,7 @@ public class PlacesGeofenceManagerTests {
 		onSuccessCallback.getValue().onSuccess(mockVoid);
 
 		// verify internal state of userWithGeofence
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(1, resultUserWithInGeofences.size());
 
 		// verify interaction with SharedPreference
@@ -470,12 +607,120 @@ public class PlacesGeofenceManagerTests {
 		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_ENTER);
 	}
 
+	@Test
+	public void test_onGeofenceReceived_dispatchesDuplicateTriggersOnce() throws Exception {
+		// setup
+		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
+		initialUserWithinGeofenceSet.add("id1");
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_EXIT).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		obtainedGeofence.add(geofence);
+
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_EXIT);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_EXIT);
+		assertEquals(1, geofenceManager.getTransitionBatcher().getBatchCount());
+		assertEquals(1, geofenceManager.getTransitionBatcher().getLastBatchSize());
+	}
+
+	@Test
+	public void test_onGeofenceReceived_dwell_dispatchesEntryOnce() throws Exception {
+		// setup
+		geofenceManager.setTransitionFilterParameters(60000, 0, 0);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_DWELL).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_DWELL);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test, the dwell is reported without waiting for the dwell time of the filter
+		geofenceManager.onGeofenceReceived(intent);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_ENTER);
+		assertEquals(PlacesPOIStateTable.State.INSIDE, geofenceManager.getPOIStates().getState("id1"));
+	}
+
+	@Test
+	public void test_onGeofenceReceived_exitBeforeDwell_isIgnored() throws Exception {
+		// setup
+		geofenceManager.getPOIStates().markPending("id1", true);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_EXIT).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_EXIT);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), anyInt());
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, geofenceManager.getPOIStates().getState("id1"));
+	}
+
+	@Test
+	public void test_onGeofenceReceived_redeliveredAfterRestart_isDispatchedOnce() throws Exception {
+		// setup
+		final ArgumentCaptor<String> persistedStatesCaptor = ArgumentCaptor.forClass(String.class);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_ENTER).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_ENTER);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// the recorded entry is persisted before the trigger is dispatched
+		verify(mockSharedPreferenceEditor, times(1)).putString(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY),
+				persistedStatesCaptor.capture());
+		when(mockSharedPreference.getString(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY),
+											nullable(String.class))).thenReturn(persistedStatesCaptor.getValue());
+
+		// test, the process restarts and the OS delivers the same trigger again
+		geofenceManager = new PlacesGeofenceManager();
+		geofenceManager.loadPersistedData();
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_ENTER);
+		assertEquals(PlacesPOIStateTable.State.INSIDE, geofenceManager.getPOIStates().getState("id1"));
+		assertEquals(1, geofenceManager.getPOIStates().getSequence("id1"));
+	}
+
 	@Test
 	public void test_onGeofenceReceived_ForEntry_whenPOIAlreadyEntered() throws Exception {
 		// setup
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		List<Geofence> obtainedGeofence = new ArrayList<>();
 		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
@@ -502,7 +747,7 @@ public class PlacesGeofenceManagerTests {
 		// setup
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		List<Geofence> obtainedGeofence = new ArrayList<>();
 		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
@@ -524,14 +769,14 @@ public class PlacesGeofenceManagerTests {
 		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_EXIT);
 
 		// verify result
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(0, resultUserWithInGeofences.size());
 	}
 
 	@Test
 	public void test_onGeofenceReceived_ForExit_whenPOINotAlreadyEntered() throws Exception {
 		// setup
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", new HashSet<String>());
+		setUserWithinGeofences(new HashSet<String>());
 
 		List<Geofence> obtainedGeofence = new ArrayList<>();
 		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
@@ -547,12 +792,12 @@ public class PlacesGeofenceManagerTests {
 		// test
 		geofenceManager.onGeofenceReceived(intent);
 
-		// verify that exit event goes out, if the poi is not already entered.
-		verifyStatic(Places.class, Mockito.times(1));
+		// verify that exit event is dropped, if the poi is not already entered.
+		verifyStatic(Places.class, Mockito.times(0));
 		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_EXIT);
 
 		// verify result
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(0, resultUserWithInGeofences.size());
 	}
 
@@ -572,13 +817,373 @@ public class PlacesGeofenceManagerTests {
 		Places.processGeofenceEvent(mockGeofencingEvent);
 	}
 
+	// ========================================================================================
+	// software monitoring
+	// ========================================================================================
+
+	@Test
+	public void test_startMonitoringFences_inSoftwareMode_doesNotRegisterFences() {
+		// setup
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+
+		// test
+		geofenceManager.startMonitoringFences(poiListA());
+
+		// verify
+		verify(geofencingClient, times(0)).addGeofences(any(GeofencingRequest.class), any(PendingIntent.class));
+		assertEquals(4, geofenceManager.getSoftwareEngine().size());
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+	}
+
+	@Test
+	public void test_setMonitoringMode_removesRegisteredFences() {
+		// test
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+
+		// verify
+		verify(geofencingClient, times(1)).removeGeofences(geofencePendingIntent);
+	}
+
+	@Test
+	public void test_evaluateLocation_dispatchesCuratedTransitions() {
+		// setup
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		PlacesPOI insidePOI = new PlacesPOI("inside", "name1", 22.22, 33.33, 100, "libraryID", 200, null);
+		insidePOI.setContainsUser(true);
+		pois.add(insidePOI);
+		pois.add(new PlacesPOI("far", "name2", 22.24, 33.33, 100, "libraryID", 200, null));
+		geofenceManager.startMonitoringFences(pois);
+		when(location.getLatitude()).thenReturn(22.24);
+		when(location.getLongitude()).thenReturn(33.3305);
+
+		// test
+		geofenceManager.evaluateLocation(location);
+
+		// verify
+		final ArgumentCaptor<Geofence> exitedFence = ArgumentCaptor.forClass(Geofence.class);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(exitedFence.capture(), eq(Geofence.GEOFENCE_TRANSITION_EXIT));
+		assertEquals("inside", exitedFence.getValue().getRequestId());
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
+		assertEquals(1, resultUserWithInGeofences.size());
+		assertTrue(resultUserWithInGeofences.contains("far"));
+		assertEquals(2, geofenceManager.getTransitionBatcher().getBatchCount());
+	}
+
+	@Test
+	public void test_onGeofenceReceived_withDwellTime_dropsFlappingTransitions() throws Exception {
+		// setup
+		geofenceManager.setTransitionFilterParameters(60000, 0, 0);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_ENTER).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test, the OS reports an entry then an exit within the dwell time
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_ENTER);
+		geofenceManager.onGeofenceReceived(intent);
+		assertEquals(PlacesPOIStateTable.State.ENTERING, geofenceManager.getPOIStates().getState("id1"));
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_EXIT);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), anyInt());
+		assertEquals(2, geofenceManager.getTransitionFilter().getSuppressedCount());
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, geofenceManager.getPOIStates().getState("id1"));
+		assertEquals(0, geofenceManager.getPOIStates().getSequence("id1"));
+	}
+
+	@Test
+	public void test_evaluateLocation_releasesEntryAfterDwellTime() throws Exception {
+		// setup
+		geofenceManager.setTransitionFilterParameters(1, 0, 0);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		Geofence geofence = new Geofence.Builder().setRequestId("id1").setTransitionTypes(
+			Geofence.GEOFENCE_TRANSITION_ENTER).setCircularRegion(22.33, -33.33,
+					100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+		obtainedGeofence.add(geofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_ENTER);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+		geofenceManager.onGeofenceReceived(intent);
+		Thread.sleep(5);
+
+		// test, the next location fix confirms the held entry
+		geofenceManager.evaluateLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(geofence, Geofence.GEOFENCE_TRANSITION_ENTER);
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
+		assertTrue(resultUserWithInGeofences.contains("id1"));
+	}
+
+	@Test
+	public void test_evaluateLocation_withExitHysteresis() {
+		// setup
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+		geofenceManager.setTransitionFilterParameters(0, 0, 30);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		PlacesPOI insidePOI = new PlacesPOI("inside", "name1", 22.22, 33.33, 100, "libraryID", 200, null);
+		insidePOI.setContainsUser(true);
+		pois.add(insidePOI);
+		geofenceManager.startMonitoringFences(pois);
+		when(location.getLongitude()).thenReturn(33.33);
+
+		// test, 120 meters from the center is within the hysteresis band
+		when(location.getLatitude()).thenReturn(22.22 + 120 / PlacesGeoMath.METERS_PER_DEGREE);
+		geofenceManager.evaluateLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_EXIT));
+
+		// test, 140 meters from the center is beyond it
+		when(location.getLatitude()).thenReturn(22.22 + 140 / PlacesGeoMath.METERS_PER_DEGREE);
+		geofenceManager.evaluateLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_EXIT));
+	}
+
+	@Test
+	public void test_startMonitoringFences_inHybridMode_splitsNearestPOIs() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.HYBRID);
+		geofenceManager.setReservedGeofenceSlots(98);
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+		geofenceManager.evaluateLocation(location);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(new PlacesPOI("far", "name1", 22.30, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("near", "name2", 22.225, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("farther", "name3", 22.40, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("nearest", "name4", 22.2205, 33.33, 100, "libraryID", 200, null));
+
+		// test
+		geofenceManager.startMonitoringFences(pois);
+
+		// verify the nearest POIs are registered with the OS
+		verify(removeTask, times(2)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(2, addedFences.getValue().getGeofences().size());
+		assertEquals("nearest", addedFences.getValue().getGeofences().get(0).getRequestId());
+		assertEquals("near", addedFences.getValue().getGeofences().get(1).getRequestId());
+
+		// verify the remaining POIs are evaluated in software
+		assertEquals(2, geofenceManager.getSoftwareEngine().size());
+	}
+
+	@Test
+	public void test_startMonitoringFences_inHybridMode_whenTooManyGeofences_evaluatesCutPOIsInSoftware() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<OnFailureListener> onFailureCallback = ArgumentCaptor.forClass(OnFailureListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.HYBRID);
+
+		// test
+		geofenceManager.startMonitoringFences(poiListA());
+		verify(removeTask, times(2)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		assertEquals(0, geofenceManager.getSoftwareEngine().size());
+		verify(addTask, times(1)).addOnFailureListener(onFailureCallback.capture());
+		onFailureCallback.getValue().onFailure(new ApiException(new Status(GeofenceStatusCodes.GEOFENCE_TOO_MANY_GEOFENCES)));
+
+		// verify the POIs cut from the retried registration are evaluated in software
+		verify(geofencingClient, times(2)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(4, addedFences.getAllValues().get(0).getGeofences().size());
+		assertEquals(2, addedFences.getAllValues().get(1).getGeofences().size());
+		assertEquals(2, geofenceManager.getSoftwareEngine().size());
+	}
+
+	@Test
+	public void test_startMonitoringFences_inHybridMode_handoffDoesNotDuplicateEntry() {
+		// setup
+		geofenceManager.setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.HYBRID);
+		geofenceManager.setReservedGeofenceSlots(99);
+		when(location.getLatitude()).thenReturn(22.21);
+		when(location.getLongitude()).thenReturn(33.33);
+		geofenceManager.evaluateLocation(location);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(new PlacesPOI("near", "name1", 22.22, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("far", "name2", 22.23, 33.33, 100, "libraryID", 200, null));
+		geofenceManager.startMonitoringFences(pois);
+
+		// the user walks into the POI monitored in software
+		when(location.getLatitude()).thenReturn(22.23);
+		geofenceManager.evaluateLocation(location);
+
+		// test, the refresh moves the entered POI to the OS tier
+		List<PlacesPOI> refreshedPOIs = new ArrayList<PlacesPOI>();
+		PlacesPOI far = new PlacesPOI("far", "name2", 22.23, 33.33, 100, "libraryID", 200, null);
+		far.setContainsUser(true);
+		refreshedPOIs.add(far);
+		refreshedPOIs.add(new PlacesPOI("near", "name1", 22.22, 33.33, 100, "libraryID", 200, null));
+		geofenceManager.startMonitoringFences(refreshedPOIs);
+
+		// verify the entry was dispatched only once
+		final ArgumentCaptor<Geofence> enteredFence = ArgumentCaptor.forClass(Geofence.class);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(enteredFence.capture(), eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+		assertEquals("far", enteredFence.getValue().getRequestId());
+		assertEquals(1, geofenceManager.getSoftwareEngine().size());
+	}
+
+	@Test
+	public void test_startMonitoringFences_mergesSmallPOIsIntoProxyFence() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+
+		// test
+		geofenceManager.startMonitoringFences(clusteredPOIList());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+
+		// verify the two small adjacent POIs take one slot
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(2, addedFences.getValue().getGeofences().size());
+		assertEquals(PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + "a",
+					 addedFences.getValue().getGeofences().get(0).getRequestId());
+		assertEquals("c", addedFences.getValue().getGeofences().get(1).getRequestId());
+		assertEquals(1, geofenceManager.getFencePlanner().getSavedSlots());
+
+		// verify the members are not evaluated until the proxy fence is entered
+		assertTrue(geofenceManager.getArmedFences().isEmpty());
+		assertEquals(0, geofenceManager.getSoftwareEngine().size());
+	}
+
+	@Test
+	public void test_onGeofenceReceived_proxyFence_confirmsMembersInLibrary() throws Exception {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final String proxyId = PlacesMonitorConstants.FencePlanner.PROXY_FENCE_ID_PREFIX + "a";
+		geofenceManager.startMonitoringFences(clusteredPOIList());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		List<Geofence> obtainedGeofence = new ArrayList<>();
+		obtainedGeofence.add(new Geofence.Builder().setRequestId(proxyId).setTransitionTypes(
+								 Geofence.GEOFENCE_TRANSITION_ENTER).setCircularRegion(22.2202, 33.33,
+										 100).setExpirationDuration(Geofence.NEVER_EXPIRE).build());
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(obtainedGeofence);
+		Mockito.when(mockGeofencingEvent.getTriggeringLocation()).thenReturn(location);
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_ENTER);
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test, the user enters the proxy fence at the center of the first member
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify only the entry of the member containing the triggering location is dispatched
+		assertTrue(geofenceManager.getArmedFences().contains(proxyId));
+		assertEquals(2, geofenceManager.getSoftwareEngine().size());
+		assertEquals(PlacesPOIStateTable.State.INSIDE, geofenceManager.getPOIStates().getState("a"));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, geofenceManager.getPOIStates().getState("b"));
+
+		// test, the user leaves the proxy fence
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_EXIT);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify the exit of the entered member is dispatched and the members are released
+		assertTrue(geofenceManager.getArmedFences().isEmpty());
+		assertEquals(0, geofenceManager.getSoftwareEngine().size());
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, geofenceManager.getPOIStates().getState("a"));
+		final ArgumentCaptor<Geofence> enteredFence = ArgumentCaptor.forClass(Geofence.class);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(enteredFence.capture(), eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+		assertEquals("a", enteredFence.getValue().getRequestId());
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_EXIT));
+	}
+
+	@Test
+	public void test_onGeofenceReceived_district_registersFencesOfEnteredDistrict() throws Exception {
+		// setup, without any location the district of the nearest POI is active
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallbackRemoveFences = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<GeofencingRequest> addedFences = ArgumentCaptor.forClass(GeofencingRequest.class);
+		final String districtA = PlacesMonitorConstants.DistrictTier.DISTRICT_ID_PREFIX + "a1";
+		final String districtB = PlacesMonitorConstants.DistrictTier.DISTRICT_ID_PREFIX + "b1";
+		geofenceManager.startMonitoringFences(twoDistrictPOIList());
+		verify(removeTask, times(1)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		verify(geofencingClient, times(1)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(6, addedFences.getValue().getGeofences().size());
+		assertEquals(districtA, addedFences.getValue().getGeofences().get(0).getRequestId());
+		assertEquals(districtB, addedFences.getValue().getGeofences().get(1).getRequestId());
+		assertEquals("a1", addedFences.getValue().getGeofences().get(2).getRequestId());
+		geofenceManager.getPOIStates().recordEntry("a1", 1000);
+
+		PowerMockito.when(GeofencingEvent.class, "fromIntent", any(Intent.class)).thenReturn(mockGeofencingEvent);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_GEOFENCE);
+
+		// test, the user leaves the first district
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(districtGeofences(districtA));
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_EXIT);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify the exit of the entered POI is dispatched and only the districts are registered
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), eq(Geofence.GEOFENCE_TRANSITION_EXIT));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, geofenceManager.getPOIStates().getState("a1"));
+		verify(removeTask, times(2)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		verify(geofencingClient, times(2)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(2, addedFences.getValue().getGeofences().size());
+
+		// test, the user enters the second district
+		Mockito.when(mockGeofencingEvent.getTriggeringGeofences()).thenReturn(districtGeofences(districtB));
+		Mockito.when(mockGeofencingEvent.getGeofenceTransition()).thenReturn(Geofence.GEOFENCE_TRANSITION_ENTER);
+		geofenceManager.onGeofenceReceived(intent);
+
+		// verify its fences are registered with an initial entry trigger
+		verify(removeTask, times(3)).addOnSuccessListener(onSuccessCallbackRemoveFences.capture());
+		onSuccessCallbackRemoveFences.getValue().onSuccess(mockVoid);
+		verify(geofencingClient, times(3)).addGeofences(addedFences.capture(), eq(geofencePendingIntent));
+		assertEquals(6, addedFences.getValue().getGeofences().size());
+		assertEquals("b1", addedFences.getValue().getGeofences().get(2).getRequestId());
+		assertEquals(GeofencingRequest.INITIAL_TRIGGER_ENTER, addedFences.getValue().getInitialTrigger());
+		assertTrue(geofenceManager.getDistrictTier().isActive(districtB));
+		assertFalse(geofenceManager.getDistrictTier().isActive(districtA));
+	}
+
+	@Test
+	public void test_evaluateLocation_inOSMode_isNoOp() {
+		// setup
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+
+		// test
+		geofenceManager.evaluateLocation(location);
+
+		// verify
+		assertEquals(0, geofenceManager.getSoftwareEngine().getEvaluationCount());
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), anyInt());
+	}
+
 	// ========================================================================================
 	// findNewlyEnteredPOIs
 	// ========================================================================================
 	@Test
 	public void test_findNewlyEnteredPOIs_when_noInitiallyEnteredPOIs() {
 		// setup
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", new HashSet<String>());
+		setUserWithinGeofences(new HashSet<String>());
 
 		List<PlacesPOI> nearByPOIs = new ArrayList<PlacesPOI>();
 		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.22, 33.33, 100, "libraryID", 200, null);
@@ -595,7 +1200,7 @@ public class PlacesGeofenceManagerTests {
 		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(nearByPOIs);
 
 		// verify the stored in memory userWithinGeofences variable
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(2, resultUserWithInGeofences.size());
 		assertTrue(resultUserWithInGeofences.contains("id2"));
 		assertTrue(resultUserWithInGeofences.contains("id4"));
@@ -612,7 +1217,7 @@ public class PlacesGeofenceManagerTests {
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
 		initialUserWithinGeofenceSet.add("id2");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		List<PlacesPOI> nearByPOIs = new ArrayList<PlacesPOI>();
 		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.22, 33.33, 100, "libraryID", 200, null);
@@ -629,7 +1234,7 @@ public class PlacesGeofenceManagerTests {
 		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(nearByPOIs);
 
 		// verify the stored in memory userWithinGeofences variable
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(2, resultUserWithInGeofences.size());
 		assertTrue(resultUserWithInGeofences.contains("id2"));
 		assertTrue(resultUserWithInGeofences.contains("id4"));
@@ -646,19 +1251,101 @@ public class PlacesGeofenceManagerTests {
 		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
 		initialUserWithinGeofenceSet.add("id1");
 		initialUserWithinGeofenceSet.add("id2");
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", initialUserWithinGeofenceSet);
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
 
 		// test
 		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(new ArrayList<PlacesPOI>());
 
 		// verify the stored in memory userWithinGeofences variable
-		HashSet<String> resultUserWithInGeofences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(0, resultUserWithInGeofences.size());
 
 		// verify newlyEntered POI
 		assertEquals(0, newlyEnteredPOI.size());
 	}
 
+	@Test
+	public void test_findNewlyEnteredPOIs_recomputesContainmentAgainstLatestLocation() {
+		// setup, the user moved into poi1 and out of poi2 since the query location of the response
+		setUserWithinGeofences(new HashSet<String>());
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+		geofenceManager.evaluateLocation(location);
+
+		List<PlacesPOI> nearByPOIs = new ArrayList<PlacesPOI>();
+		PlacesPOI poi1 = new PlacesPOI("id1", "name1", 22.2205, 33.33, 100, "libraryID", 200, null);
+		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.23, 33.33, 100, "libraryID", 200, null);
+		PlacesPOI poi3 = new PlacesPOI("id3", "name3", 22.22, 33.3305, 100, "libraryID", 200, null);
+		poi1.setContainsUser(false);
+		poi2.setContainsUser(true);
+		poi3.setContainsUser(true);
+		nearByPOIs.add(poi1);
+		nearByPOIs.add(poi2);
+		nearByPOIs.add(poi3);
+
+		// test
+		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(nearByPOIs);
+
+		// verify
+		assertEquals(2, newlyEnteredPOI.size());
+		assertEquals("id1", newlyEnteredPOI.get(0).getIdentifier());
+		assertEquals("id3", newlyEnteredPOI.get(1).getIdentifier());
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
+		assertFalse(resultUserWithInGeofences.contains("id2"));
+
+		// verify the metrics
+		assertEquals(3, geofenceManager.getContainmentCheckCount());
+		assertEquals(1, geofenceManager.getLocalOnlyContainmentCount());
+		assertEquals(1, geofenceManager.getServerOnlyContainmentCount());
+	}
+
+	@Test
+	public void test_findNewlyEnteredPOIs_withInaccurateLocation_keepsUncertainState() {
+		// setup, the user was recorded within id1 and the latest fix has a 300 meters accuracy
+		HashSet<String> initialUserWithinGeofenceSet = new HashSet<String>();
+		initialUserWithinGeofenceSet.add("id1");
+		setUserWithinGeofences(initialUserWithinGeofenceSet);
+		when(location.getLatitude()).thenReturn(22.22);
+		when(location.getLongitude()).thenReturn(33.33);
+		when(location.hasAccuracy()).thenReturn(true);
+		when(location.getAccuracy()).thenReturn(300f);
+		geofenceManager.evaluateLocation(location);
+
+		List<PlacesPOI> nearByPOIs = new ArrayList<PlacesPOI>();
+		PlacesPOI poi1 = new PlacesPOI("id1", "name1", 22.2209, 33.33, 50, "libraryID", 200, null);
+		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.22, 33.33, 50, "libraryID", 200, null);
+		poi1.setContainsUser(false);
+		poi2.setContainsUser(true);
+		nearByPOIs.add(poi1);
+		nearByPOIs.add(poi2);
+
+		// test
+		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(nearByPOIs);
+
+		// verify neither the exit of id1 nor the entry of id2 is confident enough
+		assertEquals(0, newlyEnteredPOI.size());
+		Set<String> resultUserWithInGeofences = geofenceManager.getPOIStates().getInsideIdentifiers();
+		assertEquals(1, resultUserWithInGeofences.size());
+		assertTrue(resultUserWithInGeofences.contains("id1"));
+	}
+
+	@Test
+	public void test_findNewlyEnteredPOIs_withoutAcceptedLocation_trustsServerVerdict() {
+		// setup
+		setUserWithinGeofences(new HashSet<String>());
+		List<PlacesPOI> nearByPOIs = new ArrayList<PlacesPOI>();
+		PlacesPOI poi1 = new PlacesPOI("id1", "name1", 22.23, 33.33, 100, "libraryID", 200, null);
+		poi1.setContainsUser(true);
+		nearByPOIs.add(poi1);
+
+		// test
+		List<PlacesPOI> newlyEnteredPOI = geofenceManager.findNewlyEnteredPOIs(nearByPOIs);
+
+		// verify
+		assertEquals(1, newlyEnteredPOI.size());
+		assertEquals(0, geofenceManager.getContainmentCheckCount());
+	}
+
 	@Test
 	public void test_onGeofenceReceived_when_unknownAction() throws Exception {
 		// setup
@@ -695,25 +1382,47 @@ public class PlacesGeofenceManagerTests {
 	@Test
 	public void test_loadPersistedData() {
 		// setup
-		Set<String> savedMonitoringPois = poiSetA();
+		setUserWithinGeofences(new HashSet<>());
+
+		when(mockSharedPreference.getString(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY),
+											nullable(String.class))).thenReturn("id1|I|1000|2000|3\nid2|O|0|2500|2");
+
+		// test
+		geofenceManager.loadPersistedData();
+
+		// verify
+		PlacesPOIStateTable poiStates = geofenceManager.getPOIStates();
+		assertEquals(2, poiStates.size());
+		assertEquals(PlacesPOIStateTable.State.INSIDE, poiStates.getState("id1"));
+		assertEquals(1000, poiStates.getEnteredAt("id1"));
+		assertEquals(2000, poiStates.getLastConfirmedAt("id1"));
+		assertEquals(3, poiStates.getSequence("id1"));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id2"));
+		verify(mockSharedPreference, times(0)).getStringSet(eq(
+					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY), nullable(Set.class));
+	}
+
+	@Test
+	public void test_loadPersistedData_migratesUserWithinGeofences() {
+		// setup
 		Set<String> savedUserWithinPois = poiSetB();
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", new HashSet<>());
+		setUserWithinGeofences(new HashSet<>());
 
 		when(mockSharedPreference.getStringSet(eq(PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY),
-											   any(Set.class))).thenReturn(savedUserWithinPois);
+											   nullable(Set.class))).thenReturn(savedUserWithinPois);
 
 		// test
 		geofenceManager.loadPersistedData();
 
 		// verify
-		assertEquals(savedUserWithinPois, Whitebox.getInternalState(geofenceManager, "userWithinGeofences"));
+		assertEquals(savedUserWithinPois, geofenceManager.getPOIStates().getInsideIdentifiers());
 	}
 
 	@Test
 	public void test_loadPersistedData_whenSharedPreference_isNull() {
 		// setup
 		Set<String> savedMonitoringPois = poiSetA();
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", new HashSet<>());
+		setUserWithinGeofences(new HashSet<>());
 		Mockito.when(context.getSharedPreferences(MONITOR_SHARED_PREFERENCE_KEY, 0)).thenReturn(null);
 
 		when(mockSharedPreference.getStringSet(eq(PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY),
@@ -726,66 +1435,83 @@ public class PlacesGeofenceManagerTests {
 		// verify
 		verify(mockSharedPreference, times(0)).getStringSet(eq(
 					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY), any(Set.class));
-		HashSet<String> loadedUserWithinFences = Whitebox.getInternalState(geofenceManager, "userWithinGeofences");
+		Set<String> loadedUserWithinFences = geofenceManager.getPOIStates().getInsideIdentifiers();
 		assertEquals(0, loadedUserWithinFences.size());
 	}
 
 
 	// ========================================================================================
-	// saveUserWithinGeofences
+	// savePOIStates
 	// ========================================================================================
 
 	@Test
-	public void test_saveUserWithinGeofences() {
+	public void test_savePOIStates() {
 		// setup
 		Set<String> pois = poiSetA();
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", pois);
-		final ArgumentCaptor<Set<String>> persistedPOICaptor = ArgumentCaptor.forClass(Set.class);
+		setUserWithinGeofences(pois);
+		final ArgumentCaptor<String> persistedStatesCaptor = ArgumentCaptor.forClass(String.class);
 
 		// test
-		geofenceManager.saveUserWithinGeofences();
+		geofenceManager.savePOIStates();
 
 		// verify
 		verify(mockSharedPreference, times(1)).edit();
-		verify(mockSharedPreferenceEditor, times(1)).putStringSet(eq(
-					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY), persistedPOICaptor.capture());
+		verify(mockSharedPreferenceEditor, times(1)).putString(eq(
+					PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY), persistedStatesCaptor.capture());
+		verify(mockSharedPreferenceEditor, times(1)).remove(eq(
+					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY));
+		verify(mockSharedPreferenceEditor, times(1)).commit();
+		PlacesPOIStateTable savedStates = new PlacesPOIStateTable();
+		savedStates.deserialize(persistedStatesCaptor.getValue());
+		assertEquals(pois, savedStates.getInsideIdentifiers());
+	}
+
+	@Test
+	public void test_savePOIStates_whenEmpty() {
+		// setup
+		setUserWithinGeofences(new HashSet<String>());
+
+		// test
+		geofenceManager.savePOIStates();
+
+		// verify
+		verify(mockSharedPreferenceEditor, times(1)).remove(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY));
+		verify(mockSharedPreferenceEditor, times(0)).putString(eq(PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY),
+				anyString());
 		verify(mockSharedPreferenceEditor, times(1)).commit();
-		assertEquals(pois, persistedPOICaptor.getValue());
 	}
 
 
 	@Test
-	public void test_saveUserWithinGeofences_when_sharedPreference_isNull() {
+	public void test_savePOIStates_when_sharedPreference_isNull() {
 		// setup
 		Set<String> pois = poiSetA();
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", pois);
+		setUserWithinGeofences(pois);
 		Mockito.when(context.getSharedPreferences(MONITOR_SHARED_PREFERENCE_KEY, 0)).thenReturn(null);
 
 		// test
-		geofenceManager.saveUserWithinGeofences();
+		geofenceManager.savePOIStates();
 
 		// verify
 		verify(mockSharedPreference, times(0)).edit();
-		verify(mockSharedPreferenceEditor, times(0)).putStringSet(eq(
-					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY),
-				ArgumentMatchers.<String>anySet());
+		verify(mockSharedPreferenceEditor, times(0)).putString(eq(
+					PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY), anyString());
 		verify(mockSharedPreferenceEditor, times(0)).commit();
 	}
 
 	@Test
-	public void test_saveUserWithinGeofences_when_sharedPreferenceEditor_isNull() {
+	public void test_savePOIStates_when_sharedPreferenceEditor_isNull() {
 		// setup
 		Set<String> pois = poiSetA();
-		Whitebox.setInternalState(geofenceManager, "userWithinGeofences", pois);
+		setUserWithinGeofences(pois);
 		Mockito.when(mockSharedPreference.edit()).thenReturn(null);
 
 		// test
-		geofenceManager.saveUserWithinGeofences();
+		geofenceManager.savePOIStates();
 
 		// verify
-		verify(mockSharedPreferenceEditor, times(0)).putStringSet(eq(
-					PlacesMonitorTestConstants.SharedPreference.USERWITHIN_GEOFENCES_KEY),
-				ArgumentMatchers.<String>anySet());
+		verify(mockSharedPreferenceEditor, times(0)).putString(eq(
+					PlacesMonitorTestConstants.SharedPreference.POI_STATES_KEY), anyString());
 		verify(mockSharedPreferenceEditor, times(0)).commit();
 	}
 
@@ -831,6 +1557,12 @@ public class PlacesGeofenceManagerTests {
 		assertFalse(permission);
 	}
 
+	private void setUserWithinGeofences(final Set<String> identifiers) {
+		PlacesPOIStateTable poiStates = new PlacesPOIStateTable();
+		poiStates.loadInsideIdentifiers(identifiers);
+		Whitebox.setInternalState(geofenceManager, "poiStates", poiStates);
+	}
+
 	// ========================================================================================
 	// POI Set A
 	// ========================================================================================
@@ -840,14 +1572,44 @@ public class PlacesGeofenceManagerTests {
 		PlacesPOI poi1 = new PlacesPOI("id1", "name1", 22.22, 33.33, 100, "libraryID", 200, null);
 		poi1.setContainsUser(true);
 		pois.add(poi1);
-		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.22, 33.33, 100, "libraryID", 200, null);
+		PlacesPOI poi2 = new PlacesPOI("id2", "name2", 22.23, 33.33, 100, "libraryID", 200, null);
 		poi2.setContainsUser(true);
 		pois.add(poi2);
-		pois.add(new PlacesPOI("id3", "name3", 22.22, 33.33, 100, "libraryID", 200, null));
-		pois.add(new PlacesPOI("id4", "name4", 22.22, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("id3", "name3", 22.24, 33.33, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("id4", "name4", 22.25, 33.33, 100, "libraryID", 200, null));
 		return pois;
 	}
 
+	private List<PlacesPOI> clusteredPOIList() {
+		List<PlacesPOI> pois = new ArrayList<>();
+		pois.add(new PlacesPOI("a", "name1", 22.22, 33.33, 30, "libraryID", 200, null));
+		pois.add(new PlacesPOI("b", "name2", 22.2204, 33.33, 30, "libraryID", 200, null));
+		pois.add(new PlacesPOI("c", "name3", 22.30, 33.33, 100, "libraryID", 200, null));
+		return pois;
+	}
+
+	private List<PlacesPOI> twoDistrictPOIList() {
+		List<PlacesPOI> pois = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			pois.add(new PlacesPOI("a" + (i + 1), "name", 22.22 + i * 0.005, 33.33, 100, "libraryID", 200, null));
+		}
+
+		for (int i = 0; i < 4; i++) {
+			pois.add(new PlacesPOI("b" + (i + 1), "name", 22.30 + i * 0.005, 33.33, 100, "libraryID", 200, null));
+		}
+
+		return pois;
+	}
+
+	private List<Geofence> districtGeofences(final String districtId) {
+		List<Geofence> geofences = new ArrayList<>();
+		geofences.add(new Geofence.Builder().setRequestId(districtId).setTransitionTypes(
+						  Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT).setCircularRegion(22.22, 33.33,
+								  2000).setExpirationDuration(Geofence.NEVER_EXPIRE).build());
+		return geofences;
+	}
+
 	private Set<String> poiSetA() {
 		Set<String> pois = new HashSet<>();
 		pois.add("id1");
@@ -0,0 +1,122 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeofencePolicyTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesGeofencePolicyTests {
+	private PlacesGeofencePolicy policy;
+
+	@Before
+	public void before() {
+		policy = new PlacesGeofencePolicy();
+	}
+
+	@Test
+	public void test_defaults() {
+		// setup
+		PlacesPOI poi = poi(100, null);
+
+		// test and verify
+		assertEquals(0, policy.getLoiteringDelay(poi));
+		assertEquals(0, policy.getResponsiveness(poi));
+		assertTrue(policy.reportsExit(poi));
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT, policy.getTransitionTypes(poi));
+		assertEquals(Geofence.NEVER_EXPIRE, policy.getExpirationDuration(1000));
+	}
+
+	@Test
+	public void test_getLoiteringDelay() {
+		// setup
+		policy.setLoiteringDelay(60000);
+
+		// test and verify, the metadata overrides the default delay
+		assertEquals(60000, policy.getLoiteringDelay(poi(100, null)));
+		assertEquals(0, policy.getLoiteringDelay(poi(100, metadata(
+							PlacesMonitorConstants.GeofencePolicy.LOITERING_DELAY_METADATA_KEY, "0"))));
+		assertEquals(60000, policy.getLoiteringDelay(poi(100, metadata(
+							 PlacesMonitorConstants.GeofencePolicy.LOITERING_DELAY_METADATA_KEY, "soon"))));
+		assertEquals(Geofence.GEOFENCE_TRANSITION_DWELL | Geofence.GEOFENCE_TRANSITION_EXIT,
+					 policy.getTransitionTypes(poi(100, null)));
+	}
+
+	@Test
+	public void test_getResponsiveness() {
+		// test and verify, the large regions tolerate a delayed notification
+		assertEquals(0, policy.getResponsiveness(poi(999, null)));
+		assertEquals(PlacesMonitorConstants.GeofencePolicy.LARGE_REGION_RESPONSIVENESS, policy.getResponsiveness(poi(1000,
+					 null)));
+		assertEquals(30000, policy.getResponsiveness(poi(100, metadata(
+							 PlacesMonitorConstants.GeofencePolicy.RESPONSIVENESS_METADATA_KEY, "30000"))));
+		assertEquals(0, policy.getResponsiveness(poi(5000, metadata(
+							 PlacesMonitorConstants.GeofencePolicy.RESPONSIVENESS_METADATA_KEY, "0"))));
+		assertEquals(0, policy.getResponsiveness(poi(100, metadata(
+							 PlacesMonitorConstants.GeofencePolicy.RESPONSIVENESS_METADATA_KEY, "-1"))));
+	}
+
+	@Test
+	public void test_getTransitionTypes_entriesOnly() {
+		// setup
+		PlacesPOI poi = poi(100, metadata(PlacesMonitorConstants.GeofencePolicy.EXIT_METADATA_KEY, "FALSE"));
+
+		// test and verify
+		assertFalse(policy.reportsExit(poi));
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, policy.getTransitionTypes(poi));
+		assertTrue(policy.reportsExit(poi(100, metadata(PlacesMonitorConstants.GeofencePolicy.EXIT_METADATA_KEY, "true"))));
+	}
+
+	@Test
+	public void test_getExpirationDuration() {
+		// setup
+		policy.setExpiresAt(1000 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS);
+
+		// test and verify, the geofences expire along with the nearby POIs
+		assertEquals(PlacesMonitorConstants.POICache.TTL_MILLISECONDS, policy.getExpirationDuration(1000));
+		assertEquals(PlacesMonitorConstants.GeofencePolicy.MIN_EXPIRATION_DURATION,
+					 policy.getExpirationDuration(1000 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS));
+	}
+
+	@Test
+	public void test_buildGeofence() {
+		// test
+		Geofence geofence = policy.buildGeofence(poi(2000, null), 1000);
+
+		// verify
+		assertNotNull(geofence);
+		assertEquals("id1", geofence.getRequestId());
+	}
+
+	private PlacesPOI poi(final int radius, final Map<String, String> metadata) {
+		return new PlacesPOI("id1", "name", 22.22, 33.33, radius, "libraryID", 1, metadata);
+	}
+
+	private Map<String, String> metadata(final String key, final String value) {
+		Map<String, String> metadata = new HashMap<String, String>();
+		metadata.put(key, value);
+		return metadata;
+	}
+}
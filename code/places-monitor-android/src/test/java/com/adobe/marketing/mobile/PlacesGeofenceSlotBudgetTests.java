@@ -0,0 +1,250 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesGeofenceSlotBudgetTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Context.class, App.class})
+public class PlacesGeofenceSlotBudgetTests {
+	private static final long NOW = 1000000;
+	static private String MONITOR_SHARED_PREFERENCE_KEY = "com.adobe.placesMonitor";
+	static private String RESERVED_GEOFENCE_SLOTS_KEY = "adb_reservedGeofenceSlots";
+	private PlacesGeofenceSlotBudget slotBudget;
+
+	@Mock
+	Context context;
+
+	@Mock
+	SharedPreferences mockSharedPreference;
+
+	@Mock
+	SharedPreferences.Editor mockSharedPreferenceEditor;
+
+	@Before
+	public void before() {
+		PowerMockito.mockStatic(App.class);
+		Mockito.when(App.getAppContext()).thenReturn(context);
+		Mockito.when(context.getSharedPreferences(MONITOR_SHARED_PREFERENCE_KEY, 0)).thenReturn(mockSharedPreference);
+		Mockito.when(mockSharedPreference.edit()).thenReturn(mockSharedPreferenceEditor);
+		slotBudget = new PlacesGeofenceSlotBudget();
+	}
+
+	@Test
+	public void test_defaults() {
+		assertEquals(100, slotBudget.getAvailableSlots());
+		assertEquals(0, slotBudget.getReservedSlots());
+		assertEquals(0, slotBudget.getUsedSlots());
+		assertEquals(100, slotBudget.getFreeSlots());
+		assertTrue(slotBudget.getRetryHistory().isEmpty());
+	}
+
+	@Test
+	public void test_setReservedSlots() {
+		// test
+		assertTrue(slotBudget.setReservedSlots(30));
+
+		// verify
+		assertEquals(70, slotBudget.getAvailableSlots());
+		assertEquals(30, slotBudget.getReservedSlots());
+		verify(mockSharedPreferenceEditor, times(1)).putInt(RESERVED_GEOFENCE_SLOTS_KEY, 30);
+		verify(mockSharedPreferenceEditor, times(1)).commit();
+	}
+
+	@Test
+	public void test_setReservedSlots_when_invalid() {
+		assertFalse(slotBudget.setReservedSlots(-1));
+		assertFalse(slotBudget.setReservedSlots(101));
+		assertEquals(100, slotBudget.getAvailableSlots());
+		verify(mockSharedPreferenceEditor, times(0)).putInt(Mockito.anyString(), Mockito.anyInt());
+	}
+
+	@Test
+	public void test_fit() {
+		// setup
+		slotBudget.setReservedSlots(97);
+		List<PlacesPOI> pois = samplePOIs(5);
+
+		// test
+		List<PlacesPOI> fittedPOIs = slotBudget.fit(pois);
+
+		// verify
+		assertEquals(3, fittedPOIs.size());
+		assertEquals("id0", fittedPOIs.get(0).getIdentifier());
+		assertEquals("id2", fittedPOIs.get(2).getIdentifier());
+	}
+
+	@Test
+	public void test_fit_when_allPOIsFit() {
+		List<PlacesPOI> pois = samplePOIs(5);
+		assertSame(pois, slotBudget.fit(pois));
+	}
+
+	@Test
+	public void test_recordTooManyGeofences_shrinksAndRecordsHistory() {
+		// setup
+		slotBudget.setReservedSlots(20);
+		slotBudget.recordRegistered(80, NOW);
+
+		// test
+		assertEquals(40, slotBudget.recordTooManyGeofences(80, NOW));
+		assertEquals(20, slotBudget.recordTooManyGeofences(40, NOW));
+
+		// verify
+		assertEquals(0, slotBudget.getUsedSlots());
+		List<PlacesGeofenceSlotBudget.RetryRecord> history = slotBudget.getRetryHistory();
+		assertEquals(2, history.size());
+		assertEquals(80, history.get(0).getAttemptedSlots());
+		assertEquals(40, history.get(0).getSlotLimit());
+		assertEquals(40, history.get(1).getAttemptedSlots());
+		assertEquals(20, history.get(1).getSlotLimit());
+	}
+
+	@Test
+	public void test_recordTooManyGeofences_givesUpAtOneSlot() {
+		// test and verify, the limit is floored at one slot and a single rejected geofence is not retried
+		assertEquals(1, slotBudget.recordTooManyGeofences(2, NOW));
+		assertEquals(0, slotBudget.recordTooManyGeofences(1, NOW));
+		assertEquals(1, slotBudget.getAvailableSlots());
+		assertEquals(1, slotBudget.getRetryHistory().get(1).getSlotLimit());
+	}
+
+	@Test
+	public void test_recordRegistered_growsLimitAfterRecoveryInterval() {
+		// setup
+		slotBudget.setReservedSlots(20);
+		slotBudget.recordTooManyGeofences(80, NOW);
+		slotBudget.recordTooManyGeofences(40, NOW);
+
+		// test and verify, a registration right after the rejection keeps the limit
+		slotBudget.recordRegistered(20, NOW + 1000);
+		assertEquals(20, slotBudget.getAvailableSlots());
+
+		// test and verify, the limit doubles once per recovery interval
+		slotBudget.recordRegistered(20, NOW + PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL);
+		assertEquals(40, slotBudget.getAvailableSlots());
+		slotBudget.recordRegistered(40, NOW + PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL + 1000);
+		assertEquals(40, slotBudget.getAvailableSlots());
+		slotBudget.recordRegistered(40, NOW + 2 * PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL);
+		assertEquals(80, slotBudget.getAvailableSlots());
+
+		// test and verify, the limit is bounded by the platform maximum
+		slotBudget.recordRegistered(80, NOW + 3 * PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL);
+		assertEquals(80, slotBudget.getAvailableSlots());
+	}
+
+	@Test
+	public void test_recordRegistered_withNoGeofences_keepsLimit() {
+		// setup
+		slotBudget.recordTooManyGeofences(100, NOW);
+
+		// test
+		slotBudget.recordRegistered(0, NOW + PlacesMonitorConstants.GeofenceBudget.SLOT_LIMIT_RECOVERY_INTERVAL);
+
+		// verify
+		assertEquals(50, slotBudget.getAvailableSlots());
+	}
+
+	@Test
+	public void test_retryHistory_isBounded() {
+		// test
+		for (int i = 0; i < 15; i++) {
+			slotBudget.recordTooManyGeofences(100, NOW);
+		}
+
+		// verify
+		assertEquals(PlacesMonitorConstants.GeofenceBudget.MAX_RETRY_HISTORY, slotBudget.getRetryHistory().size());
+	}
+
+	@Test
+	public void test_setReservedSlots_resetsLearnedLimit() {
+		// setup
+		slotBudget.recordTooManyGeofences(100, NOW);
+		assertEquals(50, slotBudget.getAvailableSlots());
+
+		// test
+		slotBudget.setReservedSlots(10);
+
+		// verify
+		assertEquals(90, slotBudget.getAvailableSlots());
+	}
+
+	@Test
+	public void test_getFreeSlots() {
+		// setup
+		slotBudget.setReservedSlots(30);
+		slotBudget.recordRegistered(20, NOW);
+
+		// verify
+		assertEquals(50, slotBudget.getFreeSlots());
+		assertEquals(20, slotBudget.getUsedSlots());
+	}
+
+	@Test
+	public void test_loadPersistedData() {
+		// setup
+		Mockito.when(mockSharedPreference.getInt(RESERVED_GEOFENCE_SLOTS_KEY, 0)).thenReturn(25);
+
+		// test
+		slotBudget.loadPersistedData();
+
+		// verify
+		assertEquals(25, slotBudget.getReservedSlots());
+		assertEquals(75, slotBudget.getAvailableSlots());
+	}
+
+	@Test
+	public void test_loadPersistedData_when_contextNull() {
+		// setup
+		Mockito.when(App.getAppContext()).thenReturn(null);
+
+		// test
+		slotBudget.loadPersistedData();
+
+		// verify
+		assertEquals(0, slotBudget.getReservedSlots());
+	}
+
+	private List<PlacesPOI> samplePOIs(final int count) {
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+
+		for (int i = 0; i < count; i++) {
+			pois.add(new PlacesPOI("id" + i, "name" + i, 22.22, 33.33, 100, "libraryID", 200, null));
+		}
+
+		return pois;
+	}
+}
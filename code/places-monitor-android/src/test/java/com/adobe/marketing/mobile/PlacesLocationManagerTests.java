@@ -55,7 +55,13 @@ import org.powermock.reflect.Whitebox;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.*;
@@ -109,6 +115,15 @@ public class PlacesLocationManagerTests {
 	@Mock
 	PlacesMonitorInternal mockPlacesMonitorInternal;
 
+	@Mock
+	PendingIntent activeFixPendingIntent;
+
+	@Mock
+	ScheduledExecutorService scheduledExecutor;
+
+	@Mock
+	ScheduledFuture<?> scheduledFuture;
+
 	@Mock
 	SharedPreferences mockSharedPreference;
 
@@ -185,6 +200,34 @@ public class PlacesLocationManagerTests {
 					 locationRequestArgumentCaptor.getValue().getSmallestDisplacement(), 0.0);
 	}
 
+	@Test
+	public void test_getLocationRequest_everyProfileIsThrottledBySmallestDisplacement() throws Exception {
+		// setup
+		Map<String, Object> passiveSharedState = new HashMap<String, Object>();
+		passiveSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_MODE, true);
+		final PlacesMonitorConfiguration[] configurations = new PlacesMonitorConfiguration[] {
+			new PlacesMonitorConfiguration(), PlacesMonitorConfiguration.fromSharedState(passiveSharedState)
+		};
+
+		for (PlacesMonitorConfiguration configuration : configurations) {
+			Whitebox.setInternalState(locationManager, "configuration", configuration);
+
+			// test
+			locationManager.setForeground(true);
+			LocationRequest foregroundRequest = Whitebox.invokeMethod(locationManager, "getLocationRequest");
+			locationManager.setForeground(false);
+			LocationRequest backgroundRequest = Whitebox.invokeMethod(locationManager, "getLocationRequest");
+
+			// verify the foreground intervals are only a few seconds, the updates rely on the smallest displacement
+			assertEquals(PlacesMonitorTestConstants.Location.REQUEST_INTERVAL, foregroundRequest.getInterval());
+			assertTrue(foregroundRequest.getInterval() < 60 * 1000L);
+			assertEquals(PlacesMonitorTestConstants.Location.REQUEST_SMALLEST_DISPLACEMENT,
+						 foregroundRequest.getSmallestDisplacement(), 0.0);
+			assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT,
+						 backgroundRequest.getSmallestDisplacement(), 0.0);
+		}
+	}
+
 
 	@Test
 	public void test_beginLocationTracking_when_contextIsNull() {
@@ -695,6 +738,479 @@ public class PlacesLocationManagerTests {
 		assertEquals(PlacesMonitorLocationPermission.ALWAYS_ALLOW,locationPermission);
 	}
 
+	// ========================================================================================
+	// motion gate
+	// ========================================================================================
+
+	@Test
+	public void test_motionGate_pausesLocationUpdatesWhileStill() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		assertTrue(motionGate.isStarted());
+
+		// test
+		motionGate.setStill(true);
+
+		// verify the location updates are removed while the monitoring stays started
+		verify(locationProviderClient, times(1)).removeLocationUpdates(pendingIntent);
+		assertTrue(locationManager.isPausedWhileStill());
+		assertEquals(1, locationManager.getPauseCount());
+		Boolean hasMonitoringStarted = Whitebox.getInternalState(locationManager, "hasMonitoringStarted");
+		assertTrue("The location update flag should remain true", hasMonitoringStarted);
+		assertTrue(locationManager.getPausedTime(System.currentTimeMillis() + 60000) >= 60000);
+
+		// test, a second still transition is ignored
+		motionGate.setStill(true);
+		verify(locationProviderClient, times(1)).removeLocationUpdates(pendingIntent);
+		assertEquals(1, locationManager.getPauseCount());
+	}
+
+	@Test
+	public void test_motionGate_resumesLocationUpdatesOnMotion() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		motionGate.setStill(true);
+
+		// test
+		motionGate.setStill(false);
+
+		// verify the location updates are requested again
+		verify(mockTaskSettingsResponse, times(2)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		verify(locationProviderClient, times(2)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+		assertFalse(locationManager.isPausedWhileStill());
+		long pausedTime = locationManager.getPausedTime(System.currentTimeMillis() + 60000);
+		assertTrue(pausedTime >= 0 && pausedTime < 60000);
+	}
+
+	@Test
+	public void test_motionGate_configurationChangeWhileStill_keepsUpdatesPaused() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		motionGate.setStill(true);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 60000);
+
+		// test
+		locationManager.setConfiguration(PlacesMonitorConfiguration.fromSharedState(configSharedState));
+		verify(mockTaskSettingsResponse, times(2)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+
+		// verify
+		verify(locationProviderClient, times(1)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+		assertTrue(locationManager.isPausedWhileStill());
+	}
+
+	@Test
+	public void test_motionGate_whenMonitoringNotStarted_doesNotPause() {
+		// setup
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+
+		// test
+		locationManager.setMotionGate(motionGate);
+		motionGate.setStill(true);
+
+		// verify the gate is started only along with the location updates
+		assertFalse(motionGate.isStarted());
+		assertFalse(locationManager.isPausedWhileStill());
+		verify(locationProviderClient, times(0)).removeLocationUpdates(pendingIntent);
+	}
+
+	@Test
+	public void test_stopMonitoring_stopsMotionGate() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		motionGate.setStill(true);
+
+		// test
+		locationManager.stopMonitoring();
+
+		// verify
+		assertFalse(motionGate.isStarted());
+		assertFalse(locationManager.isPausedWhileStill());
+		assertEquals(1, locationManager.getPauseCount());
+	}
+
+	// ========================================================================================
+	// foreground and background profiles
+	// ========================================================================================
+
+	@Test
+	public void test_setForeground_switchesToBackgroundProfile() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<LocationRequest> locationRequestArgumentCaptor = ArgumentCaptor.forClass(LocationRequest.class);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+
+		// test
+		locationManager.setForeground(false);
+
+		// verify the request is replaced in place, without removing the updates or checking the settings again
+		verify(locationProviderClient, times(2)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(pendingIntent));
+		LocationRequest backgroundRequest = locationRequestArgumentCaptor.getAllValues().get(1);
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_INTERVAL, backgroundRequest.getInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_FASTEST_INTERVAL,
+					 backgroundRequest.getFastestInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT,
+					 backgroundRequest.getSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, backgroundRequest.getPriority());
+		verify(locationProviderClient, times(0)).removeLocationUpdates(pendingIntent);
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(any(OnSuccessListener.class));
+		assertFalse(locationManager.isForeground());
+		assertEquals(1, locationManager.getProfileSwitchCount());
+
+		// test, switching back to foreground restores the foreground profile
+		locationManager.setForeground(true);
+
+		// verify
+		verify(locationProviderClient, times(3)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(pendingIntent));
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_INTERVAL,
+					 locationRequestArgumentCaptor.getValue().getInterval());
+		assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, locationRequestArgumentCaptor.getValue().getPriority());
+		assertEquals(2, locationManager.getProfileSwitchCount());
+	}
+
+	@Test
+	public void test_setForeground_sameState_doesNotRequestAgain() {
+		// setup
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", true);
+
+		// test
+		locationManager.setForeground(true);
+
+		// verify
+		verify(locationProviderClient, times(0)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+		assertEquals(0, locationManager.getProfileSwitchCount());
+	}
+
+	@Test
+	public void test_setForeground_whenMonitoringNotStarted_appliesProfileOnStart() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<LocationRequest> locationRequestArgumentCaptor = ArgumentCaptor.forClass(LocationRequest.class);
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", false);
+
+		// test
+		locationManager.setForeground(false);
+
+		// verify nothing is requested until the monitoring starts
+		verify(locationProviderClient, times(0)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+
+		// test
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+
+		// verify
+		verify(locationProviderClient, times(1)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(pendingIntent));
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_INTERVAL,
+					 locationRequestArgumentCaptor.getValue().getInterval());
+		assertEquals(0, locationManager.getProfileSwitchCount());
+	}
+
+	@Test
+	public void test_setForeground_whilePausedWhileStill_doesNotRequestAgain() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		motionGate.setStill(true);
+
+		// test
+		locationManager.setForeground(false);
+
+		// verify
+		verify(locationProviderClient, times(1)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+		assertTrue(locationManager.isPausedWhileStill());
+		assertFalse(locationManager.isForeground());
+	}
+
+	@Test
+	public void test_setForeground_whenProfilesAreIdentical_doesNotRequestAgain() {
+		// setup
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", true);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL,
+							  PlacesMonitorTestConstants.Location.REQUEST_INTERVAL);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL,
+							  PlacesMonitorTestConstants.Location.REQUEST_FASTEST_INTERVAL);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT,
+							  PlacesMonitorTestConstants.Location.REQUEST_SMALLEST_DISPLACEMENT);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY, "highAccuracy");
+		Whitebox.setInternalState(locationManager, "configuration",
+								  PlacesMonitorConfiguration.fromSharedState(configSharedState));
+
+		// test
+		locationManager.setForeground(false);
+
+		// verify
+		verify(locationProviderClient, times(0)).requestLocationUpdates(any(LocationRequest.class), eq(pendingIntent));
+		assertEquals(0, locationManager.getProfileSwitchCount());
+	}
+
+	// ========================================================================================
+	// passive mode
+	// ========================================================================================
+
+	@Test
+	public void test_passiveMode_requestsNoPowerUpdatesAndSchedulesDeadline() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<LocationRequest> locationRequestArgumentCaptor = ArgumentCaptor.forClass(LocationRequest.class);
+		setupPassiveMode(600000);
+
+		// test
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+
+		// verify
+		verify(locationProviderClient, times(1)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(pendingIntent));
+		assertEquals(LocationRequest.PRIORITY_NO_POWER, locationRequestArgumentCaptor.getValue().getPriority());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_INTERVAL, locationRequestArgumentCaptor.getValue().getInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_SMALLEST_DISPLACEMENT,
+					 locationRequestArgumentCaptor.getValue().getSmallestDisplacement(), 0.0);
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(600000L), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_passiveMode_nearbyFixes_getPOIsOnce() throws Exception {
+		// setup
+		final Location location3 = Mockito.mock(Location.class);
+		setupPassiveMode(600000);
+		startPassiveMonitoring();
+		// location2 is about 4 meters away from location1, location3 about 1.5 kilometers away
+		mockFix(location1, 37.3309, -121.8940, 1000L);
+		mockFix(location2, 37.33093, -121.89402, 2000L);
+		mockFix(location3, 37.3444, -121.8940, 3000L);
+		final LocationResult result1 = LocationResult.create(Collections.singletonList(location1));
+		final LocationResult result2 = LocationResult.create(Collections.singletonList(location2));
+		final LocationResult result3 = LocationResult.create(Collections.singletonList(location3));
+		PowerMockito.mockStatic(LocationResult.class);
+		PowerMockito.when(LocationResult.class, "extractResult", any(Intent.class)).thenReturn(result1, result2, result3);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_LOCATION);
+
+		// test
+		locationManager.onLocationReceived(intent);
+		locationManager.onLocationReceived(intent);
+
+		// verify both fixes are evaluated, but the nearby POIs are requested once
+		verify(mockPlacesMonitorInternal, times(1)).evaluateLocation(location1);
+		verify(mockPlacesMonitorInternal, times(1)).evaluateLocation(location2);
+		verify(mockPlacesMonitorInternal, times(1)).getPOIsForLocation(location1);
+		verify(mockPlacesMonitorInternal, times(0)).getPOIsForLocation(location2);
+
+		// test and verify the nearby POIs are requested again past the smallest displacement
+		locationManager.onLocationReceived(intent);
+		verify(mockPlacesMonitorInternal, times(1)).getPOIsForLocation(location3);
+	}
+
+	@Test
+	public void test_passiveMode_deadlineExpired_requestsSingleActiveFix() {
+		// setup
+		final ArgumentCaptor<Runnable> deadlineCaptor = ArgumentCaptor.forClass(Runnable.class);
+		final ArgumentCaptor<LocationRequest> locationRequestArgumentCaptor = ArgumentCaptor.forClass(LocationRequest.class);
+		setupPassiveMode(600000);
+		startPassiveMonitoring();
+		verify(scheduledExecutor, times(1)).schedule(deadlineCaptor.capture(), eq(600000L), eq(TimeUnit.MILLISECONDS));
+
+		// test
+		deadlineCaptor.getValue().run();
+
+		// verify a single fix is requested without replacing the passive updates, and the deadline starts over
+		verify(locationProviderClient, times(1)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(activeFixPendingIntent));
+		LocationRequest fixRequest = locationRequestArgumentCaptor.getValue();
+		assertEquals(1, fixRequest.getNumUpdates());
+		assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, fixRequest.getPriority());
+		assertEquals(1, locationManager.getActiveFixCount());
+		verify(scheduledExecutor, times(2)).schedule(any(Runnable.class), eq(600000L), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void test_passiveMode_acceptedFix_restartsDeadline() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		setupPassiveMode(600000);
+		startPassiveMonitoring();
+
+		// test
+		locationManager.updateLocation();
+		verify(mockTaskLocation, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocation);
+
+		// verify
+		verify(scheduledFuture, times(1)).cancel(false);
+		verify(scheduledExecutor, times(2)).schedule(any(Runnable.class), eq(600000L), eq(TimeUnit.MILLISECONDS));
+		verify(mockPlacesMonitorInternal, times(1)).getPOIsForLocation(mockLocation);
+		assertEquals(0, locationManager.getActiveFixCount());
+	}
+
+	@Test
+	public void test_passiveMode_stopMonitoring_cancelsDeadline() {
+		// setup
+		final ArgumentCaptor<Runnable> deadlineCaptor = ArgumentCaptor.forClass(Runnable.class);
+		setupPassiveMode(600000);
+		startPassiveMonitoring();
+		verify(scheduledExecutor, times(1)).schedule(deadlineCaptor.capture(), eq(600000L), eq(TimeUnit.MILLISECONDS));
+		deadlineCaptor.getValue().run();
+
+		// test
+		locationManager.stopMonitoring();
+
+		// verify
+		verify(scheduledFuture, times(2)).cancel(false);
+		verify(locationProviderClient, times(1)).removeLocationUpdates(activeFixPendingIntent);
+	}
+
+	@Test
+	public void test_passiveMode_pausedWhileStill_doesNotRequestActiveFix() {
+		// setup
+		final ArgumentCaptor<Runnable> deadlineCaptor = ArgumentCaptor.forClass(Runnable.class);
+		PlacesFakeMotionGate motionGate = new PlacesFakeMotionGate();
+		locationManager.setMotionGate(motionGate);
+		setupPassiveMode(600000);
+		startPassiveMonitoring();
+		verify(scheduledExecutor, times(1)).schedule(deadlineCaptor.capture(), eq(600000L), eq(TimeUnit.MILLISECONDS));
+
+		// test
+		motionGate.setStill(true);
+		deadlineCaptor.getValue().run();
+
+		// verify
+		verify(scheduledFuture, times(1)).cancel(false);
+		verify(locationProviderClient, times(0)).requestLocationUpdates(any(LocationRequest.class), eq(activeFixPendingIntent));
+		assertEquals(0, locationManager.getActiveFixCount());
+	}
+
+	@Test
+	public void test_activeMode_doesNotScheduleDeadline() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		Mockito.doReturn(scheduledExecutor).when(locationManager).getScheduledExecutor();
+
+		// test
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+
+		// verify
+		verify(scheduledExecutor, times(0)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+	}
+
+	private void setupPassiveMode(final long deadline) {
+		Mockito.doReturn(scheduledExecutor).when(locationManager).getScheduledExecutor();
+		Mockito.doReturn(scheduledFuture).when(scheduledExecutor).schedule(any(Runnable.class), anyLong(),
+				any(TimeUnit.class));
+		Mockito.when(PendingIntent.getBroadcast(eq(context), eq(PlacesMonitorConstants.Passive.ACTIVE_FIX_REQUEST_CODE),
+												any(Intent.class), eq(PendingIntent.FLAG_UPDATE_CURRENT))).thenReturn(activeFixPendingIntent);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_MODE, true);
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_FIX_DEADLINE, deadline);
+		Whitebox.setInternalState(locationManager, "configuration",
+								  PlacesMonitorConfiguration.fromSharedState(configSharedState));
+	}
+
+	private void mockFix(final Location location, final double latitude, final double longitude, final long time) {
+		when(location.getLatitude()).thenReturn(latitude);
+		when(location.getLongitude()).thenReturn(longitude);
+		when(location.getTime()).thenReturn(time);
+	}
+
+	private void startPassiveMonitoring() {
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		locationManager.beginLocationTracking();
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+	}
+
+	// ========================================================================================
+	// setConfiguration
+	// ========================================================================================
+
+	@Test
+	public void test_setConfiguration_whenMonitoringStarted() {
+		// setup
+		final ArgumentCaptor<OnSuccessListener> onSuccessCallback = ArgumentCaptor.forClass(OnSuccessListener.class);
+		final ArgumentCaptor<LocationRequest> locationRequestArgumentCaptor = ArgumentCaptor.forClass(LocationRequest.class);
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", true);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 60000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL, 30000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_SMALLEST_DISPLACEMENT, 250);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY, "balancedPowerAccuracy");
+
+		// test
+		locationManager.setConfiguration(PlacesMonitorConfiguration.fromSharedState(configSharedState));
+
+		// verify the location updates are requested again with the new parameters
+		verify(mockTaskSettingsResponse, times(1)).addOnSuccessListener(onSuccessCallback.capture());
+		onSuccessCallback.getValue().onSuccess(mockLocationSettingsResponse);
+		verify(locationProviderClient, times(1)).requestLocationUpdates(locationRequestArgumentCaptor.capture(),
+				eq(pendingIntent));
+		assertEquals(60000, locationRequestArgumentCaptor.getValue().getInterval());
+		assertEquals(30000, locationRequestArgumentCaptor.getValue().getFastestInterval());
+		assertEquals(250, locationRequestArgumentCaptor.getValue().getSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, locationRequestArgumentCaptor.getValue().getPriority());
+	}
+
+	@Test
+	public void test_setConfiguration_whenMonitoringNotStarted() {
+		// setup
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", false);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 60000);
+
+		// test
+		locationManager.setConfiguration(PlacesMonitorConfiguration.fromSharedState(configSharedState));
+
+		// verify
+		verify(locationManager, times(0)).beginLocationTracking();
+	}
+
+	@Test
+	public void test_setConfiguration_whenLocationRequestUnchanged() {
+		// setup
+		Whitebox.setInternalState(locationManager, "hasMonitoringStarted", true);
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 10);
+
+		// test
+		locationManager.setConfiguration(PlacesMonitorConfiguration.fromSharedState(configSharedState));
+
+		// verify
+		verify(locationManager, times(0)).beginLocationTracking();
+	}
+
 	// ========================================================================================
 	// onLocationReceived
 	// ========================================================================================
@@ -712,9 +1228,58 @@ public class PlacesLocationManagerTests {
 		locationManager.onLocationReceived(intent);
 
 		// verify
+		verify(mockPlacesMonitorInternal, times(1)).evaluateLocation(location1);
+		verify(mockPlacesMonitorInternal, times(1)).getPOIsForLocation(location1);
+	}
+
+	@Test
+	public void test_onLocationReceived_when_inaccurateFix_stillGetsPOIs() throws Exception {
+		// setup
+		List<Location> locationList = new ArrayList<>();
+		locationList.add(location1);
+		locationResult = LocationResult.create(locationList);
+		initiateLocationMocking();
+		when(location1.hasAccuracy()).thenReturn(true);
+		when(location1.getAccuracy()).thenReturn(800f);
+
+		// test
+		locationManager.onLocationReceived(intent);
+
+		// verify
+		verify(mockPlacesMonitorInternal, times(0)).evaluateLocation(location1);
 		verify(mockPlacesMonitorInternal, times(1)).getPOIsForLocation(location1);
 	}
 
+	// ========================================================================================
+	// acceptLocation
+	// ========================================================================================
+
+	@Test
+	public void test_acceptLocation() {
+		// setup
+		when(location1.getTime()).thenReturn(2000L);
+		when(location1.hasAccuracy()).thenReturn(true);
+		when(location1.getAccuracy()).thenReturn(20f);
+		when(location2.getTime()).thenReturn(1000L);
+
+		// test and verify
+		assertFalse(locationManager.acceptLocation(null));
+		assertTrue(locationManager.acceptLocation(location1));
+		assertFalse("out of order fixes should be rejected", locationManager.acceptLocation(location2));
+		assertEquals(location1, locationManager.getLastAcceptedLocation());
+	}
+
+	@Test
+	public void test_acceptLocation_when_inaccurate() {
+		// setup
+		when(location1.hasAccuracy()).thenReturn(true);
+		when(location1.getAccuracy()).thenReturn(PlacesMonitorConstants.Location.MAX_ACCEPTED_ACCURACY + 1);
+
+		// test and verify
+		assertFalse(locationManager.acceptLocation(location1));
+		assertNull(locationManager.getLastAcceptedLocation());
+	}
+
 	@Test
 	public void test_onLocationReceived_whenNullIntent() throws Exception {
 		// setup
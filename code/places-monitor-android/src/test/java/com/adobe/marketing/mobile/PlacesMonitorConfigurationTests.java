@@ -0,0 +1,361 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesMonitorConfigurationTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesMonitorConfigurationTests {
+
+	@Test
+	public void test_fromSharedState_when_null() {
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(null);
+
+		// verify
+		assertDefaults(configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_when_noMonitorKeys() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put("places.endpoint", "places.adobe.com");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertDefaults(configuration);
+		assertEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_validValues() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 10);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 600000L);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL, "300000");
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_SMALLEST_DISPLACEMENT, 500.0);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY, "LOWPOWER");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(10, configuration.getNearbyPOICount());
+		assertEquals(600000, configuration.getLocationInterval());
+		assertEquals(300000, configuration.getLocationFastestInterval());
+		assertEquals(500, configuration.getLocationSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_LOW_POWER, configuration.getLocationPriority());
+	}
+
+	@Test
+	public void test_fromSharedState_invalidValues() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 101);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, -1);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL, "fast");
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_SMALLEST_DISPLACEMENT, -10);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY, "turbo");
+		configSharedState.put(PlacesMonitorConstants.Configuration.MONITORING_MODE, "magic");
+		configSharedState.put(PlacesMonitorConstants.Configuration.ENTER_CONFIDENCE, 1.5);
+		configSharedState.put(PlacesMonitorConstants.Configuration.EXIT_CONFIDENCE, "sure");
+		configSharedState.put(PlacesMonitorConstants.Configuration.MIN_DWELL_TIME, -1);
+		configSharedState.put(PlacesMonitorConstants.Configuration.MIN_ABSENCE_TIME, "long");
+		configSharedState.put(PlacesMonitorConstants.Configuration.EXIT_HYSTERESIS, -5);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOITERING_DELAY, 3000000000L);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertDefaults(configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_confidenceThresholds() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.ENTER_CONFIDENCE, 0.9);
+		configSharedState.put(PlacesMonitorConstants.Configuration.EXIT_CONFIDENCE, "0.5");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(0.9, configuration.getEnterConfidence(), 0);
+		assertEquals(0.5, configuration.getExitConfidence(), 0);
+		assertNotEquals(new PlacesMonitorConfiguration(), configuration);
+		assertFalse(configuration.hasLocationRequestChanged(new PlacesMonitorConfiguration()));
+	}
+
+	@Test
+	public void test_fromSharedState_confidenceThresholds_addingUpToOne() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.ENTER_CONFIDENCE, 0.1);
+		configSharedState.put(PlacesMonitorConstants.Configuration.EXIT_CONFIDENCE, 0.7);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify both thresholds fall back to their defaults
+		assertEquals(PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE, configuration.getEnterConfidence(), 0);
+		assertEquals(PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE, configuration.getExitConfidence(), 0);
+		assertEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_transitionFilter() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.MIN_DWELL_TIME, 30000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.MIN_ABSENCE_TIME, "60000");
+		configSharedState.put(PlacesMonitorConstants.Configuration.EXIT_HYSTERESIS, 25.5);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(30000, configuration.getMinDwellTime());
+		assertEquals(60000, configuration.getMinAbsenceTime());
+		assertEquals(25.5, configuration.getExitHysteresis(), 0);
+		assertNotEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_loiteringDelay() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOITERING_DELAY, "120000");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(120000, configuration.getLoiteringDelay());
+		assertNotEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_fastestIntervalIsCappedToInterval() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 1000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.LOCATION_FASTEST_INTERVAL, 5000);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(1000, configuration.getLocationFastestInterval());
+	}
+
+	@Test
+	public void test_fromSharedState_softwareMonitoringMode() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.MONITORING_MODE, "Software");
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 500);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE, configuration.getMonitoringMode());
+		assertEquals(500, configuration.getNearbyPOICount());
+		assertNotEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_hybridMonitoringMode() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.MONITORING_MODE, "hybrid");
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 300);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(PlacesMonitorConfiguration.MonitoringMode.HYBRID, configuration.getMonitoringMode());
+		assertEquals(300, configuration.getNearbyPOICount());
+	}
+
+	@Test
+	public void test_fromSharedState_softwareMonitoringMode_invalidCount() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.MONITORING_MODE, "software");
+		configSharedState.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 1001);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(PlacesMonitorTestConstants.NEARBY_GEOFENCES_COUNT, configuration.getNearbyPOICount());
+	}
+
+	@Test
+	public void test_fromSharedState_backgroundProfile() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL, 7200000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL, "60000");
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT, 5000);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY, "LowPower");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(7200000, configuration.getBackgroundLocationInterval());
+		assertEquals(60000, configuration.getBackgroundLocationFastestInterval());
+		assertEquals(5000, configuration.getBackgroundLocationSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_LOW_POWER, configuration.getBackgroundLocationPriority());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_INTERVAL, configuration.getLocationInterval());
+		assertTrue(configuration.hasLocationRequestChanged(new PlacesMonitorConfiguration()));
+		assertNotEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_backgroundProfile_invalidValues() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL, 0);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL, "often");
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT, -1);
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY, "passive");
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_fromSharedState_backgroundFastestIntervalIsCappedToInterval() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL, 1000);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(1000, configuration.getBackgroundLocationFastestInterval());
+	}
+
+	@Test
+	public void test_fromSharedState_passiveMode() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_MODE, "True");
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_FIX_DEADLINE, 1800000);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertTrue(configuration.isPassiveMode());
+		assertEquals(1800000, configuration.getPassiveFixDeadline());
+		assertTrue(configuration.hasLocationRequestChanged(new PlacesMonitorConfiguration()));
+	}
+
+	@Test
+	public void test_fromSharedState_passiveMode_invalidValues() {
+		// setup
+		Map<String, Object> configSharedState = new HashMap<String, Object>();
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_MODE, "sometimes");
+		configSharedState.put(PlacesMonitorConstants.Configuration.PASSIVE_FIX_DEADLINE, 0);
+
+		// test
+		PlacesMonitorConfiguration configuration = PlacesMonitorConfiguration.fromSharedState(configSharedState);
+
+		// verify
+		assertEquals(new PlacesMonitorConfiguration(), configuration);
+	}
+
+	@Test
+	public void test_hasDistinctBackgroundProfile() {
+		// setup
+		Map<String, Object> sameProfiles = new HashMap<String, Object>();
+		sameProfiles.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_INTERVAL,
+						 PlacesMonitorTestConstants.Location.REQUEST_INTERVAL);
+		sameProfiles.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_FASTEST_INTERVAL,
+						 PlacesMonitorTestConstants.Location.REQUEST_FASTEST_INTERVAL);
+		sameProfiles.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_SMALLEST_DISPLACEMENT,
+						 PlacesMonitorTestConstants.Location.REQUEST_SMALLEST_DISPLACEMENT);
+		sameProfiles.put(PlacesMonitorConstants.Configuration.BACKGROUND_LOCATION_PRIORITY, "highAccuracy");
+
+		// test and verify
+		assertTrue(new PlacesMonitorConfiguration().hasDistinctBackgroundProfile());
+		assertFalse(PlacesMonitorConfiguration.fromSharedState(sameProfiles).hasDistinctBackgroundProfile());
+	}
+
+	@Test
+	public void test_hasLocationRequestChanged() {
+		// setup
+		Map<String, Object> countOnly = new HashMap<String, Object>();
+		countOnly.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 5);
+		Map<String, Object> priorityOnly = new HashMap<String, Object>();
+		priorityOnly.put(PlacesMonitorConstants.Configuration.LOCATION_PRIORITY, "noPower");
+		PlacesMonitorConfiguration defaults = new PlacesMonitorConfiguration();
+
+		// test and verify
+		assertFalse(PlacesMonitorConfiguration.fromSharedState(countOnly).hasLocationRequestChanged(defaults));
+		assertNotEquals(defaults, PlacesMonitorConfiguration.fromSharedState(countOnly));
+		assertTrue(PlacesMonitorConfiguration.fromSharedState(priorityOnly).hasLocationRequestChanged(defaults));
+		assertTrue(defaults.hasLocationRequestChanged(null));
+	}
+
+	private void assertDefaults(final PlacesMonitorConfiguration configuration) {
+		assertEquals(PlacesMonitorTestConstants.NEARBY_GEOFENCES_COUNT, configuration.getNearbyPOICount());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_INTERVAL, configuration.getLocationInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_FASTEST_INTERVAL, configuration.getLocationFastestInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.REQUEST_SMALLEST_DISPLACEMENT,
+					 configuration.getLocationSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_HIGH_ACCURACY, configuration.getLocationPriority());
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_INTERVAL, configuration.getBackgroundLocationInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_FASTEST_INTERVAL,
+					 configuration.getBackgroundLocationFastestInterval());
+		assertEquals(PlacesMonitorTestConstants.Location.BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT,
+					 configuration.getBackgroundLocationSmallestDisplacement(), 0.0);
+		assertEquals(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, configuration.getBackgroundLocationPriority());
+		assertFalse(configuration.isPassiveMode());
+		assertEquals(PlacesMonitorConstants.Passive.DEFAULT_FIX_DEADLINE, configuration.getPassiveFixDeadline());
+		assertEquals(PlacesMonitorConfiguration.MonitoringMode.OS, configuration.getMonitoringMode());
+		assertEquals(PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE, configuration.getEnterConfidence(), 0);
+		assertEquals(PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE, configuration.getExitConfidence(), 0);
+		assertEquals(PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_DWELL_TIME, configuration.getMinDwellTime());
+		assertEquals(PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_ABSENCE_TIME, configuration.getMinAbsenceTime());
+		assertEquals(PlacesMonitorConstants.TransitionFilter.DEFAULT_EXIT_HYSTERESIS, configuration.getExitHysteresis(), 0);
+		assertEquals(PlacesMonitorConstants.Dwell.DEFAULT_LOITERING_DELAY, configuration.getLoiteringDelay());
+	}
+}
@@ -29,16 +29,24 @@ import android.content.IntentFilter;
 import android.location.Location;
 import android.support.v4.content.LocalBroadcastManager;
 
+import com.google.android.gms.location.LocationResult;
+
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +57,7 @@ import static org.mockito.Mockito.when;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ExtensionApi.class, PlacesLocationManager.class, PlacesGeofenceManager.class, PlacesMonitorInternal.class, App.class, Context.class, Intent.class, LocalBroadcastManager.class, Places.class, Location.class})
+@PrepareForTest({ExtensionApi.class, PlacesLocationManager.class, PlacesGeofenceManager.class, PlacesMonitorInternal.class, App.class, Context.class, Intent.class, LocalBroadcastManager.class, Places.class, Location.class, LocationResult.class})
 public class PlacesMonitorInternalTests {
 	private PlacesMonitorInternal monitorInternal;
 
@@ -110,6 +118,9 @@ public class PlacesMonitorInternalTests {
 	@Mock
 	PlacesGeofenceManager geofenceManager;
 
+	@Mock
+	PlacesOfflineQueue offlineQueue;
+
 	@Before
 	public void before() throws Exception {
 		PowerMockito.mockStatic(App.class);
@@ -117,6 +128,8 @@ public class PlacesMonitorInternalTests {
 		PowerMockito.mockStatic(LocalBroadcastManager.class);
 		Mockito.when(LocalBroadcastManager.getInstance(context)).thenReturn(localBroadcastManager);
 		PowerMockito.whenNew(PlacesGeofenceManager.class).withNoArguments().thenReturn(geofenceManager);
+		PowerMockito.whenNew(PlacesOfflineQueue.class).withNoArguments().thenReturn(offlineQueue);
+		Mockito.when(geofenceManager.getAvailableGeofenceSlots()).thenReturn(PlacesMonitorConstants.GeofenceBudget.MAX_GEOFENCE_SLOTS);
 	}
 
 
@@ -215,6 +228,9 @@ public class PlacesMonitorInternalTests {
 		// test
 		monitorInternal.onUnregistered();
 		verify(extensionApi, times(1)).clearSharedEventStates(null);
+
+		// verify the connectivity receiver is unregistered
+		verify(context, times(1)).unregisterReceiver(any(BroadcastReceiver.class));
 	}
 
 	// ========================================================================================
@@ -306,6 +322,7 @@ public class PlacesMonitorInternalTests {
 		verify(geofenceManager, times(1)).stopMonitoringFences(true);
 		verify(geofenceManager, times(0)).startMonitoringFences(ArgumentMatchers.<PlacesPOI>anyList());
 		verify(locationManager, times(0)).setLocationPermission(any(PlacesMonitorLocationPermission.class));
+		verify(offlineQueue, times(1)).clear();
 
 		// verify places call
 		verifyStatic(Places.class, Mockito.times(1));
@@ -712,10 +729,99 @@ public class PlacesMonitorInternalTests {
 		List<PlacesPOI> nearbyPois = samplePOIList();
 		successCallbackCaptor.getValue().call(nearbyPois);
 
-		// verify
+		// verify the geofences expire along with the cached POIs
+		verify(geofenceManager, times(1)).setPOIExpiration(longThat(new ArgumentMatcher<Long>() {
+			@Override
+			public boolean matches(Long expiresAt) {
+				return expiresAt > System.currentTimeMillis();
+			}
+		}));
 		verify(geofenceManager, times(1)).startMonitoringFences(nearbyPois);
 	}
 
+	@Test
+	public void test_getPOIsForLocation_when_moving_prefetchesProjectedArea() {
+		// setup
+		initWithContext(context);
+		Mockito.when(location.hasBearing()).thenReturn(true);
+		Mockito.when(location.hasSpeed()).thenReturn(true);
+		Mockito.when(location.getSpeed()).thenReturn(10f);
+		Mockito.when(location.getLatitude()).thenReturn(22.22);
+		Mockito.when(location.getLongitude()).thenReturn(33.33);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// verify the POIs of the projected area are requested right after the nearby POIs
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		verify(geofenceManager, times(1)).startMonitoringFences(any(List.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_afterPrefetch_restoresNearbyPOIsOfLocation() {
+		// setup
+		initWithContext(context);
+		Mockito.when(location.hasBearing()).thenReturn(true);
+		Mockito.when(location.hasSpeed()).thenReturn(true);
+		Mockito.when(location.getSpeed()).thenReturn(10f);
+		Mockito.when(location.getLatitude()).thenReturn(22.22);
+		Mockito.when(location.getLongitude()).thenReturn(33.33);
+		final ArgumentCaptor<Location> locationCaptor = ArgumentCaptor.forClass(Location.class);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// test
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		successCallbackCaptor.getValue().call(Collections.singletonList(new PlacesPOI("ahead", "ahead", 22.24, 33.33, 100,
+												"libraryID", 200, null)));
+
+		// verify the Places extension is queried for the location of the user again after the prefetch, so that the
+		// geofence transitions are resolved against the POIs around the user
+		verifyStatic(Places.class, Mockito.times(3));
+		Places.getNearbyPointsOfInterest(locationCaptor.capture(), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		assertNotEquals(location, locationCaptor.getAllValues().get(1));
+		assertEquals(location, locationCaptor.getAllValues().get(2));
+
+		// verify the restored POIs are not monitored again
+		successCallbackCaptor.getValue().call(samplePOIList());
+		verify(geofenceManager, times(1)).startMonitoringFences(any(List.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_when_stationary_doesNotPrefetch() {
+		// setup
+		initWithContext(context);
+		Mockito.when(location.hasBearing()).thenReturn(true);
+		Mockito.when(location.hasSpeed()).thenReturn(true);
+		Mockito.when(location.getSpeed()).thenReturn(0.5f);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
 
 	@Test
 	public void test_getPOIsForLocation_when_failure_with_ConfigurationError() {
@@ -814,6 +920,613 @@ public class PlacesMonitorInternalTests {
 
 
 
+	@Test
+	public void test_getPOIsForLocation_when_failure_with_ConnectivityError_queuesRefresh() {
+		// setup
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final ArgumentCaptor<AdobeCallback> failureCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+				failureCallbackCaptor.capture());
+
+		// call the failure callback with CONNECTIVITY_ERROR
+		failureCallbackCaptor.getValue().call(PlacesRequestError.CONNECTIVITY_ERROR);
+
+		// verify
+		verify(offlineQueue, times(1)).enqueueRefresh(location);
+
+		// call the failure callback with SERVER_RESPONSE_ERROR
+		failureCallbackCaptor.getValue().call(PlacesRequestError.SERVER_RESPONSE_ERROR);
+
+		// verify
+		verify(offlineQueue, times(1)).enqueueRefresh(any(Location.class));
+	}
+
+	// ========================================================================================
+	// reserved geofence slots
+	// ========================================================================================
+
+	@Test
+	public void test_processEvents_when_setReservedGeofenceSlotsEvent() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+		when(geofenceManager.setReservedGeofenceSlots(40)).thenReturn(true);
+
+		// test
+		monitorInternal.queueEvent(reservedGeofenceSlotsEvent(40));
+		monitorInternal.processEvents();
+
+		// verify the nearby set is refreshed to fit in the new budget
+		verify(geofenceManager, times(1)).setReservedGeofenceSlots(40);
+		verify(locationManager, times(1)).updateLocation();
+	}
+
+	@Test
+	public void test_processEvents_when_setReservedGeofenceSlotsEventWithoutData() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+
+		// test
+		monitorInternal.queueEvent(new Event.Builder(PlacesMonitorTestConstants.EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS,
+									PlacesMonitorTestConstants.EventType.MONITOR,
+									PlacesMonitorTestConstants.EventSource.REQUEST_CONTENT).build());
+		monitorInternal.processEvents();
+
+		// verify
+		verify(geofenceManager, times(0)).setReservedGeofenceSlots(anyInt());
+		verify(locationManager, times(0)).updateLocation();
+	}
+
+	// ========================================================================================
+	// expected route
+	// ========================================================================================
+
+	@Test
+	public void test_processEvents_when_setExpectedRouteEvent_preloadsRoute() {
+		// setup, a route of about 22 kilometers
+		initWithContext(context);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		monitorInternal.queueEvent(expectedRouteEvent(Arrays.asList("22.22,33.33", "22.32,33.33", "invalid")));
+		monitorInternal.processEvents();
+
+		// verify a single bulk query at the start of the route
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(PlacesMonitorConstants.Route.PRELOAD_POI_COUNT),
+										 successCallbackCaptor.capture(), any(AdobeCallback.class));
+
+		// test and verify the POIs too sparse to cover the route are loaded, and the next query is made further along
+		successCallbackCaptor.getValue().call(samplePOIList());
+		PlacesPOICache poiCache = Whitebox.getInternalState(monitorInternal, "poiCache");
+		assertEquals(1, poiCache.getRouteAreaCount());
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(PlacesMonitorConstants.Route.PRELOAD_POI_COUNT),
+										 any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_processEvents_when_setExpectedRouteEvent_restoresNearbyPOIsOfLocation() throws Exception {
+		// setup, the POIs of the location of the user are received before a route of about 11 kilometers is set
+		initWithContext(context);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+		Mockito.when(location.getLatitude()).thenReturn(22.22);
+		Mockito.when(location.getLongitude()).thenReturn(33.33);
+		final ArgumentCaptor<Location> locationCaptor = ArgumentCaptor.forClass(Location.class);
+		PowerMockito.doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				final AdobeCallback<List<PlacesPOI>> callback = invocation.getArgument(2);
+				callback.call(samplePOIList());
+				return null;
+			}
+		}).when(Places.class, "getNearbyPointsOfInterest", any(Location.class), anyInt(), any(AdobeCallback.class),
+				any(AdobeCallback.class));
+		monitorInternal.getPOIsForLocation(location);
+
+		// test
+		monitorInternal.queueEvent(expectedRouteEvent(Arrays.asList("22.22,33.33", "22.32,33.33")));
+		monitorInternal.processEvents();
+
+		// verify the route is loaded with the sparse POIs every 5 kilometers, then the location of the user is queried again
+		verifyStatic(Places.class, Mockito.times(3));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(PlacesMonitorConstants.Route.PRELOAD_POI_COUNT),
+										 any(AdobeCallback.class), any(AdobeCallback.class));
+		verifyStatic(Places.class, Mockito.times(5));
+		Places.getNearbyPointsOfInterest(locationCaptor.capture(), anyInt(), any(AdobeCallback.class),
+										 any(AdobeCallback.class));
+		assertEquals(location, locationCaptor.getAllValues().get(4));
+		verify(geofenceManager, times(1)).startMonitoringFences(any(List.class));
+	}
+
+	@Test
+	public void test_processEvents_when_setExpectedRouteEvent_denseRoute_leavesNoUncoveredSegment() throws Exception {
+		// setup, a route of about 2 kilometers through a band of POIs 10 meters apart along it and 400 meters wide
+		initWithContext(context);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+		final List<PlacesPOI> densePOIs = new ArrayList<PlacesPOI>();
+
+		for (int i = -60; i <= 260; i++) {
+			for (int j = -4; j <= 4; j++) {
+				densePOIs.add(new PlacesPOI("poi" + i + "_" + j, "dense", 22.22 + i * 0.00009, 33.33 + j * 0.000485, 20,
+											"libraryID", 200, null));
+			}
+		}
+
+		PowerMockito.whenNew(Location.class).withAnyArguments().thenAnswer(new Answer<Location>() {
+			@Override
+			public Location answer(InvocationOnMock invocation) {
+				return new QueryLocation();
+			}
+		});
+		PowerMockito.doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				final Location query = invocation.getArgument(0);
+				final int count = invocation.getArgument(1);
+				final AdobeCallback<List<PlacesPOI>> callback = invocation.getArgument(2);
+				callback.call(nearestPOIs(densePOIs, query.getLatitude(), query.getLongitude(), count));
+				return null;
+			}
+		}).when(Places.class, "getNearbyPointsOfInterest", any(Location.class), anyInt(), any(AdobeCallback.class),
+				any(AdobeCallback.class));
+
+		// test
+		monitorInternal.queueEvent(expectedRouteEvent(Arrays.asList("22.22,33.33", "22.238,33.33")));
+		monitorInternal.processEvents();
+
+		// verify the queries are spaced by the extent they cover
+		PlacesPOICache poiCache = Whitebox.getInternalState(monitorInternal, "poiCache");
+		PlacesRouteTracker routeTracker = Whitebox.getInternalState(monitorInternal, "routeTracker");
+		assertTrue(poiCache.getRouteAreaCount() > 1);
+		assertTrue(poiCache.getRouteAreaCount() < PlacesMonitorConstants.Route.MAX_ROUTE_QUERIES);
+
+		// verify the nearby POIs of every point of the route are served from the cache
+		for (double distance = 0; distance <= routeTracker.getLength(); distance += 10) {
+			final double[] point = routeTracker.getPointAt(distance);
+			assertTrue("uncovered at " + distance + " meters", poiCache.isLocationCovered(point[0], point[1],
+					   PlacesMonitorConstants.NEARBY_GEOFENCES_COUNT, System.currentTimeMillis()));
+		}
+	}
+
+	@Test
+	public void test_processEvents_when_emptyExpectedRouteEvent_clearsRoute() {
+		// setup
+		initWithContext(context);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+		monitorInternal.queueEvent(expectedRouteEvent(Arrays.asList("22.22,33.33", "22.32,33.33")));
+		monitorInternal.processEvents();
+
+		// test
+		monitorInternal.queueEvent(expectedRouteEvent(new ArrayList<String>()));
+		monitorInternal.processEvents();
+
+		// verify
+		PlacesRouteTracker routeTracker = Whitebox.getInternalState(monitorInternal, "routeTracker");
+		assertFalse(routeTracker.hasRoute());
+	}
+
+	@Test
+	public void test_processLocation_alongExpectedRoute_queriesOncePerFix() throws Exception {
+		// setup, fixes at the start of the route, about 55 meters and about 2 kilometers further along it
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		PlacesRouteTracker routeTracker = Whitebox.getInternalState(monitorInternal, "routeTracker");
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+		final Location start = mockFix(22.22, 1000L);
+		final Location nearStart = mockFix(22.2205, 2000L);
+		final Location further = mockFix(22.24, 3000L);
+		final LocationResult startResult = LocationResult.create(Collections.singletonList(start));
+		final LocationResult nearStartResult = LocationResult.create(Collections.singletonList(nearStart));
+		final LocationResult furtherResult = LocationResult.create(Collections.singletonList(further));
+		PowerMockito.mockStatic(LocationResult.class);
+		PowerMockito.when(LocationResult.class, "extractResult", any(Intent.class)).thenReturn(startResult, nearStartResult,
+				furtherResult);
+		when(intent.getAction()).thenReturn(PlacesMonitorConstants.INTERNAL_INTENT_ACTION_LOCATION);
+		final PlacesLocationManager placesLocationManager = new PlacesLocationManager(monitorInternal);
+
+		// test and verify the fix at the start of the route swaps the geofences with a single query
+		placesLocationManager.onLocationReceived(intent);
+		verify(geofenceManager, times(1)).evaluateLocation(start);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+										 any(AdobeCallback.class));
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// test and verify the fix short of the swap distance is evaluated without a query
+		placesLocationManager.onLocationReceived(intent);
+		verify(geofenceManager, times(1)).evaluateLocation(nearStart);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+
+		// test and verify the fix past the swap distance swaps the geofences with a single query
+		placesLocationManager.onLocationReceived(intent);
+		verify(geofenceManager, times(1)).evaluateLocation(further);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(eq(further), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_alongExpectedRoute_whenQueryFailed_retriesSwap() {
+		// setup
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> errorCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		PlacesRouteTracker routeTracker = Whitebox.getInternalState(monitorInternal, "routeTracker");
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+		final Location start = mockFix(22.22, 1000L);
+
+		// test
+		monitorInternal.getPOIsForLocation(start);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class),
+										 errorCallbackCaptor.capture());
+		errorCallbackCaptor.getValue().call(PlacesRequestError.CONNECTIVITY_ERROR);
+		monitorInternal.getPOIsForLocation(start);
+
+		// verify the swap is still due after the failed query
+		verifyStatic(Places.class, Mockito.times(2));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_limitedByAvailableGeofenceSlots() {
+		// setup
+		initWithContext(context);
+		when(geofenceManager.getAvailableGeofenceSlots()).thenReturn(5);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(5), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_when_noGeofenceSlotsAvailable() {
+		// setup
+		initWithContext(context);
+		when(geofenceManager.getAvailableGeofenceSlots()).thenReturn(0);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	// ========================================================================================
+	// configuration
+	// ========================================================================================
+
+	@Test
+	public void test_processEvents_appliesConfigurationOnChange() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		Map<String, Object> configData = new HashMap<>();
+		configData.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 8);
+		configData.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 60000);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(configData);
+
+		// test
+		monitorInternal.queueEvent(updateLocationEvent);
+		monitorInternal.queueEvent(updateLocationEvent);
+		monitorInternal.processEvents();
+
+		// verify the configuration is applied only once
+		final ArgumentCaptor<PlacesMonitorConfiguration> configurationCaptor = ArgumentCaptor.forClass(
+					PlacesMonitorConfiguration.class);
+		verify(locationManager, times(1)).setConfiguration(configurationCaptor.capture());
+		assertEquals(60000, configurationCaptor.getValue().getLocationInterval());
+		assertEquals(8, monitorInternal.getConfiguration().getNearbyPOICount());
+
+		// verify the nearby count is used for the query
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(8), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_processConfigurationSharedState_withEmptyQueue_appliesConfiguration() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		Map<String, Object> configData = new HashMap<>();
+		configData.put(PlacesMonitorConstants.Configuration.LOCATION_INTERVAL, 60000);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(configData);
+		Event sharedStateEvent = new Event.Builder("sharedState", PlacesMonitorTestConstants.EventType.HUB,
+				PlacesMonitorTestConstants.EventSource.SHARED_STATE).build();
+
+		// test
+		monitorInternal.processConfigurationSharedState(sharedStateEvent);
+
+		// verify the configuration is applied without any queued event
+		final ArgumentCaptor<PlacesMonitorConfiguration> configurationCaptor = ArgumentCaptor.forClass(
+					PlacesMonitorConfiguration.class);
+		verify(locationManager, times(1)).setConfiguration(configurationCaptor.capture());
+		assertEquals(60000, configurationCaptor.getValue().getLocationInterval());
+		assertEquals(60000, monitorInternal.getConfiguration().getLocationInterval());
+
+		// test, the same shared state is not applied again
+		monitorInternal.processConfigurationSharedState(sharedStateEvent);
+		monitorInternal.queueEvent(updateLocationEvent);
+		monitorInternal.processEvents();
+
+		// verify
+		verify(locationManager, times(1)).setConfiguration(any(PlacesMonitorConfiguration.class));
+	}
+
+	@Test
+	public void test_processConfigurationSharedState_whenPending() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(null);
+
+		// test
+		monitorInternal.processConfigurationSharedState(updateLocationEvent);
+
+		// verify
+		verify(locationManager, times(0)).setConfiguration(any(PlacesMonitorConfiguration.class));
+	}
+
+	@Test
+	public void test_processEvents_when_softwareMonitoringMode() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		Map<String, Object> configData = new HashMap<>();
+		configData.put(PlacesMonitorConstants.Configuration.MONITORING_MODE, "software");
+		configData.put(PlacesMonitorConstants.Configuration.NEARBY_POI_COUNT, 400);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(configData);
+
+		// test
+		monitorInternal.queueEvent(startMonitoringEvent);
+		monitorInternal.processEvents();
+
+		// verify the mode is applied and the nearby POIs are refreshed
+		verify(geofenceManager, times(1)).setMonitoringMode(PlacesMonitorConfiguration.MonitoringMode.SOFTWARE);
+		verify(geofenceManager, times(1)).setConfidenceThresholds(PlacesMonitorConstants.Containment.DEFAULT_ENTER_CONFIDENCE,
+				PlacesMonitorConstants.Containment.DEFAULT_EXIT_CONFIDENCE);
+		verify(geofenceManager, times(1)).setTransitionFilterParameters(PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_DWELL_TIME,
+				PlacesMonitorConstants.TransitionFilter.DEFAULT_MIN_ABSENCE_TIME,
+				PlacesMonitorConstants.TransitionFilter.DEFAULT_EXIT_HYSTERESIS);
+		verify(geofenceManager, times(1)).setLoiteringDelay(PlacesMonitorConstants.Dwell.DEFAULT_LOITERING_DELAY);
+		verify(locationManager, times(1)).updateLocation();
+
+		// verify the nearby count is not limited by the geofence slots
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), eq(400), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_evaluateLocation() {
+		// setup
+		initWithContext(context);
+
+		// test
+		monitorInternal.evaluateLocation(location);
+
+		// verify
+		verify(geofenceManager, times(1)).evaluateLocation(location);
+	}
+
+	@Test
+	public void test_processEvents_when_defaultConfiguration() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+
+		// test
+		monitorInternal.queueEvent(updateLocationEvent);
+		monitorInternal.processEvents();
+
+		// verify
+		verify(locationManager, times(0)).setConfiguration(any(PlacesMonitorConfiguration.class));
+	}
+
+	// ========================================================================================
+	// circuit breaker
+	// ========================================================================================
+
+	@Test
+	public void test_getPOIsForLocation_when_failure_with_ServiceErrors_schedulesRetry() {
+		// setup
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final ArgumentCaptor<AdobeCallback> failureCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+				failureCallbackCaptor.capture());
+		failureCallbackCaptor.getValue().call(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE);
+
+		// verify
+		assertNotNull(Whitebox.getInternalState(monitorInternal, "pendingRetry"));
+
+		// the next fix is backed off
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_getPOIsForLocation_when_circuitOpen_servesLastKnownPOIs() {
+		// setup
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final ArgumentCaptor<AdobeCallback> failureCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+				failureCallbackCaptor.capture());
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// open the circuit
+		for (int i = 0; i < PlacesMonitorConstants.RequestRetry.FAILURE_THRESHOLD; i++) {
+			failureCallbackCaptor.getValue().call(PlacesRequestError.SERVER_RESPONSE_ERROR);
+		}
+
+		assertEquals(PlacesRequestCircuitBreaker.State.OPEN, monitorInternal.getCircuitBreakerState());
+
+		// test
+		monitorInternal.getPOIsForLocation(location);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+		verify(geofenceManager, times(2)).startMonitoringFences(ArgumentMatchers.<PlacesPOI>anyList());
+	}
+
+	@Test
+	public void test_getPOIsForLocation_when_success_closesCircuit() {
+		// setup
+		initWithContext(context);
+		final ArgumentCaptor<AdobeCallback> successCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		final ArgumentCaptor<AdobeCallback> failureCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+		monitorInternal.getPOIsForLocation(location);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), successCallbackCaptor.capture(),
+				failureCallbackCaptor.capture());
+
+		for (int i = 0; i < PlacesMonitorConstants.RequestRetry.FAILURE_THRESHOLD; i++) {
+			failureCallbackCaptor.getValue().call(PlacesRequestError.SERVER_RESPONSE_ERROR);
+		}
+
+		// test
+		successCallbackCaptor.getValue().call(samplePOIList());
+
+		// verify
+		assertEquals(PlacesRequestCircuitBreaker.State.CLOSED, monitorInternal.getCircuitBreakerState());
+		assertNull(Whitebox.getInternalState(monitorInternal, "pendingRetry"));
+	}
+
+	// ========================================================================================
+	// offline queue
+	// ========================================================================================
+
+	@Test
+	public void test_Constructor_initializesOfflineQueue() {
+		// test
+		initWithContext(context);
+
+		// verify
+		verify(offlineQueue, times(1)).loadPersistedData();
+		verify(geofenceManager, times(1)).setOfflineQueue(offlineQueue);
+		verify(context, times(1)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_stopAndStartMonitoring_followsConnectivityOnlyWhileMonitoring() {
+		// setup
+		initWithContext(context);
+		Whitebox.setInternalState(monitorInternal, "locationManager", locationManager);
+		when(extensionApi.getSharedEventState(anyString(), any(Event.class),
+											  any(ExtensionErrorCallback.class))).thenReturn(new HashMap<String, Object>());
+
+		// test
+		monitorInternal.queueEvent(stopMonitoringEventWithOutClearData);
+		monitorInternal.processEvents();
+		monitorInternal.queueEvent(stopMonitoringEvent);
+		monitorInternal.processEvents();
+
+		// verify the connectivity receiver is unregistered once
+		verify(context, times(1)).unregisterReceiver(any(BroadcastReceiver.class));
+
+		// test
+		monitorInternal.queueEvent(startMonitoringEvent);
+		monitorInternal.processEvents();
+
+		// verify the connectivity receiver is registered again
+		verify(context, times(2)).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
+	}
+
+	@Test
+	public void test_flushOfflineQueue() {
+		// setup
+		initWithContext(context);
+		PlacesTransitionBatcher.Transition exit = new PlacesTransitionBatcher.Transition("poiID1", 22.22, 33.33, 40, 2, 1000);
+		PlacesTransitionBatcher.Transition enter = new PlacesTransitionBatcher.Transition("poiID2", 22.22, 33.33, 40, 1, 2000);
+		List<PlacesOfflineQueue.Entry> entries = new ArrayList<PlacesOfflineQueue.Entry>();
+		entries.add(new PlacesOfflineQueue.Entry(exit));
+		entries.add(new PlacesOfflineQueue.Entry(enter));
+		entries.add(new PlacesOfflineQueue.Entry(22.22, 33.33, 3000));
+		Mockito.when(offlineQueue.drain()).thenReturn(entries);
+
+		// test
+		monitorInternal.flushOfflineQueue();
+
+		// verify
+		final ArgumentCaptor<List> transitionsCaptor = ArgumentCaptor.forClass(List.class);
+		verify(geofenceManager, times(1)).dispatchQueuedTransitions(transitionsCaptor.capture());
+		assertEquals(2, transitionsCaptor.getValue().size());
+		assertEquals(exit, transitionsCaptor.getValue().get(0));
+		assertEquals(enter, transitionsCaptor.getValue().get(1));
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	@Test
+	public void test_flushOfflineQueue_when_empty() {
+		// setup
+		initWithContext(context);
+		Mockito.when(offlineQueue.drain()).thenReturn(new ArrayList<PlacesOfflineQueue.Entry>());
+
+		// test
+		monitorInternal.flushOfflineQueue();
+
+		// verify
+		verify(geofenceManager, times(0)).dispatchQueuedTransitions(ArgumentMatchers.<PlacesTransitionBatcher.Transition>anyList());
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.getNearbyPointsOfInterest(any(Location.class), anyInt(), any(AdobeCallback.class), any(AdobeCallback.class));
+	}
+
+	private Event reservedGeofenceSlotsEvent(final int reservedSlots) {
+		EventData eventData = new EventData();
+		eventData.putInteger(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_RESERVED_GEOFENCE_SLOTS, reservedSlots);
+		return new Event.Builder(PlacesMonitorTestConstants.EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS,
+								 PlacesMonitorTestConstants.EventType.MONITOR,
+								 PlacesMonitorTestConstants.EventSource.REQUEST_CONTENT).setData(eventData).build();
+	}
+
+	private Event expectedRouteEvent(final List<String> waypoints) {
+		EventData eventData = new EventData();
+		eventData.putStringList(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_EXPECTED_ROUTE, waypoints);
+		return new Event.Builder(PlacesMonitorTestConstants.EVENTNAME_SET_EXPECTED_ROUTE,
+								 PlacesMonitorTestConstants.EventType.MONITOR,
+								 PlacesMonitorTestConstants.EventSource.REQUEST_CONTENT).setData(eventData).build();
+	}
+
 	private Event nearByPlacesEvent(final EventData eventData) {
 		return new Event.Builder("Near by Event",
 								 PlacesMonitorTestConstants.EventType.PLACES,
@@ -831,6 +1544,59 @@ public class PlacesMonitorInternalTests {
 		return pois;
 	}
 
+	private static List<PlacesPOI> nearestPOIs(final List<PlacesPOI> pois, final double latitude, final double longitude,
+			final int count) {
+		final List<PlacesPOI> sortedPOIs = new ArrayList<PlacesPOI>(pois);
+		Collections.sort(sortedPOIs, new Comparator<PlacesPOI>() {
+			@Override
+			public int compare(final PlacesPOI poi1, final PlacesPOI poi2) {
+				return Double.compare(PlacesGeoMath.distance(latitude, longitude, poi1),
+									  PlacesGeoMath.distance(latitude, longitude, poi2));
+			}
+		});
+		return sortedPOIs.subList(0, Math.min(count, sortedPOIs.size()));
+	}
+
+	/**
+	 * {@link Location} keeping its coordinates, for the queries made with the locations built by the extension.
+	 */
+	private static class QueryLocation extends Location {
+		private double latitude;
+		private double longitude;
+
+		QueryLocation() {
+			super(PlacesMonitorConstants.Route.LOCATION_PROVIDER);
+		}
+
+		@Override
+		public void setLatitude(final double latitude) {
+			this.latitude = latitude;
+		}
+
+		@Override
+		public double getLatitude() {
+			return latitude;
+		}
+
+		@Override
+		public void setLongitude(final double longitude) {
+			this.longitude = longitude;
+		}
+
+		@Override
+		public double getLongitude() {
+			return longitude;
+		}
+	}
+
+	private Location mockFix(final double latitude, final long time) {
+		final Location fix = Mockito.mock(Location.class);
+		Mockito.when(fix.getLatitude()).thenReturn(latitude);
+		Mockito.when(fix.getLongitude()).thenReturn(33.33);
+		Mockito.when(fix.getTime()).thenReturn(time);
+		return fix;
+	}
+
 	private void initWithContext(Context context) {
 		Mockito.when(App.getAppContext()).thenReturn(context);
 		monitorInternal = new PlacesMonitorInternal(extensionApi);
@@ -67,6 +67,7 @@ public class PlacesMonitorListenerHubSharedStateTests {
 		waitForExecutor();
 
 		// verify
+		verify(mockPlacesMonitorInternal, times(1)).processConfigurationSharedState(event);
 		verify(mockPlacesMonitorInternal, times(1)).processEvents();
 	}
 
@@ -29,6 +29,8 @@ final class PlacesMonitorTestConstants {
 	static final String EVENTNAME_STOP = "stop monitoring";
 	static final String EVENTNAME_UPDATE = "update location now";
 	static final String EVENTNAME_SET_LOCATION_PERMISSION = "set location permission";
+	static final String EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS = "set reserved geofence slots";
+	static final String EVENTNAME_SET_EXPECTED_ROUTE = "set expected route";
 	static final int NEARBY_GEOFENCES_COUNT = 20;
 
 	static final String INTERNAL_INTENT_ACTION_LOCATION = "intentactionlocation";
@@ -37,9 +39,12 @@ final class PlacesMonitorTestConstants {
 	static final String INTENT_ACTION_PERMISSION_DENIED = "permissiondenied";
 
 	static final class Location {
-		static final int REQUEST_INTERVAL = 3600;				// 1 hour
-		static final int REQUEST_FASTEST_INTERVAL = 1800;    	// 30 minutes
+		static final int REQUEST_INTERVAL = 3600;				// 3.6 seconds
+		static final int REQUEST_FASTEST_INTERVAL = 1800;    	// 1.8 seconds
 		static final int REQUEST_SMALLEST_DISPLACEMENT = 1000;   // 1 kilometer
+		static final long BACKGROUND_REQUEST_INTERVAL = 14400000L;	// 4 hours
+		static final long BACKGROUND_REQUEST_FASTEST_INTERVAL = 1800000L;	// 30 minutes
+		static final int BACKGROUND_REQUEST_SMALLEST_DISPLACEMENT = 2000;	// 2 kilometers
 
 		private Location() {
 		}
@@ -59,6 +64,8 @@ final class PlacesMonitorTestConstants {
 		static final String EVENT_DATA_CLEAR	= "clearclientdata";
 		static final String NEAR_BY_PLACES_LIST = "nearbyplaceslist";
 		static final String EVENT_DATA_LOCATION_PERMISSION = "locationpermission";
+		static final String EVENT_DATA_RESERVED_GEOFENCE_SLOTS = "reservedgeofenceslots";
+		static final String EVENT_DATA_EXPECTED_ROUTE = "expectedroute";
 		static final String REQUEST_TYPE = "requesttype";
 		static final String REQUEST_TYPE_GET_NEARBY_PLACES = "requestgetnearbyplaces";
 		static final String REQUEST_TYPE_PROCESS_REGION_EVENT = "requestprocessregionevent";
@@ -100,6 +107,7 @@ final class PlacesMonitorTestConstants {
 	static final class SharedPreference {
 		static final String MASTER_KEY = "com.adobe.placesMonitor";
 		static final String USERWITHIN_GEOFENCES_KEY = "adb_userWithinGeofences";
+		static final String POI_STATES_KEY = "adb_poiStates";
 		static final String HAS_MONITORING_STARTED_KEY = "adb_hasMonitoringStarted";
 		static final String LOCATION_PERMISSION_KEY = "adb_locationPermission";
 		private SharedPreference() {
@@ -28,6 +28,10 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import android.location.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -229,6 +233,78 @@ public class PlacesMonitorTests {
 		assertEquals("the event data should be correct",PlacesMonitorLocationPermission.WHILE_USING_APP.getValue(), event.getEventData().get(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_LOCATION_PERMISSION));
 	}
 
+	// ========================================================================================
+	// setReservedGeofenceSlots
+	// ========================================================================================
+
+	@Test
+	public void test_setReservedGeofenceSlots() {
+		// setup
+		Mockito.when(MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class))).thenReturn(true);
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		PlacesMonitor.setReservedGeofenceSlots(30);
+
+		// verify
+		verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEvent(eventCaptor.capture(), any(ExtensionErrorCallback.class));
+		Event event = eventCaptor.getValue();
+		assertEquals("the event name should be correct", PlacesMonitorTestConstants.EVENTNAME_SET_RESERVED_GEOFENCE_SLOTS,
+					 event.getName());
+		assertEquals("the event type should be correct", PlacesMonitorTestConstants.EventType.MONITOR, event.getType());
+		assertEquals("the event source should be correct", PlacesMonitorTestConstants.EventSource.REQUEST_CONTENT,
+					 event.getSource());
+		assertEquals("the event data should be correct", 30,
+					 event.getEventData().get(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_RESERVED_GEOFENCE_SLOTS));
+	}
+
+	// ========================================================================================
+	// setExpectedRoute
+	// ========================================================================================
+
+	@Test
+	public void test_setExpectedRoute() {
+		// setup
+		Mockito.when(MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class))).thenReturn(true);
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+		Location start = Mockito.mock(Location.class);
+		Mockito.when(start.getLatitude()).thenReturn(22.22);
+		Mockito.when(start.getLongitude()).thenReturn(33.33);
+		Location end = Mockito.mock(Location.class);
+		Mockito.when(end.getLatitude()).thenReturn(-22.5);
+		Mockito.when(end.getLongitude()).thenReturn(-33.0);
+
+		// test
+		PlacesMonitor.setExpectedRoute(Arrays.asList(start, null, end));
+
+		// verify
+		verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEvent(eventCaptor.capture(), any(ExtensionErrorCallback.class));
+		Event event = eventCaptor.getValue();
+		assertEquals("the event name should be correct", PlacesMonitorTestConstants.EVENTNAME_SET_EXPECTED_ROUTE,
+					 event.getName());
+		assertEquals("the event type should be correct", PlacesMonitorTestConstants.EventType.MONITOR, event.getType());
+		assertEquals("the event data should be correct", Arrays.asList("22.22,33.33", "-22.5,-33.0"),
+					 event.getEventData().get(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_EXPECTED_ROUTE));
+	}
+
+	@Test
+	public void test_setExpectedRoute_null_clearsRoute() {
+		// setup
+		Mockito.when(MobileCore.dispatchEvent(any(Event.class), any(ExtensionErrorCallback.class))).thenReturn(true);
+		final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+
+		// test
+		PlacesMonitor.setExpectedRoute(null);
+
+		// verify
+		verifyStatic(MobileCore.class, Mockito.times(1));
+		MobileCore.dispatchEvent(eventCaptor.capture(), any(ExtensionErrorCallback.class));
+		assertEquals("the event data should be correct", new ArrayList<String>(),
+					 eventCaptor.getValue().getEventData().get(PlacesMonitorTestConstants.EventDataKeys.EVENT_DATA_EXPECTED_ROUTE));
+	}
+
 	// ========================================================================================
 	// dispatchEventCallback
 	// ========================================================================================
@@ -0,0 +1,268 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesOfflineQueueTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.google.android.gms.location.Geofence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Context.class, App.class, Location.class, ConnectivityManager.class, NetworkInfo.class})
+public class PlacesOfflineQueueTests {
+	static private String MONITOR_SHARED_PREFERENCE_KEY = "com.adobe.placesMonitor";
+	static private String OFFLINE_QUEUE_KEY = "adb_offlineQueue";
+	private PlacesOfflineQueue offlineQueue;
+
+	@Mock
+	Context context;
+
+	@Mock
+	Location location;
+
+	@Mock
+	ConnectivityManager connectivityManager;
+
+	@Mock
+	NetworkInfo networkInfo;
+
+	@Mock
+	SharedPreferences mockSharedPreference;
+
+	@Mock
+	SharedPreferences.Editor mockSharedPreferenceEditor;
+
+	@Before
+	public void before() {
+		PowerMockito.mockStatic(App.class);
+		Mockito.when(App.getAppContext()).thenReturn(context);
+		Mockito.when(context.getSharedPreferences(MONITOR_SHARED_PREFERENCE_KEY, 0)).thenReturn(mockSharedPreference);
+		Mockito.when(mockSharedPreference.edit()).thenReturn(mockSharedPreferenceEditor);
+		Mockito.when(location.getLatitude()).thenReturn(22.22);
+		Mockito.when(location.getLongitude()).thenReturn(33.33);
+		offlineQueue = new PlacesOfflineQueue();
+	}
+
+	// ========================================================================================
+	// enqueue
+	// ========================================================================================
+
+	@Test
+	public void test_enqueueTransitions_preservesOrder() {
+		// test
+		List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+		transitions.add(transition("id1", Geofence.GEOFENCE_TRANSITION_EXIT, System.currentTimeMillis()));
+		transitions.add(transition("id2", Geofence.GEOFENCE_TRANSITION_ENTER, System.currentTimeMillis()));
+		offlineQueue.enqueueTransitions(transitions);
+
+		// verify
+		List<PlacesOfflineQueue.Entry> entries = offlineQueue.drain();
+		assertEquals(2, entries.size());
+		assertEquals("id1", entries.get(0).getTransition().getIdentifier());
+		assertEquals("id2", entries.get(1).getTransition().getIdentifier());
+		assertTrue(offlineQueue.isEmpty());
+	}
+
+	@Test
+	public void test_enqueue_dropsOldestEntriesWhenFull() {
+		// test
+		for (int i = 0; i < PlacesMonitorConstants.OfflineQueue.MAX_ENTRIES + 5; i++) {
+			offlineQueue.enqueueTransitions(singleTransition("id" + i));
+		}
+
+		// verify
+		assertEquals(PlacesMonitorConstants.OfflineQueue.MAX_ENTRIES, offlineQueue.size());
+		assertEquals(5, offlineQueue.getDroppedCount());
+		assertEquals("id5", offlineQueue.drain().get(0).getTransition().getIdentifier());
+	}
+
+	@Test
+	public void test_enqueueRefresh_keepsOnlyLatestRefresh() {
+		// test
+		offlineQueue.enqueueRefresh(location);
+		offlineQueue.enqueueTransitions(singleTransition("id1"));
+		offlineQueue.enqueueRefresh(location);
+
+		// verify
+		List<PlacesOfflineQueue.Entry> entries = offlineQueue.drain();
+		assertEquals(2, entries.size());
+		assertFalse(entries.get(0).isRefresh());
+		assertTrue(entries.get(1).isRefresh());
+	}
+
+	@Test
+	public void test_enqueueRefresh_when_nullLocation() {
+		// test
+		offlineQueue.enqueueRefresh(null);
+
+		// verify
+		assertTrue(offlineQueue.isEmpty());
+	}
+
+	// ========================================================================================
+	// drain
+	// ========================================================================================
+
+	@Test
+	public void test_drain_dropsExpiredEntries() {
+		// setup
+		List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+		transitions.add(transition("expired", Geofence.GEOFENCE_TRANSITION_ENTER,
+								   System.currentTimeMillis() - PlacesMonitorConstants.OfflineQueue.MAX_AGE_MILLISECONDS - 1000));
+		transitions.add(transition("valid", Geofence.GEOFENCE_TRANSITION_ENTER, System.currentTimeMillis()));
+		offlineQueue.enqueueTransitions(transitions);
+
+		// test
+		List<PlacesOfflineQueue.Entry> entries = offlineQueue.drain();
+
+		// verify
+		assertEquals(1, entries.size());
+		assertEquals("valid", entries.get(0).getTransition().getIdentifier());
+		assertEquals(1, offlineQueue.getExpiredCount());
+		verify(mockSharedPreferenceEditor, times(1)).remove(OFFLINE_QUEUE_KEY);
+	}
+
+	// ========================================================================================
+	// persistence
+	// ========================================================================================
+
+	@Test
+	public void test_saveAndLoad_roundTrip() {
+		// setup
+		final ArgumentCaptor<String> queueCaptor = ArgumentCaptor.forClass(String.class);
+		offlineQueue.enqueueTransitions(singleTransition("id|with\nspecial chars"));
+		offlineQueue.enqueueRefresh(location);
+		verify(mockSharedPreferenceEditor, times(2)).putString(eq(OFFLINE_QUEUE_KEY), queueCaptor.capture());
+		Mockito.when(mockSharedPreference.getString(OFFLINE_QUEUE_KEY, null)).thenReturn(queueCaptor.getValue());
+
+		// test
+		PlacesOfflineQueue loadedQueue = new PlacesOfflineQueue();
+		loadedQueue.loadPersistedData();
+
+		// verify
+		List<PlacesOfflineQueue.Entry> entries = loadedQueue.drain();
+		assertEquals(2, entries.size());
+		PlacesTransitionBatcher.Transition transition = entries.get(0).getTransition();
+		assertEquals("id|with\nspecial chars", transition.getIdentifier());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transition.getTransitionType());
+		assertEquals(22.22, transition.getLatitude(), 0.000001);
+		assertEquals(33.33, transition.getLongitude(), 0.000001);
+		assertEquals(100, transition.getRadius(), 0.001);
+		assertTrue(entries.get(1).isRefresh());
+	}
+
+	@Test
+	public void test_loadPersistedData_ignoresMalformedEntries() {
+		// setup
+		Mockito.when(mockSharedPreference.getString(OFFLINE_QUEUE_KEY, null)).thenReturn("garbage\nR|notANumber|1|2\nR|1|2|3");
+
+		// test
+		offlineQueue.loadPersistedData();
+
+		// verify
+		assertEquals(1, offlineQueue.size());
+	}
+
+	@Test
+	public void test_loadPersistedData_when_nullSharedPreference() {
+		// setup
+		Mockito.when(context.getSharedPreferences(MONITOR_SHARED_PREFERENCE_KEY, 0)).thenReturn(null);
+
+		// test
+		offlineQueue.loadPersistedData();
+
+		// verify
+		assertTrue(offlineQueue.isEmpty());
+	}
+
+	@Test
+	public void test_deserialize_when_invalidEntry() {
+		assertNull(PlacesOfflineQueue.Entry.deserialize("T|1|2"));
+	}
+
+	// ========================================================================================
+	// isNetworkAvailable
+	// ========================================================================================
+
+	@Test
+	public void test_isNetworkAvailable() {
+		// setup
+		Mockito.when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+		Mockito.when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+
+		// test and verify
+		Mockito.when(networkInfo.isConnected()).thenReturn(true);
+		assertTrue(offlineQueue.isNetworkAvailable());
+		Mockito.when(networkInfo.isConnected()).thenReturn(false);
+		assertFalse(offlineQueue.isNetworkAvailable());
+		Mockito.when(connectivityManager.getActiveNetworkInfo()).thenReturn(null);
+		assertFalse(offlineQueue.isNetworkAvailable());
+	}
+
+	@Test
+	public void test_isNetworkAvailable_when_connectivityUnknown() {
+		// null connectivity manager
+		Mockito.when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(null);
+		assertTrue(offlineQueue.isNetworkAvailable());
+
+		// permission not granted
+		Mockito.when(context.getSystemService(Context.CONNECTIVITY_SERVICE)).thenThrow(new SecurityException());
+		assertTrue(offlineQueue.isNetworkAvailable());
+
+		// null context
+		Mockito.when(App.getAppContext()).thenReturn(null);
+		assertTrue(offlineQueue.isNetworkAvailable());
+	}
+
+	// ========================================================================================
+	// helpers
+	// ========================================================================================
+
+	private PlacesTransitionBatcher.Transition transition(final String id, final int transitionType, final long timestamp) {
+		return new PlacesTransitionBatcher.Transition(id, 22.22, 33.33, 100, transitionType, timestamp);
+	}
+
+	private List<PlacesTransitionBatcher.Transition> singleTransition(final String id) {
+		List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+		transitions.add(transition(id, Geofence.GEOFENCE_TRANSITION_ENTER, System.currentTimeMillis()));
+		return transitions;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOICacheTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Location.class})
+public class PlacesPOICacheTests {
+	private PlacesPOICache poiCache;
+
+	@Mock
+	Location location;
+
+	@Before
+	public void before() {
+		poiCache = new PlacesPOICache();
+		Mockito.when(location.getLatitude()).thenReturn(37.3309);
+		Mockito.when(location.getLongitude()).thenReturn(-121.8939);
+	}
+
+	@Test
+	public void test_getPOIs_when_empty() {
+		assertNull(poiCache.getPOIs(location, 20, 0));
+	}
+
+	@Test
+	public void test_getPOIs_sortsByDistanceAndLimitsCount() {
+		// setup
+		poiCache.update(samplePOIList(), 1000);
+
+		// test
+		List<PlacesPOI> pois = poiCache.getPOIs(location, 2, 2000);
+
+		// verify
+		assertEquals(2, pois.size());
+		assertEquals("near", pois.get(0).getIdentifier());
+		assertEquals("mid", pois.get(1).getIdentifier());
+	}
+
+	@Test
+	public void test_getPOIs_evaluatesContainsUserForLocation() {
+		// setup
+		List<PlacesPOI> samplePOIs = samplePOIList();
+		samplePOIs.get(0).setContainsUser(true);
+		poiCache.update(samplePOIs, 1000);
+
+		// test
+		List<PlacesPOI> pois = poiCache.getPOIs(location, 20, 2000);
+
+		// verify
+		assertTrue(pois.get(0).containsUser());
+		assertFalse(pois.get(1).containsUser());
+		assertFalse(pois.get(2).containsUser());
+		// the cached instance is not modified
+		assertTrue(samplePOIs.get(0).containsUser());
+	}
+
+	@Test
+	public void test_getPOIs_when_expired() {
+		// setup
+		poiCache.update(samplePOIList(), 1000);
+
+		// test and verify
+		assertTrue(poiCache.isExpired(1001 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS));
+		assertEquals(1000 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS, poiCache.getExpiresAt());
+		assertNull(poiCache.getPOIs(location, 20, 1001 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS));
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_withinPrefetchedArea() {
+		// setup
+		poiCache.update(samplePOIList(), 1000);
+		poiCache.prefetch(prefetchedPOIList(), 37.3309, -121.8939, 2000);
+
+		// test
+		List<PlacesPOI> pois = poiCache.getPrefetchedPOIs(location, 2, 3000);
+
+		// verify
+		assertEquals(2, pois.size());
+		assertEquals("near", pois.get(0).getIdentifier());
+		assertTrue(pois.get(0).containsUser());
+		assertEquals("ahead1", pois.get(1).getIdentifier());
+		assertEquals(1, poiCache.getPrefetchHits());
+		// the prefetched POIs are merged with the POIs of the last query, dropping the duplicates
+		assertEquals(7, poiCache.size());
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_outsidePrefetchedArea() {
+		// setup
+		List<PlacesPOI> prefetchedPOIs = new ArrayList<PlacesPOI>();
+		prefetchedPOIs.add(new PlacesPOI("ahead", "ahead", 37.38, -121.8939, 100, "libraryID", 200, null));
+		prefetchedPOIs.add(new PlacesPOI("ahead2", "ahead2", 37.385, -121.8939, 100, "libraryID", 200, null));
+		poiCache.prefetch(prefetchedPOIs, 37.38, -121.8939, 2000);
+
+		// test and verify
+		assertNull(poiCache.getPrefetchedPOIs(location, 2, 3000));
+		assertEquals(0, poiCache.getPrefetchHits());
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_nearestPOIsBeyondPrefetchedArea() {
+		// setup
+		poiCache.prefetch(prefetchedPOIList(), 37.3309, -121.8939, 2000);
+
+		// test and verify, more POIs are requested than the prefetched area is known to hold
+		assertNull(poiCache.getPrefetchedPOIs(location, 6, 3000));
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_droppedByUpdate() {
+		// setup
+		poiCache.prefetch(prefetchedPOIList(), 37.3309, -121.8939, 2000);
+
+		// test
+		poiCache.update(samplePOIList(), 3000);
+
+		// verify
+		assertNull(poiCache.getPrefetchedPOIs(location, 2, 4000));
+		assertEquals(3, poiCache.size());
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_when_expired() {
+		// setup
+		poiCache.prefetch(prefetchedPOIList(), 37.3309, -121.8939, 2000);
+
+		// test and verify
+		assertNull(poiCache.getPrefetchedPOIs(location, 2, 2001 + PlacesMonitorConstants.POICache.TTL_MILLISECONDS));
+	}
+
+	@Test
+	public void test_getPrefetchedPOIs_alongRoute() {
+		// setup, two areas loaded along a route, the location lies within the second one
+		poiCache.addRouteArea(samplePOIList(), 37.40, -121.8939, 1000);
+		poiCache.addRouteArea(prefetchedPOIList(), 37.3309, -121.8939, 1000);
+
+		// test
+		List<PlacesPOI> pois = poiCache.getPrefetchedPOIs(location, 2, 2000);
+
+		// verify
+		assertEquals(2, pois.size());
+		assertEquals("near", pois.get(0).getIdentifier());
+		assertEquals(2, poiCache.getRouteAreaCount());
+	}
+
+	@Test
+	public void test_isLocationCovered_alongRoute() {
+		// setup
+		poiCache.addRouteArea(prefetchedPOIList(), 37.3309, -121.8939, 1000);
+
+		// test and verify
+		assertTrue(poiCache.isLocationCovered(37.3309, -121.8939, 2, 2000));
+		assertFalse("more POIs than loaded", poiCache.isLocationCovered(37.3309, -121.8939, 10, 2000));
+		assertFalse("outside the loaded area", poiCache.isLocationCovered(37.40, -121.8939, 2, 2000));
+		assertEquals(0, poiCache.getPrefetchHits());
+	}
+
+	@Test
+	public void test_routeAreas_keptByUpdate_droppedByClearRoute() {
+		// setup
+		poiCache.addRouteArea(prefetchedPOIList(), 37.3309, -121.8939, 1000);
+
+		// test and verify
+		poiCache.update(new ArrayList<PlacesPOI>(), 2000);
+		assertEquals(5, poiCache.size());
+		assertEquals(2, poiCache.getPrefetchedPOIs(location, 2, 3000).size());
+
+		poiCache.clearRoute();
+		assertEquals(0, poiCache.size());
+		assertEquals(0, poiCache.getRouteAreaCount());
+		assertNull(poiCache.getPrefetchedPOIs(location, 2, 3000));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		poiCache.update(samplePOIList(), 1000);
+
+		// test
+		poiCache.clear();
+
+		// verify
+		assertEquals(0, poiCache.size());
+		assertNull(poiCache.getPOIs(location, 20, 1000));
+	}
+
+	private List<PlacesPOI> samplePOIList() {
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(new PlacesPOI("far", "far", 37.4, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("near", "near", 37.3310, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("mid", "mid", 37.3400, -121.8939, 100, "libraryID", 200, null));
+		return pois;
+	}
+
+	private List<PlacesPOI> prefetchedPOIList() {
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(new PlacesPOI("ahead1", "ahead1", 37.3312, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("ahead2", "ahead2", 37.3320, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("ahead3", "ahead3", 37.3400, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("ahead4", "ahead4", 37.3218, -121.8939, 100, "libraryID", 200, null));
+		pois.add(new PlacesPOI("mid", "mid", 37.3400, -121.8939, 100, "libraryID", 200, null));
+		return pois;
+	}
+}
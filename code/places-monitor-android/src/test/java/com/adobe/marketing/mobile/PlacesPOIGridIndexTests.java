@@ -0,0 +1,234 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIGridIndexTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesPOIGridIndexTests {
+	private static final int QUERY_COUNT = 200;
+	private static final double QUERY_RADIUS = 100;
+
+	private PlacesPOIGridIndex gridIndex;
+	private int[] results;
+
+	@Before
+	public void before() {
+		gridIndex = new PlacesPOIGridIndex(0.01);
+		results = new int[20000];
+	}
+
+	@Test
+	public void test_query_returnsOnlyNearbyCells() {
+		// setup
+		gridIndex.insert(0, 40.0005, -74.0005, 100);
+		gridIndex.insert(1, 40.0015, -74.0005, 100);
+		gridIndex.insert(2, 41, -74, 100);
+
+		// test
+		int count = gridIndex.query(40.0005, -74.0005, 0, results);
+
+		// verify
+		assertEquals(2, count);
+		assertTrue(contains(count, 0));
+		assertTrue(contains(count, 1));
+	}
+
+	@Test
+	public void test_query_includesPOIsReachingFromNeighbourCells() {
+		// setup, the POI center is two cells away but its radius covers the queried location
+		gridIndex.insert(0, 40.0255, -74.0005, 3000);
+
+		// test and verify
+		assertEquals(1, gridIndex.query(40.0005, -74.0005, 0, results));
+	}
+
+	@Test
+	public void test_query_withSearchRadius() {
+		// setup
+		gridIndex.insert(0, 40.05, -74, 50);
+
+		// test and verify
+		assertEquals(0, gridIndex.query(40, -74, 1000, results));
+		assertEquals(1, gridIndex.query(40, -74, 6000, results));
+	}
+
+	@Test
+	public void test_query_acrossAntimeridian() {
+		// setup
+		gridIndex.insert(0, 0, 179.9999, 100);
+
+		// test and verify
+		assertEquals(1, gridIndex.query(0, -179.9999, 0, results));
+	}
+
+	@Test
+	public void test_remove() {
+		// setup
+		gridIndex.insert(0, 40.0005, -74.0005, 100);
+		gridIndex.insert(1, 40.0006, -74.0005, 100);
+		gridIndex.insert(2, 40.0007, -74.0005, 100);
+
+		// test
+		gridIndex.remove(0);
+		gridIndex.remove(0);
+		gridIndex.remove(42);
+
+		// verify
+		assertEquals(2, gridIndex.size());
+		int count = gridIndex.query(40.0005, -74.0005, 0, results);
+		assertEquals(2, count);
+		assertTrue(contains(count, 1));
+		assertTrue(contains(count, 2));
+	}
+
+	@Test
+	public void test_insert_movesExistingPOI() {
+		// setup
+		gridIndex.insert(0, 40.0005, -74.0005, 100);
+
+		// test
+		gridIndex.insert(0, 45, 10, 100);
+
+		// verify
+		assertEquals(1, gridIndex.size());
+		assertEquals(0, gridIndex.query(40.0005, -74.0005, 0, results));
+		assertEquals(1, gridIndex.query(45, 10, 0, results));
+	}
+
+	@Test
+	public void test_incrementalUpdates_manyPOIs() {
+		// setup, 10000 POIs on a grid 500 meters apart
+		for (int i = 0; i < 10000; i++) {
+			gridIndex.insert(i, 40 + (i / 100) * 0.0045, -74 + (i % 100) * 0.0059, 100);
+		}
+
+		// test, expire half of them
+		for (int i = 0; i < 10000; i += 2) {
+			gridIndex.remove(i);
+		}
+
+		// verify
+		assertEquals(5000, gridIndex.size());
+		int count = gridIndex.query(40 + 10 * 0.0045, -74 + 21 * 0.0059, 0, results);
+		assertTrue(count > 0 && count < 20);
+		assertTrue(contains(count, 1021));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		gridIndex.insert(0, 40, -74, 100);
+
+		// test
+		gridIndex.clear();
+
+		// verify
+		assertEquals(0, gridIndex.size());
+		assertEquals(0, gridIndex.getCellCount());
+		assertEquals(0, gridIndex.query(40, -74, 0, results));
+	}
+
+	@Test
+	public void test_query_matchesLinearScan() {
+		// test and verify, from sparse to dense POIs
+		assertMatchesLinearScan(1000);
+		assertMatchesLinearScan(10000);
+		assertMatchesLinearScan(100000);
+	}
+
+	private void assertMatchesLinearScan(final int poiCount) {
+		// setup, POIs scattered over one square degree around New York
+		final Random random = new Random(poiCount);
+		final double[] latitudes = new double[poiCount];
+		final double[] longitudes = new double[poiCount];
+		final double[] longitudeScales = new double[poiCount];
+		final double[] queryLatitudes = new double[QUERY_COUNT];
+		final double[] queryLongitudes = new double[QUERY_COUNT];
+		gridIndex = new PlacesPOIGridIndex(0.01);
+		results = new int[poiCount];
+
+		for (int i = 0; i < poiCount; i++) {
+			latitudes[i] = 40 + random.nextDouble();
+			longitudes[i] = -74 + random.nextDouble();
+			longitudeScales[i] = PlacesGeoMath.longitudeScale(latitudes[i]);
+			gridIndex.insert(i, latitudes[i], longitudes[i], QUERY_RADIUS);
+		}
+
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			queryLatitudes[i] = 40 + random.nextDouble();
+			queryLongitudes[i] = -74 + random.nextDouble();
+		}
+
+		// test
+		final int gridMatches = gridScan(latitudes, longitudes, longitudeScales, queryLatitudes, queryLongitudes);
+		final int linearMatches = linearScan(latitudes, longitudes, longitudeScales, queryLatitudes, queryLongitudes);
+
+		// verify the grid finds the same POIs as a scan of every POI
+		assertEquals(linearMatches, gridMatches);
+	}
+
+	private int gridScan(final double[] latitudes, final double[] longitudes, final double[] longitudeScales,
+						 final double[] queryLatitudes, final double[] queryLongitudes) {
+		int matches = 0;
+
+		for (int q = 0; q < queryLatitudes.length; q++) {
+			final int count = gridIndex.query(queryLatitudes[q], queryLongitudes[q], 0, results);
+
+			for (int i = 0; i < count; i++) {
+				final int id = results[i];
+
+				if (PlacesGeoMath.contains(queryLatitudes[q], queryLongitudes[q], latitudes[id], longitudes[id],
+										   longitudeScales[id], QUERY_RADIUS)) {
+					matches++;
+				}
+			}
+		}
+
+		return matches;
+	}
+
+	private int linearScan(final double[] latitudes, final double[] longitudes, final double[] longitudeScales,
+						   final double[] queryLatitudes, final double[] queryLongitudes) {
+		int matches = 0;
+
+		for (int q = 0; q < queryLatitudes.length; q++) {
+			for (int id = 0; id < latitudes.length; id++) {
+				if (PlacesGeoMath.contains(queryLatitudes[q], queryLongitudes[q], latitudes[id], longitudes[id],
+										   longitudeScales[id], QUERY_RADIUS)) {
+					matches++;
+				}
+			}
+		}
+
+		return matches;
+	}
+
+	private boolean contains(final int count, final int id) {
+		for (int i = 0; i < count; i++) {
+			if (results[i] == id) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIKdTreeTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PlacesPOIKdTreeTests {
+	private PlacesPOIKdTree kdTree;
+	private int[] indices;
+	private double[] distances;
+
+	@Before
+	public void before() {
+		kdTree = new PlacesPOIKdTree();
+		indices = new int[50];
+		distances = new double[50];
+	}
+
+	@Test
+	public void test_nearest_whenEmpty() {
+		assertEquals(0, kdTree.nearest(40, -74, 5, indices, distances));
+	}
+
+	@Test
+	public void test_nearest_ordersByDistance() {
+		// setup
+		double[] latitudes = {40.03, 40.01, 40.02, 40.00};
+		double[] longitudes = {-74, -74, -74, -74};
+		kdTree.build(latitudes, longitudes, 4);
+
+		// test
+		int found = kdTree.nearest(40, -74, 3, indices, distances);
+
+		// verify
+		assertEquals(3, found);
+		assertEquals(3, indices[0]);
+		assertEquals(1, indices[1]);
+		assertEquals(2, indices[2]);
+		assertEquals(0, distances[0], 0.01);
+		assertEquals(1112, distances[1], 1);
+	}
+
+	@Test
+	public void test_nearest_whenKLargerThanSize() {
+		// setup
+		kdTree.build(new double[] {1, 2}, new double[] {1, 2}, 2);
+
+		// test and verify
+		assertEquals(2, kdTree.nearest(0, 0, 10, indices, distances));
+	}
+
+	@Test
+	public void test_nearest_acrossAntimeridian() {
+		// setup
+		double[] latitudes = {0, 0};
+		double[] longitudes = {179.99, 179.0};
+		kdTree.build(latitudes, longitudes, 2);
+
+		// test
+		int found = kdTree.nearest(0, -179.99, 1, indices, distances);
+
+		// verify
+		assertEquals(1, found);
+		assertEquals(0, indices[0]);
+		assertEquals(2224, distances[0], 1);
+	}
+
+	@Test
+	public void test_nearest_matchesBruteForce() {
+		// setup
+		final Random random = new Random(42);
+		final int count = 5000;
+		final double[] latitudes = new double[count];
+		final double[] longitudes = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			latitudes[i] = 40 + random.nextDouble();
+			longitudes[i] = -74 + random.nextDouble();
+		}
+
+		kdTree.build(latitudes, longitudes, count);
+
+		for (int query = 0; query < 20; query++) {
+			final double latitude = 40 + random.nextDouble();
+			final double longitude = -74 + random.nextDouble();
+
+			// test
+			int found = kdTree.nearest(latitude, longitude, 20, indices, distances);
+
+			// verify
+			final double[] expected = new double[count];
+
+			for (int i = 0; i < count; i++) {
+				expected[i] = PlacesGeoMath.distance(latitude, longitude,
+													  new PlacesPOI("id", "name", latitudes[i], longitudes[i], 100, "libraryID", 200, null));
+			}
+
+			Arrays.sort(expected);
+			assertEquals(20, found);
+
+			for (int i = 0; i < found; i++) {
+				assertEquals(expected[i], distances[i], 0.01);
+			}
+		}
+	}
+
+	@Test
+	public void test_build_replacesPreviousPOIs() {
+		// setup
+		kdTree.build(new double[] {1, 2, 3}, new double[] {1, 2, 3}, 3);
+
+		// test
+		kdTree.build(new double[] {5}, new double[] {5}, 1);
+
+		// verify
+		assertEquals(1, kdTree.size());
+		assertEquals(1, kdTree.nearest(0, 0, 5, indices, distances));
+		assertEquals(0, indices[0]);
+	}
+}
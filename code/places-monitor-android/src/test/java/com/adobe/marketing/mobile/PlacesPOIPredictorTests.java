@@ -0,0 +1,119 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIPredictorTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Location.class})
+public class PlacesPOIPredictorTests {
+	private PlacesPOIPredictor predictor;
+
+	@Mock
+	Location location;
+
+	@Before
+	public void before() {
+		predictor = new PlacesPOIPredictor();
+		Mockito.when(location.getLatitude()).thenReturn(22.22);
+		Mockito.when(location.getLongitude()).thenReturn(33.33);
+		Mockito.when(location.hasBearing()).thenReturn(true);
+		Mockito.when(location.hasSpeed()).thenReturn(true);
+		Mockito.when(location.getBearing()).thenReturn(0f);
+		Mockito.when(location.getSpeed()).thenReturn(5f);
+	}
+
+	@Test
+	public void test_predict_projectsAlongBearing() {
+		// test
+		double[] projected = predictor.predict(location, 1000);
+
+		// verify, 5 meters per second during the prediction horizon
+		assertNotNull(projected);
+		double distance = 5.0 * PlacesMonitorConstants.Prefetch.PREDICTION_HORIZON_SECONDS;
+		assertEquals(distance, PlacesGeoMath.haversine(22.22, 33.33, projected[0], projected[1]), 0.01);
+		assertEquals(33.33, projected[1], 1e-9);
+	}
+
+	@Test
+	public void test_predict_boundsProjectionDistance() {
+		// setup
+		Mockito.when(location.getSpeed()).thenReturn(40f);
+
+		// test
+		double[] projected = predictor.predict(location, 1000);
+
+		// verify
+		assertEquals(PlacesMonitorConstants.Prefetch.MAX_PROJECTION_DISTANCE,
+					 PlacesGeoMath.haversine(22.22, 33.33, projected[0], projected[1]), 0.01);
+	}
+
+	@Test
+	public void test_predict_slowOrWithoutHeading() {
+		// setup
+		Mockito.when(location.getSpeed()).thenReturn(1f);
+
+		// test and verify
+		assertNull(predictor.predict(location, 1000));
+
+		Mockito.when(location.getSpeed()).thenReturn(5f);
+		Mockito.when(location.hasBearing()).thenReturn(false);
+		assertNull(predictor.predict(location, 1000));
+		assertNull(predictor.predict(null, 1000));
+	}
+
+	@Test
+	public void test_predict_rateLimited() {
+		// setup
+		double[] projected = predictor.predict(location, 1000);
+		predictor.recordPrefetch(projected[0], projected[1], 1000);
+
+		// test and verify, too soon
+		assertNull(predictor.predict(location, 1000 + PlacesMonitorConstants.Prefetch.MIN_PREFETCH_INTERVAL - 1));
+
+		// test and verify, same area
+		assertNull(predictor.predict(location, 1000 + PlacesMonitorConstants.Prefetch.MIN_PREFETCH_INTERVAL));
+
+		// test and verify, a new area
+		Mockito.when(location.getLatitude()).thenReturn(22.25);
+		assertNotNull(predictor.predict(location, 1000 + PlacesMonitorConstants.Prefetch.MIN_PREFETCH_INTERVAL));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		double[] projected = predictor.predict(location, 1000);
+		predictor.recordPrefetch(projected[0], projected[1], 1000);
+
+		// test
+		predictor.clear();
+
+		// verify
+		assertNotNull(predictor.predict(location, 1000));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIRankerTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesPOIRankerTests {
+	private PlacesPOIRanker ranker;
+	private PlacesPOIStateTable poiStates;
+
+	@Before
+	public void before() {
+		ranker = new PlacesPOIRanker();
+		poiStates = new PlacesPOIStateTable();
+	}
+
+	@Test
+	public void test_rank_byDistance() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("far", 22.30, 200, null));
+		pois.add(poi("near", 22.2205, 200, null));
+
+		// test
+		List<PlacesPOI> rankedPOIs = ranker.rank(pois, true, 22.22, 33.33, poiStates);
+
+		// verify
+		assertEquals("near", rankedPOIs.get(0).getIdentifier());
+		assertEquals(1, ranker.getScore("near").getDistance(), 0);
+		assertTrue(ranker.getScore("far").getDistance() < 0.1);
+	}
+
+	@Test
+	public void test_rank_withoutLocation_followsServerOrder() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("first", 22.30, 200, null));
+		pois.add(poi("second", 22.22, 200, null));
+
+		// test
+		List<PlacesPOI> rankedPOIs = ranker.rank(pois, false, 0, 0, poiStates);
+
+		// verify
+		assertEquals("first", rankedPOIs.get(0).getIdentifier());
+		assertEquals(1, ranker.getScore("first").getDistance(), 0);
+		assertEquals(0.5, ranker.getScore("second").getDistance(), 0);
+	}
+
+	@Test
+	public void test_rank_metadataPriorityAndValue_outweighDistance() {
+		// setup
+		Map<String, String> metadata = new HashMap<String, String>();
+		metadata.put(PlacesMonitorConstants.POIRanking.PRIORITY_METADATA_KEY, "100");
+		metadata.put(PlacesMonitorConstants.POIRanking.VALUE_METADATA_KEY, "80");
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("near", 22.2215, 200, null));
+		pois.add(poi("valuable", 22.225, 200, metadata));
+
+		// test
+		List<PlacesPOI> rankedPOIs = ranker.rank(pois, true, 22.22, 33.33, poiStates);
+
+		// verify
+		assertEquals("valuable", rankedPOIs.get(0).getIdentifier());
+		PlacesPOIRanker.Score score = ranker.getScore("valuable");
+		assertEquals(1, score.getPriority(), 0);
+		assertEquals(0.8, score.getValue(), 1e-9);
+		assertEquals(1, ranker.getScore("near").getPriority(), 0);
+		assertEquals(0, ranker.getScore("near").getValue(), 0);
+	}
+
+	@Test
+	public void test_rank_weightIsRelativeToHighestWeight() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("light", 22.22, 50, null));
+		pois.add(poi("heavy", 22.22, 200, null));
+
+		// test
+		List<PlacesPOI> rankedPOIs = ranker.rank(pois, true, 22.22, 33.33, poiStates);
+
+		// verify
+		assertEquals("heavy", rankedPOIs.get(0).getIdentifier());
+		assertEquals(0.25, ranker.getScore("light").getPriority(), 1e-9);
+	}
+
+	@Test
+	public void test_rank_entryProbability() {
+		// setup, the user is within one POI and visited another one twice
+		poiStates.recordEntry("inside", 1000);
+		poiStates.recordEntry("visited", 1000);
+		poiStates.recordExit("visited", 2000);
+		poiStates.recordEntry("visited", 3000);
+		poiStates.recordExit("visited", 4000);
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("unknown", 22.22, 200, null));
+		pois.add(poi("visited", 22.22, 200, null));
+		pois.add(poi("inside", 22.22, 200, null));
+
+		// test
+		List<PlacesPOI> rankedPOIs = ranker.rank(pois, true, 22.22, 33.33, poiStates);
+
+		// verify
+		assertEquals("inside", rankedPOIs.get(0).getIdentifier());
+		assertEquals("visited", rankedPOIs.get(1).getIdentifier());
+		assertEquals(1, ranker.getScore("inside").getEntryProbability(), 0);
+		assertEquals(0.5, ranker.getScore("visited").getEntryProbability(), 1e-9);
+		assertEquals(0, ranker.getScore("unknown").getEntryProbability(), 0);
+	}
+
+	@Test
+	public void test_getScore_explainsScore() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 200, null));
+
+		// test
+		ranker.rank(pois, true, 22.22, 33.33, poiStates);
+
+		// verify
+		PlacesPOIRanker.Score score = ranker.getScore("id1");
+		assertEquals(PlacesMonitorConstants.POIRanking.DISTANCE_WEIGHT + PlacesMonitorConstants.POIRanking.PRIORITY_WEIGHT,
+					 score.getTotal(), 1e-9);
+		assertEquals("id1 score 0.650 (distance 1.00, priority 1.00, value 0.00, entry 0.00)", score.toString());
+		assertNull(ranker.getScore("id2"));
+	}
+
+	private PlacesPOI poi(final String id, final double latitude, final int weight, final Map<String, String> metadata) {
+		return new PlacesPOI(id, "name", latitude, 33.33, 100, "libraryID", weight, metadata);
+	}
+}
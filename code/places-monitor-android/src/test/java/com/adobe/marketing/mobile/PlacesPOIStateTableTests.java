@@ -0,0 +1,251 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIStateTableTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesPOIStateTableTests {
+	private PlacesPOIStateTable poiStates;
+
+	@Before
+	public void before() {
+		poiStates = new PlacesPOIStateTable();
+	}
+
+	@Test
+	public void test_recordEntry_onlyOnce() {
+		// test
+		assertTrue(poiStates.recordEntry("id1", 1000));
+		assertFalse(poiStates.recordEntry("id1", 2000));
+
+		// verify the repeated entry only confirms the state
+		assertEquals(PlacesPOIStateTable.State.INSIDE, poiStates.getState("id1"));
+		assertEquals(1000, poiStates.getEnteredAt("id1"));
+		assertEquals(2000, poiStates.getLastConfirmedAt("id1"));
+		assertEquals(1, poiStates.getSequence("id1"));
+	}
+
+	@Test
+	public void test_recordExit() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+
+		// test
+		assertTrue(poiStates.recordExit("id1", 3000));
+		assertFalse(poiStates.recordExit("id1", 4000));
+
+		// verify
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id1"));
+		assertEquals(0, poiStates.getEnteredAt("id1"));
+		assertEquals(3000, poiStates.getLastConfirmedAt("id1"));
+		assertEquals(2, poiStates.getSequence("id1"));
+	}
+
+	@Test
+	public void test_recordExit_whenNotEntered() {
+		// test and verify
+		assertFalse(poiStates.recordExit("id1", 1000));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id1"));
+		assertEquals(0, poiStates.size());
+	}
+
+	@Test
+	public void test_confirm() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+
+		// test
+		poiStates.confirm("id1", 5000);
+		poiStates.confirm("id2", 5000);
+
+		// verify
+		assertEquals(5000, poiStates.getLastConfirmedAt("id1"));
+		assertEquals(1, poiStates.getSequence("id1"));
+		assertEquals(1, poiStates.size());
+	}
+
+	@Test
+	public void test_markPending_andCancel() {
+		// setup
+		poiStates.recordEntry("id2", 1000);
+
+		// test
+		poiStates.markPending("id1", true);
+		poiStates.markPending("id2", false);
+
+		// verify the user is not within an entering POI but still within an exiting one
+		assertEquals(PlacesPOIStateTable.State.ENTERING, poiStates.getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.EXITING, poiStates.getState("id2"));
+		assertEquals(new HashSet<String>(Arrays.asList("id2")), poiStates.getInsideIdentifiers());
+
+		// test, the held transitions are dropped as flaps
+		poiStates.cancelPending("id1");
+		poiStates.cancelPending("id2");
+
+		// verify
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.INSIDE, poiStates.getState("id2"));
+	}
+
+	@Test
+	public void test_markPending_confirmedTransitions() {
+		// setup
+		poiStates.markPending("id1", true);
+		poiStates.recordEntry("id2", 1000);
+		poiStates.markPending("id2", false);
+
+		// test
+		assertTrue(poiStates.recordEntry("id1", 2000));
+		assertTrue(poiStates.recordExit("id2", 2000));
+
+		// verify
+		assertEquals(PlacesPOIStateTable.State.INSIDE, poiStates.getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id2"));
+	}
+
+	@Test
+	public void test_markPending_ignoresTransitionsMatchingState() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+
+		// test
+		poiStates.markPending("id1", true);
+		poiStates.markPending("id2", false);
+
+		// verify
+		assertEquals(PlacesPOIStateTable.State.INSIDE, poiStates.getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, poiStates.getState("id2"));
+	}
+
+	@Test
+	public void test_retain() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+		poiStates.recordEntry("id2", 1000);
+
+		// test
+		poiStates.retain(new HashSet<String>(Arrays.asList("id2", "id3")));
+
+		// verify
+		assertEquals(1, poiStates.size());
+		assertFalse(poiStates.isInside("id1"));
+		assertTrue(poiStates.isInside("id2"));
+	}
+
+	@Test
+	public void test_serialize_roundTrip() {
+		// setup
+		poiStates.recordEntry("id|1", 1000);
+		poiStates.confirm("id|1", 1500);
+		poiStates.recordEntry("id 2", 2000);
+		poiStates.recordExit("id 2", 2500);
+
+		// test
+		String serializedTable = poiStates.serialize();
+		PlacesPOIStateTable restoredStates = new PlacesPOIStateTable();
+		restoredStates.deserialize(serializedTable);
+
+		// verify
+		assertEquals(2, restoredStates.size());
+		assertEquals(PlacesPOIStateTable.State.INSIDE, restoredStates.getState("id|1"));
+		assertEquals(1000, restoredStates.getEnteredAt("id|1"));
+		assertEquals(1500, restoredStates.getLastConfirmedAt("id|1"));
+		assertEquals(1, restoredStates.getSequence("id|1"));
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, restoredStates.getState("id 2"));
+		assertEquals(2500, restoredStates.getLastConfirmedAt("id 2"));
+		assertEquals(2, restoredStates.getSequence("id 2"));
+	}
+
+	@Test
+	public void test_deserialize_settlesHeldTransitions() {
+		// setup
+		poiStates.markPending("id1", true);
+		poiStates.recordEntry("id2", 1000);
+		poiStates.markPending("id2", false);
+		PlacesPOIStateTable restoredStates = new PlacesPOIStateTable();
+
+		// test
+		restoredStates.deserialize(poiStates.serialize());
+
+		// verify
+		assertEquals(PlacesPOIStateTable.State.OUTSIDE, restoredStates.getState("id1"));
+		assertEquals(PlacesPOIStateTable.State.INSIDE, restoredStates.getState("id2"));
+	}
+
+	@Test
+	public void test_deserialize_ignoresMalformedEntries() {
+		// test
+		poiStates.deserialize("id1|I|1000|2000|1\nid2|Z|0|0|0\nid3|I|abc|0|0\nid4\nid5|O|0|3000|2");
+
+		// verify
+		assertEquals(2, poiStates.size());
+		assertTrue(poiStates.isInside("id1"));
+		assertEquals(2, poiStates.getSequence("id5"));
+	}
+
+	@Test
+	public void test_deserialize_nullOrEmpty() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+
+		// test and verify
+		poiStates.deserialize(null);
+		assertEquals(0, poiStates.size());
+		poiStates.deserialize("");
+		assertEquals(0, poiStates.size());
+		assertEquals("", poiStates.serialize());
+	}
+
+	@Test
+	public void test_loadInsideIdentifiers() {
+		// setup
+		Set<String> identifiers = new HashSet<String>(Arrays.asList("id1", "id2"));
+		poiStates.recordEntry("id3", 1000);
+
+		// test
+		poiStates.loadInsideIdentifiers(identifiers);
+
+		// verify
+		assertEquals(identifiers, poiStates.getInsideIdentifiers());
+		assertEquals(0, poiStates.getEnteredAt("id1"));
+		assertFalse(poiStates.isInside("id3"));
+
+		// a migrated entry is not emitted again
+		assertFalse(poiStates.recordEntry("id1", 2000));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		poiStates.recordEntry("id1", 1000);
+
+		// test
+		poiStates.clear();
+
+		// verify
+		assertEquals(0, poiStates.size());
+		assertFalse(poiStates.isInside("id1"));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesPOIStoreTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PlacesPOIStoreTests {
+	private PlacesPOIStore store;
+
+	@Before
+	public void before() {
+		store = new PlacesPOIStore();
+	}
+
+	@Test
+	public void test_load() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 60, 10, 100, 3));
+		pois.add(poi("id2", -33.5, 151.2, 250, 7));
+
+		// test
+		store.load(pois);
+
+		// verify
+		assertEquals(2, store.size());
+		assertEquals("id1", store.getIdentifier(0));
+		assertEquals(60, store.getLatitude(0), 0);
+		assertEquals(10, store.getLongitude(0), 0);
+		assertEquals(100, store.getRadius(0), 0);
+		assertEquals(3, store.getPriority(0));
+		assertEquals(0.5, store.getLongitudeScale(0), 1e-9);
+		assertEquals("id2", store.getIdentifier(1));
+		assertEquals(-33.5, store.getLatitude(1), 0);
+		assertEquals(151.2, store.getLongitude(1), 0);
+		assertEquals(250, store.getRadius(1), 0);
+		assertEquals(7, store.getPriority(1));
+	}
+
+	@Test
+	public void test_load_internsIdentifiers() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100, 1));
+		pois.add(poi("id2", 22.23, 33.34, 100, 1));
+		pois.add(poi(new String("id1"), 22.24, 33.35, 100, 1));
+
+		// test
+		store.load(pois);
+
+		// verify
+		assertEquals(3, store.size());
+		assertEquals(2, store.getIdentifierCount());
+		assertEquals(store.getIdentifierIndex(0), store.getIdentifierIndex(2));
+		assertSame(store.getIdentifier(0), store.getIdentifier(2));
+		assertEquals(1, store.findIdentifierIndex("id2"));
+		assertEquals(-1, store.findIdentifierIndex("unknown"));
+	}
+
+	@Test
+	public void test_load_replacesPreviousPOIs() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100, 1));
+		pois.add(poi("id2", 22.23, 33.34, 100, 1));
+		store.load(pois);
+		double[] latitudes = store.getLatitudes();
+
+		// test
+		List<PlacesPOI> smallerSet = new ArrayList<PlacesPOI>();
+		smallerSet.add(poi("id3", 44.44, 55.55, 200, 1));
+		store.load(smallerSet);
+
+		// verify the backing arrays are reused
+		assertEquals(1, store.size());
+		assertEquals(1, store.getIdentifierCount());
+		assertEquals("id3", store.getIdentifier(0));
+		assertEquals(-1, store.findIdentifierIndex("id1"));
+		assertSame(latitudes, store.getLatitudes());
+		assertEquals(44.44, store.getLatitudes()[0], 0);
+	}
+
+	@Test
+	public void test_load_nullList() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100, 1));
+		store.load(pois);
+
+		// test
+		store.load(null);
+
+		// verify
+		assertEquals(0, store.size());
+		assertEquals(0, store.getIdentifierCount());
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100, 1));
+		store.load(pois);
+
+		// test
+		store.clear();
+
+		// verify
+		assertEquals(0, store.size());
+		assertEquals(0, store.getLatitudes().length);
+		assertEquals(-1, store.findIdentifierIndex("id1"));
+	}
+
+	@Test
+	public void test_load_doesNotRetainPOIs() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100, 1));
+
+		// test
+		store.load(pois);
+		pois.clear();
+
+		// verify the store content does not depend on the loaded list
+		assertEquals(1, store.size());
+		assertEquals("id1", store.getIdentifier(0));
+	}
+
+	private PlacesPOI poi(final String id, final double latitude, final double longitude, final int radius,
+						  final int weight) {
+		return new PlacesPOI(id, "name", latitude, longitude, radius, "libraryID", weight, null);
+	}
+}
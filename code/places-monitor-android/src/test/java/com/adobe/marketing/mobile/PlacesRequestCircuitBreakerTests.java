@@ -0,0 +1,154 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesRequestCircuitBreakerTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesRequestCircuitBreakerTests {
+	private static final long BASE = PlacesMonitorConstants.RequestRetry.BASE_BACKOFF_MILLISECONDS;
+	private static final long MAX = PlacesMonitorConstants.RequestRetry.MAX_BACKOFF_MILLISECONDS;
+	private PlacesRequestCircuitBreaker circuitBreaker;
+
+	@Before
+	public void before() {
+		// a fixed jitter of the upper bound makes the backoff delays deterministic
+		circuitBreaker = new PlacesRequestCircuitBreaker(new Random() {
+			@Override
+			public double nextDouble() {
+				return 1.0;
+			}
+		});
+	}
+
+	@Test
+	public void test_allowRequest_when_noFailures() {
+		assertTrue(circuitBreaker.allowRequest(0));
+		assertEquals(PlacesRequestCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+	}
+
+	@Test
+	public void test_recordFailure_backsOffExponentially() {
+		assertEquals(BASE, circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 0));
+		assertEquals(2 * BASE, circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 0));
+		assertEquals(4 * BASE, circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 0));
+		assertEquals(3, circuitBreaker.getConsecutiveFailures(PlacesRequestError.SERVER_RESPONSE_ERROR));
+	}
+
+	@Test
+	public void test_recordFailure_backoffIsCapped() {
+		long delay = 0;
+
+		for (int i = 0; i < 40; i++) {
+			delay = circuitBreaker.recordFailure(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE, 0);
+		}
+
+		assertEquals(MAX, delay);
+	}
+
+	@Test
+	public void test_recordFailure_appliesJitter() {
+		// setup
+		circuitBreaker = new PlacesRequestCircuitBreaker(new Random() {
+			@Override
+			public double nextDouble() {
+				return 0.0;
+			}
+		});
+
+		// test and verify
+		assertEquals(BASE / 2, circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 0));
+	}
+
+	@Test
+	public void test_allowRequest_duringBackoff() {
+		// setup
+		long delay = circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 1000);
+
+		// test and verify
+		assertFalse(circuitBreaker.allowRequest(1000 + delay - 1));
+		assertEquals(PlacesRequestCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertTrue(circuitBreaker.allowRequest(1000 + delay));
+	}
+
+	@Test
+	public void test_circuitOpens_afterThreshold() {
+		// test
+		long now = 0;
+
+		for (int i = 0; i < PlacesMonitorConstants.RequestRetry.FAILURE_THRESHOLD; i++) {
+			now += circuitBreaker.recordFailure(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE, now);
+		}
+
+		// verify
+		assertEquals(PlacesRequestCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertEquals(PlacesRequestCircuitBreaker.State.OPEN,
+					 circuitBreaker.getState(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE));
+		assertEquals(PlacesRequestCircuitBreaker.State.CLOSED, circuitBreaker.getState(PlacesRequestError.SERVER_RESPONSE_ERROR));
+	}
+
+	@Test
+	public void test_halfOpen_allowsSingleTrial() {
+		// setup
+		openCircuit(0);
+
+		// test and verify
+		assertTrue(circuitBreaker.allowRequest(MAX));
+		assertEquals(PlacesRequestCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.allowRequest(MAX + 1));
+	}
+
+	@Test
+	public void test_halfOpen_failedTrialReopens() {
+		// setup
+		openCircuit(0);
+		circuitBreaker.allowRequest(MAX);
+
+		// test
+		circuitBreaker.recordFailure(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE, MAX);
+
+		// verify
+		assertEquals(PlacesRequestCircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.allowRequest(MAX + 1));
+	}
+
+	@Test
+	public void test_recordSuccess_closesAllCircuits() {
+		// setup
+		openCircuit(0);
+		circuitBreaker.recordFailure(PlacesRequestError.SERVER_RESPONSE_ERROR, 0);
+
+		// test
+		circuitBreaker.recordSuccess();
+
+		// verify
+		assertEquals(PlacesRequestCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(0, circuitBreaker.getConsecutiveFailures(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE));
+		assertTrue(circuitBreaker.allowRequest(0));
+	}
+
+	private void openCircuit(final long now) {
+		for (int i = 0; i < PlacesMonitorConstants.RequestRetry.FAILURE_THRESHOLD; i++) {
+			circuitBreaker.recordFailure(PlacesRequestError.QUERY_SERVICE_UNAVAILABLE, now);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesRouteTrackerTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesRouteTrackerTests {
+	private PlacesRouteTracker routeTracker;
+
+	@Before
+	public void before() {
+		routeTracker = new PlacesRouteTracker();
+	}
+
+	@Test
+	public void test_getPointAt_interpolatesAlongRoute() {
+		// setup, about 11 kilometers north then 10 kilometers east
+		routeTracker.setRoute(new double[] {22.22, 22.32, 22.32}, new double[] {33.33, 33.33, 33.4271});
+
+		// test
+		double[] start = routeTracker.getPointAt(-100);
+		double[] corner = routeTracker.getPointAt(11119.5);
+		double[] end = routeTracker.getPointAt(routeTracker.getLength() + 100);
+
+		// verify
+		assertEquals(21108, routeTracker.getLength(), 10);
+		assertEquals(22.22, start[0], 1e-9);
+		assertEquals(33.33, start[1], 1e-9);
+		assertEquals(22.32, corner[0], 1e-4);
+		assertEquals(33.33, corner[1], 1e-4);
+		assertEquals(22.32, end[0], 1e-9);
+		assertEquals(33.4271, end[1], 1e-9);
+	}
+
+	@Test
+	public void test_getPointAt_when_noRoute() {
+		// test and verify
+		assertNull(routeTracker.getPointAt(0));
+	}
+
+	@Test
+	public void test_getProgress_withinCorridor() {
+		// setup
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+
+		// test and verify, half way and 500 meters aside
+		double halfWay = routeTracker.getProgress(22.27, 33.33 + 500 / (PlacesGeoMath.METERS_PER_DEGREE *
+							PlacesGeoMath.longitudeScale(22.27)));
+		assertEquals(routeTracker.getLength() / 2, halfWay, 1);
+
+		// test and verify, 2 kilometers aside
+		assertEquals(-1, routeTracker.getProgress(22.27, 33.33 + 2000 / (PlacesGeoMath.METERS_PER_DEGREE *
+					 PlacesGeoMath.longitudeScale(22.27))), 0);
+	}
+
+	@Test
+	public void test_advance_swapsFencesAlongRoute() {
+		// setup
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+
+		// test and verify
+		assertTrue(routeTracker.advance(22.22, 33.33));
+		assertFalse(routeTracker.advance(22.225, 33.33));
+		assertTrue(routeTracker.advance(22.23, 33.33));
+		assertFalse(routeTracker.advance(22.30, 34.0));
+	}
+
+	@Test
+	public void test_isRefreshDue_untilSwapRecorded() {
+		// setup
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+
+		// test and verify
+		assertTrue("off the route corridor", routeTracker.isRefreshDue(22.30, 34.0));
+		assertTrue(routeTracker.isRefreshDue(22.22, 33.33));
+		assertTrue("no swap recorded yet", routeTracker.isRefreshDue(22.22, 33.33));
+		assertTrue(routeTracker.advance(22.22, 33.33));
+		assertFalse(routeTracker.isRefreshDue(22.225, 33.33));
+		assertTrue(routeTracker.isRefreshDue(22.23, 33.33));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		routeTracker.setRoute(new double[] {22.22, 22.32}, new double[] {33.33, 33.33});
+
+		// test
+		routeTracker.clear();
+
+		// verify
+		assertFalse(routeTracker.hasRoute());
+		assertNull(routeTracker.getPointAt(0));
+		assertFalse(routeTracker.advance(22.22, 33.33));
+	}
+}
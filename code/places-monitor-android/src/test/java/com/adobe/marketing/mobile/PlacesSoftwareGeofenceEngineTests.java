@@ -0,0 +1,320 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesSoftwareGeofenceEngineTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class PlacesSoftwareGeofenceEngineTests {
+	private PlacesSoftwareGeofenceEngine engine;
+
+	@Before
+	public void before() {
+		engine = new PlacesSoftwareGeofenceEngine();
+	}
+
+	@Test
+	public void test_evaluate_emitsEnterAndExit() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		engine.setPOIs(pois, null);
+
+		// test and verify enter, 50 meters north of the center
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22045, 33.33);
+		assertEquals(1, transitions.size());
+		assertEquals("id1", transitions.get(0).getIdentifier());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transitions.get(0).getTransitionType());
+
+		// test and verify no repeated enter
+		assertEquals(0, engine.evaluate(22.22, 33.33).size());
+
+		// test and verify exit, 150 meters north of the center
+		transitions = engine.evaluate(22.22135, 33.33);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_evaluate_transitionsOutliveReplacedPOIs() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		engine.setPOIs(pois, null);
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22, 33.33);
+
+		// test
+		List<PlacesPOI> otherPOIs = new ArrayList<PlacesPOI>();
+		otherPOIs.add(poi("id2", 44.44, 55.55, 200));
+		engine.setPOIs(otherPOIs, null);
+
+		// verify the transitions still describe the POI of their evaluation
+		assertEquals(1, transitions.size());
+		assertEquals("id1", transitions.get(0).getIdentifier());
+		assertEquals(22.22, transitions.get(0).getLatitude(), 0);
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transitions.get(0).getTransitionType());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void test_evaluate_returnsImmutableTransitions() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		engine.setPOIs(pois, null);
+
+		// test
+		engine.evaluate(22.22, 33.33).clear();
+	}
+
+	@Test
+	public void test_evaluate_scalesLongitudeByLatitude() {
+		// setup, at 60 degrees a degree of longitude is half as long as at the equator
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 60, 10, 100));
+		engine.setPOIs(pois, null);
+
+		// test and verify, 0.0017 degrees is about 95 meters east
+		assertEquals(1, engine.evaluate(60, 10.0017).size());
+		// 0.0019 degrees is about 106 meters east
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(60, 10.0019);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_evaluate_acrossAntimeridian() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 0, 179.9999, 100));
+		engine.setPOIs(pois, null);
+
+		// test and verify, about 22 meters away on the other side of the antimeridian
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(0, -179.9999);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_setPOIs_seedsInsideStateFromUserWithinGeofences() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		pois.add(poi("id2", 22.22, 33.33, 100));
+		Set<String> userWithinGeofences = new HashSet<String>();
+		userWithinGeofences.add("id1");
+
+		// test
+		engine.setPOIs(pois, userWithinGeofences);
+
+		// verify only the entry of id2 is reported
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22, 33.33);
+		assertEquals(1, transitions.size());
+		assertEquals("id2", transitions.get(0).getIdentifier());
+	}
+
+	@Test
+	public void test_setPOIs_replacesPreviousSet() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+
+		for (int i = 0; i < 10; i++) {
+			pois.add(poi("id" + i, 22.22, 33.33, 100));
+		}
+
+		engine.setPOIs(pois, null);
+		List<PlacesPOI> smallerSet = new ArrayList<PlacesPOI>();
+		smallerSet.add(poi("other", 22.22, 33.33, 100));
+
+		// test
+		engine.setPOIs(smallerSet, null);
+
+		// verify
+		assertEquals(1, engine.size());
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22, 33.33);
+		assertEquals(1, transitions.size());
+		assertEquals("other", transitions.get(0).getIdentifier());
+	}
+
+	@Test
+	public void test_evaluate_manyPOIs() {
+		// setup, a 100 x 50 grid of POIs 500 meters apart
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+
+		for (int i = 0; i < 100; i++) {
+			for (int j = 0; j < 50; j++) {
+				pois.add(poi("id" + i + "_" + j, 40 + i * 0.0045, -74 + j * 0.0059, 100));
+			}
+		}
+
+		engine.setPOIs(pois, null);
+
+		// test
+		for (int i = 0; i < 1000; i++) {
+			engine.evaluate(40 + (i % 100) * 0.0045, -74.5);
+		}
+
+		// verify
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(40 + 10 * 0.0045, -74 + 20 * 0.0059);
+		assertEquals(1, transitions.size());
+		assertEquals("id10_20", transitions.get(0).getIdentifier());
+		assertEquals(1001, engine.getEvaluationCount());
+	}
+
+	@Test
+	public void test_evaluate_manyPOIs_walkingThroughGrid() {
+		// setup, a 100 x 50 grid of POIs 500 meters apart
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+
+		for (int i = 0; i < 100; i++) {
+			for (int j = 0; j < 50; j++) {
+				pois.add(poi("id" + i + "_" + j, 40 + i * 0.0045, -74 + j * 0.0059, 100));
+			}
+		}
+
+		engine.setPOIs(pois, null);
+		int enterCount = 0;
+		int exitCount = 0;
+
+		// test, walking diagonally from one POI center to the next
+		for (int i = 0; i < 5000; i++) {
+			List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(40 + (i % 100) * 0.0045,
+					-74 + (i % 50) * 0.0059);
+
+			for (PlacesTransitionBatcher.Transition transition : transitions) {
+				if (transition.getTransitionType() == Geofence.GEOFENCE_TRANSITION_ENTER) {
+					assertEquals("id" + (i % 100) + "_" + (i % 50), transition.getIdentifier());
+					enterCount++;
+				} else {
+					exitCount++;
+				}
+			}
+		}
+
+		// verify each fix enters its POI and exits the previous one
+		assertEquals(5000, engine.getEvaluationCount());
+		assertEquals(5000, enterCount);
+		assertEquals(4999, exitCount);
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		engine.setPOIs(pois, null);
+
+		// test
+		engine.clear();
+
+		// verify
+		assertEquals(0, engine.size());
+		assertEquals(0, engine.evaluate(22.22, 33.33).size());
+	}
+
+	@Test
+	public void test_evaluate_withAccuracy_holdsUncertainTransitions() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 50));
+		engine.setPOIs(pois, null);
+
+		// test and verify, a 300 meters accurate fix at the center is not enough for an entry
+		assertEquals(0, engine.evaluate(22.22, 33.33, 300).size());
+		assertEquals(1, engine.getHeldTransitionCount());
+
+		// a 10 meters accurate fix 20 meters from the center is
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22018, 33.33, 10);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transitions.get(0).getTransitionType());
+
+		// a 300 meters accurate fix 100 meters from the center is not enough for an exit
+		assertEquals(0, engine.evaluate(22.2209, 33.33, 300).size());
+		assertEquals(2, engine.getHeldTransitionCount());
+
+		// a 10 meters accurate fix 100 meters from the center is
+		transitions = engine.evaluate(22.2209, 33.33, 10);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_evaluate_withExitHysteresis() {
+		// setup
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 100));
+		engine.setPOIs(pois, null);
+		engine.setExitHysteresis(50);
+		assertEquals(1, engine.evaluate(22.22, 33.33).size());
+
+		// test and verify, 130 meters from the center does not exit and does not enter again
+		assertEquals(0, engine.evaluate(22.22 + 130 / PlacesGeoMath.METERS_PER_DEGREE, 33.33).size());
+		assertEquals(0, engine.evaluate(22.22, 33.33).size());
+
+		// 160 meters from the center does exit
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22 + 160 / PlacesGeoMath.METERS_PER_DEGREE,
+				33.33);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_evaluate_withAccuracy_findsCandidatesWithinAccuracy() {
+		// setup, a fix whose center is outside the POI but whose accuracy circle mostly overlaps it
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 1000));
+		engine.setPOIs(pois, null);
+		engine.setConfidenceThresholds(0.1, 0.7);
+
+		// test and verify, 1010 meters from the center with a 50 meters accuracy
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22 + 1010 / PlacesGeoMath.METERS_PER_DEGREE,
+				33.33, 50);
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, transitions.get(0).getTransitionType());
+	}
+
+	@Test
+	public void test_evaluate_lowThresholds_exitedPOIDoesNotEnterAgainInSamePass() {
+		// setup, the user is within a single POI, and 1020 meters from the center with a 50 meters accuracy is confident
+		// enough both for an exit (0.75) and an entry (0.25)
+		List<PlacesPOI> pois = new ArrayList<PlacesPOI>();
+		pois.add(poi("id1", 22.22, 33.33, 1000));
+		Set<String> userWithinGeofences = new HashSet<String>();
+		userWithinGeofences.add("id1");
+		engine.setPOIs(pois, userWithinGeofences);
+		engine.setConfidenceThresholds(0.1, 0.7);
+
+		// test
+		List<PlacesTransitionBatcher.Transition> transitions = engine.evaluate(22.22 + 1020 / PlacesGeoMath.METERS_PER_DEGREE,
+				33.33, 50);
+
+		// verify a single exit is reported
+		assertEquals(1, transitions.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, transitions.get(0).getTransitionType());
+	}
+
+	private PlacesPOI poi(final String id, final double latitude, final double longitude, final int radius) {
+		return new PlacesPOI(id, "name", latitude, longitude, radius, "libraryID", 200, null);
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesTransitionBatcherTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Places.class})
+public class PlacesTransitionBatcherTests {
+	private PlacesTransitionBatcher batcher;
+
+	@Before
+	public void before() {
+		PowerMockito.mockStatic(Places.class);
+		batcher = new PlacesTransitionBatcher();
+	}
+
+	// ========================================================================================
+	// drain
+	// ========================================================================================
+
+	@Test
+	public void test_drain_ordersExitsBeforeEnters() {
+		// setup
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(geofence("id2"), Geofence.GEOFENCE_TRANSITION_EXIT);
+		batcher.add(poi("id3"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(geofence("id4"), Geofence.GEOFENCE_TRANSITION_EXIT);
+
+		// test
+		List<PlacesTransitionBatcher.Transition> batch = batcher.drain();
+
+		// verify
+		assertEquals(4, batch.size());
+		assertEquals("id2", batch.get(0).getIdentifier());
+		assertEquals("id4", batch.get(1).getIdentifier());
+		assertEquals("id1", batch.get(2).getIdentifier());
+		assertEquals("id3", batch.get(3).getIdentifier());
+		assertTrue(batcher.drain().isEmpty());
+	}
+
+	@Test
+	public void test_drain_dedupesTransitionsOfSameType() {
+		// setup
+		batcher.add(geofence("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(geofence("id1"), Geofence.GEOFENCE_TRANSITION_EXIT);
+
+		// test
+		List<PlacesTransitionBatcher.Transition> batch = batcher.drain();
+
+		// verify
+		assertEquals(2, batch.size());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_EXIT, batch.get(0).getTransitionType());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, batch.get(1).getTransitionType());
+		assertEquals(1, batcher.getDuplicateCount());
+	}
+
+	@Test
+	public void test_add_ignoresNullAndUnsupportedTransitions() {
+		// test
+		batcher.add((Geofence) null, Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add((PlacesPOI) null, Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_DWELL);
+
+		// verify
+		assertTrue(batcher.drain().isEmpty());
+	}
+
+	// ========================================================================================
+	// flush
+	// ========================================================================================
+
+	@Test
+	public void test_flush_dispatchesBatchInOrder() {
+		// setup
+		Geofence enter = geofence("id1");
+		Geofence exit = geofence("id2");
+		batcher.add(enter, Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(exit, Geofence.GEOFENCE_TRANSITION_EXIT);
+
+		// test
+		batcher.flush();
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(exit, Geofence.GEOFENCE_TRANSITION_EXIT);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(enter, Geofence.GEOFENCE_TRANSITION_ENTER);
+		assertEquals(1, batcher.getBatchCount());
+		assertEquals(2, batcher.getLastBatchSize());
+	}
+
+	@Test
+	public void test_flush_buildsGeofenceForPOITransitions() {
+		// setup
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+
+		// test
+		batcher.flush();
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), Mockito.eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+	}
+
+	@Test
+	public void test_flush_when_emptyBatch() {
+		// test
+		batcher.flush();
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), anyInt());
+		assertEquals(0, batcher.getBatchCount());
+	}
+
+	@Test
+	public void test_flush_queuesBatch_when_offline() {
+		// setup
+		PlacesOfflineQueue offlineQueue = Mockito.mock(PlacesOfflineQueue.class);
+		Mockito.when(offlineQueue.isNetworkAvailable()).thenReturn(false);
+		batcher.setOfflineQueue(offlineQueue);
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(poi("id2"), Geofence.GEOFENCE_TRANSITION_EXIT);
+
+		// test
+		batcher.flush();
+
+		// verify
+		final ArgumentCaptor<List> batchCaptor = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(offlineQueue, Mockito.times(1)).enqueueTransitions(batchCaptor.capture());
+		assertEquals(2, batchCaptor.getValue().size());
+		verifyStatic(Places.class, Mockito.times(0));
+		Places.processGeofence(any(Geofence.class), anyInt());
+		assertEquals(0, batcher.getBatchCount());
+	}
+
+	@Test
+	public void test_flush_dispatchesBatch_when_online() {
+		// setup
+		PlacesOfflineQueue offlineQueue = Mockito.mock(PlacesOfflineQueue.class);
+		Mockito.when(offlineQueue.isNetworkAvailable()).thenReturn(true);
+		batcher.setOfflineQueue(offlineQueue);
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+
+		// test
+		batcher.flush();
+
+		// verify
+		Mockito.verify(offlineQueue, Mockito.times(0)).enqueueTransitions(ArgumentMatchers.<PlacesTransitionBatcher.Transition>anyList());
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(any(Geofence.class), Mockito.eq(Geofence.GEOFENCE_TRANSITION_ENTER));
+	}
+
+	@Test
+	public void test_dispatch_dispatchesQueuedTransitions() {
+		// setup
+		List<PlacesTransitionBatcher.Transition> transitions = new ArrayList<PlacesTransitionBatcher.Transition>();
+		transitions.add(new PlacesTransitionBatcher.Transition("id1", 0, 0, 0, Geofence.GEOFENCE_TRANSITION_ENTER, 1));
+		transitions.add(new PlacesTransitionBatcher.Transition("id1", 0, 0, 0, Geofence.GEOFENCE_TRANSITION_EXIT, 2));
+
+		// test
+		batcher.dispatch(transitions);
+
+		// verify
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(transitions.get(0).getGeofence(), Geofence.GEOFENCE_TRANSITION_ENTER);
+		verifyStatic(Places.class, Mockito.times(1));
+		Places.processGeofence(transitions.get(1).getGeofence(), Geofence.GEOFENCE_TRANSITION_EXIT);
+		assertEquals(1, batcher.getBatchCount());
+		assertEquals(2, batcher.getLastBatchSize());
+	}
+
+	@Test
+	public void test_metrics_acrossBatches() {
+		// setup
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(poi("id2"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.add(poi("id3"), Geofence.GEOFENCE_TRANSITION_ENTER);
+		batcher.flush();
+		batcher.add(poi("id1"), Geofence.GEOFENCE_TRANSITION_EXIT);
+		batcher.flush();
+
+		// verify
+		assertEquals(2, batcher.getBatchCount());
+		assertEquals(4, batcher.getTransitionCount());
+		assertEquals(1, batcher.getLastBatchSize());
+		assertEquals(3, batcher.getLargestBatchSize());
+		assertEquals(2.0, batcher.getAverageBatchSize(), 0.001);
+	}
+
+	// ========================================================================================
+	// helpers
+	// ========================================================================================
+
+	private PlacesPOI poi(final String id) {
+		return new PlacesPOI(id, "name", 22.22, 33.33, 100, "libraryID", 200, null);
+	}
+
+	private Geofence geofence(final String id) {
+		return new Geofence.Builder().setRequestId(id).setTransitionTypes(
+				   Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT).setCircularRegion(22.22, 33.33,
+						   100).setExpirationDuration(Geofence.NEVER_EXPIRE).build();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ Copyright 2019 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+//
+// PlacesTransitionFilterTests.java
+//
+
+package com.adobe.marketing.mobile;
+
+import com.google.android.gms.location.Geofence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlacesTransitionFilterTests {
+	private PlacesTransitionFilter filter;
+
+	@Before
+	public void before() {
+		filter = new PlacesTransitionFilter();
+	}
+
+	@Test
+	public void test_offer_withoutDelays_letsTransitionsThrough() {
+		// test and verify
+		assertTrue(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_ENTER), 1000));
+		assertTrue(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_EXIT), 1001));
+		assertEquals(0, filter.getPendingCount());
+		assertEquals(0, filter.getRateReduction(), 0);
+	}
+
+	@Test
+	public void test_offer_holdsEntryUntilDwellTime() {
+		// setup
+		filter.setDelays(30000, 0);
+
+		// test
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_ENTER), 1000));
+
+		// verify the entry is released once the dwell time has elapsed
+		assertEquals(0, filter.releaseDue(30999).size());
+		List<PlacesTransitionBatcher.Transition> due = filter.releaseDue(31000);
+		assertEquals(1, due.size());
+		assertEquals("id1", due.get(0).getIdentifier());
+		assertEquals(Geofence.GEOFENCE_TRANSITION_ENTER, due.get(0).getTransitionType());
+		assertEquals(0, filter.getPendingCount());
+	}
+
+	@Test
+	public void test_offer_dropsFlappingTransitions() {
+		// setup
+		filter.setDelays(30000, 60000);
+
+		// test, the user steps in and out of the region
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_ENTER), 1000));
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_EXIT), 5000));
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_ENTER), 10000));
+
+		// verify only the last entry is held
+		assertEquals(1, filter.getPendingCount());
+		assertTrue(filter.isPending("id1"));
+		assertFalse(filter.isPending("id2"));
+		assertEquals(0, filter.releaseDue(39999).size());
+		assertEquals(1, filter.releaseDue(40000).size());
+		assertEquals(3, filter.getOfferedCount());
+		assertEquals(2, filter.getSuppressedCount());
+		assertEquals(2.0 / 3, filter.getRateReduction(), 1e-9);
+	}
+
+	@Test
+	public void test_offer_dropsRepeatedTriggers() {
+		// setup
+		filter.setDelays(0, 60000);
+
+		// test
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_EXIT), 1000));
+		assertFalse(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_EXIT), 50000));
+
+		// verify the original trigger keeps its timer
+		assertEquals(1, filter.releaseDue(61000).size());
+		assertEquals(1, filter.getSuppressedCount());
+	}
+
+	@Test
+	public void test_offer_otherTransitionTypesAreNotDelayed() {
+		// setup
+		filter.setDelays(30000, 30000);
+
+		// test and verify
+		assertTrue(filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_DWELL), 1000));
+		assertFalse(filter.offer(null, 1000));
+	}
+
+	@Test
+	public void test_clear() {
+		// setup
+		filter.setDelays(30000, 30000);
+		filter.offer(transition("id1", Geofence.GEOFENCE_TRANSITION_ENTER), 1000);
+
+		// test
+		filter.clear();
+
+		// verify
+		assertEquals(0, filter.getPendingCount());
+		assertEquals(0, filter.releaseDue(100000).size());
+	}
+
+	private PlacesTransitionBatcher.Transition transition(final String id, final int transitionType) {
+		return new PlacesTransitionBatcher.Transition(id, 22.22, 33.33, 100, transitionType, 0);
+	}
+}